@@ -0,0 +1,64 @@
+package de.uni_passau.fim.auermich.android_analysis.benchmark;
+
+import de.uni_passau.fim.auermich.android_analysis.component.Component;
+import de.uni_passau.fim.auermich.android_analysis.index.ClassHierarchy;
+import de.uni_passau.fim.auermich.android_analysis.index.ClassIndex;
+import de.uni_passau.fim.auermich.android_analysis.scanner.DexScanner;
+import de.uni_passau.fim.auermich.android_analysis.utility.ComponentUtils;
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the classification of classes into components and the XML serialization of the components on
+ * synthetic apps of different sizes, which are shaped like the ones of the {@link DexScannerBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ComponentBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int classCount;
+
+    private ClassIndex classIndex;
+
+    private List<Component> components;
+
+    @Setup(Level.Trial)
+    public void scanDexFiles() {
+        List<DexFile> dexFiles = DexScannerBenchmark.buildDexFiles(classCount);
+        components = new DexScanner(dexFiles, DexScannerBenchmark.PACKAGE_NAME, DexScannerBenchmark.SEQUENTIAL, null).scan();
+        classIndex = new ClassIndex(dexFiles);
+    }
+
+    /**
+     * Classifies each class with a fresh class hierarchy, i.e. nothing is memoized upfront.
+     */
+    @Benchmark
+    public void classifyClasses(Blackhole blackhole) {
+
+        ClassHierarchy classHierarchy = new ClassHierarchy(classIndex);
+
+        for (ClassDef classDef : classIndex.getClasses()) {
+            blackhole.consume(ComponentUtils.isActivity(classHierarchy, classDef));
+            blackhole.consume(ComponentUtils.isFragment(classHierarchy, classDef));
+            blackhole.consume(ComponentUtils.isService(classHierarchy, classDef));
+            blackhole.consume(ComponentUtils.isBroadcastReceiver(classHierarchy, classDef));
+        }
+    }
+
+    @Benchmark
+    public void toXml(Blackhole blackhole) {
+        for (Component component : components) {
+            blackhole.consume(component.toXml());
+        }
+    }
+}
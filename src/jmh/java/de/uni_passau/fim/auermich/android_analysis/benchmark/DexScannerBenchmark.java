@@ -0,0 +1,90 @@
+package de.uni_passau.fim.auermich.android_analysis.benchmark;
+
+import de.uni_passau.fim.auermich.android_analysis.AnalysisOptions;
+import de.uni_passau.fim.auermich.android_analysis.component.Component;
+import de.uni_passau.fim.auermich.android_analysis.scanner.DexScanner;
+import de.uni_passau.fim.auermich.android_analysis.synthetic.SyntheticApp;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the scan of the {@link DexScanner} on synthetic apps of different sizes, see {@link SyntheticApp}.
+ * Each invocation operates on a fresh scanner, such that no memoized state, e.g. the class hierarchy or the method
+ * summaries, carries over from one invocation to the next.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DexScannerBenchmark {
+
+    static final String PACKAGE_NAME = "com.example.synthetic";
+
+    /**
+     * The default options except that the classes are scanned by a single thread.
+     */
+    static final AnalysisOptions SEQUENTIAL = AnalysisOptions.DEFAULTS.withParallelism(1);
+
+    /**
+     * Builds the dex files of a synthetic app with the given number of classes. A tenth of the classes each are
+     * activities, services, broadcast receivers and fragments, the components pass their intents down helper chains
+     * of five helpers and the remaining classes are plain classes.
+     *
+     * @param classCount The number of classes.
+     * @return Returns the dex files of the app.
+     */
+    static List<DexFile> buildDexFiles(int classCount) {
+
+        int components = classCount / 10;
+        SyntheticApp app = new SyntheticApp(PACKAGE_NAME)
+                .activities(components)
+                .services(components)
+                .receivers(components)
+                .fragments(components)
+                .plainClasses(0)
+                .callDepth(5)
+                .registerReceiverCalls(components / 2);
+
+        return app.plainClasses(Math.max(0, classCount - app.getClassCount())).buildDexFiles();
+    }
+
+    /**
+     * The synthetic dex files, which are built once per parameter.
+     */
+    @State(Scope.Benchmark)
+    public static class Input {
+
+        @Param({"1000", "10000", "100000"})
+        public int classCount;
+
+        List<DexFile> dexFiles;
+
+        @Setup(Level.Trial)
+        public void buildDexFiles() {
+            dexFiles = DexScannerBenchmark.buildDexFiles(classCount);
+        }
+    }
+
+    /**
+     * A scanner that hasn't scanned anything yet.
+     */
+    @State(Scope.Thread)
+    public static class FreshScanner {
+
+        DexScanner scanner;
+
+        @Setup(Level.Invocation)
+        public void createScanner(Input input) {
+            scanner = new DexScanner(input.dexFiles, PACKAGE_NAME, SEQUENTIAL, null);
+        }
+    }
+
+    @Benchmark
+    public List<Component> scan(FreshScanner state) {
+        return state.scanner.scan();
+    }
+}
@@ -0,0 +1,78 @@
+package de.uni_passau.fim.auermich.android_analysis.benchmark;
+
+import de.uni_passau.fim.auermich.android_analysis.component.Component;
+import de.uni_passau.fim.auermich.android_analysis.scanner.DexScanner;
+import de.uni_passau.fim.auermich.android_analysis.synthetic.SyntheticApp;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the entire scan of synthetic apps up to the size of the largest real-world apps. Unlike the
+ * {@link DexScannerBenchmark}, the apps are generated by the {@link SyntheticApp}, i.e. the components sit on top
+ * of a class hierarchy and pass their intents down helper chains, and span as many dex files as necessary.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ScaleBenchmark {
+
+    private static final String PACKAGE_NAME = "com.example.synthetic";
+
+    /**
+     * The synthetic app, which is built once per parameter. A fortieth of the classes each are activities, services,
+     * broadcast receivers and fragments, the remaining classes are plain classes.
+     */
+    @State(Scope.Benchmark)
+    public static class Input {
+
+        @Param({"10000", "50000", "200000"})
+        public int classCount;
+
+        @Param({"3"})
+        public int hierarchyDepth;
+
+        @Param({"4"})
+        public int callDepth;
+
+        List<DexFile> dexFiles;
+
+        @Setup(Level.Trial)
+        public void buildDexFiles() {
+            int components = classCount / 40;
+            dexFiles = new SyntheticApp(PACKAGE_NAME)
+                    .activities(components)
+                    .services(components)
+                    .receivers(components)
+                    .fragments(components)
+                    .plainClasses(classCount - 4 * components)
+                    .hierarchyDepth(hierarchyDepth)
+                    .callDepth(callDepth)
+                    .registerReceiverCalls(components / 2)
+                    .buildDexFiles();
+        }
+    }
+
+    /**
+     * A scanner that hasn't scanned anything yet.
+     */
+    @State(Scope.Thread)
+    public static class FreshScanner {
+
+        DexScanner scanner;
+
+        @Setup(Level.Invocation)
+        public void createScanner(Input input) {
+            scanner = new DexScanner(input.dexFiles, PACKAGE_NAME, DexScannerBenchmark.SEQUENTIAL, null);
+        }
+    }
+
+    @Benchmark
+    public List<Component> scan(FreshScanner state) {
+        return state.scanner.scan();
+    }
+}
@@ -0,0 +1,416 @@
+package de.uni_passau.fim.auermich.android_analysis;
+
+import de.uni_passau.fim.auermich.android_analysis.cache.AnalysisCache;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analyses APKs on request within a long-running JVM, such that repeated analyses neither pay for the JVM startup nor
+ * for loading and compiling the classes of the tool and its libraries, and share the analysis cache and the compiled
+ * exclusion patterns.
+ *
+ * The daemon listens on a localhost port and speaks a line-based protocol, where each line is UTF-8 encoded and
+ * consists of tab-separated fields. A client may send any number of requests over a single connection, each request
+ * is answered by a single line:
+ * <ul>
+ *     <li>{@code ANALYZE <apk> <option>...} analyses the given APK, where the options are those of a single APK on
+ *     the command line, e.g. {@code --rac} or {@code --call-depth 5}, and default to the options the daemon has been
+ *     started with. The number of threads scanning a single APK is limited to the number of available processors.
+ *     The response is {@code OK <milliseconds> <static-data-directory> <file>...} listing the written files,
+ *     {@code BUSY <message>} if all workers are busy and the queue is full or {@code ERROR <message>}.</li>
+ *     <li>{@code PING} is answered by {@code OK}.</li>
+ *     <li>{@code SHUTDOWN} stops accepting connections, finishes the pending analyses and is answered by
+ *     {@code OK}.</li>
+ * </ul>
+ */
+public final class AnalysisDaemon {
+
+    private static final Logger LOGGER = LogManager.getLogger(AnalysisDaemon.class);
+
+    public static final String ANALYZE = "ANALYZE";
+    public static final String PING = "PING";
+    public static final String SHUTDOWN = "SHUTDOWN";
+
+    public static final String OK = "OK";
+    public static final String BUSY = "BUSY";
+    public static final String ERROR = "ERROR";
+
+    /**
+     * Separates the fields of requests and responses.
+     */
+    public static final String SEPARATOR = "\t";
+
+    // the number of requests per worker that may wait for a worker
+    private static final int QUEUED_REQUESTS_PER_WORKER = 4;
+
+    // the time granted to the connections for sending their last responses on shutdown
+    private static final long SHUTDOWN_GRACE_SECONDS = 5;
+
+    private final int port;
+    private final AnalysisOptions defaults;
+
+    // the cache of previously analysed APKs or null if caching is disabled
+    private final AnalysisCache cache;
+
+    // runs the analyses, rejects requests once the queue is full
+    private final ThreadPoolExecutor workerPool;
+
+    // serves the connections, which mostly wait for the client or for their analysis
+    private final ExecutorService connectionPool;
+
+    // the analyses of the same APK are serialized since they write to the same static data directory, a lock is
+    // removed once no analysis of its APK is pending anymore
+    private final ConcurrentMap<File, ApkLock> apkLocks = new ConcurrentHashMap<>();
+
+    // the maximal number of threads a request may scan its APK with
+    private final int maxParallelism;
+
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * Creates a new daemon, which is started by {@link #run()}.
+     *
+     * @param port The localhost port to listen on or 0 for any free port.
+     * @param workers The number of APKs that are analysed concurrently.
+     * @param defaults The options of requests that don't specify otherwise.
+     * @param cache The cache of previously analysed APKs or {@code null} if caching is disabled.
+     */
+    public AnalysisDaemon(final int port, final int workers, final AnalysisOptions defaults,
+                          final AnalysisCache cache) {
+        this(port, workers, workers * QUEUED_REQUESTS_PER_WORKER, defaults, cache);
+    }
+
+    /**
+     * Creates a new daemon, which is started by {@link #run()}.
+     *
+     * @param port The localhost port to listen on or 0 for any free port.
+     * @param workers The number of APKs that are analysed concurrently.
+     * @param queueCapacity The number of requests that may wait for a worker.
+     * @param defaults The options of requests that don't specify otherwise.
+     * @param cache The cache of previously analysed APKs or {@code null} if caching is disabled.
+     */
+    public AnalysisDaemon(final int port, final int workers, final int queueCapacity,
+                          final AnalysisOptions defaults, final AnalysisCache cache) {
+        this(port, workers, queueCapacity, Runtime.getRuntime().availableProcessors(), defaults, cache);
+    }
+
+    /**
+     * Creates a new daemon, which is started by {@link #run()}.
+     *
+     * @param port The localhost port to listen on or 0 for any free port.
+     * @param workers The number of APKs that are analysed concurrently.
+     * @param queueCapacity The number of requests that may wait for a worker.
+     * @param maxParallelism The maximal number of threads a request may scan its APK with.
+     * @param defaults The options of requests that don't specify otherwise.
+     * @param cache The cache of previously analysed APKs or {@code null} if caching is disabled.
+     */
+    AnalysisDaemon(final int port, final int workers, final int queueCapacity, final int maxParallelism,
+                   final AnalysisOptions defaults, final AnalysisCache cache) {
+
+        if (port < 0 || port > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid port: " + port);
+        }
+
+        if (workers < 1) {
+            throw new IllegalArgumentException("The number of workers must be at least 1, but was " + workers);
+        }
+
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("The queue capacity must be at least 1, but was " + queueCapacity);
+        }
+
+        if (maxParallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1, but was " + maxParallelism);
+        }
+
+        this.port = port;
+        this.defaults = defaults;
+        this.cache = cache;
+        this.maxParallelism = maxParallelism;
+
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workerPool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "daemon-worker-" + workerCount.incrementAndGet()));
+
+        AtomicInteger connectionCount = new AtomicInteger();
+        this.connectionPool = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "daemon-connection-" + connectionCount.incrementAndGet());
+            // idle connections must not keep the JVM alive after the shutdown
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Accepts connections until a shutdown is requested and waits for the pending analyses afterwards.
+     *
+     * @throws IOException If the port can't be bound.
+     */
+    public void run() throws IOException {
+
+        try (ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+
+            serverSocket = server;
+            LOGGER.info("Listening for analysis requests on " + server.getLocalSocketAddress() + "!");
+
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    connectionPool.execute(() -> serve(socket));
+                } catch (SocketException e) {
+                    if (!server.isClosed()) {
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            workerPool.shutdown();
+            connectionPool.shutdown();
+            awaitTermination();
+        }
+
+        LOGGER.info("Daemon stopped.");
+    }
+
+    /**
+     * Returns the port the daemon listens on, which differs from the requested port if any free port was requested.
+     *
+     * @return Returns the port or -1 if the daemon isn't running.
+     */
+    public int getLocalPort() {
+        ServerSocket server = serverSocket;
+        return server != null && !server.isClosed() ? server.getLocalPort() : -1;
+    }
+
+    /**
+     * Stops accepting connections. The pending analyses are finished nevertheless.
+     */
+    public void shutdown() {
+
+        LOGGER.info("Shutting down the daemon...");
+        ServerSocket server = serverSocket;
+
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                LOGGER.warn("Couldn't close the server socket: " + e.getMessage());
+            }
+        }
+    }
+
+    private void awaitTermination() {
+        try {
+            workerPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            connectionPool.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workerPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Answers the requests of a single connection until the client closes it.
+     *
+     * @param socket The socket of the connection.
+     */
+    private void serve(final Socket socket) {
+
+        try (socket;
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            String request;
+
+            while ((request = reader.readLine()) != null) {
+
+                List<String> fields = Arrays.asList(request.split(SEPARATOR, -1));
+
+                writer.write(handle(fields));
+                writer.write('\n');
+                writer.flush();
+
+                if (fields.get(0).equals(SHUTDOWN)) {
+                    shutdown();
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Connection failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles a single request.
+     *
+     * @param fields The fields of the request.
+     * @return Returns the response.
+     */
+    private String handle(final List<String> fields) {
+        switch (fields.get(0)) {
+            case ANALYZE:
+                return analyze(fields.subList(1, fields.size()));
+            case PING:
+            case SHUTDOWN:
+                return OK;
+            default:
+                return response(ERROR, "Unknown request: " + fields.get(0));
+        }
+    }
+
+    /**
+     * Analyses an APK on behalf of a client and waits for the outcome.
+     *
+     * @param fields The APK followed by the options.
+     * @return Returns the response.
+     */
+    private String analyze(final List<String> fields) {
+
+        if (fields.isEmpty() || fields.get(0).isBlank()) {
+            return response(ERROR, "Missing APK!");
+        }
+
+        final File apkFile = new File(fields.get(0)).getAbsoluteFile();
+        final List<String> unknownOptions = new ArrayList<>();
+        final AnalysisOptions requested;
+
+        try {
+            requested = Main.parseOptions(fields.subList(1, fields.size()), defaults, unknownOptions);
+        } catch (IOException | IllegalArgumentException e) {
+            return response(ERROR, "Invalid options: " + e.getMessage());
+        }
+
+        if (!unknownOptions.isEmpty()) {
+            return response(ERROR, "Unsupported options: " + String.join(" ", unknownOptions));
+        }
+
+        final AnalysisOptions options = limitParallelism(requested);
+
+        if (options != requested) {
+            LOGGER.info("Limiting the threads scanning " + apkFile + " to " + maxParallelism + "!");
+        }
+
+        final long start = System.nanoTime();
+        final Future<File> analysis;
+
+        try {
+            analysis = workerPool.submit(() -> analyzeExclusively(apkFile, options));
+        } catch (RejectedExecutionException e) {
+            return workerPool.isShutdown() ? response(ERROR, "The daemon is shutting down!")
+                    : response(BUSY, "All workers are busy!");
+        }
+
+        try {
+            File staticDataDir = analysis.get();
+            List<String> response = new ArrayList<>();
+            response.add(OK);
+            response.add(String.valueOf((System.nanoTime() - start) / 1_000_000));
+            response.add(staticDataDir.getAbsolutePath());
+
+            List<String> files = Main.getStaticDataFiles(options);
+            files.add(Main.METRICS_FILE);
+
+            for (String file : files) {
+                if (new File(staticDataDir, file).exists()) {
+                    response.add(file);
+                }
+            }
+            return String.join(SEPARATOR, response);
+        } catch (InterruptedException e) {
+            analysis.cancel(true);
+            Thread.currentThread().interrupt();
+            return response(ERROR, "The analysis has been interrupted!");
+        } catch (ExecutionException e) {
+            LOGGER.error("Analysis of APK " + apkFile + " failed!", e.getCause());
+            return response(ERROR, String.valueOf(e.getCause()));
+        }
+    }
+
+    /**
+     * Limits the threads a request may scan its APK with, since the workers already analyse several APKs
+     * concurrently.
+     *
+     * @param requested The options of the request.
+     * @return Returns the given options if they stay within the limit, otherwise a copy with the limited parallelism.
+     */
+    AnalysisOptions limitParallelism(final AnalysisOptions requested) {
+        return requested.getParallelism() > maxParallelism ? requested.withParallelism(maxParallelism) : requested;
+    }
+
+    /**
+     * Returns the number of APKs currently holding a lock, i.e. being analysed or waiting for their analysis.
+     *
+     * @return Returns the number of locked APKs.
+     */
+    int getLockedApks() {
+        return apkLocks.size();
+    }
+
+    /**
+     * Analyses the given APK while no other analysis of the same APK is running.
+     *
+     * @param apkFile The APK file.
+     * @param options The analysis options.
+     * @return Returns the directory holding the static data.
+     * @throws IOException If the APK can't be read or the static data can't be written.
+     */
+    private File analyzeExclusively(final File apkFile, final AnalysisOptions options) throws IOException {
+
+        // the lock and its number of users are only modified atomically within the map
+        ApkLock lock = apkLocks.compute(apkFile, (file, present) -> {
+            ApkLock apkLock = present != null ? present : new ApkLock();
+            apkLock.users++;
+            return apkLock;
+        });
+
+        try {
+            synchronized (lock) {
+                return Main.analyzeAPK(apkFile, options, cache);
+            }
+        } finally {
+            apkLocks.computeIfPresent(apkFile, (file, present) -> --present.users == 0 ? null : present);
+        }
+    }
+
+    private static String response(final String status, final String message) {
+        // the message must neither split the response into fields nor into lines
+        return status + SEPARATOR + message.replaceAll("[\\t\\r\\n]+", " ");
+    }
+
+    /**
+     * The lock of an APK, which counts the analyses of the APK that are running or waiting for the lock.
+     */
+    private static final class ApkLock {
+        private int users;
+    }
+}
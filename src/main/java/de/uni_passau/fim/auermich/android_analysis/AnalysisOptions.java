@@ -0,0 +1,147 @@
+package de.uni_passau.fim.auermich.android_analysis;
+
+import de.uni_passau.fim.auermich.android_analysis.scanner.DexScanner;
+import de.uni_passau.fim.auermich.android_analysis.utility.ExclusionMatcher;
+
+import java.io.File;
+
+/**
+ * The options of the analysis of a single APK. The options are immutable, such that APKs analysed concurrently, e.g.
+ * by the {@link AnalysisDaemon}, may use different options. Each {@code with} method returns a copy with the given
+ * option changed.
+ */
+public final class AnalysisOptions {
+
+    /**
+     * The default options, i.e. only the classes of the app package are resolved, the classes are scanned by all
+     * available processors, the bundled exclusion patterns apply and neither class records nor the binary static
+     * data are written.
+     */
+    public static final AnalysisOptions DEFAULTS = new AnalysisOptions(false,
+            Runtime.getRuntime().availableProcessors(), DexScanner.DEFAULT_CALL_DEPTH, false, null,
+            ExclusionMatcher.defaults());
+
+    private final boolean resolveAllClasses;
+    private final int parallelism;
+    private final int maxCallDepth;
+    private final boolean writeBinary;
+
+    // the directory holding the class records or null if every class should be scanned
+    private final File classStoreDir;
+
+    private final ExclusionMatcher exclusionMatcher;
+
+    private AnalysisOptions(boolean resolveAllClasses, int parallelism, int maxCallDepth, boolean writeBinary,
+                            File classStoreDir, ExclusionMatcher exclusionMatcher) {
+
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1, but was " + parallelism);
+        }
+
+        if (maxCallDepth < 0) {
+            throw new IllegalArgumentException("The call depth must not be negative, but was " + maxCallDepth);
+        }
+
+        this.resolveAllClasses = resolveAllClasses;
+        this.parallelism = parallelism;
+        this.maxCallDepth = maxCallDepth;
+        this.writeBinary = writeBinary;
+        this.classStoreDir = classStoreDir;
+        this.exclusionMatcher = exclusionMatcher;
+    }
+
+    /**
+     * Whether all classes should be resolved or only those being part of the application package.
+     *
+     * @return Returns {@code true} if all classes should be resolved, otherwise {@code false}.
+     */
+    public boolean isResolveAllClasses() {
+        return resolveAllClasses;
+    }
+
+    public AnalysisOptions withResolveAllClasses(final boolean resolveAllClasses) {
+        return new AnalysisOptions(resolveAllClasses, parallelism, maxCallDepth, writeBinary, classStoreDir,
+                exclusionMatcher);
+    }
+
+    /**
+     * The number of threads scanning the classes in parallel.
+     *
+     * @return Returns the number of threads.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public AnalysisOptions withParallelism(final int parallelism) {
+        return new AnalysisOptions(resolveAllClasses, parallelism, maxCallDepth, writeBinary, classStoreDir,
+                exclusionMatcher);
+    }
+
+    /**
+     * The maximal number of nested invocations followed when scanning for intent data.
+     *
+     * @return Returns the maximal call depth.
+     */
+    public int getMaxCallDepth() {
+        return maxCallDepth;
+    }
+
+    public AnalysisOptions withMaxCallDepth(final int maxCallDepth) {
+        return new AnalysisOptions(resolveAllClasses, parallelism, maxCallDepth, writeBinary, classStoreDir,
+                exclusionMatcher);
+    }
+
+    /**
+     * Whether the static data should be additionally written in the binary format.
+     *
+     * @return Returns {@code true} if the binary static data should be written, otherwise {@code false}.
+     */
+    public boolean isWriteBinary() {
+        return writeBinary;
+    }
+
+    public AnalysisOptions withWriteBinary(final boolean writeBinary) {
+        return new AnalysisOptions(resolveAllClasses, parallelism, maxCallDepth, writeBinary, classStoreDir,
+                exclusionMatcher);
+    }
+
+    /**
+     * The directory holding the class records of previously analysed APK versions.
+     *
+     * @return Returns the directory or {@code null} if every class should be scanned.
+     */
+    public File getClassStoreDir() {
+        return classStoreDir;
+    }
+
+    public AnalysisOptions withClassStoreDir(final File classStoreDir) {
+        return new AnalysisOptions(resolveAllClasses, parallelism, maxCallDepth, writeBinary, classStoreDir,
+                exclusionMatcher);
+    }
+
+    /**
+     * The classes excluded from the analysis.
+     *
+     * @return Returns the exclusion matcher.
+     */
+    public ExclusionMatcher getExclusionMatcher() {
+        return exclusionMatcher;
+    }
+
+    public AnalysisOptions withExclusionMatcher(final ExclusionMatcher exclusionMatcher) {
+        return new AnalysisOptions(resolveAllClasses, parallelism, maxCallDepth, writeBinary, classStoreDir,
+                exclusionMatcher);
+    }
+
+    /**
+     * Describes the options affecting the static data, e.g. as part of a cache key. The parallelism and the class
+     * store don't affect the static data and are thus omitted.
+     *
+     * @return Returns the description of the options.
+     */
+    public String describeOutputOptions() {
+        return "resolveAllClasses=" + resolveAllClasses + ";callDepth=" + maxCallDepth + ";binary=" + writeBinary
+                + ";exclude=" + String.join(",", exclusionMatcher.getPatterns());
+    }
+}
@@ -0,0 +1,233 @@
+package de.uni_passau.fim.auermich.android_analysis;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analyses a batch of APKs within a single JVM. The APKs are analysed on a bounded pool of workers, where each APK
+ * is analysed in isolation, i.e. a failing APK doesn't affect the remaining ones. Once all APKs have been processed,
+ * a summary listing the outcome and the duration of each APK is logged.
+ */
+public final class BatchAnalyzer {
+
+    private static final Logger LOGGER = LogManager.getLogger(BatchAnalyzer.class);
+
+    /**
+     * The analysis of a single APK.
+     */
+    @FunctionalInterface
+    public interface Analysis {
+
+        /**
+         * Analyses the given APK.
+         *
+         * @param apkFile The APK file.
+         * @throws Exception If the analysis fails.
+         */
+        void analyze(File apkFile) throws Exception;
+    }
+
+    /**
+     * The outcome of the analysis of a single APK.
+     */
+    public static final class Result {
+
+        private final File apkFile;
+        private final long durationMillis;
+
+        // the cause of the failure or {@code null} if the analysis succeeded
+        private final Throwable failure;
+
+        private Result(File apkFile, long durationMillis, Throwable failure) {
+            this.apkFile = apkFile;
+            this.durationMillis = durationMillis;
+            this.failure = failure;
+        }
+
+        public File getApkFile() {
+            return apkFile;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public boolean isSuccess() {
+            return failure == null;
+        }
+
+        public Throwable getFailure() {
+            return failure;
+        }
+    }
+
+    // the number of APKs analysed concurrently
+    private final int workers;
+
+    /**
+     * Creates a new batch analyzer.
+     *
+     * @param workers The number of APKs that are analysed concurrently.
+     */
+    public BatchAnalyzer(final int workers) {
+
+        if (workers < 1) {
+            throw new IllegalArgumentException("The number of workers must be at least 1, but was " + workers);
+        }
+
+        this.workers = workers;
+    }
+
+    /**
+     * Collects the APKs of a batch. The batch is either a directory, where all contained APK files are considered,
+     * or a list file naming one APK per line. Empty lines and lines starting with '#' are ignored in a list file,
+     * relative paths are resolved against the directory of the list file.
+     *
+     * @param batch The directory or the list file.
+     * @return Returns the APK files in the order they should be analysed.
+     * @throws IOException If the batch can't be read.
+     */
+    public static List<File> collectAPKs(final File batch) throws IOException {
+
+        if (!batch.exists()) {
+            throw new FileNotFoundException("The batch " + batch + " doesn't exist!");
+        }
+
+        List<File> apkFiles = new ArrayList<>();
+
+        if (batch.isDirectory()) {
+
+            File[] files = batch.listFiles((dir, name) -> name.endsWith(".apk"));
+
+            if (files != null) {
+                Arrays.sort(files, Comparator.comparing(File::getName));
+                apkFiles.addAll(Arrays.asList(files));
+            }
+        } else {
+
+            for (String line : Files.readAllLines(batch.toPath(), StandardCharsets.UTF_8)) {
+
+                line = line.trim();
+
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                File apkFile = new File(line);
+                apkFiles.add(apkFile.isAbsolute() ? apkFile : new File(batch.getAbsoluteFile().getParentFile(), line));
+            }
+        }
+        return apkFiles;
+    }
+
+    /**
+     * Analyses the given APKs and logs a summary afterwards.
+     *
+     * @param apkFiles The APKs to be analysed.
+     * @param analysis The analysis applied to each APK.
+     * @return Returns the outcome of each APK in the order of the given APKs.
+     */
+    public List<Result> run(final List<File> apkFiles, final Analysis analysis) {
+
+        LOGGER.info("Analysing " + apkFiles.size() + " APKs with " + workers + " workers.");
+
+        AtomicInteger workerCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers,
+                runnable -> new Thread(runnable, "batch-worker-" + workerCount.incrementAndGet()));
+
+        List<Future<Result>> futures = new ArrayList<>();
+        List<Result> results = new ArrayList<>();
+
+        try {
+            for (File apkFile : apkFiles) {
+                futures.add(executor.submit(() -> analyze(apkFile, analysis)));
+            }
+
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The batch has been interrupted!", e);
+        } catch (ExecutionException e) {
+            // analyze() catches any failure of an APK itself
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        logSummary(results);
+        return results;
+    }
+
+    /**
+     * Analyses a single APK and records its outcome.
+     *
+     * @param apkFile The APK to be analysed.
+     * @param analysis The analysis applied to the APK.
+     * @return Returns the outcome of the analysis.
+     */
+    private static Result analyze(final File apkFile, final Analysis analysis) {
+
+        LOGGER.info("Analysing APK " + apkFile + "...");
+        long start = System.nanoTime();
+        Throwable failure = null;
+
+        try {
+            analysis.analyze(apkFile);
+        } catch (Exception | LinkageError | StackOverflowError e) {
+            // a broken APK must not terminate the whole batch
+            LOGGER.error("Analysis of APK " + apkFile + " failed!", e);
+            failure = e;
+        }
+
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+        return new Result(apkFile, durationMillis, failure);
+    }
+
+    /**
+     * Logs the outcome and the duration of each APK.
+     *
+     * @param results The outcomes of the APKs.
+     */
+    private static void logSummary(final List<Result> results) {
+
+        StringBuilder summary = new StringBuilder("Batch summary:");
+        long failed = 0;
+        long totalMillis = 0;
+
+        for (Result result : results) {
+
+            summary.append(System.lineSeparator())
+                    .append(String.format("%-8s %8d ms  %s", result.isSuccess() ? "OK" : "FAILED",
+                            result.getDurationMillis(), result.getApkFile()));
+
+            if (!result.isSuccess()) {
+                failed++;
+                summary.append(" (").append(result.getFailure()).append(")");
+            }
+            totalMillis += result.getDurationMillis();
+        }
+
+        summary.append(System.lineSeparator())
+                .append(results.size() - failed).append(" of ").append(results.size())
+                .append(" APKs analysed successfully, ").append(totalMillis).append(" ms in total.");
+
+        LOGGER.info(summary);
+    }
+}
@@ -0,0 +1,134 @@
+package de.uni_passau.fim.auermich.android_analysis;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A minimal client of the {@link AnalysisDaemon}, which sends its requests over a single connection.
+ */
+public final class DaemonClient implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(DaemonClient.class);
+
+    private final Socket socket;
+    private final BufferedReader reader;
+    private final Writer writer;
+
+    /**
+     * Connects to the daemon listening on the given localhost port.
+     *
+     * @param port The port of the daemon.
+     * @throws IOException If the daemon can't be reached.
+     */
+    public DaemonClient(final int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Requests the analysis of the given APK and waits for the response.
+     *
+     * @param apkFile The APK file, which needs to be named after the package name of the app.
+     * @param options The options of the analysis, e.g. '--rac'.
+     * @return Returns the fields of the response, see {@link AnalysisDaemon}.
+     * @throws IOException If the request can't be sent or the daemon closed the connection.
+     */
+    public List<String> analyze(final File apkFile, final String... options) throws IOException {
+
+        List<String> request = new ArrayList<>();
+        request.add(AnalysisDaemon.ANALYZE);
+        request.add(apkFile.getAbsolutePath());
+        request.addAll(Arrays.asList(options));
+        return request(request);
+    }
+
+    /**
+     * Checks whether the daemon is responsive.
+     *
+     * @return Returns the fields of the response.
+     * @throws IOException If the request can't be sent or the daemon closed the connection.
+     */
+    public List<String> ping() throws IOException {
+        return request(List.of(AnalysisDaemon.PING));
+    }
+
+    /**
+     * Requests the shutdown of the daemon.
+     *
+     * @return Returns the fields of the response.
+     * @throws IOException If the request can't be sent or the daemon closed the connection.
+     */
+    public List<String> shutdown() throws IOException {
+        return request(List.of(AnalysisDaemon.SHUTDOWN));
+    }
+
+    private List<String> request(final List<String> fields) throws IOException {
+
+        writer.write(String.join(AnalysisDaemon.SEPARATOR, fields));
+        writer.write('\n');
+        writer.flush();
+
+        String response = reader.readLine();
+
+        if (response == null) {
+            throw new EOFException("The daemon closed the connection!");
+        }
+        return Arrays.asList(response.split(AnalysisDaemon.SEPARATOR, -1));
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Sends a single request to the daemon and logs the response.
+     *
+     * @param args The port of the daemon followed by either the APK and its options, --ping or --shutdown.
+     * @throws IOException If the daemon can't be reached or the request failed.
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < 2) {
+            LOGGER.info("Usage: java -cp dexanalyzer.jar " + DaemonClient.class.getName()
+                    + " <port> <path-to-apk> <options> | --ping | --shutdown");
+            return;
+        }
+
+        try (DaemonClient client = new DaemonClient(Integer.parseInt(args[0]))) {
+
+            List<String> response;
+
+            if (args[1].equals("--ping")) {
+                response = client.ping();
+            } else if (args[1].equals("--shutdown")) {
+                response = client.shutdown();
+            } else {
+                response = client.analyze(new File(args[1]), Arrays.copyOfRange(args, 2, args.length));
+            }
+
+            LOGGER.info("Response: " + String.join(" ", response));
+
+            if (!response.get(0).equals(AnalysisDaemon.OK)) {
+                throw new IOException("The request failed: " + String.join(" ", response));
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package de.uni_passau.fim.auermich.android_analysis;
+
+import de.uni_passau.fim.auermich.android_analysis.component.Component;
+import de.uni_passau.fim.auermich.android_analysis.component.Fragment;
+import de.uni_passau.fim.auermich.android_analysis.component.bundle.ActivityAlias;
+import de.uni_passau.fim.auermich.android_analysis.result.AnalysisResult;
+import de.uni_passau.fim.auermich.android_analysis.result.ComponentResult;
+import de.uni_passau.fim.auermich.android_analysis.scanner.ClassRecordStore;
+import de.uni_passau.fim.auermich.android_analysis.scanner.DexScanner;
+import de.uni_passau.fim.auermich.android_analysis.utility.ManifestParser;
+import de.uni_passau.fim.auermich.android_analysis.utility.StageTimer;
+import lanchon.multidexlib2.BasicDexFileNamer;
+import lanchon.multidexlib2.MultiDexIO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.android.tools.smali.dexlib2.dexbacked.DexBackedDexFile;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import com.android.tools.smali.dexlib2.iface.MultiDexContainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * The in-process API of the analysis. It extracts the static data of an APK and returns it as immutable
+ * {@link AnalysisResult} without writing any file, except for the class records if requested by the options. The XML
+ * files consumed by MATE are written on top of this API, see {@link StaticDataFiles}.
+ */
+public final class DexAnalyzer {
+
+    private static final Logger LOGGER = LogManager.getLogger(DexAnalyzer.class);
+
+    /**
+     * Runs the stages of an analysis that overlap with other stages, e.g. decoding the manifest alongside the dex
+     * scan or writing the output files.
+     */
+    static final ExecutorService STAGE_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "stage-" + threadCount.incrementAndGet());
+            // idle stage threads must not keep the JVM alive
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private DexAnalyzer() {
+        throw new UnsupportedOperationException("Utility class can't be instantiated!");
+    }
+
+    /**
+     * Analyses the given APK.
+     *
+     * @param apk The APK file, which needs to be named after the package name of the app.
+     * @param options The analysis options.
+     * @return Returns the static data of the APK.
+     * @throws IOException If the APK can't be read.
+     */
+    public static AnalysisResult analyze(final Path apk, final AnalysisOptions options) throws IOException {
+        return analyze(apk, options, new StageTimer());
+    }
+
+    /**
+     * Analyses the given APK and records its stages and counters with the given timer.
+     *
+     * @param apk The APK file, which needs to be named after the package name of the app.
+     * @param options The analysis options.
+     * @param timer The timer recording the stages of the analysis.
+     * @return Returns the static data of the APK.
+     * @throws IOException If the APK can't be read.
+     */
+    public static AnalysisResult analyze(final Path apk, final AnalysisOptions options, final StageTimer timer)
+            throws IOException {
+
+        final File apkFile = apk.toFile();
+        final String packageName = getPackageName(apkFile);
+
+        // the manifest is only needed once the components are merged, thus it is decoded alongside the dex files
+        final Future<ManifestParser> manifest = STAGE_EXECUTOR.submit(() ->
+                timer.time("decode manifest", () -> ManifestParser.fromAPK(apkFile)));
+
+        try {
+            // the class records of the previous version of the app, if any
+            final ClassRecordStore classRecords = options.getClassStoreDir() != null
+                    ? ClassRecordStore.load(new File(options.getClassStoreDir(), packageName + ".records"),
+                    options.getMaxCallDepth()) : null;
+
+            // the components don't retain any dex data, thus the dex files can be collected from here on
+            final List<Component> components = scanDexFiles(apkFile, packageName, options, classRecords, timer);
+
+            // the manifest is joined only here, where it is needed for merging the components
+            final ManifestParser manifestParser = join(manifest);
+            final AnalysisResult result = timer.time("merge components",
+                    () -> createResult(packageName, components, manifestParser));
+
+            if (classRecords != null) {
+                try {
+                    timer.run("save class records", classRecords::save);
+                } catch (IOException e) {
+                    // the class records merely speed up the analysis of the next version
+                    LOGGER.warn("Couldn't save the class records: " + e.getMessage());
+                }
+            }
+            return result;
+        } finally {
+            // a failed stage stops the decoding of the manifest
+            manifest.cancel(true);
+        }
+    }
+
+    /**
+     * Reads and scans the dex files of the given APK. The dex files and the scanner are confined to this method, such
+     * that they are no longer reachable once the components have been extracted, which bounds the peak memory of
+     * large multidex apps to the dex files and the extracted data, but not the output.
+     *
+     * @param apkFile The APK file.
+     * @param packageName The package name of the app.
+     * @param options The analysis options.
+     * @param classRecords The class records of the previous version of the app or {@code null}.
+     * @param timer The timer recording the stages of the analysis.
+     * @return Returns the components including the collected static data.
+     * @throws IOException If the dex files can't be read.
+     */
+    private static List<Component> scanDexFiles(final File apkFile, final String packageName,
+                                                final AnalysisOptions options, final ClassRecordStore classRecords,
+                                                final StageTimer timer) throws IOException {
+
+        // the dex files are kept separate such that the classes outside of the app package are loaded on demand
+        final List<DexFile> dexFiles = timer.time("read dex files", () -> readDexFiles(apkFile));
+        timer.count("dexFiles", dexFiles.size());
+
+        // scan dex files for the relevant static data in a single pass
+        final DexScanner dexScanner = new DexScanner(dexFiles, packageName, options, classRecords);
+        return timer.time("scan dex files", () -> dexScanner.scan(timer));
+    }
+
+    /**
+     * Derives the package name of an app from the name of its APK.
+     *
+     * @param apkFile The APK file.
+     * @return Returns the package name.
+     */
+    static String getPackageName(final File apkFile) {
+        // we assume that the name of the APK corresponds to the package name of the app
+        return apkFile.getName().substring(0, apkFile.getName().lastIndexOf("."));
+    }
+
+    /**
+     * Reads the dex files of the given APK without merging them, i.e. without materializing their classes.
+     *
+     * @param apkFile The APK file.
+     * @return Returns the dex files in the order of their entries.
+     * @throws IOException If the dex files can't be read.
+     */
+    private static List<DexFile> readDexFiles(final File apkFile) throws IOException {
+
+        MultiDexContainer<DexBackedDexFile> container = MultiDexIO.readMultiDexContainer(true, apkFile,
+                new BasicDexFileNamer(), null, null);
+        List<DexFile> dexFiles = new ArrayList<>();
+
+        for (String entryName : container.getDexEntryNames()) {
+            dexFiles.add(container.getEntry(entryName).getDexFile());
+        }
+        return dexFiles;
+    }
+
+    /**
+     * Captures the static data of the scanned components and merges them with the components of the manifest.
+     *
+     * @param packageName The package name of the app.
+     * @param scannedComponents The components retrieved by the dex scanner.
+     * @param manifest The parser of the app's AndroidManifest.xml.
+     * @return Returns the static data of the app.
+     */
+    private static AnalysisResult createResult(String packageName, List<Component> scannedComponents,
+                                               ManifestParser manifest) {
+
+        // we are only interested in activities, services and broadcast receivers
+        List<Component> allComponents = scannedComponents.stream()
+                .filter(component -> !(component instanceof Fragment))
+                .peek(component -> LOGGER.debug("Code Component: " + component))
+                .collect(Collectors.toList());
+
+        LOGGER.debug("Could successfully parse package name and main activity: "
+                + manifest.extractMainActivityAndPackageName());
+        List<Component> manifestComponents = manifest.extractComponents();
+
+        manifestComponents.forEach(component -> LOGGER.debug("Manifest Component: " + component));
+
+        // dynamic broadcast receivers have been already marked by the dex scanner
+        List<Component> components = mergeComponents(allComponents, manifestComponents);
+
+        // the static data is captured once per component, after the attributes of the manifest have been copied
+        Map<Component, ComponentResult> results = new IdentityHashMap<>();
+        List<ComponentResult> scannedResults = new ArrayList<>();
+
+        for (Component component : scannedComponents) {
+            scannedResults.add(results.computeIfAbsent(component, ComponentResult::of));
+        }
+
+        List<ComponentResult> componentResults = new ArrayList<>();
+
+        for (Component component : components) {
+            componentResults.add(results.computeIfAbsent(component, ComponentResult::of));
+        }
+        return new AnalysisResult(packageName, componentResults, scannedResults);
+    }
+
+    private static List<Component> mergeComponents(List<Component> allComponents, List<Component> manifestComponents) {
+
+        final Set<Component> components = new HashSet<>();
+
+        for (Component component : manifestComponents) {
+
+            if (component instanceof ActivityAlias) {
+                // activity-aliases are only pseudo-components
+                components.add(component);
+                continue;
+            }
+
+            int index = allComponents.indexOf(component);
+
+            if (index != -1) {
+
+                // the component should be discoverable in the code
+                Component codeComponent = allComponents.get(allComponents.indexOf(component));
+
+                // copy over attributes
+                codeComponent.setEnabled(component.isEnabled());
+                codeComponent.setExported(component.isExported());
+
+                components.add(codeComponent);
+            } else {
+                // the AndroidManifest.xml might be not in sync with the code base
+                LOGGER.warn("Couldn't find in code base the component: " + component);
+            }
+        }
+
+        // the remaining components should be primarily dynamic broadcast receivers and abstract component classes
+        for (Component component : allComponents) {
+            if (!components.contains(component)) {
+                components.add(component);
+            }
+        }
+
+        return components.stream()
+                // we don't count abstract classes as real components
+                .filter(component -> (component instanceof ActivityAlias) || !component.isAbstract())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Waits for the given stage and re-throws its failure, if any.
+     *
+     * @param future The future of the stage.
+     * @param <T> The type of the result.
+     * @return Returns the result of the stage.
+     * @throws IOException If the stage failed with an I/O error.
+     */
+    static <T> T join(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The analysis has been interrupted!");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -1,29 +1,23 @@
 package de.uni_passau.fim.auermich.android_analysis;
 
-import de.uni_passau.fim.auermich.android_analysis.component.Component;
-import de.uni_passau.fim.auermich.android_analysis.component.Fragment;
-import de.uni_passau.fim.auermich.android_analysis.component.bundle.ActivityAlias;
-import de.uni_passau.fim.auermich.android_analysis.scanner.DexScanner;
-import de.uni_passau.fim.auermich.android_analysis.utility.ComponentUtils;
-import de.uni_passau.fim.auermich.android_analysis.utility.ManifestParser;
+import de.uni_passau.fim.auermich.android_analysis.binary.StaticDataConverter;
+import de.uni_passau.fim.auermich.android_analysis.binary.StaticDataWriter;
+import de.uni_passau.fim.auermich.android_analysis.cache.AnalysisCache;
+import de.uni_passau.fim.auermich.android_analysis.result.AnalysisResult;
+import de.uni_passau.fim.auermich.android_analysis.scanner.ScanEvents;
+import de.uni_passau.fim.auermich.android_analysis.utility.StageTimer;
 import de.uni_passau.fim.auermich.android_analysis.utility.Utility;
-import lanchon.multidexlib2.BasicDexFileNamer;
-import lanchon.multidexlib2.MultiDexIO;
-import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.config.Configurator;
-import com.android.tools.smali.dexlib2.iface.DexFile;
+import jdk.jfr.Recording;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.PrintStream;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Parses the classes.dex files of an APK and extracts for each Android application component except
@@ -38,44 +32,91 @@ public class Main {
     private static final Logger LOGGER = LogManager.getLogger(Main.class);
 
     /**
-     * The package name of the application.
+     * The static data files written for each APK.
      */
-    private static String packageName;
+    private static final List<String> STATIC_DATA_FILES = List.of(StaticDataConverter.COMPONENT_INFO_FILE,
+            StaticDataConverter.STATIC_STRINGS_FILE, StaticDataConverter.INTENT_INFO_FILE);
 
     /**
-     * Whether all classes should be resolved or only those being part of the application package.
-     * By default, only classes belonging to the application package are resolved.
+     * The file recording the duration, the CPU time and the allocated bytes of each stage of the analysis as well as
+     * the number of visited classes, methods and instructions. It is rewritten by each analysis and never cached.
      */
-    private static boolean resolveAllClasses = false;
+    static final String METRICS_FILE = "metrics.json";
+
+    /**
+     * The default size limit of the analysis cache in megabytes.
+     */
+    private static final long DEFAULT_CACHE_SIZE_MB = 512;
 
     /**
      * Defines the entry point for the static analysis of an APK.
      *
      * @param args The command line arguments. The first argument must refer to the path of the APK.
      *         The second argument (optional) --rac || --resolve-all-classes denotes whether all classes should
-     *         be resolved or not.
+     *         be resolved or not. The option (optional) --t || --threads followed by a number defines how many
+     *         threads scan the classes in parallel. The option (optional) --call-depth followed by a number
+     *         limits how many nested invocations are followed when scanning for intent data. The option (optional)
+     *         --cache followed by a directory re-uses the static data of previously analysed APKs, where the
+     *         option (optional) --cache-size followed by a number limits the cache size in MB. The option (optional)
+     *         --class-store followed by a directory only re-scans the classes that changed since the previous
+     *         version of the APK. The option (optional) --binary additionally writes the static data in a compact
+     *         binary format, see {@link StaticDataWriter}. The option (optional) --exclude followed
+     *         by a file adds the exclusion patterns of the file, one per line, and may be repeated. The option
+     *         (optional) --jfr followed by a file records the Java Flight Recorder events of the scanner, see
+     *         {@link ScanEvents}, and writes them to the file. Alternatively, the
+     *         first two arguments --batch followed by a directory or a list file of APKs analyse all those APKs
+     *         in a single run, where the option (optional) --workers followed by a number defines how many APKs
+     *         are analysed concurrently. Alternatively, the first two arguments --daemon followed by a port
+     *         start a daemon accepting analysis requests on that localhost port, see {@link AnalysisDaemon}, where
+     *         the option --workers defines how many requests are processed concurrently and the remaining options
+     *         are the defaults of the requests. In batch and daemon mode, each APK is scanned by a single thread
+     *         unless specified otherwise.
      * @throws IOException Should never happen.
      */
     public static void main(String[] args) throws IOException {
-        
-        if (args.length < 1) {
-            LOGGER.info("Usage: java -jar dexanalyzer.jar <path-to-apk> " +
-                    "--resolve-all-classes (OPTIONAL) " +
-                    "--debug (OPTIONAL). " +
-                    "The APK need to be named after the package name of the app!");
+
+        final boolean batchMode = args.length > 0 && args[0].equals("--batch");
+        final boolean daemonMode = args.length > 0 && args[0].equals("--daemon");
+
+        if (args.length < 1 || ((batchMode || daemonMode) && args.length < 2)) {
+            printUsage();
         } else {
 
-            // we assume that the name of the APK corresponds to the package name of the app
-            File apkFile = new File(args[0]);
-            packageName = apkFile.getName().substring(0, apkFile.getName().lastIndexOf("."));
-            LOGGER.info("Package Name: " + packageName);
-
-            if (args.length > 1) {
-                for (int i = 1; i < args.length; i++) {
-                    String argument = args[i];
-                    if (argument.equals("--rac") || argument.equals("--resolve-all-classes")) {
-                        LOGGER.info("Resolving all classes!");
-                        resolveAllClasses = true;
+            // by default, as many APKs as there are available processors are analysed concurrently
+            int workers = Runtime.getRuntime().availableProcessors();
+            int port = 0;
+            File cacheDir = null;
+            long cacheSizeMB = DEFAULT_CACHE_SIZE_MB;
+            File recordingFile = null;
+
+            // the APKs themselves are already analysed in parallel in batch and daemon mode
+            final AnalysisOptions defaults = batchMode || daemonMode
+                    ? AnalysisOptions.DEFAULTS.withParallelism(1) : AnalysisOptions.DEFAULTS;
+            final List<String> arguments = new ArrayList<>();
+            final AnalysisOptions options;
+
+            try {
+                if (daemonMode) {
+                    port = (int) parseNumber("--daemon", args[1], 0, 0xFFFF);
+                }
+
+                options = parseOptions(Arrays.asList(args).subList(batchMode || daemonMode ? 2 : 1, args.length),
+                        defaults, arguments);
+
+                for (int i = 0; i < arguments.size(); i++) {
+                    String argument = arguments.get(i);
+                    if (argument.equals("--workers") && i + 1 < arguments.size()) {
+                        workers = (int) parseNumber(argument, arguments.get(++i), 1, Integer.MAX_VALUE);
+                        LOGGER.info("Analysing up to " + workers + " APKs concurrently!");
+                    } else if (argument.equals("--cache") && i + 1 < arguments.size()) {
+                        cacheDir = new File(arguments.get(++i));
+                        LOGGER.info("Caching static data in " + cacheDir + "!");
+                    } else if (argument.equals("--cache-size") && i + 1 < arguments.size()) {
+                        cacheSizeMB = parseNumber(argument, arguments.get(++i), 0, Long.MAX_VALUE / (1024 * 1024));
+                        LOGGER.info("Limiting the cache to " + cacheSizeMB + " MB!");
+                    } else if (argument.equals("--jfr") && i + 1 < arguments.size()) {
+                        recordingFile = new File(arguments.get(++i));
+                        LOGGER.info("Recording the scan events to " + recordingFile + "!");
                     } else if (argument.equals("--d") || argument.equals("--debug")) {
                         LOGGER.info("Debug mode on!");
                         Configurator.setAllLevels(LogManager.getRootLogger().getName(), Level.DEBUG);
@@ -83,186 +124,207 @@ public class Main {
                         LOGGER.info("Unknown command line option: " + argument);
                     }
                 }
+            } catch (IllegalArgumentException e) {
+                LOGGER.error(e.getMessage());
+                printUsage();
+                return;
             }
 
-            // decode the APK file
-            final File decodedAPKPath = Utility.decodeAPK(apkFile);
-
-            final DexFile mergedDex = MultiDexIO.readDexFile(true, apkFile,
-                    new BasicDexFileNamer(), null, null);
+            // the cache of previously analysed APKs, caching is disabled by default
+            final AnalysisCache cache = cacheDir != null
+                    ? new AnalysisCache(cacheDir, cacheSizeMB * 1024 * 1024) : null;
 
-            // scan dex files for the relevant static data
-            final DexScanner dexScanner = new DexScanner(List.of(mergedDex), packageName, resolveAllClasses);
+            // the scan events are only recorded on demand since they are emitted per class and method
+            final Recording recording = recordingFile != null ? new Recording() : null;
 
-            // create the output directory for the static data if not present yet in the respective app folder
-            final File staticDataDir = new File(apkFile.getParentFile(), packageName + File.separator + "static_data");
-            staticDataDir.mkdirs();
-
-            generateComponentInfo(dexScanner, staticDataDir, decodedAPKPath);
-            generateStaticStrings(dexScanner, staticDataDir);
-            generateStaticIntentInfo(dexScanner, staticDataDir);
+            if (recording != null) {
+                ScanEvents.enable(recording);
+                recording.start();
+            }
 
-            // remove the decoded APK files
             try {
-                FileUtils.deleteDirectory(decodedAPKPath);
-            } catch (IOException e) {
-                LOGGER.warn("Couldn't delete directory " + decodedAPKPath + " properly!");
+                if (batchMode) {
+                    final List<File> apkFiles = BatchAnalyzer.collectAPKs(new File(args[1]));
+                    new BatchAnalyzer(workers).run(apkFiles, apkFile -> analyzeAPK(apkFile, options, cache));
+                } else if (daemonMode) {
+                    new AnalysisDaemon(port, workers, options, cache).run();
+                } else {
+                    analyzeAPK(new File(args[0]), options, cache);
+                }
+            } finally {
+                if (recording != null) {
+                    recording.stop();
+                    recording.dump(recordingFile.toPath());
+                    recording.close();
+                    LOGGER.info("Wrote the scan events to " + recordingFile + ".");
+                }
             }
         }
     }
 
     /**
-     * Generates the components.xml file listening detailed information about the individual components.
-     *
-     * @param dexScanner Scans the dex files for the static data.
-     * @param staticDataDir The directory where the components.xml file should be stored.
-     * @throws FileNotFoundException Should never happen.
+     * Logs the usage of the command line, see {@link #main(String[])}.
      */
-    private static void generateComponentInfo(DexScanner dexScanner, File staticDataDir,
-                                              File decodedAPKPath) throws FileNotFoundException {
-
-        LOGGER.info("Generating components.xml file...");
-
-        // we are only interested in activities, services and broadcast receivers
-        List<Component> allComponents = dexScanner.lookUpComponents().stream()
-                .filter(component -> !(component instanceof Fragment))
-                .peek(component -> LOGGER.debug("Code Component: " + component))
-                .collect(Collectors.toList());
-
-        ManifestParser manifest = new ManifestParser(decodedAPKPath + File.separator + "AndroidManifest.xml");
-        LOGGER.debug("Could successfully parse package name and main activity: "
-                + manifest.extractMainActivityAndPackageName());
-        List<Component> manifestComponents = manifest.extractComponents();
-
-        manifestComponents.forEach(component -> LOGGER.debug("Manifest Component: " + component));
-
-        List<Component> components = mergeComponents(allComponents, manifestComponents);
-        dexScanner.lookUpDynamicBroadcastReceivers(components);
-
-        File outputFile = new File(staticDataDir, "components.xml");
-        PrintStream printStream = new PrintStream(outputFile);
-
-        // write xml header
-        printStream.println("<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"no\"?>");
-
-        // a virtual root node is mandatory for the lxml parser in python
-        printStream.println("<components>");
-
-        components.forEach(component -> {
-            printStream.println(component.toXmlSimple());
-            LOGGER.debug(component.toXmlSimple());
-        });
-
-        printStream.println("</components>");
-
-        printStream.close();
+    private static void printUsage() {
+        LOGGER.info("Usage: java -jar dexanalyzer.jar <path-to-apk> " +
+                "--resolve-all-classes (OPTIONAL) " +
+                "--threads <number> (OPTIONAL) " +
+                "--call-depth <number> (OPTIONAL) " +
+                "--cache <directory> (OPTIONAL) " +
+                "--cache-size <MB> (OPTIONAL) " +
+                "--class-store <directory> (OPTIONAL) " +
+                "--binary (OPTIONAL) " +
+                "--exclude <file> (OPTIONAL, REPEATABLE) " +
+                "--jfr <file> (OPTIONAL) " +
+                "--debug (OPTIONAL). " +
+                "The APK need to be named after the package name of the app! " +
+                "Multiple APKs can be analysed via: java -jar dexanalyzer.jar " +
+                "--batch <apk-directory-or-list-file> --workers <number> (OPTIONAL) followed by the above options. " +
+                "A daemon accepting analysis requests is started via: java -jar dexanalyzer.jar " +
+                "--daemon <port> --workers <number> (OPTIONAL) followed by the above options.");
     }
 
-    private static List<Component> mergeComponents(List<Component> allComponents, List<Component> manifestComponents) {
-
-        final Set<Component> components = new HashSet<>();
-
-        for (Component component : manifestComponents) {
-
-            if (component instanceof ActivityAlias) {
-                // activity-aliases are only pseudo-components
-                components.add(component);
-                continue;
-            }
-            
-            int index = allComponents.indexOf(component);
+    /**
+     * Parses the numeric value of a command line option.
+     *
+     * @param option The option, which is only used for the error message.
+     * @param value The value of the option.
+     * @param min The smallest valid value.
+     * @param max The largest valid value.
+     * @return Returns the parsed value.
+     * @throws IllegalArgumentException If the value is no number or lies outside the valid range.
+     */
+    static long parseNumber(final String option, final String value, final long min, final long max) {
 
-            if (index != -1) {
+        final long number;
 
-                // the component should be discoverable in the code
-                Component codeComponent = allComponents.get(allComponents.indexOf(component));
+        try {
+            number = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The option " + option + " expects a number, but was " + value);
+        }
 
-                // copy over attributes
-                codeComponent.setEnabled(component.isEnabled());
-                codeComponent.setExported(component.isExported());
+        if (number < min || number > max) {
+            throw new IllegalArgumentException("The option " + option + " expects a number between " + min
+                    + " and " + max + ", but was " + value);
+        }
+        return number;
+    }
 
-                components.add(codeComponent);
+    /**
+     * Parses the options of the analysis of a single APK, see {@link #main(String[])}. The remaining arguments,
+     * e.g. the options of batch mode, are collected in the given order.
+     *
+     * @param arguments The arguments.
+     * @param defaults The options applying unless specified otherwise.
+     * @param remaining The list collecting the arguments not being an analysis option.
+     * @return Returns the parsed options.
+     * @throws IOException If an exclusion file can't be read.
+     * @throws IllegalArgumentException If a numeric option is invalid.
+     */
+    static AnalysisOptions parseOptions(final List<String> arguments, final AnalysisOptions defaults,
+                                        final List<String> remaining) throws IOException {
+
+        AnalysisOptions options = defaults;
+        List<File> excludeFiles = new ArrayList<>();
+
+        for (int i = 0; i < arguments.size(); i++) {
+            String argument = arguments.get(i);
+            if (argument.equals("--rac") || argument.equals("--resolve-all-classes")) {
+                LOGGER.info("Resolving all classes!");
+                options = options.withResolveAllClasses(true);
+            } else if ((argument.equals("--t") || argument.equals("--threads")) && i + 1 < arguments.size()) {
+                options = options.withParallelism(
+                        (int) parseNumber(argument, arguments.get(++i), 1, Integer.MAX_VALUE));
+                LOGGER.info("Scanning with " + options.getParallelism() + " threads!");
+            } else if (argument.equals("--call-depth") && i + 1 < arguments.size()) {
+                options = options.withMaxCallDepth(
+                        (int) parseNumber(argument, arguments.get(++i), 0, Integer.MAX_VALUE));
+                LOGGER.info("Following up to " + options.getMaxCallDepth() + " nested invocations!");
+            } else if (argument.equals("--class-store") && i + 1 < arguments.size()) {
+                options = options.withClassStoreDir(new File(arguments.get(++i)));
+                LOGGER.info("Storing class records in " + options.getClassStoreDir() + "!");
+            } else if (argument.equals("--binary")) {
+                LOGGER.info("Writing the static data in the binary format!");
+                options = options.withWriteBinary(true);
+            } else if (argument.equals("--exclude") && i + 1 < arguments.size()) {
+                excludeFiles.add(new File(arguments.get(++i)));
+                LOGGER.info("Excluding the classes listed in " + excludeFiles.get(excludeFiles.size() - 1) + "!");
             } else {
-                // the AndroidManifest.xml might be not in sync with the code base
-                LOGGER.warn("Couldn't find in code base the component: " + component);
+                remaining.add(argument);
             }
         }
 
-        // the remaining components should be primarily dynamic broadcast receivers and abstract component classes
-        for (Component component : allComponents) {
-            if (!components.contains(component)) {
-                components.add(component);
-            }
+        if (!excludeFiles.isEmpty()) {
+            // the exclusion patterns are compiled once for all APKs
+            options = options.withExclusionMatcher(Utility.readExcludePatterns(excludeFiles));
         }
-
-        return components.stream()
-                // we don't count abstract classes as real components
-                .filter(component -> (component instanceof ActivityAlias) || !ComponentUtils.isAbstractClass(component.getClazz()))
-                .collect(Collectors.toList());
+        return options;
     }
 
     /**
-     * Generates the staticIntentInfo.xml file necessary for the ExecuteMATERandomExplorationIntent strategy.
+     * Returns the names of the static data files written for each APK with the given options.
      *
-     * @param dexScanner Scans the dex files for the static data.
-     * @param staticDataDir The directory where the staticIntentInfo.xml file should be stored.
-     * @throws FileNotFoundException Should never happen.
+     * @param options The analysis options.
+     * @return Returns the names of the static data files.
      */
-    private static void generateStaticIntentInfo(DexScanner dexScanner, File staticDataDir) throws FileNotFoundException {
+    static List<String> getStaticDataFiles(final AnalysisOptions options) {
 
-        LOGGER.info("Generating staticIntentInfo.xml file...");
-
-        List<Component> components = dexScanner.lookUpComponents();
-
-        LOGGER.debug("Components: ");
-        for (Component component : components) {
-            LOGGER.debug(component);
+        final List<String> staticDataFiles = new ArrayList<>(STATIC_DATA_FILES);
+        if (options.isWriteBinary()) {
+            staticDataFiles.add(StaticDataConverter.BINARY_FILE);
         }
+        return staticDataFiles;
+    }
 
-        // extract the static intent data
-        dexScanner.extractIntentInfo(components);
+    /**
+     * Analyses a single APK and writes the static data next to the APK.
+     *
+     * @param apkFile The APK file, which needs to be named after the package name of the app.
+     * @param options The analysis options.
+     * @param cache The cache of previously analysed APKs or {@code null} if caching is disabled.
+     * @return Returns the directory holding the static data.
+     * @throws IOException If the APK can't be read or the static data can't be written.
+     */
+    static File analyzeAPK(final File apkFile, final AnalysisOptions options, final AnalysisCache cache)
+            throws IOException {
 
-        File outputFile = new File(staticDataDir, "staticIntentInfo.xml");
-        PrintStream printStream = new PrintStream(outputFile);
+        final String packageName = DexAnalyzer.getPackageName(apkFile);
+        LOGGER.info("Package Name: " + packageName);
 
-        // write xml header
-        printStream.print("<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"no\"?>"
-                + System.lineSeparator());
+        // create the output directory for the static data if not present yet in the respective app folder
+        final File staticDataDir = new File(apkFile.getAbsoluteFile().getParentFile(),
+                packageName + File.separator + "static_data");
+        staticDataDir.mkdirs();
 
-        components.forEach(component -> {
-            printStream.print(component.toXml());
-            LOGGER.debug(component.toXml());
-        });
+        final List<String> staticDataFiles = getStaticDataFiles(options);
 
-        printStream.close();
-    }
+        final StageTimer timer = new StageTimer();
+        String cacheKey = null;
 
-    /**
-     * Generates the staticStrings.xml file which contains all static strings of an APK.
-     *
-     * @param dexScanner Scans the dex files for the static string data.
-     * @param staticDataDir The directory where the staticStrings.xml file should be stored.
-     * @throws FileNotFoundException Should never happen.
-     */
-    private static void generateStaticStrings(DexScanner dexScanner, File staticDataDir) throws FileNotFoundException {
+        if (cache != null) {
+            // the package name is part of the key since it determines which classes are resolved
+            cacheKey = AnalysisCache.computeKey(apkFile, "package=" + packageName + ";"
+                    + options.describeOutputOptions());
 
-        LOGGER.info("Generating staticStrings.xml file...");
+            final String key = cacheKey;
 
-        List<Component> components = dexScanner.lookUpComponents();
+            if (timer.time("restore cached static data", () -> cache.restore(key, staticDataDir, staticDataFiles))) {
+                timer.count("cacheHits", 1);
+                timer.writeMetrics(new File(staticDataDir, METRICS_FILE), packageName);
+                return staticDataDir;
+            }
+        }
 
-        dexScanner.extractStringConstants(components);
-        File outputFile = new File(staticDataDir, "staticStrings.xml");
-        PrintStream printStream = new PrintStream(outputFile);
+        final AnalysisResult result = DexAnalyzer.analyze(apkFile.toPath(), options, timer);
+        StaticDataFiles.write(result, staticDataDir, options.isWriteBinary(), timer);
 
-        // write xml header
-        printStream.print("<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"no\"?>"
-                + System.lineSeparator());
+        timer.logSummary(packageName);
+        timer.writeMetrics(new File(staticDataDir, METRICS_FILE), packageName);
 
-        components.forEach(component -> {
-            printStream.print(component.staticStringsToXml());
-            LOGGER.debug(component.staticStringsToXml());
-        });
-        printStream.close();
+        if (cache != null) {
+            cache.store(cacheKey, staticDataDir, staticDataFiles);
+        }
+        return staticDataDir;
     }
-
 }
@@ -0,0 +1,183 @@
+package de.uni_passau.fim.auermich.android_analysis;
+
+import de.uni_passau.fim.auermich.android_analysis.binary.StaticDataConverter;
+import de.uni_passau.fim.auermich.android_analysis.binary.StaticDataWriter;
+import de.uni_passau.fim.auermich.android_analysis.component.ComponentXml;
+import de.uni_passau.fim.auermich.android_analysis.result.AnalysisResult;
+import de.uni_passau.fim.auermich.android_analysis.result.ComponentResult;
+import de.uni_passau.fim.auermich.android_analysis.utility.StageTimer;
+import de.uni_passau.fim.auermich.android_analysis.utility.XmlWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Writes the static data of an APK into the files consumed by MATE, i.e. the components.xml, the staticStrings.xml
+ * and the staticIntentInfo.xml file as well as, optionally, the binary static data file.
+ */
+public final class StaticDataFiles {
+
+    private static final Logger LOGGER = LogManager.getLogger(StaticDataFiles.class);
+
+    private StaticDataFiles() {
+        throw new UnsupportedOperationException("Utility class can't be instantiated!");
+    }
+
+    /**
+     * Writes the static data files into the given directory. The XML files are written concurrently.
+     *
+     * @param result The static data of the APK.
+     * @param staticDataDir The output directory.
+     * @param writeBinary Whether the binary static data file should be written as well.
+     * @param timer The timer recording the writing of each file.
+     * @throws IOException If a file can't be written.
+     */
+    public static void write(final AnalysisResult result, final File staticDataDir, final boolean writeBinary,
+                             final StageTimer timer) throws IOException {
+
+        final List<Future<?>> outputs = new ArrayList<>();
+
+        try {
+            // the output files are independent of each other
+            outputs.add(DexAnalyzer.STAGE_EXECUTOR.submit(() -> {
+                timer.run("write " + StaticDataConverter.STATIC_STRINGS_FILE,
+                        () -> writeStaticStrings(result, staticDataDir));
+                return null;
+            }));
+            outputs.add(DexAnalyzer.STAGE_EXECUTOR.submit(() -> {
+                timer.run("write " + StaticDataConverter.INTENT_INFO_FILE,
+                        () -> writeIntentInfo(result, staticDataDir));
+                return null;
+            }));
+
+            timer.run("write " + StaticDataConverter.COMPONENT_INFO_FILE,
+                    () -> writeComponentInfo(result, staticDataDir));
+
+            for (Future<?> output : outputs) {
+                DexAnalyzer.join(output);
+            }
+        } finally {
+            // a failed output stops the remaining ones
+            outputs.forEach(output -> output.cancel(true));
+        }
+
+        if (writeBinary) {
+            timer.run("write " + StaticDataConverter.BINARY_FILE,
+                    () -> writeBinary(result, new File(staticDataDir, StaticDataConverter.BINARY_FILE)));
+        }
+    }
+
+    /**
+     * Writes the components.xml file listing the components of the app with their attributes.
+     *
+     * @param result The static data of the APK.
+     * @param staticDataDir The directory where the components.xml file should be stored.
+     * @throws IOException If the components.xml file can't be written.
+     */
+    public static void writeComponentInfo(final AnalysisResult result, final File staticDataDir) throws IOException {
+
+        LOGGER.info("Generating components.xml file...");
+
+        File outputFile = new File(staticDataDir, StaticDataConverter.COMPONENT_INFO_FILE);
+
+        try (XmlWriter writer = XmlWriter.open(outputFile)) {
+
+            // write xml header
+            writer.write(ComponentXml.HEADER).newLine();
+
+            // a virtual root node is mandatory for the lxml parser in python
+            writer.write("<components>").newLine();
+
+            for (ComponentResult component : result.getComponents()) {
+                ComponentXml.writeSimple(writer, component.getType(), component.getName(), component.isEnabled(),
+                        component.isExported(), component.getDynamic());
+                writer.newLine();
+            }
+
+            writer.write("</components>").newLine();
+        }
+    }
+
+    /**
+     * Writes the staticIntentInfo.xml file necessary for the ExecuteMATERandomExplorationIntent strategy.
+     *
+     * @param result The static data of the APK.
+     * @param staticDataDir The directory where the staticIntentInfo.xml file should be stored.
+     * @throws IOException If the staticIntentInfo.xml file can't be written.
+     */
+    public static void writeIntentInfo(final AnalysisResult result, final File staticDataDir) throws IOException {
+
+        LOGGER.info("Generating staticIntentInfo.xml file...");
+
+        File outputFile = new File(staticDataDir, StaticDataConverter.INTENT_INFO_FILE);
+
+        try (XmlWriter writer = XmlWriter.open(outputFile)) {
+
+            // write xml header
+            writer.write(ComponentXml.HEADER).newLine();
+
+            ComponentXml visitor = new ComponentXml(writer);
+
+            for (ComponentResult component : result.getScannedComponents()) {
+                component.accept(visitor);
+            }
+        }
+    }
+
+    /**
+     * Writes the staticStrings.xml file which contains all static strings of an APK.
+     *
+     * @param result The static data of the APK.
+     * @param staticDataDir The directory where the staticStrings.xml file should be stored.
+     * @throws IOException If the staticStrings.xml file can't be written.
+     */
+    public static void writeStaticStrings(final AnalysisResult result, final File staticDataDir) throws IOException {
+
+        LOGGER.info("Generating staticStrings.xml file...");
+
+        File outputFile = new File(staticDataDir, StaticDataConverter.STATIC_STRINGS_FILE);
+
+        try (XmlWriter writer = XmlWriter.open(outputFile)) {
+
+            // write xml header
+            writer.write(ComponentXml.HEADER).newLine();
+
+            for (ComponentResult component : result.getScannedComponents()) {
+                ComponentXml.writeStaticStrings(writer, component.getType(), component.getName(),
+                        component.getStaticStrings());
+            }
+        }
+    }
+
+    /**
+     * Writes the static data in the binary format, see {@link StaticDataWriter}.
+     *
+     * @param result The static data of the APK.
+     * @param binaryFile The binary static data file.
+     * @throws IOException If the binary static data file can't be written.
+     */
+    public static void writeBinary(final AnalysisResult result, final File binaryFile) throws IOException {
+
+        StaticDataWriter binaryWriter = new StaticDataWriter();
+
+        for (ComponentResult component : result.getScannedComponents()) {
+            component.accept(binaryWriter);
+        }
+
+        for (ComponentResult component : result.getComponents()) {
+            binaryWriter.addComponent(component.getType(), component.getName(), component.isEnabled(),
+                    component.isExported(), component.getDynamic());
+        }
+
+        for (ComponentResult component : result.getScannedComponents()) {
+            binaryWriter.addStaticStrings(component.getType(), component.getName(), component.getStaticStrings());
+        }
+
+        binaryWriter.write(binaryFile);
+    }
+}
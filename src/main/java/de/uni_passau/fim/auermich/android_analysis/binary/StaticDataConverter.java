@@ -0,0 +1,275 @@
+package de.uni_passau.fim.auermich.android_analysis.binary;
+
+import de.uni_passau.fim.auermich.android_analysis.component.ComponentXml;
+import de.uni_passau.fim.auermich.android_analysis.component.bundle.Extra;
+import de.uni_passau.fim.auermich.android_analysis.utility.XmlWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Converts between the binary static data file and the XML files consumed by MATE. Converting a binary file to XML
+ * yields exactly the XML files the binary file has been written along with. Note that XML parsers normalize line
+ * breaks and tabs within attribute values, thus strings containing those don't survive a conversion from XML.
+ */
+public final class StaticDataConverter {
+
+    private static final Logger LOGGER = LogManager.getLogger(StaticDataConverter.class);
+
+    public static final String COMPONENT_INFO_FILE = "components.xml";
+    public static final String STATIC_STRINGS_FILE = "staticStrings.xml";
+    public static final String INTENT_INFO_FILE = "staticIntentInfo.xml";
+    public static final String BINARY_FILE = "staticData.bin";
+
+    // the staticStrings.xml and staticIntentInfo.xml files lack a root element
+    private static final String VIRTUAL_ROOT = "static_data";
+
+    private StaticDataConverter() {
+        throw new UnsupportedOperationException("Utility class can't be instantiated!");
+    }
+
+    /**
+     * Converts between the binary and the XML static data.
+     *
+     * @param args Either --to-xml followed by the binary file and the output directory or --to-binary followed by
+     *         the directory containing the XML files and the binary output file.
+     * @throws IOException If the conversion fails.
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length == 3 && args[0].equals("--to-xml")) {
+            toXml(new File(args[1]), new File(args[2]));
+        } else if (args.length == 3 && args[0].equals("--to-binary")) {
+            toBinary(new File(args[1]), new File(args[2]));
+        } else {
+            LOGGER.info("Usage: java -cp dexanalyzer.jar " + StaticDataConverter.class.getName()
+                    + " --to-xml <binary-file> <output-directory> | --to-binary <xml-directory> <binary-file>");
+        }
+    }
+
+    /**
+     * Writes the XML files represented by the given binary static data file.
+     *
+     * @param binaryFile The binary static data file.
+     * @param outputDir The directory where the XML files should be stored.
+     * @throws IOException If the binary file can't be read or the XML files can't be written.
+     */
+    public static void toXml(final File binaryFile, final File outputDir) throws IOException {
+
+        StaticDataReader reader = StaticDataReader.open(binaryFile);
+        outputDir.mkdirs();
+
+        try (XmlWriter writer = XmlWriter.open(new File(outputDir, COMPONENT_INFO_FILE))) {
+
+            writer.write(ComponentXml.HEADER).newLine();
+            writer.write("<components>").newLine();
+
+            for (int component : reader.getComponentInfoOrder()) {
+                ComponentXml.writeSimple(writer, reader.getType(component), reader.getName(component),
+                        reader.isEnabled(component), reader.isExported(component), reader.getDynamic(component));
+                writer.newLine();
+            }
+
+            writer.write("</components>").newLine();
+        }
+
+        try (XmlWriter writer = XmlWriter.open(new File(outputDir, STATIC_STRINGS_FILE))) {
+
+            writer.write(ComponentXml.HEADER).newLine();
+
+            for (int component : reader.getStaticStringsOrder()) {
+                ComponentXml.writeStaticStrings(writer, reader.getType(component), reader.getName(component),
+                        reader.getStaticStrings(component));
+            }
+        }
+
+        try (XmlWriter writer = XmlWriter.open(new File(outputDir, INTENT_INFO_FILE))) {
+
+            writer.write(ComponentXml.HEADER).newLine();
+            ComponentXml visitor = new ComponentXml(writer);
+
+            for (int component : reader.getIntentInfoOrder()) {
+                reader.accept(component, visitor);
+            }
+        }
+    }
+
+    /**
+     * Writes the binary static data file representing the given XML files.
+     *
+     * @param xmlDir The directory containing the XML files.
+     * @param binaryFile The binary output file.
+     * @throws IOException If the XML files can't be parsed or the binary file can't be written.
+     */
+    public static void toBinary(final File xmlDir, final File binaryFile) throws IOException {
+
+        StaticDataWriter writer = new StaticDataWriter();
+
+        parse(new File(xmlDir, COMPONENT_INFO_FILE), reader -> parseComponentInfo(reader, writer));
+        parse(new File(xmlDir, STATIC_STRINGS_FILE), reader -> parseStaticStrings(reader, writer));
+        parse(new File(xmlDir, INTENT_INFO_FILE), reader -> parseIntentInfo(reader, writer));
+
+        writer.write(binaryFile);
+    }
+
+    /**
+     * Parses an XML file wrapped into a virtual root element. The XML declaration is dropped since it is only
+     * allowed at the very beginning of a document.
+     *
+     * @param file The XML file.
+     * @param parser The parser processing the events of the file.
+     * @throws IOException If the file can't be read or parsed.
+     */
+    private static void parse(File file, XmlParser parser) throws IOException {
+
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+
+            // skip the XML declaration
+            int character;
+            do {
+                character = input.read();
+            } while (character != -1 && character != '\n');
+
+            Charset charset = Charset.defaultCharset();
+            InputStream wrapped = new SequenceInputStream(Collections.enumeration(List.of(
+                    new ByteArrayInputStream(("<" + VIRTUAL_ROOT + ">").getBytes(charset)),
+                    input,
+                    new ByteArrayInputStream(("</" + VIRTUAL_ROOT + ">").getBytes(charset)))));
+
+            XMLInputFactory factory = XMLInputFactory.newFactory();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            XMLStreamReader reader = factory.createXMLStreamReader(wrapped, charset.name());
+
+            try {
+                parser.parse(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Couldn't parse " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Processes the events of an XML file.
+     */
+    @FunctionalInterface
+    private interface XmlParser {
+
+        void parse(XMLStreamReader reader) throws XMLStreamException;
+    }
+
+    private static void parseComponentInfo(XMLStreamReader reader, StaticDataWriter writer)
+            throws XMLStreamException {
+
+        int depth = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                // the components are nested in the virtual root and the components element
+                if (++depth == 3) {
+                    String dynamic = reader.getAttributeValue(null, "dynamic");
+                    writer.addComponent(reader.getLocalName(), reader.getAttributeValue(null, "name"),
+                            Boolean.parseBoolean(reader.getAttributeValue(null, "enabled")),
+                            Boolean.parseBoolean(reader.getAttributeValue(null, "exported")),
+                            dynamic != null ? Boolean.valueOf(dynamic) : null);
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static void parseStaticStrings(XMLStreamReader reader, StaticDataWriter writer)
+            throws XMLStreamException {
+
+        int depth = 0;
+        String type = null;
+        String name = null;
+        List<String> strings = new ArrayList<>();
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (depth == 2) {
+                    type = reader.getAttributeValue(null, "type");
+                    name = reader.getAttributeValue(null, "class");
+                    strings.clear();
+                } else if (depth == 3) {
+                    strings.add(reader.getAttributeValue(null, "value"));
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth == 2) {
+                    writer.addStaticStrings(type, name, strings);
+                }
+                depth--;
+            }
+        }
+    }
+
+    private static void parseIntentInfo(XMLStreamReader reader, StaticDataWriter writer)
+            throws XMLStreamException {
+
+        int depth = 0;
+        // the actions or strings and the categories or extras of the current intent-filter or entry point
+        Set<String> first = new LinkedHashSet<>();
+        Set<String> second = new LinkedHashSet<>();
+        List<Extra> extras = new ArrayList<>();
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                String element = reader.getLocalName();
+                if (depth == 2) {
+                    writer.visitStart(element, reader.getAttributeValue(null, "name"));
+                } else if (depth == 3) {
+                    if (element.equals("dynamic")) {
+                        writer.visitDynamic(Boolean.parseBoolean(reader.getAttributeValue(null, "value")));
+                    }
+                    first.clear();
+                    second.clear();
+                    extras.clear();
+                } else if (depth == 4) {
+                    switch (element) {
+                        case "action":
+                            first.add(reader.getAttributeValue(null, "name"));
+                            break;
+                        case "category":
+                            second.add(reader.getAttributeValue(null, "name"));
+                            break;
+                        case "extra":
+                            extras.add(new Extra(reader.getAttributeValue(null, "key"),
+                                    reader.getAttributeValue(null, "type")));
+                            break;
+                        default:
+                            first.add(reader.getAttributeValue(null, "value"));
+                            break;
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                String element = reader.getLocalName();
+                if (depth == 2) {
+                    writer.visitEnd(element);
+                } else if (depth == 3) {
+                    if (element.equals("intent-filter")) {
+                        writer.visitIntentFilter(first, second);
+                    } else if (element.equals("global")) {
+                        writer.visitGlobalStrings(first);
+                    } else if (!element.equals("dynamic")) {
+                        writer.visitEntryPoint(element, first, extras);
+                    }
+                }
+                depth--;
+            }
+        }
+    }
+}
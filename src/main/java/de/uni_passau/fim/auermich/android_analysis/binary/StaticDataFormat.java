@@ -0,0 +1,66 @@
+package de.uni_passau.fim.auermich.android_analysis.binary;
+
+/**
+ * Describes the layout of the binary static data file. All integers are stored in big-endian byte order and all
+ * offsets are absolute positions within the file, where an offset of {@link #NONE} denotes a missing section.
+ *
+ * <pre>
+ * header             magic, version, string count, string index offset, component count, component table offset,
+ *                    name index offset, component info order offset, static strings order offset,
+ *                    intent info order offset (10 ints)
+ * string index       the offset of each string entry (int per string)
+ * component table    a fixed record per component (8 ints): name, type, flags, static strings offset,
+ *                    intent filters offset, global strings offset, entry points offset, reserved
+ * name index         the components sorted by their name (int per component)
+ * order lists        the components in the order of the components.xml, staticStrings.xml and
+ *                    staticIntentInfo.xml file (count followed by an int per component)
+ * data               the variable sized sections of the components, where a string list is stored as count
+ *                    followed by the string ids, an intent filter as action list followed by category list and
+ *                    an entry point as tag, string list, extra count and a pair of key and type per extra
+ * string entries     the deduplicated strings (byte length followed by the UTF-8 bytes)
+ * </pre>
+ */
+final class StaticDataFormat {
+
+    // identifies a static data file
+    static final int MAGIC = 0x4D534442;
+
+    // needs to be changed whenever the layout changes
+    static final int FORMAT_VERSION = 1;
+
+    static final int HEADER_SIZE = 10 * Integer.BYTES;
+
+    static final int RECORD_SIZE = 8 * Integer.BYTES;
+
+    // the offsets of the header fields
+    static final int STRING_COUNT = 8;
+    static final int STRING_INDEX = 12;
+    static final int COMPONENT_COUNT = 16;
+    static final int COMPONENT_TABLE = 20;
+    static final int NAME_INDEX = 24;
+    static final int COMPONENT_INFO_ORDER = 28;
+    static final int STATIC_STRINGS_ORDER = 32;
+    static final int INTENT_INFO_ORDER = 36;
+
+    // the offsets of the fields of a component record
+    static final int RECORD_NAME = 0;
+    static final int RECORD_TYPE = 4;
+    static final int RECORD_FLAGS = 8;
+    static final int RECORD_STATIC_STRINGS = 12;
+    static final int RECORD_INTENT_FILTERS = 16;
+    static final int RECORD_GLOBAL_STRINGS = 20;
+    static final int RECORD_ENTRY_POINTS = 24;
+
+    // the flags of a component record
+    static final int FLAG_ENABLED = 1;
+    static final int FLAG_EXPORTED = 1 << 1;
+    static final int FLAG_DYNAMIC = 1 << 2;
+    // whether the component carries the dynamic attribute at all, i.e. is a broadcast receiver
+    static final int FLAG_HAS_DYNAMIC = 1 << 3;
+
+    static final int NONE = -1;
+
+    private StaticDataFormat() {
+        throw new UnsupportedOperationException("Utility class can't be instantiated!");
+    }
+}
@@ -0,0 +1,419 @@
+package de.uni_passau.fim.auermich.android_analysis.binary;
+
+import de.uni_passau.fim.auermich.android_analysis.component.ComponentVisitor;
+import de.uni_passau.fim.auermich.android_analysis.component.bundle.Extra;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static de.uni_passau.fim.auermich.android_analysis.binary.StaticDataFormat.*;
+
+/**
+ * Reads a binary static data file written by {@link StaticDataWriter}. The file is memory-mapped and only the parts
+ * that are actually accessed are decoded, e.g. the extras of a single component can be looked up without reading
+ * any other component. Components are addressed by their index, which can be looked up by name via
+ * {@link #findComponent(String)} or taken from the order of one of the XML files, e.g.
+ * {@link #getIntentInfoOrder()}.
+ */
+public final class StaticDataReader {
+
+    private final ByteBuffer buffer;
+
+    // the strings decoded so far
+    private final String[] strings;
+
+    private final int componentCount;
+    private final int componentTable;
+
+    private StaticDataReader(ByteBuffer buffer) throws IOException {
+
+        this.buffer = buffer;
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a static data file!");
+        }
+
+        if (buffer.getInt(Integer.BYTES) != FORMAT_VERSION) {
+            throw new IOException("Unsupported static data version: " + buffer.getInt(Integer.BYTES));
+        }
+
+        strings = new String[buffer.getInt(STRING_COUNT)];
+        componentCount = buffer.getInt(COMPONENT_COUNT);
+        componentTable = buffer.getInt(COMPONENT_TABLE);
+    }
+
+    /**
+     * Opens the given static data file by mapping it into memory.
+     *
+     * @param file The static data file.
+     * @return Returns the reader of the file.
+     * @throws IOException If the file can't be mapped or isn't a static data file.
+     */
+    public static StaticDataReader open(final File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel has been closed
+            return new StaticDataReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the number of components.
+     *
+     * @return Returns the number of components.
+     */
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    /**
+     * Looks up a component by its name using binary search.
+     *
+     * @param name The name of the component.
+     * @return Returns the index of the component or {@code -1} if there is no such component.
+     */
+    public int findComponent(final String name) {
+
+        int nameIndex = buffer.getInt(NAME_INDEX);
+        int low = 0;
+        int high = componentCount - 1;
+
+        while (low <= high) {
+
+            int middle = (low + high) >>> 1;
+            int component = buffer.getInt(nameIndex + middle * Integer.BYTES);
+            int comparison = getName(component).compareTo(name);
+
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return component;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the indices of the components listed in the components.xml file in their order.
+     *
+     * @return Returns the component indices.
+     */
+    public int[] getComponentInfoOrder() {
+        return readInts(buffer.getInt(COMPONENT_INFO_ORDER));
+    }
+
+    /**
+     * Returns the indices of the components listed in the staticStrings.xml file in their order.
+     *
+     * @return Returns the component indices.
+     */
+    public int[] getStaticStringsOrder() {
+        return readInts(buffer.getInt(STATIC_STRINGS_ORDER));
+    }
+
+    /**
+     * Returns the indices of the components listed in the staticIntentInfo.xml file in their order.
+     *
+     * @return Returns the component indices.
+     */
+    public int[] getIntentInfoOrder() {
+        return readInts(buffer.getInt(INTENT_INFO_ORDER));
+    }
+
+    /**
+     * Returns the name of a component.
+     *
+     * @param component The index of the component.
+     * @return Returns the name of the component.
+     */
+    public String getName(final int component) {
+        return getString(getField(component, RECORD_NAME));
+    }
+
+    /**
+     * Returns the type of a component, e.g. activity.
+     *
+     * @param component The index of the component.
+     * @return Returns the type of the component.
+     */
+    public String getType(final int component) {
+        return getString(getField(component, RECORD_TYPE));
+    }
+
+    /**
+     * Checks whether a component is enabled.
+     *
+     * @param component The index of the component.
+     * @return Returns {@code true} if the component is enabled, otherwise {@code false} is returned.
+     */
+    public boolean isEnabled(final int component) {
+        return (getField(component, RECORD_FLAGS) & FLAG_ENABLED) != 0;
+    }
+
+    /**
+     * Checks whether a component is exported.
+     *
+     * @param component The index of the component.
+     * @return Returns {@code true} if the component is exported, otherwise {@code false} is returned.
+     */
+    public boolean isExported(final int component) {
+        return (getField(component, RECORD_FLAGS) & FLAG_EXPORTED) != 0;
+    }
+
+    /**
+     * Checks whether a broadcast receiver has been registered dynamically.
+     *
+     * @param component The index of the component.
+     * @return Returns whether the receiver is a dynamic receiver or {@code null} if the component isn't a receiver.
+     */
+    public Boolean getDynamic(final int component) {
+        int flags = getField(component, RECORD_FLAGS);
+        return (flags & FLAG_HAS_DYNAMIC) != 0 ? (flags & FLAG_DYNAMIC) != 0 : null;
+    }
+
+    /**
+     * Returns the static strings of a component.
+     *
+     * @param component The index of the component.
+     * @return Returns the static strings or an empty list if the component has none.
+     */
+    public List<String> getStaticStrings(final int component) {
+        int offset = getField(component, RECORD_STATIC_STRINGS);
+        return offset == NONE ? Collections.emptyList() : readStrings(offset, new ArrayList<>());
+    }
+
+    /**
+     * Checks whether the static intent data of a component is present.
+     *
+     * @param component The index of the component.
+     * @return Returns {@code true} if the component is listed in the staticIntentInfo.xml file, otherwise
+     *         {@code false} is returned.
+     */
+    public boolean hasIntentInfo(final int component) {
+        return getField(component, RECORD_ENTRY_POINTS) != NONE;
+    }
+
+    /**
+     * Returns the global strings of a component, i.e. the strings assigned to its fields.
+     *
+     * @param component The index of the component.
+     * @return Returns the global strings or an empty set if the component has none.
+     */
+    public Set<String> getGlobalStrings(final int component) {
+        int offset = getField(component, RECORD_GLOBAL_STRINGS);
+        return offset == NONE ? Collections.emptySet() : readStrings(offset, new LinkedHashSet<>());
+    }
+
+    /**
+     * Returns the intent-filters of a component.
+     *
+     * @param component The index of the component.
+     * @return Returns the intent-filters.
+     */
+    public List<IntentFilter> getIntentFilters(final int component) {
+
+        int offset = getField(component, RECORD_INTENT_FILTERS);
+
+        if (offset == NONE) {
+            return Collections.emptyList();
+        }
+
+        int count = buffer.getInt(offset);
+        offset += Integer.BYTES;
+        List<IntentFilter> intentFilters = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            Set<String> actions = readStrings(offset, new LinkedHashSet<>());
+            offset = skipInts(offset);
+            Set<String> categories = readStrings(offset, new LinkedHashSet<>());
+            offset = skipInts(offset);
+            intentFilters.add(new IntentFilter(actions, categories));
+        }
+        return intentFilters;
+    }
+
+    /**
+     * Returns the strings and extras of the entry point methods of a component, e.g. onCreate.
+     *
+     * @param component The index of the component.
+     * @return Returns the entry points.
+     */
+    public List<EntryPoint> getEntryPoints(final int component) {
+
+        int offset = getField(component, RECORD_ENTRY_POINTS);
+
+        if (offset == NONE) {
+            return Collections.emptyList();
+        }
+
+        int count = buffer.getInt(offset);
+        offset += Integer.BYTES;
+        List<EntryPoint> entryPoints = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+
+            String tag = getString(buffer.getInt(offset));
+            offset += Integer.BYTES;
+            Set<String> entryStrings = readStrings(offset, new LinkedHashSet<>());
+            offset = skipInts(offset);
+
+            int extraCount = buffer.getInt(offset);
+            offset += Integer.BYTES;
+            List<Extra> extras = new ArrayList<>(extraCount);
+
+            for (int j = 0; j < extraCount; j++) {
+                extras.add(new Extra(getString(buffer.getInt(offset)), getString(buffer.getInt(offset + Integer.BYTES))));
+                offset += 2 * Integer.BYTES;
+            }
+            entryPoints.add(new EntryPoint(tag, entryStrings, extras));
+        }
+        return entryPoints;
+    }
+
+    /**
+     * Returns the extras of all entry point methods of a component.
+     *
+     * @param component The index of the component.
+     * @return Returns the extras.
+     */
+    public List<Extra> getExtras(final int component) {
+        List<Extra> extras = new ArrayList<>();
+        for (EntryPoint entryPoint : getEntryPoints(component)) {
+            extras.addAll(entryPoint.getExtras());
+        }
+        return extras;
+    }
+
+    /**
+     * Replays the static intent data of a component in the same order as it has been visited when written.
+     *
+     * @param component The index of the component.
+     * @param visitor The visitor.
+     * @throws IOException If the visitor fails.
+     */
+    public void accept(final int component, final ComponentVisitor visitor) throws IOException {
+
+        String type = getType(component);
+        Boolean dynamic = getDynamic(component);
+
+        visitor.visitStart(type, getName(component));
+        if (dynamic != null) {
+            visitor.visitDynamic(dynamic);
+        }
+        for (IntentFilter intentFilter : getIntentFilters(component)) {
+            visitor.visitIntentFilter(intentFilter.getActions(), intentFilter.getCategories());
+        }
+        visitor.visitGlobalStrings(getGlobalStrings(component));
+        for (EntryPoint entryPoint : getEntryPoints(component)) {
+            visitor.visitEntryPoint(entryPoint.getTag(), entryPoint.getStrings(), entryPoint.getExtras());
+        }
+        visitor.visitEnd(type);
+    }
+
+    /**
+     * Returns a string of the string table.
+     *
+     * @param id The id of the string.
+     * @return Returns the string.
+     */
+    public String getString(final int id) {
+
+        String string = strings[id];
+
+        // a race merely decodes a string twice
+        if (string == null) {
+            int offset = buffer.getInt(buffer.getInt(STRING_INDEX) + id * Integer.BYTES);
+            byte[] bytes = new byte[buffer.getInt(offset)];
+            buffer.duplicate().position(offset + Integer.BYTES).get(bytes);
+            string = new String(bytes, StandardCharsets.UTF_8);
+            strings[id] = string;
+        }
+        return string;
+    }
+
+    private int getField(int component, int field) {
+        Objects.checkIndex(component, componentCount);
+        return buffer.getInt(componentTable + component * RECORD_SIZE + field);
+    }
+
+    private int[] readInts(int offset) {
+        int[] values = new int[buffer.getInt(offset)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buffer.getInt(offset + (i + 1) * Integer.BYTES);
+        }
+        return values;
+    }
+
+    private <T extends Collection<String>> T readStrings(int offset, T values) {
+        for (int id : readInts(offset)) {
+            values.add(getString(id));
+        }
+        return values;
+    }
+
+    // returns the offset following the list of ints at the given offset
+    private int skipInts(int offset) {
+        return offset + (buffer.getInt(offset) + 1) * Integer.BYTES;
+    }
+
+    /**
+     * An intent-filter of a component.
+     */
+    public static final class IntentFilter {
+
+        private final Set<String> actions;
+        private final Set<String> categories;
+
+        private IntentFilter(Set<String> actions, Set<String> categories) {
+            this.actions = Collections.unmodifiableSet(actions);
+            this.categories = Collections.unmodifiableSet(categories);
+        }
+
+        public Set<String> getActions() {
+            return actions;
+        }
+
+        public Set<String> getCategories() {
+            return categories;
+        }
+    }
+
+    /**
+     * The strings and extras of an entry point method of a component.
+     */
+    public static final class EntryPoint {
+
+        private final String tag;
+        private final Set<String> strings;
+        private final List<Extra> extras;
+
+        private EntryPoint(String tag, Set<String> strings, List<Extra> extras) {
+            this.tag = tag;
+            this.strings = Collections.unmodifiableSet(strings);
+            this.extras = Collections.unmodifiableList(extras);
+        }
+
+        /**
+         * Returns the tag of the entry point method, e.g. on_create.
+         *
+         * @return Returns the tag.
+         */
+        public String getTag() {
+            return tag;
+        }
+
+        public Set<String> getStrings() {
+            return strings;
+        }
+
+        public List<Extra> getExtras() {
+            return extras;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package de.uni_passau.fim.auermich.android_analysis.binary;
+
+import de.uni_passau.fim.auermich.android_analysis.component.BroadcastReceiver;
+import de.uni_passau.fim.auermich.android_analysis.component.Component;
+import de.uni_passau.fim.auermich.android_analysis.component.ComponentVisitor;
+import de.uni_passau.fim.auermich.android_analysis.component.bundle.Extra;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+import static de.uni_passau.fim.auermich.android_analysis.binary.StaticDataFormat.*;
+
+/**
+ * Collects the static data of an APK and writes it in the binary format described by {@link StaticDataFormat}.
+ * The data of the components.xml and the staticStrings.xml file is added per component, while the static intent
+ * data is collected by visiting the components, see {@link Component#accept(ComponentVisitor)}. Components are
+ * identified by their type and name, i.e. the data added for the same component ends up in the same record.
+ */
+public final class StaticDataWriter implements ComponentVisitor {
+
+    // the deduplicated strings mapped to their ids
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<byte[]> strings = new ArrayList<>();
+
+    // the component records mapped by the type and name of the component
+    private final Map<String, Integer> recordIds = new HashMap<>();
+    private final List<Record> records = new ArrayList<>();
+
+    private final List<Integer> componentInfoOrder = new ArrayList<>();
+    private final List<Integer> staticStringsOrder = new ArrayList<>();
+    private final List<Integer> intentInfoOrder = new ArrayList<>();
+
+    // the variable sized sections, the offsets of the records are relative to the start of the data
+    private final ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
+    private final DataOutputStream data = new DataOutputStream(dataBytes);
+
+    // the record of the currently visited component and its pending intent data
+    private Record current;
+    private final List<Set<String>> intentFilters = new ArrayList<>();
+    private Set<String> globalStrings = Collections.emptySet();
+    private final List<String> entryPointTags = new ArrayList<>();
+    private final List<Set<String>> entryPointStrings = new ArrayList<>();
+    private final List<List<Extra>> entryPointExtras = new ArrayList<>();
+
+    /**
+     * Adds a component as listed in the components.xml file.
+     *
+     * @param component The component.
+     */
+    public void addComponent(Component component) {
+        Boolean dynamic = component instanceof BroadcastReceiver
+                ? ((BroadcastReceiver) component).isDynamicReceiver() : null;
+        addComponent(component.getType(), component.getName(), component.isEnabled(), component.isExported(), dynamic);
+    }
+
+    /**
+     * Adds a component as listed in the components.xml file.
+     *
+     * @param type The type of the component.
+     * @param name The name of the component.
+     * @param enabled Whether the component is enabled.
+     * @param exported Whether the component is exported.
+     * @param dynamic Whether a broadcast receiver is a dynamic receiver or {@code null} for other components.
+     */
+    public void addComponent(String type, String name, boolean enabled, boolean exported, Boolean dynamic) {
+
+        Record record = getRecord(type, name);
+        record.flags |= (enabled ? FLAG_ENABLED : 0) | (exported ? FLAG_EXPORTED : 0);
+        record.setDynamic(dynamic);
+        componentInfoOrder.add(record.index);
+    }
+
+    /**
+     * Adds the static strings of a component as listed in the staticStrings.xml file.
+     *
+     * @param component The component.
+     */
+    public void addStaticStrings(Component component) {
+        addStaticStrings(component.getType(), component.getName(), component.getStaticStrings());
+    }
+
+    /**
+     * Adds the static strings of a component as listed in the staticStrings.xml file. Components without any
+     * static strings are skipped, just like in the XML file.
+     *
+     * @param type The type of the component.
+     * @param name The name of the component.
+     * @param strings The static strings of the component.
+     */
+    public void addStaticStrings(String type, String name, Collection<String> strings) {
+
+        if (strings.isEmpty()) {
+            return;
+        }
+
+        Record record = getRecord(type, name);
+        record.staticStrings = writeStrings(strings);
+        staticStringsOrder.add(record.index);
+    }
+
+    @Override
+    public void visitStart(String type, String name) {
+        current = getRecord(type, name);
+        intentFilters.clear();
+        globalStrings = Collections.emptySet();
+        entryPointTags.clear();
+        entryPointStrings.clear();
+        entryPointExtras.clear();
+    }
+
+    @Override
+    public void visitDynamic(boolean dynamic) {
+        requireCurrent().setDynamic(dynamic);
+    }
+
+    @Override
+    public void visitIntentFilter(Set<String> actions, Set<String> categories) {
+        requireCurrent();
+        intentFilters.add(new LinkedHashSet<>(actions));
+        intentFilters.add(new LinkedHashSet<>(categories));
+    }
+
+    @Override
+    public void visitGlobalStrings(Set<String> strings) {
+        requireCurrent();
+        // the strings are copied since they might change once the entry points are finalized
+        globalStrings = new LinkedHashSet<>(strings);
+    }
+
+    @Override
+    public void visitEntryPoint(String tag, Set<String> strings, List<Extra> extras) {
+        requireCurrent();
+        entryPointTags.add(tag);
+        entryPointStrings.add(new LinkedHashSet<>(strings));
+        entryPointExtras.add(new ArrayList<>(extras));
+    }
+
+    @Override
+    public void visitEnd(String type) {
+
+        Record record = requireCurrent();
+
+        record.intentFilters = data.size();
+        writeInt(intentFilters.size() / 2);
+        // the actions and categories of each intent filter
+        for (Set<String> values : intentFilters) {
+            writeStrings(values);
+        }
+
+        record.globalStrings = writeStrings(globalStrings);
+
+        record.entryPoints = data.size();
+        writeInt(entryPointTags.size());
+        for (int i = 0; i < entryPointTags.size(); i++) {
+            writeInt(getStringId(entryPointTags.get(i)));
+            writeStrings(entryPointStrings.get(i));
+            writeInt(entryPointExtras.get(i).size());
+            for (Extra extra : entryPointExtras.get(i)) {
+                writeInt(getStringId(extra.getKey()));
+                writeInt(getStringId(extra.getValueType()));
+            }
+        }
+
+        intentInfoOrder.add(record.index);
+        current = null;
+    }
+
+    /**
+     * Writes the collected static data to the given file. The file is replaced atomically, such that concurrent
+     * readers never map a partially written file.
+     *
+     * @param file The output file.
+     * @throws IOException If the file can't be written or the static data exceeds the maximal file size of 2 GB.
+     */
+    public void write(File file) throws IOException {
+
+        if (current != null) {
+            throw new IllegalStateException("The component " + current.name + " hasn't been visited fully!");
+        }
+
+        long stringIndexOffset = HEADER_SIZE;
+        long componentTableOffset = stringIndexOffset + (long) Integer.BYTES * strings.size();
+        long nameIndexOffset = componentTableOffset + (long) RECORD_SIZE * records.size();
+        long componentInfoOrderOffset = nameIndexOffset + (long) Integer.BYTES * records.size();
+        long staticStringsOrderOffset = componentInfoOrderOffset + (long) Integer.BYTES * (componentInfoOrder.size() + 1);
+        long intentInfoOrderOffset = staticStringsOrderOffset + (long) Integer.BYTES * (staticStringsOrder.size() + 1);
+        long dataOffset = intentInfoOrderOffset + (long) Integer.BYTES * (intentInfoOrder.size() + 1);
+        long stringDataOffset = dataOffset + data.size();
+
+        long size = stringDataOffset;
+        for (byte[] string : strings) {
+            size += Integer.BYTES + string.length;
+        }
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("The static data exceeds the maximal file size of 2 GB!");
+        }
+
+        Path target = file.toPath().toAbsolutePath();
+        // unlike a temporary file created by Files.createTempFile(), the file gets the default permissions
+        Path temporaryFile = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try {
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeInt(strings.size());
+                output.writeInt((int) stringIndexOffset);
+                output.writeInt(records.size());
+                output.writeInt((int) componentTableOffset);
+                output.writeInt((int) nameIndexOffset);
+                output.writeInt((int) componentInfoOrderOffset);
+                output.writeInt((int) staticStringsOrderOffset);
+                output.writeInt((int) intentInfoOrderOffset);
+
+                int stringOffset = (int) stringDataOffset;
+                for (byte[] string : strings) {
+                    output.writeInt(stringOffset);
+                    stringOffset += Integer.BYTES + string.length;
+                }
+
+                for (Record record : records) {
+                    output.writeInt(record.nameId);
+                    output.writeInt(record.typeId);
+                    output.writeInt(record.flags);
+                    output.writeInt(toAbsolute(record.staticStrings, dataOffset));
+                    output.writeInt(toAbsolute(record.intentFilters, dataOffset));
+                    output.writeInt(toAbsolute(record.globalStrings, dataOffset));
+                    output.writeInt(toAbsolute(record.entryPoints, dataOffset));
+                    // reserved
+                    output.writeInt(NONE);
+                }
+
+                List<Record> nameIndex = new ArrayList<>(records);
+                nameIndex.sort(Comparator.comparing(record -> record.name));
+                for (Record record : nameIndex) {
+                    output.writeInt(record.index);
+                }
+
+                writeOrder(output, componentInfoOrder);
+                writeOrder(output, staticStringsOrder);
+                writeOrder(output, intentInfoOrder);
+
+                dataBytes.writeTo(output);
+
+                for (byte[] string : strings) {
+                    output.writeInt(string.length);
+                    output.write(string);
+                }
+            }
+            Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * The record of a component, where the offsets are relative to the start of the data.
+     */
+    private static final class Record {
+
+        private final int index;
+        private final String name;
+        private final int nameId;
+        private final int typeId;
+        private int flags;
+        private int staticStrings = NONE;
+        private int intentFilters = NONE;
+        private int globalStrings = NONE;
+        private int entryPoints = NONE;
+
+        private Record(int index, String name, int nameId, int typeId) {
+            this.index = index;
+            this.name = name;
+            this.nameId = nameId;
+            this.typeId = typeId;
+        }
+
+        private void setDynamic(Boolean dynamic) {
+            if (dynamic != null) {
+                flags |= FLAG_HAS_DYNAMIC | (dynamic ? FLAG_DYNAMIC : 0);
+            }
+        }
+    }
+
+    private Record getRecord(String type, String name) {
+        return records.get(recordIds.computeIfAbsent(type + '\0' + name, key -> {
+            records.add(new Record(records.size(), name, getStringId(name), getStringId(type)));
+            return records.size() - 1;
+        }));
+    }
+
+    private Record requireCurrent() {
+        if (current == null) {
+            throw new IllegalStateException("No component has been started!");
+        }
+        return current;
+    }
+
+    private int getStringId(String string) {
+        return stringIds.computeIfAbsent(string, s -> {
+            strings.add(s.getBytes(StandardCharsets.UTF_8));
+            return strings.size() - 1;
+        });
+    }
+
+    private int writeStrings(Collection<String> values) {
+        int offset = data.size();
+        writeInt(values.size());
+        for (String string : values) {
+            writeInt(getStringId(string));
+        }
+        return offset;
+    }
+
+    private void writeInt(int value) {
+        try {
+            data.writeInt(value);
+        } catch (IOException e) {
+            // a byte array output stream never fails
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int toAbsolute(int offset, long dataOffset) {
+        return offset == NONE ? NONE : (int) (dataOffset + offset);
+    }
+
+    private static void writeOrder(DataOutput output, List<Integer> order) throws IOException {
+        output.writeInt(order.size());
+        for (int index : order) {
+            output.writeInt(index);
+        }
+    }
+}
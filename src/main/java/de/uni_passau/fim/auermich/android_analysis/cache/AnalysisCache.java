@@ -0,0 +1,371 @@
+package de.uni_passau.fim.auermich.android_analysis.cache;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Caches the static data files of analysed APKs on disk. An entry is keyed by the SHA-1 signatures of the APK's dex
+ * files, the hash of its AndroidManifest.xml and the analysis options, such that an unchanged APK analysed with the
+ * same options is never decoded or scanned again.
+ *
+ * Each entry is a directory holding the static data files and their SHA-1 checksums. Entries are written to a
+ * temporary directory first and then moved atomically into place, thus concurrent runs sharing the cache either see a
+ * complete entry or none. An entry whose files don't match their checksums anymore, e.g. truncated by a full disk or
+ * modified by hand, is discarded on restore and stored again by the next analysis. The cache is bounded in size, the
+ * least recently used entries are evicted first.
+ */
+public final class AnalysisCache {
+
+    private static final Logger LOGGER = LogManager.getLogger(AnalysisCache.class);
+
+    /**
+     * Part of each key, needs to be changed whenever the static data files of the same input change.
+     */
+    private static final String FORMAT_VERSION = "2";
+
+    private static final Pattern DEX_ENTRY = Pattern.compile("classes\\d*\\.dex");
+
+    private static final String MANIFEST_ENTRY = "AndroidManifest.xml";
+
+    // the dex header stores the SHA-1 signature of the remaining file at offset 12
+    private static final int SIGNATURE_OFFSET = 12;
+    private static final int SIGNATURE_LENGTH = 20;
+
+    // the file of each entry holding the checksums of the static data files
+    private static final String CHECKSUMS_FILE = "checksums";
+
+    // the file guarding the eviction among concurrent runs
+    private static final String LOCK_FILE = ".lock";
+
+    // the infix of entries that are currently written or evicted
+    private static final String TEMPORARY_INFIX = ".tmp-";
+
+    // serializes the evictions within this JVM, the file lock only guards against other processes
+    private static final Object EVICTION_LOCK = new Object();
+
+    private final Path directory;
+
+    private final long maxSizeBytes;
+
+    /**
+     * Creates a new cache in the given directory.
+     *
+     * @param directory The cache directory, which is created if not present yet.
+     * @param maxSizeBytes The maximal size of all entries in bytes.
+     * @throws IOException If the cache directory can't be created.
+     */
+    public AnalysisCache(final File directory, final long maxSizeBytes) throws IOException {
+
+        if (maxSizeBytes < 0) {
+            throw new IllegalArgumentException("The cache size must not be negative, but was " + maxSizeBytes);
+        }
+
+        this.directory = Files.createDirectories(directory.toPath());
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Computes the key of the given APK. Only the headers of the dex files are read, not the dex files themselves.
+     *
+     * @param apkFile The APK file.
+     * @param options A description of all options influencing the static data, e.g. the package name.
+     * @return Returns the key of the APK.
+     * @throws IOException If the APK can't be read.
+     */
+    public static String computeKey(final File apkFile, final String options) throws IOException {
+
+        MessageDigest digest = newDigest();
+        digest.update(FORMAT_VERSION.getBytes(StandardCharsets.UTF_8));
+        digest.update(options.getBytes(StandardCharsets.UTF_8));
+
+        try (ZipFile zipFile = new ZipFile(apkFile)) {
+
+            List<? extends ZipEntry> dexEntries = zipFile.stream()
+                    .filter(entry -> DEX_ENTRY.matcher(entry.getName()).matches())
+                    .sorted(Comparator.comparing(ZipEntry::getName))
+                    .collect(Collectors.toList());
+
+            if (dexEntries.isEmpty()) {
+                throw new IOException("No dex file found in " + apkFile + "!");
+            }
+
+            for (ZipEntry dexEntry : dexEntries) {
+                try (InputStream inputStream = zipFile.getInputStream(dexEntry)) {
+                    byte[] header = inputStream.readNBytes(SIGNATURE_OFFSET + SIGNATURE_LENGTH);
+                    if (header.length < SIGNATURE_OFFSET + SIGNATURE_LENGTH) {
+                        throw new IOException("Truncated dex file " + dexEntry.getName() + " in " + apkFile + "!");
+                    }
+                    digest.update(dexEntry.getName().getBytes(StandardCharsets.UTF_8));
+                    digest.update(header, SIGNATURE_OFFSET, SIGNATURE_LENGTH);
+                }
+            }
+
+            ZipEntry manifestEntry = zipFile.getEntry(MANIFEST_ENTRY);
+
+            if (manifestEntry != null) {
+                try (InputStream inputStream = zipFile.getInputStream(manifestEntry)) {
+                    digest.update(newDigest().digest(inputStream.readAllBytes()));
+                }
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Restores the cached static data files of the given key into the output directory.
+     *
+     * @param key The key of the APK.
+     * @param outputDirectory The directory where the static data files should be written to.
+     * @param fileNames The names of the static data files.
+     * @return Returns {@code true} on a cache hit, otherwise {@code false} is returned.
+     */
+    public boolean restore(final String key, final File outputDirectory, final List<String> fileNames) {
+
+        Path entry = directory.resolve(key);
+
+        if (!Files.isDirectory(entry)) {
+            return false;
+        }
+
+        Map<String, byte[]> files = new LinkedHashMap<>();
+
+        try {
+            Map<String, String> checksums = readChecksums(entry);
+
+            // verify all files before writing any of them, such that a corrupt entry leaves no partial output behind
+            for (String fileName : fileNames) {
+                byte[] content = Files.readAllBytes(entry.resolve(fileName));
+                if (!toHex(newDigest().digest(content)).equals(checksums.get(fileName))) {
+                    LOGGER.warn("Discarding corrupt cache entry " + key + ", the checksum of " + fileName
+                            + " doesn't match!");
+                    discard(entry);
+                    return false;
+                }
+                files.put(fileName, content);
+            }
+        } catch (IOException e) {
+            // the entry might have been evicted concurrently or lost some of its files
+            LOGGER.warn("Couldn't restore cache entry " + key + ": " + e.getMessage());
+            discard(entry);
+            return false;
+        }
+
+        try {
+            Files.createDirectories(outputDirectory.toPath());
+
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                Files.write(outputDirectory.toPath().resolve(file.getKey()), file.getValue());
+            }
+
+            // the modification time of an entry tracks its last use
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            LOGGER.warn("Couldn't restore cache entry " + key + ": " + e.getMessage());
+            return false;
+        }
+
+        LOGGER.info("Restored static data from cache entry " + key + ".");
+        return true;
+    }
+
+    /**
+     * Stores the static data files of the given key and evicts the least recently used entries if the cache
+     * exceeds its size limit afterwards. Failures are logged only, the cache is merely an optimisation.
+     *
+     * @param key The key of the APK.
+     * @param outputDirectory The directory holding the static data files.
+     * @param fileNames The names of the static data files.
+     */
+    public void store(final String key, final File outputDirectory, final List<String> fileNames) {
+
+        Path entry = directory.resolve(key);
+
+        if (Files.isDirectory(entry)) {
+            return;
+        }
+
+        Path temporaryEntry = directory.resolve(key + TEMPORARY_INFIX + UUID.randomUUID());
+
+        try {
+            Files.createDirectory(temporaryEntry);
+
+            StringBuilder checksums = new StringBuilder();
+
+            for (String fileName : fileNames) {
+                byte[] content = Files.readAllBytes(outputDirectory.toPath().resolve(fileName));
+                Files.write(temporaryEntry.resolve(fileName), content);
+                checksums.append(toHex(newDigest().digest(content))).append(' ').append(fileName).append('\n');
+            }
+
+            Files.write(temporaryEntry.resolve(CHECKSUMS_FILE), checksums.toString().getBytes(StandardCharsets.UTF_8));
+
+            Files.move(temporaryEntry, entry, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Stored static data in cache entry " + key + ".");
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            // a concurrent run stored the same entry in the meantime
+            LOGGER.debug("Cache entry " + key + " has been stored concurrently.");
+        } catch (IOException e) {
+            LOGGER.warn("Couldn't store cache entry " + key + ": " + e.getMessage());
+        } finally {
+            deleteRecursively(temporaryEntry);
+        }
+
+        evict();
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache fits into its size limit. If another process is
+     * evicting at the same time, the eviction is skipped.
+     */
+    private void evict() {
+
+        synchronized (EVICTION_LOCK) {
+
+            try (FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = channel.tryLock()) {
+
+                if (lock == null) {
+                    return;
+                }
+
+                List<Path> entries;
+                try (Stream<Path> paths = Files.list(directory)) {
+                    entries = paths.filter(Files::isDirectory)
+                            .filter(path -> !path.getFileName().toString().contains(TEMPORARY_INFIX))
+                            .collect(Collectors.toList());
+                }
+
+                Map<Path, Long> sizes = new HashMap<>();
+                Map<Path, Long> lastUses = new HashMap<>();
+                long totalSize = 0;
+
+                for (Path entry : entries) {
+                    long size = sizeOf(entry);
+                    sizes.put(entry, size);
+                    lastUses.put(entry, Files.getLastModifiedTime(entry).toMillis());
+                    totalSize += size;
+                }
+
+                entries.sort(Comparator.comparing(lastUses::get));
+
+                for (Iterator<Path> iterator = entries.iterator(); totalSize > maxSizeBytes && iterator.hasNext(); ) {
+
+                    Path entry = iterator.next();
+
+                    // move the entry out of the way first, such that readers never see a partially deleted entry
+                    Path evictedEntry = directory.resolve(entry.getFileName() + TEMPORARY_INFIX + UUID.randomUUID());
+                    Files.move(entry, evictedEntry, StandardCopyOption.ATOMIC_MOVE);
+                    deleteRecursively(evictedEntry);
+
+                    totalSize -= sizes.get(entry);
+                    LOGGER.debug("Evicted cache entry " + entry.getFileName() + ".");
+                }
+            } catch (IOException | OverlappingFileLockException e) {
+                LOGGER.warn("Couldn't evict cache entries: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the checksums of the static data files of the given entry.
+     *
+     * @param entry The cache entry.
+     * @return Returns the checksums keyed by the file names.
+     * @throws IOException If the checksums can't be read.
+     */
+    private static Map<String, String> readChecksums(final Path entry) throws IOException {
+
+        Map<String, String> checksums = new HashMap<>();
+
+        for (String line : Files.readAllLines(entry.resolve(CHECKSUMS_FILE), StandardCharsets.UTF_8)) {
+            int separator = line.indexOf(' ');
+            if (separator > 0) {
+                checksums.put(line.substring(separator + 1), line.substring(0, separator));
+            }
+        }
+        return checksums;
+    }
+
+    /**
+     * Removes the given entry, which is moved out of the way first like on eviction. If the entry is gone already,
+     * e.g. discarded by a concurrent run, nothing happens.
+     *
+     * @param entry The cache entry.
+     */
+    private void discard(final Path entry) {
+
+        Path discardedEntry = directory.resolve(entry.getFileName() + TEMPORARY_INFIX + UUID.randomUUID());
+
+        try {
+            Files.move(entry, discardedEntry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.debug("Couldn't discard cache entry " + entry.getFileName() + ": " + e.getMessage());
+            return;
+        }
+        deleteRecursively(discardedEntry);
+    }
+
+    private static long sizeOf(final Path entry) throws IOException {
+        try (Stream<Path> files = Files.walk(entry)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sum();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void deleteRecursively(final Path path) {
+
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            LOGGER.warn("Couldn't delete " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(final byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -1,26 +1,32 @@
 package de.uni_passau.fim.auermich.android_analysis.component;
 
-import de.uni_passau.fim.auermich.android_analysis.component.bundle.Extra;
+import de.uni_passau.fim.auermich.android_analysis.component.bundle.Extras;
+import de.uni_passau.fim.auermich.android_analysis.utility.XmlWriter;
 import com.android.tools.smali.dexlib2.iface.ClassDef;
 
+import java.io.IOException;
 import java.util.*;
 
 public class BroadcastReceiver extends Component {
 
-    private final List<Extra> onReceiveExtras;
+    private final Extras onReceiveExtras;
     private final Set<String> onReceiveStrings;
 
     private boolean isDynamicReceiver = false;
 
     public BroadcastReceiver(String className) {
         super(className);
-        onReceiveExtras = new ArrayList<>();
+        onReceiveExtras = new Extras();
         onReceiveStrings = new LinkedHashSet<>();
     }
 
     public BroadcastReceiver(ClassDef clazz) {
-        super(clazz);
-        onReceiveExtras = new ArrayList<>();
+        this(clazz, new StringPool());
+    }
+
+    public BroadcastReceiver(ClassDef clazz, StringPool stringPool) {
+        super(clazz, stringPool);
+        onReceiveExtras = new Extras();
         onReceiveStrings = new LinkedHashSet<>();
     }
 
@@ -31,7 +37,7 @@ public class BroadcastReceiver extends Component {
         isDynamicReceiver = true;
     }
 
-    public List<Extra> getOnReceiveExtras() {
+    public Extras getOnReceiveExtras() {
         return onReceiveExtras;
     }
 
@@ -39,80 +45,48 @@ public class BroadcastReceiver extends Component {
         return onReceiveStrings;
     }
 
-    public String toXml() {
-        StringBuilder output = new StringBuilder("<receiver name=\"" + makeXmlConform(name) + "\">\n");
-        output.append("    <dynamic value=\"" + makeXmlConform(String.valueOf(isDynamicReceiver)) + "\"/>\n");
-        output.append(super.toXml());
-        output.append(onReceiveToXml());
-        output.append("</receiver>\n");
+    /**
+     * Checks whether the broadcast receiver has been registered dynamically.
+     *
+     * @return Returns {@code true} if the receiver is a dynamic receiver, otherwise {@code false} is returned.
+     */
+    public boolean isDynamicReceiver() {
+        return isDynamicReceiver;
+    }
 
-        return output.toString();
+    @Override
+    public void accept(ComponentVisitor visitor) throws IOException {
+        finalizeMethods();
+        visitor.visitStart(getType(), name);
+        visitor.visitDynamic(isDynamicReceiver);
+        super.accept(visitor);
+        visitOnReceive(visitor);
+        visitor.visitEnd(getType());
     }
 
     // a simplified xml representation of a component solely containing the name and the attributes exported and enabled
     @Override
-    public String toXmlSimple() {
-        return "<" + getType()
-                + " name=\"" + makeXmlConform(name) + "\""
-                + " enabled=\"" + enabled +"\""
-                + " exported=\"" + exported +"\""
-                + " dynamic=\"" + isDynamicReceiver +"\""
-                + "></" + getType() + ">";
+    public void writeXmlSimple(XmlWriter writer) throws IOException {
+        ComponentXml.writeSimple(writer, getType(), name, enabled, exported, isDynamicReceiver);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    protected String getType() {
+    public String getType() {
         return "receiver";
     }
 
-    private String onReceiveToXml() {
-        finalizeOnReceive();
-        if(!onReceiveExtras.isEmpty() || !onReceiveStrings.isEmpty()) {
-            StringBuilder output = new StringBuilder();
-            output.append("    <on_receive>\n");
-            for(String string : onReceiveStrings) {
-                output.append("        <string value=\"" + makeXmlConform(string) + "\"/>\n");
-            }
-            for(int i = 0; i < onReceiveExtras.size(); i++) {
-                output.append("        <extra key=\"" + makeXmlConform(onReceiveExtras.get(i).getKey()) + "\" type=\""
-                        + makeXmlConform(onReceiveExtras.get(i).getValueType()) + "\"/>\n");
-            }
-            output.append("    </on_receive>\n");
-            return output.toString();
-        }
-        return "";
+    private void visitOnReceive(ComponentVisitor visitor) throws IOException {
+        visitor.visitEntryPoint("on_receive", onReceiveStrings, onReceiveExtras.toList());
     }
 
-    public void finalizeMethods() {
-        finalizeOnReceive();
-    }
-
-    private void finalizeOnReceive() {
-        for(int i = 0 ; i < onReceiveExtras.size(); i++) {
-            for(int n = i + 1; n < onReceiveExtras.size(); n++) {
-                if(onReceiveExtras.get(i).getKey().equals(onReceiveExtras.get(n).getKey())) {
-                    if(onReceiveExtras.get(i).getValueType().equals(""))
-                        onReceiveExtras.get(i).setValueType(onReceiveExtras.get(n).getValueType());
-                    onReceiveExtras.remove(n);
-                    n--;
-                }
-            }
-
-            Iterator<String> ocIt = onReceiveStrings.iterator();
-            while(ocIt.hasNext()) {
-                String string = ocIt.next();
-                if(onReceiveExtras.get(i).getKey().equals(string))
-                    ocIt.remove();
-            }
-            Iterator<String> it = globalStrings.iterator();
-            while (it.hasNext()) {
-                String string = it.next();
-                if(onReceiveExtras.get(i).getKey().equals(string))
-                    it.remove();
-            }
-        }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void finalizeEntryPoints() {
+        onReceiveStrings.removeAll(onReceiveExtras.getKeys());
     }
 }
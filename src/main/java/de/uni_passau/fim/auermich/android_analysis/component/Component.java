@@ -1,15 +1,26 @@
 package de.uni_passau.fim.auermich.android_analysis.component;
 
 import de.uni_passau.fim.auermich.android_analysis.utility.ClassUtils;
+import de.uni_passau.fim.auermich.android_analysis.utility.ComponentUtils;
+import de.uni_passau.fim.auermich.android_analysis.utility.XmlWriter;
 import com.android.tools.smali.dexlib2.iface.ClassDef;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.util.*;
 
+/**
+ * A component of an app, which solely consists of the data extracted from its class. The class definition itself is
+ * not retained, such that the dex files can be collected once the components have been extracted.
+ */
 public abstract class Component {
 
-    protected final ClassDef clazz;
     protected final String name;
 
+    // whether the class representing the component is abstract, which doesn't make it a real component
+    private final boolean abstractClass;
+
     // components are enabled by default but not exported by default
     protected boolean exported = false;
     protected boolean enabled = true;
@@ -17,13 +28,28 @@ public abstract class Component {
     protected final Set<String> globalStrings;
     protected final List<IntentFilter> intentFilters;
 
-    private final Set<String> staticStrings = new HashSet<>();
+    // whether the entry point methods have been finalized
+    private boolean finalized = false;
+
+    // the strings of the pool shared by the components of an app
+    private final StringIdSet staticStrings;
 
     public Component(ClassDef clazz) {
-        this.clazz = clazz;
+        this(clazz, new StringPool());
+    }
+
+    /**
+     * Creates a component whose static strings are interned by the given pool.
+     *
+     * @param clazz The class representing the component.
+     * @param stringPool The string pool shared by the components of the app.
+     */
+    public Component(ClassDef clazz, StringPool stringPool) {
         this.name = ClassUtils.dottedClassName(clazz.toString());
+        this.abstractClass = ComponentUtils.isAbstractClass(clazz);
         globalStrings = new LinkedHashSet<>();
         intentFilters = new ArrayList<>();
+        staticStrings = new StringIdSet(stringPool);
     }
 
     /**
@@ -32,10 +58,11 @@ public abstract class Component {
      * @param className The class name of the component.
      */
     public Component(String className) {
-        this.clazz = null;
         this.name = className;
+        this.abstractClass = false;
         globalStrings = new LinkedHashSet<>();
         intentFilters = new ArrayList<>();
+        staticStrings = new StringIdSet(new StringPool());
     }
 
     public void addIntentFilter(IntentFilter intentFilter) {
@@ -64,12 +91,13 @@ public abstract class Component {
     }
 
     /**
-     * Returns the class definition representing the component.
+     * Whether the class representing the component is abstract. Components parsed from the manifest are never
+     * abstract.
      *
-     * @return Returns the class definition.
+     * @return Returns {@code true} if the class is abstract, otherwise {@code false}.
      */
-    public ClassDef getClazz() {
-        return clazz;
+    public boolean isAbstract() {
+        return abstractClass;
     }
 
     /**
@@ -83,102 +111,138 @@ public abstract class Component {
 
     // a simplified xml representation of a component solely containing the name and the attributes exported and enabled
     public String toXmlSimple() {
-        return "<" + getType()
-                + " name=\"" + makeXmlConform(name) + "\""
-                + " enabled=\"" + enabled +"\""
-                + " exported=\"" + exported +"\""
-                + "></" + getType() + ">";
+        return toString(this::writeXmlSimple);
     }
 
     /**
-     * Provides the generic part of a component as XML representation.
+     * Writes the simplified XML representation of the component, see {@link #toXmlSimple()}.
      *
-     * @return Returns the component's partial XML representation.
+     * @param writer The XML writer.
+     * @throws IOException If writing fails.
+     */
+    public void writeXmlSimple(XmlWriter writer) throws IOException {
+        ComponentXml.writeSimple(writer, getType(), name, enabled, exported, null);
+    }
+
+    /**
+     * Provides the XML representation of the component.
+     *
+     * @return Returns the component's XML representation.
      */
     public String toXml() {
-        StringBuilder output = new StringBuilder();
-        output.append(intentFiltersToXml());
-        output.append(globalStringsToXml());
-        return output.toString();
+        return toString(this::writeXml);
     }
 
     /**
-     * Gets the type of a component. (Is needed for type in xml file)
+     * Writes the XML representation of the component.
      *
-     * @return The type of a component.
+     * @param writer The XML writer.
+     * @throws IOException If writing fails.
      */
-    protected abstract String getType();
+    public void writeXml(XmlWriter writer) throws IOException {
+        accept(new ComponentXml(writer));
+    }
 
     /**
-     * Provides the XML representation of the collected global strings.
+     * Visits the static intent data of the component. This visits the generic part of a component, i.e. the
+     * intent-filters and the global strings, subclasses wrap it into their start and end and visit their entry
+     * point methods, which are finalized once before they are visited first, see {@link #finalizeMethods()}.
      *
-     * @return Returns the XML representation of the global strings.
+     * @param visitor The visitor.
+     * @throws IOException If the visitor fails.
      */
-    private String globalStringsToXml() {
-        if (!globalStrings.isEmpty()) {
-            StringBuilder output = new StringBuilder();
-            output.append("    <global>\n");
-            for (String string : globalStrings) {
-                output.append("        <string value='" + makeXmlConform(string)
-                        + "'/>\n");
-            }
-            output.append("    </global>\n");
-            return output.toString();
+    public void accept(ComponentVisitor visitor) throws IOException {
+        for (IntentFilter intentFilter : intentFilters) {
+            visitor.visitIntentFilter(intentFilter.actions, intentFilter.categories);
         }
-        return "";
+        visitor.visitGlobalStrings(globalStrings);
     }
 
+    /**
+     * Gets the type of a component. (Is needed for type in xml file)
+     *
+     * @return The type of a component.
+     */
+    public abstract String getType();
+
     /**
      * Converts the collected static strings of a component and converts them to a valid XML representation.
      *
      * @return Returns a XML representation of the collected static strings per component.
      */
     public String staticStringsToXml() {
-        if (!staticStrings.isEmpty()) {
-            StringBuilder output = new StringBuilder();
-            output.append("<strings class='")
-                    .append(name)
-                    .append("' type='")
-                    .append(getType())
-                    .append("'>\n");
-            for (String string : staticStrings) {
-                output.append("    <string value='")
-                        .append(makeXmlConform(string)).append("'/>\n");
-            }
-            output.append("</strings>\n");
-            return output.toString();
-        } else {
-            return "";
-        }
+        return toString(this::writeStaticStrings);
     }
 
     /**
-     * Provides the XML representation of the attached intent-filters.
+     * Writes the XML representation of the collected static strings, see {@link #staticStringsToXml()}.
      *
-     * @return Returns the XML representation of the intent-filters.
+     * @param writer The XML writer.
+     * @throws IOException If writing fails.
      */
-    private String intentFiltersToXml() {
+    public void writeStaticStrings(XmlWriter writer) throws IOException {
+        ComponentXml.writeStaticStrings(writer, getType(), name, getStaticStrings());
+    }
 
-        StringBuilder output = new StringBuilder();
+    /**
+     * Returns the static strings collected from the methods of the component. The strings are listed in the order of
+     * a hash set, which is the order they have always been written in.
+     *
+     * @return Returns a copy of the static strings.
+     */
+    public Set<String> getStaticStrings() {
+        // the set grows one by one rather than being presized, which would alter its order
+        Set<String> strings = new HashSet<>();
+        strings.addAll(staticStrings);
+        return strings;
+    }
 
-        for (IntentFilter intentFilter : intentFilters) {
-            output.append(intentFilter.toXml());
-        }
+    /**
+     * Renders the given XML content into a string.
+     *
+     * @param content The XML content.
+     * @return Returns the XML content as string.
+     */
+    protected static String toString(XmlContent content) {
 
+        StringWriter output = new StringWriter();
+
+        try {
+            content.writeTo(new XmlWriter(output));
+        } catch (IOException e) {
+            // a string writer never fails
+            throw new UncheckedIOException(e);
+        }
         return output.toString();
     }
 
-    public void finalizeMethods() {
+    /**
+     * Some XML content that can be written to an {@link XmlWriter}.
+     */
+    @FunctionalInterface
+    protected interface XmlContent {
+
+        void writeTo(XmlWriter writer) throws IOException;
+    }
 
+    /**
+     * Finalizes the entry point methods, i.e. removes the keys of their extras from their strings, since a key isn't
+     * a value of the intent. The extras themselves are merged as they are added. The entry points are finalized once,
+     * at the latest before they are visited for the first time, thus the data of the entry points needs to be
+     * complete by then. The global strings are left untouched, they are written including the keys.
+     */
+    public final void finalizeMethods() {
+        if (!finalized) {
+            finalized = true;
+            finalizeEntryPoints();
+        }
     }
 
-    protected String makeXmlConform(String input) {
-        input = input.replace("&", "&amp;");
-        input = input.replace("\"", "&quot;");
-        input = input.replace("'", "&apos;");
-        input = input.replace(">", "&gt;");
-        input = input.replace("<", "&lt;");
-        return input;
+    /**
+     * Removes the keys of the extras from the strings of each entry point, see {@link #finalizeMethods()}.
+     */
+    protected void finalizeEntryPoints() {
+
     }
 
     @Override
@@ -222,23 +286,17 @@ public abstract class Component {
          * @return Returns the xml representation of the intent-filter.
          */
         public String toXml() {
+            return Component.toString(this::writeXml);
+        }
 
-            StringBuilder output = new StringBuilder();
-            output.append("    <intent-filter>\n");
-
-            for (String action : actions) {
-                output.append("        <action name='" + makeXmlConform(action)
-                        + "'/>\n");
-            }
-
-            for (String category : categories) {
-                output.append(
-                        "        <category name='" + makeXmlConform(category)
-                                + "'/>\n");
-            }
-
-            output.append("    </intent-filter>\n");
-            return output.toString();
+        /**
+         * Writes the custom xml representation of the intent-filter, see {@link #toXml()}.
+         *
+         * @param writer The XML writer.
+         * @throws IOException If writing fails.
+         */
+        public void writeXml(XmlWriter writer) throws IOException {
+            new ComponentXml(writer).visitIntentFilter(actions, categories);
         }
     }
 
@@ -247,7 +305,7 @@ public abstract class Component {
     }
 
     /**
-     * Adds a set of string to the {@code allStrings} Set.
+     * Adds a set of strings to the static strings. Sets of the same string pool are added by their ids.
      *
      * @param strings The set to be added.
      */
@@ -0,0 +1,13 @@
+package de.uni_passau.fim.auermich.android_analysis.component;
+
+/**
+ * The kind of component a class represents, derived from its class hierarchy.
+ */
+public enum ComponentType {
+    ACTIVITY,
+    SERVICE,
+    BROADCAST_RECEIVER,
+    FRAGMENT,
+    // the class doesn't represent any component
+    NONE
+}
@@ -0,0 +1,115 @@
+package de.uni_passau.fim.auermich.android_analysis.component;
+
+import de.uni_passau.fim.auermich.android_analysis.component.bundle.Extra;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Visits the static intent data of a component, see {@link Component#accept(ComponentVisitor)}. The parts of a
+ * component are visited in the order they appear in the staticIntentInfo.xml file.
+ */
+public interface ComponentVisitor {
+
+    /**
+     * Visits the start of a component.
+     *
+     * @param type The type of the component, e.g. activity.
+     * @param name The name of the component.
+     * @throws IOException If the visitor fails to process the component.
+     */
+    void visitStart(String type, String name) throws IOException;
+
+    /**
+     * Visits whether a broadcast receiver has been registered dynamically.
+     *
+     * @param dynamic Whether the receiver is a dynamic receiver.
+     * @throws IOException If the visitor fails to process the component.
+     */
+    void visitDynamic(boolean dynamic) throws IOException;
+
+    /**
+     * Visits an intent-filter of the component.
+     *
+     * @param actions The actions of the intent-filter.
+     * @param categories The categories of the intent-filter.
+     * @throws IOException If the visitor fails to process the component.
+     */
+    void visitIntentFilter(Set<String> actions, Set<String> categories) throws IOException;
+
+    /**
+     * Visits the string constants assigned to the fields of the component.
+     *
+     * @param strings The global strings.
+     * @throws IOException If the visitor fails to process the component.
+     */
+    void visitGlobalStrings(Set<String> strings) throws IOException;
+
+    /**
+     * Visits the strings and extras of an entry point method of the component, e.g. onCreate.
+     *
+     * @param tag The tag of the entry point method, e.g. on_create.
+     * @param strings The strings of the entry point method.
+     * @param extras The extras of the entry point method.
+     * @throws IOException If the visitor fails to process the component.
+     */
+    void visitEntryPoint(String tag, Set<String> strings, List<Extra> extras) throws IOException;
+
+    /**
+     * Visits the end of a component.
+     *
+     * @param type The type of the component, e.g. activity.
+     * @throws IOException If the visitor fails to process the component.
+     */
+    void visitEnd(String type) throws IOException;
+
+    /**
+     * Combines two visitors, such that a component is traversed only once.
+     *
+     * @param first The visitor that visits each part first.
+     * @param second The visitor that visits each part second.
+     * @return Returns the combined visitor.
+     */
+    static ComponentVisitor both(ComponentVisitor first, ComponentVisitor second) {
+
+        return new ComponentVisitor() {
+
+            @Override
+            public void visitStart(String type, String name) throws IOException {
+                first.visitStart(type, name);
+                second.visitStart(type, name);
+            }
+
+            @Override
+            public void visitDynamic(boolean dynamic) throws IOException {
+                first.visitDynamic(dynamic);
+                second.visitDynamic(dynamic);
+            }
+
+            @Override
+            public void visitIntentFilter(Set<String> actions, Set<String> categories) throws IOException {
+                first.visitIntentFilter(actions, categories);
+                second.visitIntentFilter(actions, categories);
+            }
+
+            @Override
+            public void visitGlobalStrings(Set<String> strings) throws IOException {
+                first.visitGlobalStrings(strings);
+                second.visitGlobalStrings(strings);
+            }
+
+            @Override
+            public void visitEntryPoint(String tag, Set<String> strings, List<Extra> extras) throws IOException {
+                first.visitEntryPoint(tag, strings, extras);
+                second.visitEntryPoint(tag, strings, extras);
+            }
+
+            @Override
+            public void visitEnd(String type) throws IOException {
+                first.visitEnd(type);
+                second.visitEnd(type);
+            }
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package de.uni_passau.fim.auermich.android_analysis.component;
+
+import de.uni_passau.fim.auermich.android_analysis.component.bundle.Extra;
+import de.uni_passau.fim.auermich.android_analysis.utility.XmlWriter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Renders the static data of components into the XML representation consumed by MATE. The static intent data is
+ * rendered by visiting a component, see {@link Component#accept(ComponentVisitor)}, while the simplified component
+ * representation and the static strings are rendered from their plain values. Thus, the XML files can be produced
+ * from both the components and the binary static data.
+ */
+public final class ComponentXml implements ComponentVisitor {
+
+    /**
+     * The header of each XML output file.
+     */
+    public static final String HEADER = "<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"no\"?>";
+
+    private final XmlWriter writer;
+
+    /**
+     * Creates a new visitor rendering the static intent data of the visited components.
+     *
+     * @param writer The XML writer.
+     */
+    public ComponentXml(final XmlWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Writes the simplified XML representation of a component solely containing the name and the attributes
+     * enabled and exported.
+     *
+     * @param writer The XML writer.
+     * @param type The type of the component.
+     * @param name The name of the component.
+     * @param enabled Whether the component is enabled.
+     * @param exported Whether the component is exported.
+     * @param dynamic Whether a broadcast receiver is a dynamic receiver or {@code null} for other components.
+     * @throws IOException If writing fails.
+     */
+    public static void writeSimple(final XmlWriter writer, final String type, final String name, final boolean enabled,
+                                   final boolean exported, final Boolean dynamic) throws IOException {
+        writer.write("<").write(type)
+                .write(" name=\"").writeEscaped(name).write("\"")
+                .write(" enabled=\"").write(String.valueOf(enabled)).write("\"")
+                .write(" exported=\"").write(String.valueOf(exported)).write("\"");
+        if (dynamic != null) {
+            writer.write(" dynamic=\"").write(String.valueOf(dynamic)).write("\"");
+        }
+        writer.write("></").write(type).write(">");
+    }
+
+    /**
+     * Writes the static strings of a component unless there are none.
+     *
+     * @param writer The XML writer.
+     * @param type The type of the component.
+     * @param name The name of the component.
+     * @param strings The static strings of the component.
+     * @throws IOException If writing fails.
+     */
+    public static void writeStaticStrings(final XmlWriter writer, final String type, final String name,
+                                          final Collection<String> strings) throws IOException {
+        if (!strings.isEmpty()) {
+            writer.write("<strings class='")
+                    .write(name)
+                    .write("' type='")
+                    .write(type)
+                    .write("'>\n");
+            for (String string : strings) {
+                writer.write("    <string value='").writeEscaped(string).write("'/>\n");
+            }
+            writer.write("</strings>\n");
+        }
+    }
+
+    @Override
+    public void visitStart(final String type, final String name) throws IOException {
+        writer.write("<").write(type).write(" name=\"").writeEscaped(name).write("\">\n");
+    }
+
+    @Override
+    public void visitDynamic(final boolean dynamic) throws IOException {
+        writer.write("    <dynamic value=\"").writeEscaped(String.valueOf(dynamic)).write("\"/>\n");
+    }
+
+    @Override
+    public void visitIntentFilter(final Set<String> actions, final Set<String> categories) throws IOException {
+
+        writer.write("    <intent-filter>\n");
+
+        for (String action : actions) {
+            writer.write("        <action name='").writeEscaped(action).write("'/>\n");
+        }
+
+        for (String category : categories) {
+            writer.write("        <category name='").writeEscaped(category).write("'/>\n");
+        }
+
+        writer.write("    </intent-filter>\n");
+    }
+
+    @Override
+    public void visitGlobalStrings(final Set<String> strings) throws IOException {
+        if (!strings.isEmpty()) {
+            writer.write("    <global>\n");
+            for (String string : strings) {
+                writer.write("        <string value='").writeEscaped(string).write("'/>\n");
+            }
+            writer.write("    </global>\n");
+        }
+    }
+
+    @Override
+    public void visitEntryPoint(final String tag, final Set<String> strings, final List<Extra> extras)
+            throws IOException {
+        if (!extras.isEmpty() || !strings.isEmpty()) {
+            writer.write("    <").write(tag).write(">\n");
+            for (String string : strings) {
+                writer.write("        <string value=\"").writeEscaped(string).write("\"/>\n");
+            }
+            for (Extra extra : extras) {
+                writer.write("        <extra key=\"").writeEscaped(extra.getKey())
+                        .write("\" type=\"").writeEscaped(extra.getValueType()).write("\"/>\n");
+            }
+            writer.write("    </").write(tag).write(">\n");
+        }
+    }
+
+    @Override
+    public void visitEnd(final String type) throws IOException {
+        writer.write("</").write(type).write(">\n");
+    }
+}
@@ -3,7 +3,6 @@ package de.uni_passau.fim.auermich.android_analysis.component;
 import de.uni_passau.fim.auermich.android_analysis.component.bundle.Extra;
 import com.android.tools.smali.dexlib2.iface.ClassDef;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -13,15 +12,19 @@ public class Fragment extends Component {
     private List<Extra> onCreateExtras;
 
     public Fragment(ClassDef clazz) {
-        super(clazz);
-        methodStrings = new HashSet<>();
+        this(clazz, new StringPool());
+    }
+
+    public Fragment(ClassDef clazz, StringPool stringPool) {
+        super(clazz, stringPool);
+        methodStrings = new StringIdSet(stringPool);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    protected String getType() {
+    public String getType() {
         return "fragment";
     }
 
@@ -0,0 +1,138 @@
+package de.uni_passau.fim.auermich.android_analysis.component;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of strings that stores the ids of its strings within a {@link StringPool} instead of the strings themselves.
+ * The strings are iterated in the order they have been added, like a {@link java.util.LinkedHashSet}. Adding a set
+ * of the same pool merely copies ids. Strings can't be removed.
+ */
+public final class StringIdSet extends AbstractSet<String> {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final StringPool pool;
+
+    // the ids in the order they have been added
+    private int[] ids = EMPTY;
+    private int size;
+
+    // an open addressing hash table of the ids, where each slot holds the id plus one or 0 if the slot is free
+    private int[] slots = EMPTY;
+
+    /**
+     * Creates an empty set of strings interned by the given pool.
+     *
+     * @param pool The string pool.
+     */
+    public StringIdSet(final StringPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public boolean add(final String string) {
+        return addId(pool.intern(string));
+    }
+
+    @Override
+    public boolean addAll(final Collection<? extends String> strings) {
+
+        if (strings instanceof StringIdSet && ((StringIdSet) strings).pool == pool) {
+            StringIdSet other = (StringIdSet) strings;
+            boolean changed = false;
+            for (int i = 0; i < other.size; i++) {
+                changed |= addId(other.ids[i]);
+            }
+            return changed;
+        }
+        return super.addAll(strings);
+    }
+
+    @Override
+    public boolean contains(final Object object) {
+        if (!(object instanceof String) || size == 0) {
+            return false;
+        }
+        int id = pool.find((String) object);
+        return id >= 0 && slots[slotOf(id)] != 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public String next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return pool.get(ids[index++]);
+            }
+        };
+    }
+
+    private boolean addId(final int id) {
+
+        // the table is kept at most half full
+        if (2 * (size + 1) > slots.length) {
+            grow();
+        }
+
+        int slot = slotOf(id);
+
+        if (slots[slot] != 0) {
+            return false;
+        }
+
+        slots[slot] = id + 1;
+
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+        }
+        ids[size++] = id;
+        return true;
+    }
+
+    /**
+     * Returns the slot holding the given id or the free slot the id belongs to.
+     *
+     * @param id The id.
+     * @return Returns the slot.
+     */
+    private int slotOf(final int id) {
+
+        int mask = slots.length - 1;
+        // fibonacci hashing spreads consecutive ids, which are taken from the upper bits of the product
+        int slot = (id * 0x9E3779B9) >>> Integer.numberOfLeadingZeros(mask);
+
+        while (slots[slot] != 0 && slots[slot] != id + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+
+        slots = new int[Math.max(8, slots.length * 2)];
+
+        for (int i = 0; i < size; i++) {
+            slots[slotOf(ids[i])] = ids[i] + 1;
+        }
+    }
+}
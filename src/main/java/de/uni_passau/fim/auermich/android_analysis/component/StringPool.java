@@ -0,0 +1,80 @@
+package de.uni_passau.fim.auermich.android_analysis.component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns the strings collected from the components of an app and assigns each distinct string a dense id, such that
+ * the components merely hold the ids of their strings, see {@link StringIdSet}. A pool is shared by the components
+ * of a single analysis. It is thread-safe and only grows, i.e. an id stays valid as long as the pool is reachable.
+ */
+public final class StringPool {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    /**
+     * Returns the id of the given string and adds the string to the pool if necessary.
+     *
+     * @param string The string.
+     * @return Returns the id of the string.
+     */
+    public synchronized int intern(final String string) {
+
+        if (string == null) {
+            throw new IllegalArgumentException("Can't intern null!");
+        }
+
+        Integer id = ids.get(string);
+
+        if (id == null) {
+            id = strings.size();
+            ids.put(string, id);
+            strings.add(string);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the pooled instance of the given string, which replaces equal copies of the string, e.g. the ones read
+     * from different dex instructions.
+     *
+     * @param string The string.
+     * @return Returns the pooled instance.
+     */
+    public synchronized String canonicalize(final String string) {
+        return strings.get(intern(string));
+    }
+
+    /**
+     * Returns the id of the given string without adding it to the pool.
+     *
+     * @param string The string.
+     * @return Returns the id of the string or -1 if the string isn't part of the pool.
+     */
+    public synchronized int find(final String string) {
+        Integer id = ids.get(string);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the string with the given id.
+     *
+     * @param id The id of the string.
+     * @return Returns the string.
+     */
+    public synchronized String get(final int id) {
+        return strings.get(id);
+    }
+
+    /**
+     * Returns the number of distinct strings in the pool.
+     *
+     * @return Returns the number of strings.
+     */
+    public synchronized int size() {
+        return strings.size();
+    }
+}
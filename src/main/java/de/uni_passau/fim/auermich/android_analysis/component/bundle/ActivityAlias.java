@@ -14,7 +14,7 @@ public class ActivityAlias extends Component {
     }
 
     @Override
-    protected String getType() {
+    public String getType() {
         return "activity-alias";
     }
 }
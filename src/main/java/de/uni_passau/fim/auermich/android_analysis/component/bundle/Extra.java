@@ -1,9 +1,13 @@
 package de.uni_passau.fim.auermich.android_analysis.component.bundle;
 
+/**
+ * An extra read from an intent, given by its key and the type of its value. Extras are immutable, thus they may be
+ * shared between components.
+ */
 public class Extra {
 
     private final String key;
-    private String valueType;
+    private final String valueType;
 
     public Extra(String key, String valueType) {
         this.key = key;
@@ -17,8 +21,4 @@ public class Extra {
     public String getValueType() {
         return valueType;
     }
-
-    public void setValueType(String newType) {
-        valueType = newType;
-    }
 }
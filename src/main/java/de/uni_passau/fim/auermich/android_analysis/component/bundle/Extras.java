@@ -0,0 +1,74 @@
+package de.uni_passau.fim.auermich.android_analysis.component.bundle;
+
+import java.util.AbstractCollection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The extras of an entry point keyed by their key. Adding an extra whose key is already present merges both extras,
+ * i.e. the present extra keeps its position and takes the value type of the added extra if its own value type is
+ * unknown, which is represented by the empty string. Thus, the extras are merged in linear time as they are added.
+ */
+public final class Extras extends AbstractCollection<Extra> {
+
+    private final Map<String, Extra> extras = new LinkedHashMap<>();
+
+    @Override
+    public boolean add(Extra extra) {
+
+        Extra present = extras.putIfAbsent(extra.getKey(), extra);
+
+        if (present == null) {
+            return true;
+        }
+
+        if (present.getValueType().isEmpty() && !extra.getValueType().isEmpty()) {
+            // replacing the value of a present key keeps its position
+            extras.put(extra.getKey(), extra);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the extra with the given key.
+     *
+     * @param key The key of the extra.
+     * @return Returns the extra or {@code null} if there is no extra with the given key.
+     */
+    public Extra get(String key) {
+        return extras.get(key);
+    }
+
+    /**
+     * Returns the keys of the extras.
+     *
+     * @return Returns an unmodifiable view of the keys.
+     */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(extras.keySet());
+    }
+
+    /**
+     * Returns the extras in the order their keys have been added first.
+     *
+     * @return Returns an immutable list of the extras.
+     */
+    public List<Extra> toList() {
+        return List.copyOf(extras.values());
+    }
+
+    @Override
+    public Iterator<Extra> iterator() {
+        return extras.values().iterator();
+    }
+
+    @Override
+    public int size() {
+        return extras.size();
+    }
+}
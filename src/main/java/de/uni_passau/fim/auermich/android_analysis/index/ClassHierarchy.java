@@ -0,0 +1,97 @@
+package de.uni_passau.fim.auermich.android_analysis.index;
+
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import de.uni_passau.fim.auermich.android_analysis.component.ComponentType;
+import de.uni_passau.fim.auermich.android_analysis.utility.ComponentUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classifies classes into component types by their super class chain. The component type of each type on a chain is
+ * computed only once and then shared by all its subclasses, thus classifying all classes takes a single linear pass.
+ * The hierarchy can be queried concurrently.
+ */
+public final class ClassHierarchy {
+
+    // the class index used to step up in the class hierarchy
+    private final ClassIndex classIndex;
+
+    // the already resolved component types keyed by type descriptor
+    private final Map<String, ComponentType> componentTypes = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new class hierarchy on top of the given class index.
+     *
+     * @param classIndex The index over all classes.
+     */
+    public ClassHierarchy(final ClassIndex classIndex) {
+        this.classIndex = classIndex;
+    }
+
+    /**
+     * Determines the component type of the given class by checking its super classes against the recognized
+     * framework component classes.
+     *
+     * @param classDef The class to be classified.
+     * @return Returns the component type of the class or {@link ComponentType#NONE} if the class doesn't represent
+     *         a component.
+     */
+    public ComponentType getComponentType(final ClassDef classDef) {
+        return resolve(classDef.getSuperclass());
+    }
+
+    /**
+     * Resolves the component type of the given type. The super class chain is walked up until either a recognized
+     * framework class, an already resolved type or the end of the known hierarchy is reached. The result is then
+     * memoized for every type visited on the way.
+     *
+     * @param type The type descriptor.
+     * @return Returns the component type of the given type.
+     */
+    private ComponentType resolve(final String type) {
+
+        List<String> chain = new ArrayList<>();
+        String current = type;
+        ComponentType componentType = null;
+
+        while (componentType == null) {
+
+            if (current == null || current.equals("Ljava/lang/Object;")) {
+                componentType = ComponentType.NONE;
+                break;
+            }
+
+            componentType = componentTypes.get(current);
+
+            if (componentType != null) {
+                break;
+            }
+
+            componentType = ComponentUtils.getFrameworkComponentType(current);
+
+            if (componentType != null) {
+                componentTypes.put(current, componentType);
+                break;
+            }
+
+            ClassDef classDef = classIndex.get(current);
+
+            // the class hierarchy is not known beyond this point or is cyclic (malformed dex file)
+            if (classDef == null || chain.contains(current)) {
+                componentType = ComponentType.NONE;
+                break;
+            }
+
+            chain.add(current);
+            current = classDef.getSuperclass();
+        }
+
+        for (String descendant : chain) {
+            componentTypes.put(descendant, componentType);
+        }
+        return componentType;
+    }
+}
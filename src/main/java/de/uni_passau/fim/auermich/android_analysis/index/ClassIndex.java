@@ -0,0 +1,311 @@
+package de.uni_passau.fim.auermich.android_analysis.index;
+
+import com.android.tools.smali.dexlib2.dexbacked.DexBackedClassDef;
+import com.android.tools.smali.dexlib2.dexbacked.DexBackedDexFile;
+import com.android.tools.smali.dexlib2.dexbacked.raw.ClassDefItem;
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps type descriptors, e.g. 'Lcom/example/MainActivity;', to their class definitions. The index is built once
+ * per scan and replaces the linear searches over all classes of all dex files.
+ *
+ * A lazy index, see {@link #restrictedTo(List, String)}, only materializes the classes of the app package upfront.
+ * Since the type descriptors of a dex file are sorted, the types of a package form a contiguous range of type
+ * indices, thus the classes of the package are selected by their raw type index without building any other class
+ * definition. The remaining classes, e.g. library classes, are resolved on demand, e.g. when the super class chain
+ * of a component is followed.
+ */
+public final class ClassIndex {
+
+    private static final Logger LOGGER = LogManager.getLogger(ClassIndex.class);
+
+    // the indexed class definitions keyed by their type descriptor, i.e. all classes unless the index is lazy
+    private final Map<String, ClassDef> classes;
+
+    // the dex files the remaining classes are resolved from on demand, empty unless the index is lazy
+    private final List<LazyDexFile> lazyDexFiles;
+
+    // the classes resolved on demand including the types not defined in any dex file
+    private final Map<String, Optional<ClassDef>> resolvedClasses = new ConcurrentHashMap<>();
+
+    /**
+     * Builds the index over the classes of the given dex files. If a type is defined in multiple dex files, the
+     * first definition wins, which is the same one a linear search in dex file order would find.
+     *
+     * @param dexFiles The list of classes.dex files.
+     */
+    public ClassIndex(final List<DexFile> dexFiles) {
+
+        int size = 0;
+        for (DexFile dexFile : dexFiles) {
+            size += dexFile.getClasses().size();
+        }
+
+        // insertion order is preserved such that iterating the index yields the classes in dex file order
+        classes = new LinkedHashMap<>((int) (size / 0.75f) + 1);
+
+        for (DexFile dexFile : dexFiles) {
+            for (ClassDef classDef : dexFile.getClasses()) {
+                if (classes.putIfAbsent(classDef.getType(), classDef) != null) {
+                    LOGGER.debug("Duplicate class definition: " + classDef.getType());
+                }
+            }
+        }
+
+        lazyDexFiles = Collections.emptyList();
+    }
+
+    private ClassIndex(final Map<String, ClassDef> classes, final List<LazyDexFile> lazyDexFiles) {
+        this.classes = classes;
+        this.lazyDexFiles = lazyDexFiles;
+    }
+
+    /**
+     * Builds an index whose classes are restricted to the given package, e.g. the classes of the app itself, while
+     * any other class is only resolved on demand. If a dex file isn't backed by its raw representation, the index
+     * falls back to indexing all classes, whereas {@link #getClasses()} is restricted to the package either way.
+     *
+     * @param dexFiles The list of classes.dex files.
+     * @param packageName The dotted name of the package, e.g. 'com.example'. Just like for dotted class names, the
+     *         package name is matched as a plain prefix.
+     * @return Returns the index.
+     */
+    public static ClassIndex restrictedTo(final List<? extends DexFile> dexFiles, final String packageName) {
+
+        final String typePrefix = "L" + packageName.replace('.', '/');
+        final Map<String, ClassDef> classes = new LinkedHashMap<>();
+
+        if (!dexFiles.stream().allMatch(dexFile -> dexFile instanceof DexBackedDexFile)) {
+
+            ClassIndex eagerIndex = new ClassIndex(new ArrayList<>(dexFiles));
+
+            for (ClassDef classDef : eagerIndex.getClasses()) {
+                if (classDef.getType().startsWith(typePrefix)) {
+                    classes.put(classDef.getType(), classDef);
+                }
+            }
+
+            LOGGER.debug("Couldn't index the classes lazily, the dex files aren't backed by their raw representation.");
+            return new ClassIndex(classes, List.of(new LazyDexFile(eagerIndex)));
+        }
+
+        final List<LazyDexFile> lazyDexFiles = new ArrayList<>(dexFiles.size());
+        int classCount = 0;
+
+        for (DexFile dexFile : dexFiles) {
+
+            LazyDexFile lazyDexFile = new LazyDexFile((DexBackedDexFile) dexFile);
+            lazyDexFiles.add(lazyDexFile);
+            classCount += lazyDexFile.classDefCount;
+
+            for (DexBackedClassDef classDef : lazyDexFile.getClassesInRange(typePrefix)) {
+                if (classes.putIfAbsent(classDef.getType(), classDef) != null) {
+                    LOGGER.debug("Duplicate class definition: " + classDef.getType());
+                }
+            }
+        }
+
+        LOGGER.debug("Indexed " + classes.size() + " out of " + classCount + " classes upfront.");
+        return new ClassIndex(classes, lazyDexFiles);
+    }
+
+    /**
+     * Looks up the class definition of the given type.
+     *
+     * @param type The type descriptor of the class, e.g. 'Lcom/example/MainActivity;'.
+     * @return Returns the class definition or {@code null} if the class is not contained in the dex files.
+     */
+    public ClassDef get(final String type) {
+
+        ClassDef classDef = classes.get(type);
+
+        if (classDef != null || lazyDexFiles.isEmpty()) {
+            return classDef;
+        }
+        return resolvedClasses.computeIfAbsent(type, this::resolve).orElse(null);
+    }
+
+    /**
+     * Looks up the class definition of the given type.
+     *
+     * @param type The type descriptor of the class.
+     * @return Returns an optional containing either the class definition or not.
+     */
+    public Optional<ClassDef> find(final String type) {
+        return Optional.ofNullable(get(type));
+    }
+
+    /**
+     * Checks whether the given type is defined in the dex files.
+     *
+     * @param type The type descriptor of the class.
+     * @return Returns {@code true} if the class is defined, otherwise {@code false}.
+     */
+    public boolean contains(final String type) {
+        return get(type) != null;
+    }
+
+    /**
+     * Returns all indexed classes in dex file order. For an index restricted to a package, only the classes of the
+     * package are returned.
+     *
+     * @return Returns an unmodifiable view of the indexed classes.
+     */
+    public Collection<ClassDef> getClasses() {
+        return Collections.unmodifiableCollection(classes.values());
+    }
+
+    /**
+     * Returns the number of indexed classes.
+     *
+     * @return Returns the number of classes.
+     */
+    public int size() {
+        return classes.size();
+    }
+
+    /**
+     * Resolves a class from the dex files of a lazy index, where the first definition wins.
+     *
+     * @param type The type descriptor of the class.
+     * @return Returns an optional containing either the class definition or not.
+     */
+    private Optional<ClassDef> resolve(final String type) {
+
+        for (LazyDexFile lazyDexFile : lazyDexFiles) {
+
+            ClassDef classDef = lazyDexFile.getClass(type);
+
+            if (classDef != null) {
+                return Optional.of(classDef);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Resolves the classes of a single dex file by their type descriptor without materializing the other classes.
+     */
+    private static final class LazyDexFile {
+
+        private final DexBackedDexFile dexFile;
+
+        // the sorted type descriptors of the dex file
+        private final List<String> types;
+
+        // the index of the class definition of each type or -1 if the type isn't defined in the dex file
+        private final int[] classDefOfType;
+
+        private final int classDefCount;
+
+        // the eager index used for dex files that aren't backed by their raw representation
+        private final ClassIndex eagerIndex;
+
+        private LazyDexFile(final DexBackedDexFile dexFile) {
+
+            this.dexFile = dexFile;
+            this.types = dexFile.getTypeSection();
+            this.eagerIndex = null;
+
+            List<DexBackedClassDef> classSection = dexFile.getClassSection();
+            classDefCount = classSection.size();
+            classDefOfType = new int[types.size()];
+            Arrays.fill(classDefOfType, -1);
+
+            // only the type index of each class definition item is read
+            for (int i = 0; i < classDefCount; i++) {
+                classDefOfType[getTypeIndex(i)] = i;
+            }
+        }
+
+        private LazyDexFile(final ClassIndex eagerIndex) {
+            this.dexFile = null;
+            this.types = null;
+            this.classDefOfType = null;
+            this.classDefCount = eagerIndex.size();
+            this.eagerIndex = eagerIndex;
+        }
+
+        private int getTypeIndex(int classDefIndex) {
+            return dexFile.getBuffer().readSmallUint(dexFile.getClassSection().getOffset(classDefIndex)
+                    + ClassDefItem.CLASS_OFFSET);
+        }
+
+        /**
+         * Returns the classes whose type descriptor starts with the given prefix in the order of their definition.
+         *
+         * @param typePrefix The prefix of the type descriptors.
+         * @return Returns the matching classes.
+         */
+        private List<DexBackedClassDef> getClassesInRange(final String typePrefix) {
+
+            // the types starting with the prefix form a contiguous range of the sorted types
+            int from = lowerBound(typePrefix, 0);
+            int to = from;
+            int high = types.size();
+
+            // binary search for the first type following the range
+            while (to < high) {
+                int middle = (to + high) >>> 1;
+                if (types.get(middle).startsWith(typePrefix)) {
+                    to = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            List<DexBackedClassDef> classes = new ArrayList<>();
+
+            for (int i = 0; i < classDefCount; i++) {
+                int typeIndex = getTypeIndex(i);
+                if (typeIndex >= from && typeIndex < to) {
+                    classes.add(dexFile.getClassSection().get(i));
+                }
+            }
+            return classes;
+        }
+
+        /**
+         * Looks up the class definition of the given type.
+         *
+         * @param type The type descriptor of the class.
+         * @return Returns the class definition or {@code null} if the class isn't defined in the dex file.
+         */
+        private ClassDef getClass(final String type) {
+
+            if (eagerIndex != null) {
+                return eagerIndex.get(type);
+            }
+
+            int typeIndex = lowerBound(type, 0);
+
+            if (typeIndex == types.size() || !types.get(typeIndex).equals(type)
+                    || classDefOfType[typeIndex] == -1) {
+                return null;
+            }
+            return dexFile.getClassSection().get(classDefOfType[typeIndex]);
+        }
+
+        // returns the index of the first type that isn't less than the given one
+        private int lowerBound(final String type, int low) {
+
+            int high = types.size();
+
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (types.get(middle).compareTo(type) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package de.uni_passau.fim.auermich.android_analysis.index;
+
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.Method;
+import com.android.tools.smali.dexlib2.iface.reference.MethodReference;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves method references to their method definitions. The methods are keyed by their defining class, their
+ * name and their prototype, i.e. the parameter and return types. The per-class method tables are built on the
+ * first lookup of a class, thus classes that are never the target of an invocation are never indexed. The index can
+ * be queried concurrently.
+ */
+public final class MethodIndex {
+
+    // the class index used to resolve defining classes and super classes
+    private final ClassIndex classIndex;
+
+    // the method tables keyed by the type descriptor of the defining class
+    private final Map<String, Map<MethodKey, Method>> methods = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new method index on top of the given class index.
+     *
+     * @param classIndex The index over all classes.
+     */
+    public MethodIndex(final ClassIndex classIndex) {
+        this.classIndex = classIndex;
+    }
+
+    /**
+     * Resolves the given method reference in its defining class only.
+     *
+     * @param methodReference The method reference, e.g. the reference of an invoke instruction.
+     * @return Returns an optional containing either the target method or not.
+     */
+    public Optional<Method> resolve(final MethodReference methodReference) {
+        return Optional.ofNullable(lookup(methodReference.getDefiningClass(), new MethodKey(methodReference)));
+    }
+
+    /**
+     * Resolves the given method reference by walking up the super class chain starting at its defining class. This
+     * mirrors the resolution of virtual methods, where the invoked method might be declared in a super class.
+     *
+     * @param methodReference The method reference, e.g. the reference of an invoke instruction.
+     * @return Returns an optional containing either the target method or not.
+     */
+    public Optional<Method> resolveInHierarchy(final MethodReference methodReference) {
+
+        final MethodKey key = new MethodKey(methodReference);
+        String type = methodReference.getDefiningClass();
+
+        while (type != null) {
+
+            Method method = lookup(type, key);
+
+            if (method != null) {
+                return Optional.of(method);
+            }
+
+            ClassDef classDef = classIndex.get(type);
+            type = classDef != null ? classDef.getSuperclass() : null;
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Looks up the method described by the given key in the method table of the given class.
+     *
+     * @param type The type descriptor of the class.
+     * @param key The key describing the method.
+     * @return Returns the method or {@code null} if the class doesn't declare the method.
+     */
+    private Method lookup(final String type, final MethodKey key) {
+        return methods.computeIfAbsent(type, this::buildMethodTable).get(key);
+    }
+
+    /**
+     * Builds the method table for the given class.
+     *
+     * @param type The type descriptor of the class.
+     * @return Returns the methods of the class keyed by name and prototype, or an empty map if the class is not
+     *         contained in the dex files.
+     */
+    private Map<MethodKey, Method> buildMethodTable(final String type) {
+
+        ClassDef classDef = classIndex.get(type);
+
+        if (classDef == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<MethodKey, Method> table = new HashMap<>();
+
+        for (Method method : classDef.getMethods()) {
+            table.putIfAbsent(new MethodKey(method), method);
+        }
+        return table;
+    }
+
+    /**
+     * Identifies a method within its defining class by name and prototype. Parameter types are compared by their
+     * character content such that no strings need to be built for a lookup.
+     */
+    private static final class MethodKey {
+
+        private final String name;
+        private final String returnType;
+        private final List<? extends CharSequence> parameterTypes;
+        private final int hash;
+
+        private MethodKey(final MethodReference methodReference) {
+            this.name = methodReference.getName();
+            this.returnType = methodReference.getReturnType();
+            this.parameterTypes = methodReference.getParameterTypes();
+
+            int hash = name.hashCode() * 31 + returnType.hashCode();
+            for (CharSequence parameterType : parameterTypes) {
+                hash = hash * 31 + hashCode(parameterType);
+            }
+            this.hash = hash;
+        }
+
+        /**
+         * Computes the hash code of the given character sequence the same way {@link String#hashCode()} does.
+         *
+         * @param sequence The character sequence.
+         * @return Returns the hash code of the character sequence.
+         */
+        private static int hashCode(final CharSequence sequence) {
+
+            if (sequence instanceof String) {
+                return sequence.hashCode();
+            }
+
+            int hash = 0;
+            for (int i = 0; i < sequence.length(); i++) {
+                hash = 31 * hash + sequence.charAt(i);
+            }
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            MethodKey other = (MethodKey) o;
+
+            if (hash != other.hash || !name.equals(other.name) || !returnType.equals(other.returnType)
+                    || parameterTypes.size() != other.parameterTypes.size()) {
+                return false;
+            }
+
+            for (int i = 0; i < parameterTypes.size(); i++) {
+                if (CharSequence.compare(parameterTypes.get(i), other.parameterTypes.get(i)) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
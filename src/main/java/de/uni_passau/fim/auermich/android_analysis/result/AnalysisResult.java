@@ -0,0 +1,81 @@
+package de.uni_passau.fim.auermich.android_analysis.result;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The immutable static data of an APK. It comprises two views on the components, which correspond to the XML files
+ * consumed by MATE: the components of the app, i.e. the components declared in the manifest merged with those found
+ * in the code (components.xml), and the component classes found in the code in the order they have been scanned
+ * (staticStrings.xml and staticIntentInfo.xml). A component found in both views is represented by the same object.
+ */
+public final class AnalysisResult {
+
+    private final String packageName;
+    private final List<ComponentResult> components;
+    private final List<ComponentResult> scannedComponents;
+
+    // the components by name, where a component of the app takes precedence over a scanned component
+    private final Map<String, ComponentResult> componentsByName = new HashMap<>();
+
+    /**
+     * Creates the static data of an APK.
+     *
+     * @param packageName The package name of the app.
+     * @param components The components of the app.
+     * @param scannedComponents The component classes found in the code.
+     */
+    public AnalysisResult(final String packageName, final List<ComponentResult> components,
+                          final List<ComponentResult> scannedComponents) {
+
+        this.packageName = packageName;
+        this.components = List.copyOf(components);
+        this.scannedComponents = List.copyOf(scannedComponents);
+
+        for (ComponentResult component : scannedComponents) {
+            componentsByName.put(component.getName(), component);
+        }
+
+        for (ComponentResult component : components) {
+            componentsByName.put(component.getName(), component);
+        }
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    /**
+     * Returns the components of the app as listed in the components.xml file, i.e. the components declared in the
+     * manifest including activity aliases and the dynamic broadcast receivers, but neither fragments nor abstract
+     * component classes.
+     *
+     * @return Returns the components of the app.
+     */
+    public List<ComponentResult> getComponents() {
+        return components;
+    }
+
+    /**
+     * Returns the component classes found in the code in the order they have been scanned, including fragments and
+     * abstract component classes. Those classes carry the static strings and, except for fragments, the static intent
+     * data.
+     *
+     * @return Returns the scanned component classes.
+     */
+    public List<ComponentResult> getScannedComponents() {
+        return scannedComponents;
+    }
+
+    /**
+     * Looks up a component by its name.
+     *
+     * @param name The dotted class name of the component.
+     * @return Returns the component, if any.
+     */
+    public Optional<ComponentResult> findComponent(final String name) {
+        return Optional.ofNullable(componentsByName.get(name));
+    }
+}
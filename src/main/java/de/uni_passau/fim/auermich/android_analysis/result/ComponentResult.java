@@ -0,0 +1,296 @@
+package de.uni_passau.fim.auermich.android_analysis.result;
+
+import de.uni_passau.fim.auermich.android_analysis.component.BroadcastReceiver;
+import de.uni_passau.fim.auermich.android_analysis.component.Component;
+import de.uni_passau.fim.auermich.android_analysis.component.ComponentVisitor;
+import de.uni_passau.fim.auermich.android_analysis.component.Fragment;
+import de.uni_passau.fim.auermich.android_analysis.component.bundle.Extra;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The immutable static data of a single component, i.e. its attributes, the static strings of its methods and the
+ * static intent data, namely its intent filters, the strings assigned to its fields and the strings and extras of
+ * its entry point methods. The sets and lists keep the order of the corresponding XML files.
+ */
+public final class ComponentResult {
+
+    private final String type;
+    private final String name;
+    private final boolean enabled;
+    private final boolean exported;
+    private final Boolean dynamic;
+
+    // whether the component carries static intent data, which fragments and manifest-only components don't
+    private final boolean intentInfo;
+
+    private final List<IntentFilter> intentFilters;
+    private final Set<String> globalStrings;
+    private final List<EntryPoint> entryPoints;
+    private final Set<String> staticStrings;
+
+    private ComponentResult(Collector collector, Component component) {
+        this.type = component.getType();
+        this.name = component.getName();
+        this.enabled = component.isEnabled();
+        this.exported = component.isExported();
+        this.dynamic = component instanceof BroadcastReceiver
+                ? ((BroadcastReceiver) component).isDynamicReceiver() : null;
+        this.intentInfo = collector.started;
+        this.intentFilters = Collections.unmodifiableList(collector.intentFilters);
+        this.globalStrings = Collections.unmodifiableSet(collector.globalStrings);
+        this.entryPoints = Collections.unmodifiableList(collector.entryPoints);
+        this.staticStrings = Collections.unmodifiableSet(new LinkedHashSet<>(component.getStaticStrings()));
+    }
+
+    /**
+     * Captures the static data of the given component. Since this finalizes the entry points of the component, the
+     * static data of a component should be captured only once, just like it is written only once.
+     *
+     * @param component The component.
+     * @return Returns the static data of the component.
+     */
+    public static ComponentResult of(final Component component) {
+
+        Collector collector = new Collector();
+
+        // fragments don't carry any intent data
+        if (!(component instanceof Fragment)) {
+            try {
+                component.accept(collector);
+            } catch (IOException e) {
+                // the collector never fails
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new ComponentResult(collector, component);
+    }
+
+    /**
+     * Returns the type of the component as used in the XML files, e.g. activity.
+     *
+     * @return Returns the type of the component.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns the dotted class name of the component.
+     *
+     * @return Returns the name of the component.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isExported() {
+        return exported;
+    }
+
+    /**
+     * Returns whether a broadcast receiver has been registered dynamically.
+     *
+     * @return Returns whether the receiver is a dynamic receiver or {@code null} for other components.
+     */
+    public Boolean getDynamic() {
+        return dynamic;
+    }
+
+    /**
+     * Checks whether the component carries static intent data, i.e. whether it is listed in the staticIntentInfo.xml
+     * file.
+     *
+     * @return Returns {@code true} if the component carries static intent data, otherwise {@code false}.
+     */
+    public boolean hasIntentInfo() {
+        return intentInfo;
+    }
+
+    public List<IntentFilter> getIntentFilters() {
+        return intentFilters;
+    }
+
+    /**
+     * Returns the strings assigned to the fields of the component.
+     *
+     * @return Returns the global strings.
+     */
+    public Set<String> getGlobalStrings() {
+        return globalStrings;
+    }
+
+    /**
+     * Returns the entry point methods of the component, e.g. onCreate, with their strings and extras.
+     *
+     * @return Returns the entry points.
+     */
+    public List<EntryPoint> getEntryPoints() {
+        return entryPoints;
+    }
+
+    /**
+     * Returns the extras of all entry point methods.
+     *
+     * @return Returns the extras in the order of the entry points.
+     */
+    public List<Extra> getExtras() {
+        List<Extra> extras = new ArrayList<>();
+        for (EntryPoint entryPoint : entryPoints) {
+            extras.addAll(entryPoint.extras);
+        }
+        return extras;
+    }
+
+    /**
+     * Returns the static strings collected from the methods of the component.
+     *
+     * @return Returns the static strings.
+     */
+    public Set<String> getStaticStrings() {
+        return staticStrings;
+    }
+
+    /**
+     * Visits the static intent data of the component in the same order as {@link Component#accept(ComponentVisitor)}.
+     * Components without static intent data aren't visited at all.
+     *
+     * @param visitor The visitor.
+     * @throws IOException If the visitor fails.
+     */
+    public void accept(final ComponentVisitor visitor) throws IOException {
+
+        if (!intentInfo) {
+            return;
+        }
+
+        visitor.visitStart(type, name);
+
+        if (dynamic != null) {
+            visitor.visitDynamic(dynamic);
+        }
+
+        for (IntentFilter intentFilter : intentFilters) {
+            visitor.visitIntentFilter(intentFilter.actions, intentFilter.categories);
+        }
+
+        visitor.visitGlobalStrings(globalStrings);
+
+        for (EntryPoint entryPoint : entryPoints) {
+            visitor.visitEntryPoint(entryPoint.tag, entryPoint.strings, entryPoint.extras);
+        }
+
+        visitor.visitEnd(type);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * An intent filter of a component.
+     */
+    public static final class IntentFilter {
+
+        private final Set<String> actions;
+        private final Set<String> categories;
+
+        private IntentFilter(Set<String> actions, Set<String> categories) {
+            this.actions = Collections.unmodifiableSet(new LinkedHashSet<>(actions));
+            this.categories = Collections.unmodifiableSet(new LinkedHashSet<>(categories));
+        }
+
+        public Set<String> getActions() {
+            return actions;
+        }
+
+        public Set<String> getCategories() {
+            return categories;
+        }
+    }
+
+    /**
+     * An entry point method of a component, e.g. onCreate.
+     */
+    public static final class EntryPoint {
+
+        private final String tag;
+        private final Set<String> strings;
+        private final List<Extra> extras;
+
+        private EntryPoint(String tag, Set<String> strings, List<Extra> extras) {
+            this.tag = tag;
+            this.strings = Collections.unmodifiableSet(new LinkedHashSet<>(strings));
+            this.extras = List.copyOf(extras);
+        }
+
+        /**
+         * Returns the tag of the entry point as used in the staticIntentInfo.xml file, e.g. on_create.
+         *
+         * @return Returns the tag of the entry point.
+         */
+        public String getTag() {
+            return tag;
+        }
+
+        public Set<String> getStrings() {
+            return strings;
+        }
+
+        public List<Extra> getExtras() {
+            return extras;
+        }
+    }
+
+    /**
+     * Captures the visited static intent data. The visited sets are copied since the global strings change once the
+     * entry points are finalized.
+     */
+    private static final class Collector implements ComponentVisitor {
+
+        private boolean started;
+        private final List<IntentFilter> intentFilters = new ArrayList<>();
+        private Set<String> globalStrings = Collections.emptySet();
+        private final List<EntryPoint> entryPoints = new ArrayList<>();
+
+        @Override
+        public void visitStart(String type, String name) {
+            started = true;
+        }
+
+        @Override
+        public void visitDynamic(boolean dynamic) {
+            // the flag is taken from the component itself
+        }
+
+        @Override
+        public void visitIntentFilter(Set<String> actions, Set<String> categories) {
+            intentFilters.add(new IntentFilter(actions, categories));
+        }
+
+        @Override
+        public void visitGlobalStrings(Set<String> strings) {
+            globalStrings = new LinkedHashSet<>(strings);
+        }
+
+        @Override
+        public void visitEntryPoint(String tag, Set<String> strings, List<Extra> extras) {
+            entryPoints.add(new EntryPoint(tag, strings, extras));
+        }
+
+        @Override
+        public void visitEnd(String type) {
+        }
+    }
+}
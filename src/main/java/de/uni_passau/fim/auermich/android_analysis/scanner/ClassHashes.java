@@ -0,0 +1,287 @@
+package de.uni_passau.fim.auermich.android_analysis.scanner;
+
+import de.uni_passau.fim.auermich.android_analysis.index.ClassIndex;
+import com.android.tools.smali.dexlib2.iface.*;
+import com.android.tools.smali.dexlib2.iface.instruction.*;
+import com.android.tools.smali.dexlib2.iface.instruction.formats.ArrayPayload;
+import com.android.tools.smali.dexlib2.iface.value.EncodedValue;
+import com.android.tools.smali.dexlib2.iface.value.StringEncodedValue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes content hashes of classes, which identify a class across different versions of an APK. The content hash
+ * covers everything the scanner inspects, i.e. the class signature, the fields including their initial values and
+ * the methods including their instructions, but neither annotations nor debug information. The chain hash of a
+ * class additionally covers its super classes, since the component type and the resolution of invoked methods
+ * depend on them. Both hashes are computed at most once per class and can be queried concurrently.
+ */
+final class ClassHashes {
+
+    // the class index used to step up in the class hierarchy
+    private final ClassIndex classIndex;
+
+    // the content hashes keyed by type descriptor
+    private final Map<String, String> contentHashes = new ConcurrentHashMap<>();
+
+    // the chain hashes keyed by type descriptor
+    private final Map<String, String> chainHashes = new ConcurrentHashMap<>();
+
+    ClassHashes(final ClassIndex classIndex) {
+        this.classIndex = classIndex;
+    }
+
+    /**
+     * Returns the content hash of the given class.
+     *
+     * @param classDef The class.
+     * @return Returns the content hash of the class.
+     */
+    String getContentHash(final ClassDef classDef) {
+        return contentHashes.computeIfAbsent(classDef.getType(), type -> hash(classDef));
+    }
+
+    /**
+     * Returns the chain hash of the given type, which covers the type and all its super classes. Types that are not
+     * contained in the dex files are represented by their type descriptor.
+     *
+     * @param type The type descriptor.
+     * @return Returns the chain hash of the type.
+     */
+    String getChainHash(final String type) {
+
+        String chainHash = chainHashes.get(type);
+
+        if (chainHash != null) {
+            return chainHash;
+        }
+
+        // collect the types up to the first one whose chain hash is known already
+        List<String> chain = new ArrayList<>();
+        String current = type;
+        String superChainHash = "";
+
+        while (current != null) {
+
+            String known = chainHashes.get(current);
+
+            if (known != null) {
+                superChainHash = known;
+                break;
+            }
+
+            // the class hierarchy is cyclic (malformed dex file)
+            if (chain.contains(current)) {
+                break;
+            }
+
+            chain.add(current);
+            ClassDef classDef = classIndex.get(current);
+            current = classDef != null ? classDef.getSuperclass() : null;
+        }
+
+        for (int i = chain.size() - 1; i >= 0; i--) {
+
+            String chainType = chain.get(i);
+            ClassDef classDef = classIndex.get(chainType);
+
+            Hasher hasher = new Hasher();
+            hasher.putString(classDef != null ? getContentHash(classDef) : chainType);
+            hasher.putString(superChainHash);
+            superChainHash = hasher.finish();
+
+            chainHashes.putIfAbsent(chainType, superChainHash);
+        }
+        return superChainHash;
+    }
+
+    /**
+     * Computes the content hash of the given class.
+     *
+     * @param classDef The class.
+     * @return Returns the content hash.
+     */
+    private static String hash(final ClassDef classDef) {
+
+        Hasher hasher = new Hasher();
+        hasher.putString(classDef.getType());
+        hasher.putString(classDef.getSuperclass());
+        hasher.putInt(classDef.getAccessFlags());
+        hasher.putInt(classDef.getInterfaces().size());
+        classDef.getInterfaces().forEach(hasher::putString);
+
+        for (Field field : classDef.getFields()) {
+
+            hasher.putString(field.getName());
+            hasher.putString(field.getType());
+            hasher.putInt(field.getAccessFlags());
+
+            EncodedValue initialValue = field.getInitialValue();
+            hasher.putInt(initialValue != null ? initialValue.getValueType() : -1);
+
+            // only string constants are inspected by the scanner
+            if (initialValue instanceof StringEncodedValue) {
+                hasher.putString(((StringEncodedValue) initialValue).getValue());
+            }
+        }
+
+        for (Method method : classDef.getMethods()) {
+
+            hasher.putString(method.getName());
+            hasher.putInt(method.getParameterTypes().size());
+            method.getParameterTypes().forEach(parameterType -> hasher.putString(parameterType.toString()));
+            hasher.putString(method.getReturnType());
+            hasher.putInt(method.getAccessFlags());
+
+            MethodImplementation implementation = method.getImplementation();
+
+            if (implementation == null) {
+                hasher.putInt(-1);
+                continue;
+            }
+
+            hasher.putInt(implementation.getRegisterCount());
+
+            for (Instruction instruction : implementation.getInstructions()) {
+                hash(hasher, instruction);
+            }
+
+            for (TryBlock<? extends ExceptionHandler> tryBlock : implementation.getTryBlocks()) {
+                hasher.putInt(tryBlock.getStartCodeAddress());
+                hasher.putInt(tryBlock.getCodeUnitCount());
+                for (ExceptionHandler handler : tryBlock.getExceptionHandlers()) {
+                    hasher.putString(handler.getExceptionType());
+                    hasher.putInt(handler.getHandlerCodeAddress());
+                }
+            }
+        }
+        return hasher.finish();
+    }
+
+    /**
+     * Adds the opcode and all operands of the given instruction to the hash.
+     *
+     * @param hasher The hasher.
+     * @param instruction The instruction.
+     */
+    private static void hash(final Hasher hasher, final Instruction instruction) {
+
+        hasher.putString(instruction.getOpcode().name);
+
+        if (instruction instanceof OneRegisterInstruction) {
+            hasher.putInt(((OneRegisterInstruction) instruction).getRegisterA());
+        }
+
+        if (instruction instanceof TwoRegisterInstruction) {
+            hasher.putInt(((TwoRegisterInstruction) instruction).getRegisterB());
+        }
+
+        if (instruction instanceof ThreeRegisterInstruction) {
+            hasher.putInt(((ThreeRegisterInstruction) instruction).getRegisterC());
+        }
+
+        if (instruction instanceof FiveRegisterInstruction) {
+            FiveRegisterInstruction invoke = (FiveRegisterInstruction) instruction;
+            hasher.putInt(invoke.getRegisterCount());
+            hasher.putInt(invoke.getRegisterC());
+            hasher.putInt(invoke.getRegisterD());
+            hasher.putInt(invoke.getRegisterE());
+            hasher.putInt(invoke.getRegisterF());
+            hasher.putInt(invoke.getRegisterG());
+        }
+
+        if (instruction instanceof RegisterRangeInstruction) {
+            RegisterRangeInstruction invoke = (RegisterRangeInstruction) instruction;
+            hasher.putInt(invoke.getStartRegister());
+            hasher.putInt(invoke.getRegisterCount());
+        }
+
+        if (instruction instanceof ReferenceInstruction) {
+            hasher.putString(((ReferenceInstruction) instruction).getReference().toString());
+        }
+
+        if (instruction instanceof DualReferenceInstruction) {
+            hasher.putString(((DualReferenceInstruction) instruction).getReference2().toString());
+        }
+
+        if (instruction instanceof WideLiteralInstruction) {
+            hasher.putLong(((WideLiteralInstruction) instruction).getWideLiteral());
+        }
+
+        if (instruction instanceof OffsetInstruction) {
+            hasher.putInt(((OffsetInstruction) instruction).getCodeOffset());
+        }
+
+        if (instruction instanceof SwitchPayload) {
+            for (SwitchElement element : ((SwitchPayload) instruction).getSwitchElements()) {
+                hasher.putInt(element.getKey());
+                hasher.putInt(element.getOffset());
+            }
+        }
+
+        if (instruction instanceof ArrayPayload) {
+            ArrayPayload payload = (ArrayPayload) instruction;
+            hasher.putInt(payload.getElementWidth());
+            for (Number element : payload.getArrayElements()) {
+                hasher.putLong(element.longValue());
+            }
+        }
+    }
+
+    /**
+     * Feeds primitive values into a SHA-1 digest. Strings are length-prefixed, such that different sequences of
+     * values never produce the same input.
+     */
+    private static final class Hasher {
+
+        private final MessageDigest digest;
+
+        private final byte[] buffer = new byte[Long.BYTES];
+
+        private Hasher() {
+            try {
+                digest = MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                // every Java platform is required to support SHA-1
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void putInt(int value) {
+            putLong(value);
+        }
+
+        private void putLong(long value) {
+            for (int i = 0; i < Long.BYTES; i++) {
+                buffer[i] = (byte) (value >>> (i * 8));
+            }
+            digest.update(buffer);
+        }
+
+        private void putString(String value) {
+
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            digest.update(bytes);
+        }
+
+        private String finish() {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        }
+    }
+}
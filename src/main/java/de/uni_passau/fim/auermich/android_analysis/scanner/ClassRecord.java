@@ -0,0 +1,227 @@
+package de.uni_passau.fim.auermich.android_analysis.scanner;
+
+import de.uni_passau.fim.auermich.android_analysis.component.ComponentType;
+import de.uni_passau.fim.auermich.android_analysis.component.bundle.Extra;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The outcome of scanning a single class. A record solely consists of plain data, i.e. it doesn't refer to any
+ * dex structures, such that it can be persisted and applied to the component of an unchanged class in a later
+ * version of the APK. Each class is scanned into a record first, which is then applied to its component, thus a
+ * reused record yields exactly the same static data as a fresh scan.
+ */
+final class ClassRecord {
+
+    // the chain hash of the class at the time it has been scanned
+    private final String chainHash;
+
+    // the component type of the class
+    private final ComponentType componentType;
+
+    // the number of instructions of the class' methods
+    private final long instructionCount;
+
+    // whether the class declares any method
+    private final boolean hasMethods;
+
+    // the string constants assigned to fields of the class
+    final List<String> stringConstants = new ArrayList<>();
+
+    // the string constants used within the methods of an activity or fragment
+    final Set<String> methodStrings = new LinkedHashSet<>();
+
+    // the intent data of the entry point methods, e.g. onCreate of an activity
+    final List<IntentData> intentData = new ArrayList<>();
+
+    // the broadcast receivers registered dynamically within the class
+    final List<ReceiverRegistration> registrations = new ArrayList<>();
+
+    // the chain hashes of the classes whose methods have been followed when scanning for intent data
+    final Map<String, String> dependencies = new TreeMap<>();
+
+    ClassRecord(String chainHash, ComponentType componentType, long instructionCount, boolean hasMethods) {
+        this.chainHash = chainHash;
+        this.componentType = componentType;
+        this.instructionCount = instructionCount;
+        this.hasMethods = hasMethods;
+    }
+
+    String getChainHash() {
+        return chainHash;
+    }
+
+    ComponentType getComponentType() {
+        return componentType;
+    }
+
+    long getInstructionCount() {
+        return instructionCount;
+    }
+
+    boolean hasMethods() {
+        return hasMethods;
+    }
+
+    /**
+     * The strings and extras collected from an entry point method of a component.
+     */
+    static final class IntentData {
+
+        // the name of the entry point method
+        final String methodName;
+
+        final List<String> strings;
+
+        final List<Extra> extras;
+
+        IntentData(String methodName, List<String> strings, List<Extra> extras) {
+            this.methodName = methodName;
+            this.strings = strings;
+            this.extras = extras;
+        }
+    }
+
+    /**
+     * A dynamic registration of a broadcast receiver, i.e. a call to Context.registerReceiver(). The receiver is
+     * only resolved to a component once all classes have been scanned.
+     */
+    static final class ReceiverRegistration {
+
+        // the type descriptor of the registered receiver
+        final String receiverType;
+
+        // the actions and categories of the intent filter passed to the registration
+        final Set<String> actions = new LinkedHashSet<>();
+        final Set<String> categories = new LinkedHashSet<>();
+
+        ReceiverRegistration(String receiverType) {
+            this.receiverType = receiverType;
+        }
+    }
+
+    /**
+     * Writes the record to the given output.
+     *
+     * @param output The output.
+     * @throws IOException If the record can't be written.
+     */
+    void write(DataOutput output) throws IOException {
+
+        writeString(output, chainHash);
+        output.writeByte(componentType.ordinal());
+        output.writeLong(instructionCount);
+        output.writeBoolean(hasMethods);
+        writeStrings(output, stringConstants);
+        writeStrings(output, methodStrings);
+
+        output.writeInt(intentData.size());
+        for (IntentData data : intentData) {
+            writeString(output, data.methodName);
+            writeStrings(output, data.strings);
+            output.writeInt(data.extras.size());
+            for (Extra extra : data.extras) {
+                writeString(output, extra.getKey());
+                writeString(output, extra.getValueType());
+            }
+        }
+
+        output.writeInt(registrations.size());
+        for (ReceiverRegistration registration : registrations) {
+            writeString(output, registration.receiverType);
+            writeStrings(output, registration.actions);
+            writeStrings(output, registration.categories);
+        }
+
+        output.writeInt(dependencies.size());
+        for (Map.Entry<String, String> dependency : dependencies.entrySet()) {
+            writeString(output, dependency.getKey());
+            writeString(output, dependency.getValue());
+        }
+    }
+
+    /**
+     * Reads a record from the given input.
+     *
+     * @param input The input.
+     * @return Returns the record.
+     * @throws IOException If the record can't be read.
+     */
+    static ClassRecord read(DataInput input) throws IOException {
+
+        String chainHash = readString(input);
+        int componentType = input.readByte();
+
+        if (componentType < 0 || componentType >= ComponentType.values().length) {
+            throw new IOException("Invalid component type: " + componentType);
+        }
+
+        ClassRecord record = new ClassRecord(chainHash, ComponentType.values()[componentType],
+                input.readLong(), input.readBoolean());
+        record.stringConstants.addAll(readStrings(input));
+        record.methodStrings.addAll(readStrings(input));
+
+        int intentDataCount = input.readInt();
+        for (int i = 0; i < intentDataCount; i++) {
+            String methodName = readString(input);
+            List<String> strings = readStrings(input);
+            int extraCount = input.readInt();
+            List<Extra> extras = new ArrayList<>(extraCount);
+            for (int j = 0; j < extraCount; j++) {
+                extras.add(new Extra(readString(input), readString(input)));
+            }
+            record.intentData.add(new IntentData(methodName, strings, extras));
+        }
+
+        int registrationCount = input.readInt();
+        for (int i = 0; i < registrationCount; i++) {
+            ReceiverRegistration registration = new ReceiverRegistration(readString(input));
+            registration.actions.addAll(readStrings(input));
+            registration.categories.addAll(readStrings(input));
+            record.registrations.add(registration);
+        }
+
+        int dependencyCount = input.readInt();
+        for (int i = 0; i < dependencyCount; i++) {
+            record.dependencies.put(readString(input), readString(input));
+        }
+        return record;
+    }
+
+    private static void writeStrings(DataOutput output, Collection<String> strings) throws IOException {
+        output.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(output, string);
+        }
+    }
+
+    private static List<String> readStrings(DataInput input) throws IOException {
+        int count = input.readInt();
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(readString(input));
+        }
+        return strings;
+    }
+
+    // DataOutput.writeUTF() is limited to 64 KB, which string constants might exceed
+    private static void writeString(DataOutput output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,147 @@
+package de.uni_passau.fim.auermich.android_analysis.scanner;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores the scan records of the classes of an APK on disk, such that the next version of the APK only needs to
+ * re-scan the classes that changed. The records are keyed by the content hash of their class. The store holds the
+ * records of the previous scan for lookups and collects the records of the current scan, which replace the previous
+ * ones once the store is saved. Thus, the store only grows with the size of the APK but not with its versions.
+ */
+public final class ClassRecordStore {
+
+    private static final Logger LOGGER = LogManager.getLogger(ClassRecordStore.class);
+
+    // identifies a store file
+    private static final int MAGIC = 0x44585253;
+
+    // needs to be changed whenever the layout of a record or the scan of a class changes
+    private static final int FORMAT_VERSION = 1;
+
+    private final File file;
+
+    // the maximal call depth of the scan, records of a different call depth can't be reused
+    private final int maxCallDepth;
+
+    // the records of the previous scan
+    private final Map<String, ClassRecord> previousRecords;
+
+    // the records of the current scan
+    private final Map<String, ClassRecord> currentRecords = new ConcurrentHashMap<>();
+
+    private ClassRecordStore(File file, int maxCallDepth, Map<String, ClassRecord> previousRecords) {
+        this.file = file;
+        this.maxCallDepth = maxCallDepth;
+        this.previousRecords = previousRecords;
+    }
+
+    /**
+     * Loads the store from the given file. If the file doesn't exist, can't be read or has been written by a scan
+     * with a different call depth, the store starts out empty.
+     *
+     * @param file The store file.
+     * @param maxCallDepth The maximal call depth of the scan.
+     * @return Returns the loaded store.
+     */
+    public static ClassRecordStore load(final File file, final int maxCallDepth) {
+
+        if (!file.exists()) {
+            return new ClassRecordStore(file, maxCallDepth, Collections.emptyMap());
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION || input.readInt() != maxCallDepth) {
+                LOGGER.info("Ignoring incompatible class record store " + file + ".");
+                return new ClassRecordStore(file, maxCallDepth, Collections.emptyMap());
+            }
+
+            int count = input.readInt();
+            Map<String, ClassRecord> records = new HashMap<>();
+
+            for (int i = 0; i < count; i++) {
+                String contentHash = input.readUTF();
+                records.put(contentHash, ClassRecord.read(input));
+            }
+
+            LOGGER.info("Loaded " + records.size() + " class records from " + file + ".");
+            return new ClassRecordStore(file, maxCallDepth, records);
+        } catch (IOException e) {
+            LOGGER.warn("Couldn't load class record store " + file + ": " + e.getMessage());
+            return new ClassRecordStore(file, maxCallDepth, Collections.emptyMap());
+        }
+    }
+
+    /**
+     * Saves the records of the current scan. The file is replaced atomically, such that concurrent runs never
+     * read a partially written store.
+     *
+     * @throws IOException If the store can't be written.
+     */
+    public void save() throws IOException {
+
+        Path target = file.toPath().toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temporaryFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+
+        try {
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeInt(maxCallDepth);
+                output.writeInt(currentRecords.size());
+
+                for (Map.Entry<String, ClassRecord> entry : currentRecords.entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    entry.getValue().write(output);
+                }
+            }
+            Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+
+        LOGGER.info("Saved " + currentRecords.size() + " class records to " + file + ".");
+    }
+
+    /**
+     * Returns the maximal call depth of the scan the records belong to.
+     *
+     * @return Returns the maximal call depth.
+     */
+    public int getMaxCallDepth() {
+        return maxCallDepth;
+    }
+
+    /**
+     * Looks up the record of a class in the previous scan.
+     *
+     * @param contentHash The content hash of the class.
+     * @return Returns the record or {@code null} if the class hasn't been scanned previously.
+     */
+    ClassRecord lookup(String contentHash) {
+        return previousRecords.get(contentHash);
+    }
+
+    /**
+     * Adds the record of a class to the current scan.
+     *
+     * @param contentHash The content hash of the class.
+     * @param record The record of the class.
+     */
+    void add(String contentHash, ClassRecord record) {
+        currentRecords.put(contentHash, record);
+    }
+}
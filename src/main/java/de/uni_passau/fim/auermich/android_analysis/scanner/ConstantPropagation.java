@@ -0,0 +1,684 @@
+package de.uni_passau.fim.auermich.android_analysis.scanner;
+
+import com.android.tools.smali.dexlib2.Opcode;
+import com.android.tools.smali.dexlib2.iface.ExceptionHandler;
+import com.android.tools.smali.dexlib2.iface.MethodImplementation;
+import com.android.tools.smali.dexlib2.iface.TryBlock;
+import com.android.tools.smali.dexlib2.iface.instruction.FiveRegisterInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
+import com.android.tools.smali.dexlib2.iface.instruction.OffsetInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.OneRegisterInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.ReferenceInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.RegisterRangeInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.SwitchElement;
+import com.android.tools.smali.dexlib2.iface.instruction.SwitchPayload;
+import com.android.tools.smali.dexlib2.iface.instruction.ThreeRegisterInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.TwoRegisterInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.VariableRegisterInstruction;
+import com.android.tools.smali.dexlib2.iface.reference.FieldReference;
+import com.android.tools.smali.dexlib2.iface.reference.MethodReference;
+import com.android.tools.smali.dexlib2.iface.reference.Reference;
+import com.android.tools.smali.dexlib2.iface.reference.StringReference;
+import com.android.tools.smali.dexlib2.iface.reference.TypeReference;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the value of each register throughout a method by a forward data flow analysis over the method's basic
+ * blocks. A register either holds a string constant, a new instance, the value of a field, the result of an
+ * invocation, the value it had on method entry (e.g. a parameter) or an unknown value. Where control flow merges,
+ * a register keeps its value only if all predecessors agree on it, except for string constants: a register may hold
+ * a few candidate strings, e.g. when the branches of a condition assign different keys to the same register.
+ *
+ * An instruction that may throw within a try block passes the register values right before the instruction to the
+ * handlers of the try block, such that a handler starts with the values merged over its try block. Code that isn't
+ * reachable at all, e.g. a payload, starts with unknown register values.
+ *
+ * The analysis runs on the first query, such that methods without any relevant invocation are never analysed.
+ * Afterwards, the value of an argument register of an invocation as well as the invocations on a given object
+ * can be looked up in constant time.
+ */
+final class ConstantPropagation {
+
+    // the maximal number of candidate strings a register can hold before its value is considered unknown
+    static final int MAX_CANDIDATES = 4;
+
+    // the instructions of the analysed method
+    private final List<Instruction> instructions;
+
+    // the try blocks of the analysed method
+    private final List<? extends TryBlock<? extends ExceptionHandler>> tryBlocks;
+
+    // counts the basic blocks processed until the fixpoint is reached
+    private final LongAdder steps;
+
+    // the values of the argument registers of each invocation, indexed by the instruction index
+    private Value[][] arguments;
+
+    // the indices of the invocations on a given object, i.e. the object is passed in the first argument register
+    private Map<Value, List<Integer>> invocations;
+
+    // the handler blocks an instruction may throw to, indexed by the instruction index, null if there is none
+    private int[][] handlers;
+
+    /**
+     * Creates a new constant propagation for the given instructions. The analysis is deferred to the first query.
+     *
+     * @param implementation The implementation of the method to be analysed, which defines the try blocks, or
+     *         {@code null} if the method has no implementation.
+     * @param instructions The instructions of the method to be analysed.
+     * @param steps Counts the basic blocks processed by the analysis.
+     */
+    ConstantPropagation(MethodImplementation implementation, List<Instruction> instructions, LongAdder steps) {
+        this.instructions = instructions;
+        this.tryBlocks = implementation != null ? implementation.getTryBlocks() : Collections.emptyList();
+        this.steps = steps;
+    }
+
+    /**
+     * Returns the value of the given register right before the invocation at the given instruction index.
+     *
+     * @param index The index of an invoke instruction.
+     * @param register The register id, which needs to be an argument register of the invocation.
+     * @return Returns the value of the register or an unknown value if the register couldn't be tracked.
+     */
+    Value getValue(int index, int register) {
+
+        analyze();
+
+        Value[] values = arguments[index];
+
+        if (values != null) {
+            int[] registers = getArgumentRegisters(instructions.get(index));
+            for (int i = 0; i < registers.length; i++) {
+                if (registers[i] == register) {
+                    return values[i];
+                }
+            }
+        }
+        return Value.UNKNOWN;
+    }
+
+    /**
+     * Returns the invocations that receive the given object in their first argument register, e.g. the calls of
+     * instance methods on this object.
+     *
+     * @param object The object, e.g. the value of a register holding a new instance.
+     * @return Returns the instruction indices of the invocations in ascending order.
+     */
+    List<Integer> getInvocations(Value object) {
+        analyze();
+        return invocations.getOrDefault(object, Collections.emptyList());
+    }
+
+    /**
+     * Performs the actual analysis unless it has been already done.
+     */
+    private void analyze() {
+
+        if (arguments != null) {
+            return;
+        }
+
+        int size = instructions.size();
+        arguments = new Value[size][];
+        invocations = new HashMap<>();
+
+        if (size == 0) {
+            return;
+        }
+
+        ScanEvents.ConstantPropagation event = new ScanEvents.ConstantPropagation();
+        event.begin();
+
+        // the code address of each instruction, which is required to resolve branch targets
+        int[] addresses = new int[size + 1];
+        int registerCount = 0;
+
+        for (int i = 0; i < size; i++) {
+            Instruction instruction = instructions.get(i);
+            addresses[i + 1] = addresses[i] + instruction.getCodeUnits();
+            registerCount = Math.max(registerCount, getHighestRegister(instruction) + 1);
+        }
+
+        int[] indexByAddress = new int[addresses[size] + 1];
+        Arrays.fill(indexByAddress, -1);
+
+        for (int i = 0; i < size; i++) {
+            indexByAddress[addresses[i]] = i;
+        }
+
+        // split the method into basic blocks, a block starts at the method entry, at a branch target, at an
+        // exception handler or after a branch
+        int[][] targets = new int[size][];
+        boolean[] leaders = new boolean[size + 1];
+        leaders[0] = true;
+
+        // the instruction indices of the handlers of each try block
+        int[][] tryHandlers = new int[tryBlocks.size()][];
+
+        for (int i = 0; i < tryBlocks.size(); i++) {
+            tryHandlers[i] = tryBlocks.get(i).getExceptionHandlers().stream()
+                    .mapToInt(handler -> getIndex(indexByAddress, handler.getHandlerCodeAddress()))
+                    .filter(index -> index >= 0)
+                    .distinct()
+                    .toArray();
+            for (int handler : tryHandlers[i]) {
+                leaders[handler] = true;
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+
+            Instruction instruction = instructions.get(i);
+            targets[i] = getBranchTargets(instruction, addresses[i], indexByAddress);
+
+            for (int target : targets[i]) {
+                leaders[target] = true;
+            }
+
+            if (targets[i].length > 0 || !instruction.getOpcode().canContinue()) {
+                leaders[i + 1] = true;
+            }
+        }
+
+        List<Integer> blockStarts = new ArrayList<>();
+        int[] blockOf = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            if (leaders[i]) {
+                blockStarts.add(i);
+            }
+            blockOf[i] = blockStarts.size() - 1;
+        }
+
+        int blockCount = blockStarts.size();
+        int[][] successors = new int[blockCount][];
+        boolean[] hasPredecessor = new boolean[blockCount];
+
+        for (int block = 0; block < blockCount; block++) {
+
+            int last = getBlockEnd(blockStarts, block, size) - 1;
+            Set<Integer> blockSuccessors = new LinkedHashSet<>();
+
+            for (int target : targets[last]) {
+                blockSuccessors.add(blockOf[target]);
+            }
+
+            if (instructions.get(last).getOpcode().canContinue() && last + 1 < size) {
+                blockSuccessors.add(blockOf[last + 1]);
+            }
+
+            successors[block] = blockSuccessors.stream().mapToInt(Integer::intValue).toArray();
+
+            for (int successor : successors[block]) {
+                hasPredecessor[successor] = true;
+            }
+        }
+
+        // the exception edges from each instruction that may throw within a try block to the handler blocks
+        handlers = new int[size][];
+
+        for (int i = 0; i < tryBlocks.size(); i++) {
+
+            TryBlock<? extends ExceptionHandler> tryBlock = tryBlocks.get(i);
+            int start = getIndex(indexByAddress, tryBlock.getStartCodeAddress());
+            int end = tryBlock.getStartCodeAddress() + tryBlock.getCodeUnitCount();
+
+            if (start < 0) {
+                continue;
+            }
+
+            for (int index = start; index < size && addresses[index] < end; index++) {
+                if (instructions.get(index).getOpcode().canThrow()) {
+                    for (int handler : tryHandlers[i]) {
+                        handlers[index] = addHandler(handlers[index], blockOf[handler]);
+                        hasPredecessor[blockOf[handler]] = true;
+                    }
+                }
+            }
+        }
+
+        // the register values on entry of each block, null if the block hasn't been reached yet
+        Value[][] entryStates = new Value[blockCount][];
+        BitSet worklist = new BitSet(blockCount);
+
+        Value[] initialState = new Value[registerCount];
+        for (int register = 0; register < registerCount; register++) {
+            initialState[register] = Value.entry(register);
+        }
+        entryStates[0] = initialState;
+        worklist.set(0);
+
+        // blocks without any predecessor are payloads or unreachable code, we don't know anything about them
+        for (int block = 1; block < blockCount; block++) {
+            if (!hasPredecessor[block]) {
+                Value[] unknownState = new Value[registerCount];
+                Arrays.fill(unknownState, Value.UNKNOWN);
+                entryStates[block] = unknownState;
+                worklist.set(block);
+            }
+        }
+
+        int processedBlocks = 0;
+
+        // propagate the register values until a fixpoint is reached, preferring blocks in code order
+        for (int block = worklist.nextSetBit(0); block >= 0; block = worklist.nextSetBit(0)) {
+
+            worklist.clear(block);
+            processedBlocks++;
+
+            Value[] state = entryStates[block].clone();
+            transfer(blockStarts.get(block), getBlockEnd(blockStarts, block, size), state, entryStates, worklist);
+
+            for (int successor : successors[block]) {
+                if (merge(state, entryStates, successor)) {
+                    worklist.set(successor);
+                }
+            }
+        }
+
+        // record the argument values of the invocations given the final entry states
+        for (int block = 0; block < blockCount; block++) {
+            if (entryStates[block] != null) {
+                transfer(blockStarts.get(block), getBlockEnd(blockStarts, block, size),
+                        entryStates[block].clone(), null, null);
+            }
+        }
+
+        steps.add(processedBlocks);
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.instructionCount = size;
+            event.blockCount = blockCount;
+            event.steps = processedBlocks;
+            event.commit();
+        }
+    }
+
+    /**
+     * Applies the effect of the instructions of a basic block on the register values. While the fixpoint is computed,
+     * the register values before each instruction that may throw are merged into the entry states of its handlers.
+     * Once the fixpoint is reached, the argument values of the invocations are recorded instead.
+     *
+     * @param from The index of the first instruction of the block.
+     * @param to The index after the last instruction of the block.
+     * @param state The register values on block entry, which are updated in place.
+     * @param entryStates The entry states of all blocks or {@code null} if the argument values should be recorded.
+     * @param worklist Collects the handler blocks whose entry state changed, {@code null} when recording.
+     */
+    private void transfer(int from, int to, Value[] state, Value[][] entryStates, BitSet worklist) {
+
+        boolean record = entryStates == null;
+
+        // the result of the preceding invocation that can be picked up by a move-result instruction
+        Value result = null;
+
+        for (int i = from; i < to; i++) {
+
+            Instruction instruction = instructions.get(i);
+            Opcode opcode = instruction.getOpcode();
+            Value pendingResult = null;
+
+            if (!record && handlers[i] != null) {
+                for (int handler : handlers[i]) {
+                    if (merge(state, entryStates, handler)) {
+                        worklist.set(handler);
+                    }
+                }
+            }
+
+            switch (opcode) {
+                case CONST_STRING:
+                case CONST_STRING_JUMBO:
+                    Reference string = ((ReferenceInstruction) instruction).getReference();
+                    state[((OneRegisterInstruction) instruction).getRegisterA()]
+                            = Value.string(((StringReference) string).getString());
+                    break;
+                case NEW_INSTANCE:
+                    Reference type = ((ReferenceInstruction) instruction).getReference();
+                    state[((OneRegisterInstruction) instruction).getRegisterA()]
+                            = Value.instance(((TypeReference) type).getType(), i);
+                    break;
+                case SGET_OBJECT:
+                case IGET_OBJECT:
+                    Reference field = ((ReferenceInstruction) instruction).getReference();
+                    state[((OneRegisterInstruction) instruction).getRegisterA()]
+                            = Value.field((FieldReference) field);
+                    break;
+                case MOVE_OBJECT:
+                case MOVE_OBJECT_FROM16:
+                case MOVE_OBJECT_16:
+                    TwoRegisterInstruction move = (TwoRegisterInstruction) instruction;
+                    state[move.getRegisterA()] = state[move.getRegisterB()];
+                    break;
+                case MOVE_RESULT_OBJECT:
+                    state[((OneRegisterInstruction) instruction).getRegisterA()]
+                            = result != null ? result : Value.UNKNOWN;
+                    break;
+                case CHECK_CAST:
+                    // a cast doesn't change the object the register refers to
+                    break;
+                default:
+                    if (instruction instanceof VariableRegisterInstruction) {
+
+                        if (record) {
+                            recordInvocation(i, instruction, state);
+                        }
+
+                        Reference reference = instruction instanceof ReferenceInstruction
+                                ? ((ReferenceInstruction) instruction).getReference() : null;
+                        pendingResult = reference instanceof MethodReference
+                                ? Value.result((MethodReference) reference, i) : Value.UNKNOWN;
+
+                    } else if (opcode.setsRegister() && instruction instanceof OneRegisterInstruction) {
+
+                        int register = ((OneRegisterInstruction) instruction).getRegisterA();
+                        state[register] = Value.UNKNOWN;
+
+                        if (opcode.setsWideRegister()) {
+                            state[register + 1] = Value.UNKNOWN;
+                        }
+                    }
+            }
+            result = pendingResult;
+        }
+    }
+
+    /**
+     * Records the argument values of the given invocation.
+     *
+     * @param index The instruction index of the invocation.
+     * @param instruction The invoke instruction.
+     * @param state The register values right before the invocation.
+     */
+    private void recordInvocation(int index, Instruction instruction, Value[] state) {
+
+        int[] registers = getArgumentRegisters(instruction);
+        Value[] values = new Value[registers.length];
+
+        for (int i = 0; i < registers.length; i++) {
+            values[i] = state[registers[i]];
+        }
+        arguments[index] = values;
+
+        if (values.length > 0 && values[0].getKind() != Kind.UNKNOWN) {
+            invocations.computeIfAbsent(values[0], object -> new ArrayList<>()).add(index);
+        }
+    }
+
+    /**
+     * Merges the register values at the end of a block into the entry state of a successor block.
+     *
+     * @param state The register values at the end of the predecessor block.
+     * @param entryStates The entry states of all blocks.
+     * @param successor The successor block.
+     * @return Returns {@code true} if the entry state of the successor block changed, otherwise {@code false}.
+     */
+    private static boolean merge(Value[] state, Value[][] entryStates, int successor) {
+
+        Value[] entryState = entryStates[successor];
+
+        if (entryState == null) {
+            entryStates[successor] = state.clone();
+            return true;
+        }
+
+        boolean changed = false;
+
+        for (int register = 0; register < state.length; register++) {
+            if (entryState[register] != Value.UNKNOWN && !entryState[register].equals(state[register])) {
+                // different string constants are kept as candidates, any other conflict makes the value unknown
+                Value merged = Value.merge(entryState[register], state[register]);
+                changed |= !merged.equals(entryState[register]);
+                entryState[register] = merged;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Adds the given handler block to the handler blocks of an instruction unless it is already contained.
+     */
+    private static int[] addHandler(int[] handlers, int handler) {
+
+        if (handlers == null) {
+            return new int[]{handler};
+        }
+
+        for (int present : handlers) {
+            if (present == handler) {
+                return handlers;
+            }
+        }
+
+        int[] extended = Arrays.copyOf(handlers, handlers.length + 1);
+        extended[handlers.length] = handler;
+        return extended;
+    }
+
+    /**
+     * Returns the instruction index after the last instruction of the given block.
+     */
+    private static int getBlockEnd(List<Integer> blockStarts, int block, int size) {
+        return block + 1 < blockStarts.size() ? blockStarts.get(block + 1) : size;
+    }
+
+    /**
+     * Determines the instruction indices the given instruction may branch to.
+     *
+     * @param instruction The instruction.
+     * @param address The code address of the instruction.
+     * @param indexByAddress Maps code addresses to instruction indices.
+     * @return Returns the indices of the branch targets, which is empty for non-branching instructions.
+     */
+    private int[] getBranchTargets(Instruction instruction, int address, int[] indexByAddress) {
+
+        if (!(instruction instanceof OffsetInstruction) || instruction.getOpcode() == Opcode.FILL_ARRAY_DATA) {
+            return new int[0];
+        }
+
+        int target = getIndex(indexByAddress, address + ((OffsetInstruction) instruction).getCodeOffset());
+
+        if (target < 0) {
+            return new int[0];
+        }
+
+        if (instruction.getOpcode() == Opcode.PACKED_SWITCH || instruction.getOpcode() == Opcode.SPARSE_SWITCH) {
+
+            // the offset refers to the payload, which in turn holds the offsets of the cases
+            Instruction payload = instructions.get(target);
+
+            if (!(payload instanceof SwitchPayload)) {
+                return new int[0];
+            }
+
+            // the switch falls through if no case matches
+            return ((SwitchPayload) payload).getSwitchElements().stream()
+                    .mapToInt(SwitchElement::getOffset)
+                    .map(offset -> getIndex(indexByAddress, address + offset))
+                    .filter(index -> index >= 0)
+                    .toArray();
+        }
+        return new int[]{target};
+    }
+
+    private static int getIndex(int[] indexByAddress, int address) {
+        return address >= 0 && address < indexByAddress.length ? indexByAddress[address] : -1;
+    }
+
+    /**
+     * Returns the argument registers of the given invoke instruction in their order.
+     */
+    private static int[] getArgumentRegisters(Instruction instruction) {
+
+        if (instruction instanceof FiveRegisterInstruction) {
+            FiveRegisterInstruction invoke = (FiveRegisterInstruction) instruction;
+            int[] registers = {invoke.getRegisterC(), invoke.getRegisterD(), invoke.getRegisterE(),
+                    invoke.getRegisterF(), invoke.getRegisterG()};
+            return Arrays.copyOf(registers, invoke.getRegisterCount());
+        } else if (instruction instanceof RegisterRangeInstruction) {
+            RegisterRangeInstruction invoke = (RegisterRangeInstruction) instruction;
+            int[] registers = new int[invoke.getRegisterCount()];
+            for (int i = 0; i < registers.length; i++) {
+                registers[i] = invoke.getStartRegister() + i;
+            }
+            return registers;
+        }
+        return new int[0];
+    }
+
+    /**
+     * Returns the highest register id used by the given instruction or -1 if it doesn't use any register.
+     */
+    private static int getHighestRegister(Instruction instruction) {
+
+        int highest = -1;
+
+        if (instruction instanceof OneRegisterInstruction) {
+            int register = ((OneRegisterInstruction) instruction).getRegisterA();
+            highest = instruction.getOpcode().setsWideRegister() ? register + 1 : register;
+        }
+
+        if (instruction instanceof TwoRegisterInstruction) {
+            highest = Math.max(highest, ((TwoRegisterInstruction) instruction).getRegisterB());
+        }
+
+        if (instruction instanceof ThreeRegisterInstruction) {
+            highest = Math.max(highest, ((ThreeRegisterInstruction) instruction).getRegisterC());
+        }
+
+        for (int register : getArgumentRegisters(instruction)) {
+            highest = Math.max(highest, register);
+        }
+        return highest;
+    }
+
+    /**
+     * The kind of value a register can hold.
+     */
+    enum Kind {
+        ENTRY, STRING, INSTANCE, FIELD, RESULT, UNKNOWN
+    }
+
+    /**
+     * Describes the value of a register. Two values are equal if they refer to the same definition, e.g. the same
+     * string constants or the same new-instance instruction.
+     */
+    static final class Value {
+
+        static final Value UNKNOWN = new Value(Kind.UNKNOWN, null, -1);
+
+        private final Kind kind;
+
+        // the sorted candidate strings, the type of the new instance, the field or the invoked method
+        private final Object content;
+
+        // the register on method entry or the index of the defining instruction
+        private final int origin;
+
+        private Value(Kind kind, Object content, int origin) {
+            this.kind = kind;
+            this.content = content;
+            this.origin = origin;
+        }
+
+        private static Value entry(int register) {
+            return new Value(Kind.ENTRY, null, register);
+        }
+
+        private static Value string(String string) {
+            return new Value(Kind.STRING, List.of(string), -1);
+        }
+
+        private static Value instance(String type, int index) {
+            return new Value(Kind.INSTANCE, type, index);
+        }
+
+        private static Value field(FieldReference field) {
+            return new Value(Kind.FIELD, field, -1);
+        }
+
+        private static Value result(MethodReference method, int index) {
+            return new Value(Kind.RESULT, method, index);
+        }
+
+        /**
+         * Merges two different values that reach the same instruction. Only string constants can be merged, as long
+         * as there are at most {@link #MAX_CANDIDATES} candidates, otherwise the merged value is unknown.
+         */
+        private static Value merge(Value first, Value second) {
+
+            if (first.kind != Kind.STRING || second.kind != Kind.STRING) {
+                return UNKNOWN;
+            }
+
+            Set<String> candidates = new TreeSet<>(first.getStrings());
+            candidates.addAll(second.getStrings());
+
+            return candidates.size() <= MAX_CANDIDATES
+                    ? new Value(Kind.STRING, List.copyOf(candidates), -1) : UNKNOWN;
+        }
+
+        Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns the candidate string constants in their natural order or an empty list if the value is no string
+         * constant.
+         */
+        @SuppressWarnings("unchecked")
+        List<String> getStrings() {
+            return kind == Kind.STRING ? (List<String>) content : Collections.emptyList();
+        }
+
+        /**
+         * Returns the type of the new instance or {@code null} if the value is no new instance.
+         */
+        String getInstanceType() {
+            return kind == Kind.INSTANCE ? (String) content : null;
+        }
+
+        /**
+         * Returns the field the value has been read from or {@code null} if the value is no field value.
+         */
+        FieldReference getField() {
+            return kind == Kind.FIELD ? (FieldReference) content : null;
+        }
+
+        /**
+         * Returns the method that produced the value or {@code null} if the value is no invocation result.
+         */
+        MethodReference getResultOf() {
+            return kind == Kind.RESULT ? (MethodReference) content : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Value)) {
+                return false;
+            }
+
+            Value other = (Value) o;
+            return kind == other.kind && origin == other.origin && Objects.equals(content, other.content);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, content, origin);
+        }
+
+        @Override
+        public String toString() {
+            return kind + (content != null ? "(" + content + ")" : "") + (origin >= 0 ? "@" + origin : "");
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package de.uni_passau.fim.auermich.android_analysis.scanner;
 
 import com.google.common.collect.Lists;
+import de.uni_passau.fim.auermich.android_analysis.AnalysisOptions;
 import de.uni_passau.fim.auermich.android_analysis.component.*;
 import de.uni_passau.fim.auermich.android_analysis.component.bundle.Extra;
+import de.uni_passau.fim.auermich.android_analysis.component.bundle.Extras;
+import de.uni_passau.fim.auermich.android_analysis.index.ClassHierarchy;
+import de.uni_passau.fim.auermich.android_analysis.index.ClassIndex;
+import de.uni_passau.fim.auermich.android_analysis.index.MethodIndex;
 import de.uni_passau.fim.auermich.android_analysis.utility.ClassUtils;
-import de.uni_passau.fim.auermich.android_analysis.utility.ComponentUtils;
+import de.uni_passau.fim.auermich.android_analysis.utility.ExclusionMatcher;
 import de.uni_passau.fim.auermich.android_analysis.utility.MethodUtils;
-import de.uni_passau.fim.auermich.android_analysis.utility.Utility;
+import de.uni_passau.fim.auermich.android_analysis.utility.StageTimer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import com.android.tools.smali.dexlib2.Opcode;
@@ -14,8 +19,6 @@ import com.android.tools.smali.dexlib2.iface.*;
 import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
 import com.android.tools.smali.dexlib2.iface.instruction.OneRegisterInstruction;
 import com.android.tools.smali.dexlib2.iface.instruction.ReferenceInstruction;
-import com.android.tools.smali.dexlib2.iface.instruction.TwoRegisterInstruction;
-import com.android.tools.smali.dexlib2.iface.instruction.formats.Instruction21c;
 import com.android.tools.smali.dexlib2.iface.instruction.formats.Instruction35c;
 import com.android.tools.smali.dexlib2.iface.reference.FieldReference;
 import com.android.tools.smali.dexlib2.iface.reference.MethodReference;
@@ -25,7 +28,11 @@ import com.android.tools.smali.dexlib2.iface.value.EncodedValue;
 import com.android.tools.smali.dexlib2.iface.value.StringEncodedValue;
 
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Scans the dex files for the relevant information.
@@ -34,132 +41,630 @@ public final class DexScanner {
 
     private static final Logger LOGGER = LogManager.getLogger(DexScanner.class);
 
-    // the classes.dex files
-    private final List<DexFile> dexFiles;
+    // maps type descriptors to their class definitions
+    private final ClassIndex classIndex;
 
-    // stores per class the variables and their values
-    private final Map<ClassDef, Map<String, String>> variables = new HashMap<>();
+    // resolves method references to their method definitions
+    private final MethodIndex methodIndex;
 
-    // all strings that are getting collected during scanning
-    private final Set<String> strings = new HashSet<>();
+    // classifies classes into components by their super class chain
+    private final ClassHierarchy classHierarchy;
 
-    // the package name of the AUT
-    private final String packageName;
+    // stores per class (type descriptor) the variables and their values
+    private final Map<String, Map<String, String>> variables = new ConcurrentHashMap<>();
+
+    // interns the strings collected for the components, such that equal strings are held once
+    private final StringPool stringPool = new StringPool();
 
     // whether all classes should be resolved or only classes belonging to the application package
     private final boolean resolveAllClasses;
 
+    // the prefix of the type descriptors of the classes belonging to the application package
+    private final String packageTypePrefix;
+
+    // the classes excluded from the analysis, e.g. library classes
+    private final ExclusionMatcher exclusionMatcher;
+
+    // the number of threads scanning classes in parallel
+    private final int parallelism;
+
+    // the maximal number of nested invocations followed when scanning for intent data
+    private final int maxCallDepth;
+
+    // the intent data summaries of methods invoked with an intent, shared among all components
+    private final Map<Method, MethodSummary> summaries = new ConcurrentHashMap<>();
+
+    // the number of instructions visited so far, i.e. the size of all materialized instruction lists
+    private final LongAdder visitedInstructions = new LongAdder();
+
+    // the number of methods whose instructions have been materialized so far
+    private final LongAdder visitedMethods = new LongAdder();
+
+    // the number of basic blocks processed by the constant propagation so far
+    private final LongAdder propagationSteps = new LongAdder();
+
+    // the CPU time and the allocated bytes of the fork join threads scanning classes
+    private final LongAdder workerCpuNanos = new LongAdder();
+    private final LongAdder workerAllocatedBytes = new LongAdder();
+
+    // the records of previously scanned classes or {@code null} if every class should be scanned
+    private final ClassRecordStore classRecords;
+
+    // the content hashes identifying unchanged classes, only used along with the class records
+    private final ClassHashes classHashes;
+
+    // the number of classes whose record has been reused
+    private final LongAdder reusedRecords = new LongAdder();
+
     /**
-     * Initialises the scanner.
+     * The minimal number of classes a single task of the parallel scan processes.
+     */
+    private static final int CLASSES_PER_TASK = 32;
+
+    /**
+     * The default number of nested invocations that are followed when scanning for intent data.
+     */
+    public static final int DEFAULT_CALL_DEPTH = 10;
+
+    /**
+     * Initialises the scanner. Classes that have been scanned previously and are unchanged since, including their
+     * super classes and the classes whose methods are followed when scanning for intent data, are not scanned again
+     * but their record is taken from the given store.
      *
      * @param dexFiles The list of classes.dex files.
+     * @param packageName The package name of the app.
+     * @param options The analysis options, i.e. the classes to be resolved, the parallelism, the maximal call depth
+     *         and the excluded classes.
+     * @param classRecords The records of previously scanned classes or {@code null} if every class should be scanned.
      */
-    public DexScanner(List<DexFile> dexFiles, final String packageName, final boolean resolveAllClasses) {
-        this.dexFiles = dexFiles;
-        this.packageName = packageName;
+    public DexScanner(final List<DexFile> dexFiles, final String packageName, final AnalysisOptions options,
+                      final ClassRecordStore classRecords) {
+
+        if (classRecords != null && classRecords.getMaxCallDepth() != options.getMaxCallDepth()) {
+            throw new IllegalArgumentException("The class records have been scanned with call depth "
+                    + classRecords.getMaxCallDepth() + ", but the call depth is " + options.getMaxCallDepth());
+        }
+
+        final boolean resolveAllClasses = options.isResolveAllClasses();
+
+        // unless all classes are resolved, solely the app classes are materialized upfront
+        this.classIndex = resolveAllClasses ? new ClassIndex(dexFiles) : ClassIndex.restrictedTo(dexFiles, packageName);
+        this.methodIndex = new MethodIndex(classIndex);
+        this.classHierarchy = new ClassHierarchy(classIndex);
         this.resolveAllClasses = resolveAllClasses;
+        this.packageTypePrefix = "L" + packageName.replace('.', '/');
+        this.exclusionMatcher = options.getExclusionMatcher();
+        this.parallelism = options.getParallelism();
+        this.maxCallDepth = options.getMaxCallDepth();
+        this.classRecords = classRecords;
+        this.classHashes = classRecords != null ? new ClassHashes(classIndex) : null;
     }
 
     /**
-     * Look ups dynamic broadcast receivers.
+     * Checks whether the given class is skipped, i.e. it is either excluded or it doesn't belong to the application
+     * package unless all classes are resolved. Solely the type descriptor is inspected.
      *
-     * @param components The list of components.
+     * @param classDef The class.
+     * @return Returns {@code true} if the class is skipped, otherwise {@code false}.
+     */
+    private boolean isExcluded(final ClassDef classDef) {
+        String type = classDef.getType();
+        return exclusionMatcher.matchesType(type) || (!resolveAllClasses && !type.startsWith(packageTypePrefix));
+    }
+
+    /**
+     * Extracts the components and fills in all static data in a single pass over the dex files, i.e. each class and
+     * each method is visited only once. The scanner doesn't retain the classes of the components, such that the dex
+     * files are no longer reachable through the components once the scanner itself is unreachable.
+     *
+     * The classes are split across a fork join pool according to the configured parallelism level. Each class is
+     * scanned by a single task into a {@link ClassRecord}, which is applied to the component represented by the class
+     * afterwards. Dynamically registered broadcast receivers are resolved in class order after all tasks completed,
+     * thus the result is the same as for a sequential scan. If a store of class records is given, the records of
+     * unchanged classes are taken from the store instead of scanning the classes again.
+     *
+     * @return Returns the list of retrieved components including the collected static data.
      */
-    public void lookUpDynamicBroadcastReceivers(List<Component> components) {
+    public List<Component> scan() {
+        return scan(new StageTimer());
+    }
 
-        Pattern exclusionPattern = Utility.readExcludePatterns();
+    /**
+     * Extracts the components and fills in all static data in a single pass over the dex files, see {@link #scan()}.
+     * The steps of the scan are recorded as stages of the given timer along with counters of the visited classes,
+     * methods and instructions.
+     *
+     * @param timer The timer recording the steps of the scan.
+     * @return Returns the list of retrieved components including the collected static data.
+     */
+    public List<Component> scan(final StageTimer timer) {
 
-        for (DexFile dexFile : dexFiles) {
-            List<ClassDef> classes = Lists.newArrayList(dexFile.getClasses());
+        // the counters are shared by all scans of this scanner
+        final long instructionsBefore = visitedInstructions.sum();
+        final long methodsBefore = visitedMethods.sum();
+        final long stepsBefore = propagationSteps.sum();
+        final long reusedBefore = reusedRecords.sum();
 
-            for (ClassDef classDef : classes) {
+        List<ClassDef> classes = new ArrayList<>();
 
-                String className = ClassUtils.dottedClassName(classDef.toString());
+        try (StageTimer.Span ignored = timer.start("select classes")) {
+            for (ClassDef classDef : classIndex.getClasses()) {
 
                 // skip certain classes, e.g. ART classes
-                if ((exclusionPattern != null && exclusionPattern.matcher(className).matches())
-                        || (!resolveAllClasses && !className.startsWith(packageName))) {
+                if (isExcluded(classDef)) {
+                    LOGGER.debug("Skip class: {}", () -> ClassUtils.dottedClassName(classDef.toString()));
                     continue;
                 }
 
-                for (Method method : classDef.getMethods()) {
-                    scanMethodForDynamicBroadcastReceiver(components, method);
+                classes.add(classDef);
+            }
+        }
+
+        ClassRecord[] records = new ClassRecord[classes.size()];
+        ClassScanTask task = new ClassScanTask(classes, records, 0, classes.size());
+
+        try (StageTimer.Span span = timer.start("scan classes")) {
+            if (parallelism == 1) {
+                task.compute();
+            } else {
+                LOGGER.info("Scanning " + classes.size() + " classes with " + parallelism + " threads.");
+                long cpuNanosBefore = workerCpuNanos.sum();
+                long allocatedBytesBefore = workerAllocatedBytes.sum();
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    pool.invoke(task);
+                } finally {
+                    pool.shutdown();
                 }
+                span.addWork(workerCpuNanos.sum() - cpuNanosBefore, workerAllocatedBytes.sum() - allocatedBytesBefore);
+            }
+        }
+
+        List<Component> components = new ArrayList<>();
+        long classInstructions = 0;
+
+        try (StageTimer.Span ignored = timer.start("create components")) {
+            for (int i = 0; i < records.length; i++) {
+
+                Component component = createComponent(records[i].getComponentType(), classes.get(i));
+
+                if (component != null) {
+                    applyRecord(records[i], component);
+                    components.add(component);
+                }
+                classInstructions += records[i].getInstructionCount();
+            }
+        }
+
+        try (StageTimer.Span ignored = timer.start("register dynamic receivers")) {
+            for (ClassRecord record : records) {
+                registerDynamicReceivers(components, record.registrations);
             }
         }
+
+        timer.count("indexedClasses", classIndex.size());
+        timer.count("scannedClasses", records.length);
+        timer.count("reusedClasses", reusedRecords.sum() - reusedBefore);
+        timer.count("visitedMethods", visitedMethods.sum() - methodsBefore);
+        timer.count("visitedInstructions", visitedInstructions.sum() - instructionsBefore);
+        timer.count("classInstructions", classInstructions);
+        timer.count("propagationSteps", propagationSteps.sum() - stepsBefore);
+        timer.count("components", components.size());
+
+        if (classRecords != null) {
+            LOGGER.info("Reused the records of " + reusedRecords.sum() + " out of " + records.length + " classes.");
+        }
+
+        LOGGER.info("Visited " + visitedInstructions.sum() + " instructions for " + classInstructions
+                + " instructions in the scanned classes.");
+        return components;
     }
 
     /**
-     * Scans the given method for a dynamic broadcast receiver registration invocation.
+     * Scans a range of classes and recursively splits the range as long as it is large enough.
+     */
+    private final class ClassScanTask extends RecursiveAction {
+
+        private final List<ClassDef> classes;
+        private final ClassRecord[] records;
+        private final int from;
+        private final int to;
+
+        private ClassScanTask(List<ClassDef> classes, ClassRecord[] records, int from, int to) {
+            this.classes = classes;
+            this.records = records;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (parallelism > 1 && to - from > CLASSES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ClassScanTask(classes, records, from, middle),
+                        new ClassScanTask(classes, records, middle, to));
+            } else if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+                // the work of the pool threads isn't seen by the thread that started the scan
+                long cpuNanos = StageTimer.currentThreadCpuNanos();
+                long allocatedBytes = StageTimer.currentThreadAllocatedBytes();
+                scanRange();
+                if (cpuNanos != StageTimer.UNSUPPORTED) {
+                    workerCpuNanos.add(StageTimer.currentThreadCpuNanos() - cpuNanos);
+                }
+                if (allocatedBytes != StageTimer.UNSUPPORTED) {
+                    workerAllocatedBytes.add(StageTimer.currentThreadAllocatedBytes() - allocatedBytes);
+                }
+            } else {
+                scanRange();
+            }
+        }
+
+        private void scanRange() {
+            for (int i = from; i < to; i++) {
+                records[i] = getClassRecord(classes.get(i));
+            }
+        }
+    }
+
+    /**
+     * The strings and extras collected from a method and the methods it invokes with an intent. Extras with the
+     * same key and type are only recorded once, they are merged per component anyway.
+     */
+    private static final class MethodSummary {
+
+        // the summary of a method whose scan has been cut off
+        private static final MethodSummary TRUNCATED = new MethodSummary(false);
+
+        private final Set<String> strings = new LinkedHashSet<>();
+
+        // the extras keyed by their key and type
+        private final Map<String, Extra> extras = new LinkedHashMap<>();
+
+        // the classes referenced by invocations with an intent, the summary is only valid as long as they don't change
+        private final Set<String> dependencies = new HashSet<>();
+
+        // the maximal number of nested invocations covered by the summary
+        private int height;
+
+        // whether the summary covers all methods reachable from the summarized method
+        private boolean complete;
+
+        private MethodSummary() {
+            this(true);
+        }
+
+        private MethodSummary(boolean complete) {
+            this.complete = complete;
+        }
+
+        private void addExtra(String key, String valueType) {
+            extras.putIfAbsent(key + '\0' + valueType, new Extra(key, valueType));
+        }
+
+        /**
+         * Adds the summary of an invoked method.
+         *
+         * @param callee The summary of the invoked method.
+         */
+        private void add(MethodSummary callee) {
+            strings.addAll(callee.strings);
+            callee.extras.forEach(extras::putIfAbsent);
+            dependencies.addAll(callee.dependencies);
+            height = Math.max(height, callee.height + 1);
+            complete &= callee.complete;
+        }
+    }
+
+    /**
+     * A summary that is only valid within the call context it has been computed in.
+     */
+    private static final class ContextSummary {
+
+        // the number of nested invocations leading to the summarized method
+        private final int depth;
+
+        private final MethodSummary summary;
+
+        private ContextSummary(int depth, MethodSummary summary) {
+            this.depth = depth;
+            this.summary = summary;
+        }
+    }
+
+    /**
+     * The state of the scan of a single component method for intent data.
+     */
+    private static final class CallContext {
+
+        // the methods that are currently being scanned
+        private final Set<Method> callStack = new HashSet<>();
+
+        // the summaries that couldn't be cached globally, e.g. the ones of recursive methods
+        private final Map<Method, ContextSummary> summaries = new HashMap<>();
+    }
+
+    /**
+     * Marks the registered receivers as dynamic receivers and attaches their intent filters.
      *
      * @param components The list of components.
-     * @param method The method to be inspected.
+     * @param registrations The dynamic receiver registrations.
+     */
+    private void registerDynamicReceivers(List<Component> components,
+                                          List<ClassRecord.ReceiverRegistration> registrations) {
+
+        for (ClassRecord.ReceiverRegistration registration : registrations) {
+
+            Component receiver = resolveReceiver(components, registration.receiverType);
+
+            if (receiver == null) {
+                continue;
+            }
+
+            ((BroadcastReceiver) receiver).markAsDynamicReceiver();
+
+            /*
+             * Only add the intent filter if not empty, since we can only send an implicit intent to a dynamic receiver.
+             * Without any action, we likely not reach the dynamic receiver.
+             */
+            if (!registration.actions.isEmpty()) {
+
+                // TODO: support multiple intent filters
+                Component.IntentFilter intentFilter = receiver.new IntentFilter();
+                registration.actions.forEach(intentFilter::addAction);
+                registration.categories.forEach(intentFilter::addCategory);
+                receiver.addIntentFilter(intentFilter);
+            }
+        }
+    }
+
+    /**
+     * Returns the record of the given class. If the class has been scanned previously and neither the class, its
+     * super classes nor the classes followed when scanning for intent data changed since, the previous record is
+     * reused. Otherwise, the class is scanned.
+     *
+     * @param classDef The class.
+     * @return Returns the record of the class.
+     */
+    private ClassRecord getClassRecord(ClassDef classDef) {
+
+        if (classRecords == null) {
+            return scanClass(classDef, null);
+        }
+
+        String contentHash = classHashes.getContentHash(classDef);
+        ClassRecord record = classRecords.lookup(contentHash);
+
+        if (record != null && isUpToDate(record, classDef)) {
+            reusedRecords.increment();
+        } else {
+            record = scanClass(classDef, classHashes.getChainHash(classDef.getType()));
+        }
+
+        classRecords.add(contentHash, record);
+        return record;
+    }
+
+    /**
+     * Checks whether the given record of an unchanged class is still valid, i.e. whether the super classes of the
+     * class and the classes its record depends on are unchanged as well.
+     *
+     * @param record The record of the class.
+     * @param classDef The class.
+     * @return Returns {@code true} if the record can be reused, otherwise {@code false} is returned.
      */
-    private void scanMethodForDynamicBroadcastReceiver(List<Component> components, Method method) {
+    private boolean isUpToDate(ClassRecord record, ClassDef classDef) {
+
+        if (!record.getChainHash().equals(classHashes.getChainHash(classDef.getType()))) {
+            return false;
+        }
+
+        for (Map.Entry<String, String> dependency : record.dependencies.entrySet()) {
+            if (!dependency.getValue().equals(classHashes.getChainHash(dependency.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scans a single class for dynamic broadcast receivers and, if the class represents a component, for the string
+     * constants and the intent data of the component. The instructions of each method are materialized only once
+     * and shared by all analyses.
+     *
+     * @param classDef The class to be scanned.
+     * @param chainHash The chain hash of the class or {@code null} if the record isn't stored.
+     * @return Returns the record of the class.
+     */
+    private ClassRecord scanClass(ClassDef classDef, String chainHash) {
+
+        ScanEvents.ClassScan event = new ScanEvents.ClassScan();
+        event.begin();
+
+        ComponentType componentType = classHierarchy.getComponentType(classDef);
+
+        List<Method> methods = Lists.newArrayList(classDef.getMethods());
+        List<List<Instruction>> methodInstructions = new ArrayList<>(methods.size());
+        long instructionCount = 0;
+
+        for (Method method : methods) {
+            List<Instruction> instructions = getInstructions(method);
+            methodInstructions.add(instructions);
+            instructionCount += instructions.size();
+        }
+
+        ClassRecord record = new ClassRecord(chainHash, componentType, instructionCount, !methods.isEmpty());
+        Set<String> dependencies = new HashSet<>();
+        Map<String, String> classVariables = null;
+
+        if (componentType != ComponentType.NONE) {
+
+            // parse the constructor and static initializers for class variable assignments
+            classVariables = parseConstructors(methods, methodInstructions);
+            variables.put(classDef.getType(), classVariables);
+
+            // lookup the classes' fields for string constants
+            record.stringConstants.addAll(collectStringConstants(classDef));
+        }
+
+        for (int i = 0; i < methods.size(); i++) {
+
+            Method method = methods.get(i);
+            List<Instruction> instructions = methodInstructions.get(i);
+
+            scanMethodForDynamicBroadcastReceiver(method, instructions, record.registrations);
+
+            // we only want to have string constants from activities and fragments
+            if (componentType == ComponentType.ACTIVITY || componentType == ComponentType.FRAGMENT) {
+                scanMethodForStaticStrings(instructions, record.methodStrings);
+            }
+
+            // we are not interested in the intent data of fragments
+            if (isIntentEntryPoint(componentType, method.getName())) {
+                MethodSummary summary = scanMethodForIntentData(method, instructions, classVariables);
+                record.intentData.add(new ClassRecord.IntentData(method.getName(),
+                        new ArrayList<>(summary.strings), new ArrayList<>(summary.extras.values())));
+                dependencies.addAll(summary.dependencies);
+            }
+        }
+
+        if (chainHash != null) {
+            for (String dependency : dependencies) {
+                record.dependencies.put(dependency, classHashes.getChainHash(dependency));
+            }
+        }
+
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.className = ClassUtils.dottedClassName(classDef.getType());
+            event.componentType = componentType.name();
+            event.methodCount = methods.size();
+            event.instructionCount = instructionCount;
+            event.commit();
+        }
+        return record;
+    }
+
+    /**
+     * Applies the record of a class to the component represented by the class.
+     *
+     * @param record The record of the class.
+     * @param component The component represented by the class.
+     */
+    private void applyRecord(ClassRecord record, Component component) {
+
+        addStringConstants(component, record.stringConstants);
+
+        if (component instanceof Activity) {
+            ((Activity) component).getMethodStrings().addAll(record.methodStrings);
+        } else if (component instanceof Fragment) {
+            ((Fragment) component).getMethodStrings().addAll(record.methodStrings);
+        }
+
+        for (ClassRecord.IntentData intentData : record.intentData) {
+            addIntentData(component, intentData.methodName, intentData.strings, intentData.extras);
+        }
+
+        if (record.hasMethods()) {
+            addStaticStrings(component);
+        }
+    }
+
+    /**
+     * Materializes the instructions of the given method and accounts them as visited.
+     *
+     * @param method The method whose instructions should be retrieved.
+     * @return Returns the instructions of the method or an empty list if the method has no implementation.
+     */
+    private List<Instruction> getInstructions(Method method) {
 
         MethodImplementation implementation = method.getImplementation();
 
-        if (implementation != null) {
+        if (implementation == null) {
+            return Collections.emptyList();
+        }
 
-            List<Instruction> instructions = Lists.newArrayList(implementation.getInstructions());
+        List<Instruction> instructions = Lists.newArrayList(implementation.getInstructions());
+        visitedInstructions.add(instructions.size());
+        visitedMethods.increment();
+        return instructions;
+    }
 
-            for (int i = 0; i < instructions.size(); i++) {
+    /**
+     * Returns the number of instructions visited so far by this scanner.
+     *
+     * @return Returns the number of visited instructions.
+     */
+    public long getVisitedInstructions() {
+        return visitedInstructions.sum();
+    }
 
-                Instruction instruction = instructions.get(i);
+    /**
+     * Scans the given method for a dynamic broadcast receiver registration invocation.
+     *
+     * @param method The method to be inspected.
+     * @param instructions The instructions of the method.
+     * @param registrations Collects the discovered dynamic receiver registrations.
+     */
+    private void scanMethodForDynamicBroadcastReceiver(Method method, List<Instruction> instructions,
+                                                       List<ClassRecord.ReceiverRegistration> registrations) {
 
-                // only invoke-virtual instructions can refer to registering a broadcast receiver dynamically
-                if (instruction.getOpcode() == Opcode.INVOKE_VIRTUAL) {
+        // the register values are only computed if the method actually registers a receiver
+        ConstantPropagation propagation
+                = new ConstantPropagation(method.getImplementation(), instructions, propagationSteps);
 
-                    Instruction35c invoke = (Instruction35c) instruction;
-                    Reference targetMethod = invoke.getReference();
+        for (int i = 0; i < instructions.size(); i++) {
 
-                    // check whether Context.registerReceiver() is called
-                    if (targetMethod.toString().endsWith("registerReceiver(Landroid/content/BroadcastReceiver;" +
-                            "Landroid/content/IntentFilter;)Landroid/content/Intent;")
-                            // further overloaded registerReceiver() methods
-                            || targetMethod.toString().endsWith("registerReceiver(Landroid/content/BroadcastReceiver;" +
-                            "Landroid/content/IntentFilter;Ljava/lang/String;Landroid/os/Handler;I)" +
-                            "Landroid/content/Intent;")
-                            || targetMethod.toString().endsWith("registerReceiver(Landroid/content/BroadcastReceiver;" +
-                            "Landroid/content/IntentFilter;Ljava/lang/String;Landroid/os/Handler;)" +
-                            "Landroid/content/Intent;")
-                            || targetMethod.toString().endsWith("registerReceiver(Landroid/content/BroadcastReceiver;" +
-                            "Landroid/content/IntentFilter;I)Landroid/content/Intent;")) {
+            Instruction instruction = instructions.get(i);
 
-                        LOGGER.debug("Backtracking dynamic broadcast receiver registration in method: " + method);
+            // only invoke-virtual instructions can refer to registering a broadcast receiver dynamically
+            if (instruction.getOpcode() == Opcode.INVOKE_VIRTUAL) {
 
-                        // TODO: handle dynamic receivers that are stored in a class variable
+                Instruction35c invoke = (Instruction35c) instruction;
+                Reference targetMethod = invoke.getReference();
 
-                        /*
-                         * A typical call to Context.registerReceiver() looks as follows:
-                         *
-                         * invoke-virtual {p0, v1, v0}, Landroid/content/Context;->
-                         * registerReceiver(Landroid/content/BroadcastReceiver;Landroid/content/IntentFilter;)
-                         * Landroid/content/Intent;
-                         *
-                         * where
-                         *   p0 refers to the context object (register C)
-                         *   v1 refers to the broadcast receiver instance (register D)
-                         *   v0 refers to the attached intent filter (register E)
-                         *
-                         * Thus, we need to backtrack register D in order to derive the name of the broadcast receiver.
-                         */
+                // check whether Context.registerReceiver() is called
+                if (targetMethod.toString().endsWith("registerReceiver(Landroid/content/BroadcastReceiver;" +
+                        "Landroid/content/IntentFilter;)Landroid/content/Intent;")
+                        // further overloaded registerReceiver() methods
+                        || targetMethod.toString().endsWith("registerReceiver(Landroid/content/BroadcastReceiver;" +
+                        "Landroid/content/IntentFilter;Ljava/lang/String;Landroid/os/Handler;I)" +
+                        "Landroid/content/Intent;")
+                        || targetMethod.toString().endsWith("registerReceiver(Landroid/content/BroadcastReceiver;" +
+                        "Landroid/content/IntentFilter;Ljava/lang/String;Landroid/os/Handler;)" +
+                        "Landroid/content/Intent;")
+                        || targetMethod.toString().endsWith("registerReceiver(Landroid/content/BroadcastReceiver;" +
+                        "Landroid/content/IntentFilter;I)Landroid/content/Intent;")) {
 
-                        // start backtracking from preceding instruction
-                        int index = i - 1;
+                    LOGGER.debug("Backtracking dynamic broadcast receiver registration in method: " + method);
 
-                        // backtrack broadcast receiver instance first
-                        Component receiver = backtrackReceiver(components, instructions,
-                                index, invoke.getRegisterD());
+                    // TODO: handle dynamic receivers that are stored in a class variable
 
-                        if (receiver != null) {
+                    /*
+                     * A typical call to Context.registerReceiver() looks as follows:
+                     *
+                     * invoke-virtual {p0, v1, v0}, Landroid/content/Context;->
+                     * registerReceiver(Landroid/content/BroadcastReceiver;Landroid/content/IntentFilter;)
+                     * Landroid/content/Intent;
+                     *
+                     * where
+                     *   p0 refers to the context object (register C)
+                     *   v1 refers to the broadcast receiver instance (register D)
+                     *   v0 refers to the attached intent filter (register E)
+                     *
+                     * Thus, we need to track register D in order to derive the name of the broadcast receiver.
+                     */
 
-                            // mark receiver as dynamic one
-                            ((BroadcastReceiver) receiver).markAsDynamicReceiver();
+                    // TODO: there might be several ways to get a broadcast receiver instance
+                    String receiverType = propagation.getValue(i, invoke.getRegisterD()).getInstanceType();
 
-                            // backtrack intent filter (inherently adds the filter)
-                            backtrackIntentFilter(receiver, instructions, index, invoke.getRegisterE());
-                        }
+                    if (receiverType != null) {
+
+                        // resolve intent filter, the receiver is resolved and marked as dynamic one once the scan is complete
+                        ClassRecord.ReceiverRegistration registration = new ClassRecord.ReceiverRegistration(receiverType);
+                        resolveIntentFilter(registration, instructions, propagation, i, invoke.getRegisterE());
+                        registrations.add(registration);
                     }
                 }
             }
@@ -167,33 +672,42 @@ public final class DexScanner {
     }
 
     /**
-     * Backtracks for a possible added intent filter to the dynamically added broadcast receiver.
+     * Resolves a possible added intent filter to the dynamically added broadcast receiver. This considers all
+     * invocations on the intent filter object that precede the registration of the receiver.
      *
-     * @param receiver The dynamically registered broadcast receiver.
+     * @param registration The registration of the receiver, which collects the actions and categories.
      * @param instructions The set of instructions for a given method.
-     * @param currentInstructionIndex The instruction index where to start backtracking from.
+     * @param propagation The register values of the given method.
+     * @param registrationIndex The instruction index of the registerReceiver() invocation.
      * @param registerID The register id referring to the intent filter instance specified in registerReceiver().
      */
-    private void backtrackIntentFilter(Component receiver, List<Instruction> instructions, int currentInstructionIndex, int registerID) {
+    private void resolveIntentFilter(ClassRecord.ReceiverRegistration registration, List<Instruction> instructions,
+                                     ConstantPropagation propagation, int registrationIndex, int registerID) {
 
-        // TODO: support backtracking of multiple actions and multiple intent filters
-        Component.IntentFilter intentFilter = receiver.new IntentFilter();
+        ConstantPropagation.Value filter = propagation.getValue(registrationIndex, registerID);
 
-        // unless we haven't reached the first instruction
-        while (currentInstructionIndex >= 0) {
+        if (filter.getKind() == ConstantPropagation.Kind.UNKNOWN) {
+            return;
+        }
 
-            Instruction instruction = instructions.get(currentInstructionIndex);
+        for (int index : propagation.getInvocations(filter)) {
+
+            if (index >= registrationIndex) {
+                break;
+            }
+
+            Instruction instruction = instructions.get(index);
 
             // check for invocations on the intent filter instance
             if (instruction.getOpcode() == Opcode.INVOKE_VIRTUAL) {
 
                 Instruction35c invoke = (Instruction35c) instruction;
+                String targetMethod = invoke.getReference().toString();
 
                 // TODO: check for calls to add data URI
 
                 // check for possible actions
-                if (invoke.getReference().toString()
-                        .equals("Landroid/content/IntentFilter;->addAction(Ljava/lang/String;)V")) {
+                if (targetMethod.equals("Landroid/content/IntentFilter;->addAction(Ljava/lang/String;)V")) {
 
                     /*
                      * A possible invocation looks as follows:
@@ -203,19 +717,10 @@ public final class DexScanner {
                      *  v1 refers to the action string (register D)
                      */
 
-                    // check whether we inspect the intent filter object specified in the call registerReceiver()
-                    if (invoke.getRegisterC() == registerID) {
-
-                        // now backtrack again for string constant specifying action (register D)
-                        String action = backtrackStringConstant(instructions, currentInstructionIndex - 1,
-                                invoke.getRegisterD());
-
-                        if (action != null) {
-                            intentFilter.addAction(action);
-                        }
-                    }
+                    // the string constants specifying the action (register D)
+                    registration.actions.addAll(propagation.getValue(index, invoke.getRegisterD()).getStrings());
                     // check for possible categories
-                } else if (invoke.getReference().equals("Landroid/content/IntentFilter;->addCategory(Ljava/lang/String;)V")) {
+                } else if (targetMethod.equals("Landroid/content/IntentFilter;->addCategory(Ljava/lang/String;)V")) {
 
                     /*
                      * A possible invocation looks as follows:
@@ -225,19 +730,10 @@ public final class DexScanner {
                      *  v1 refers to the category string (register D)
                      */
 
-                    // check whether we inspect the intent filter object specified in the call registerReceiver()
-                    if (invoke.getRegisterC() == registerID) {
-
-                        // now backtrack again for string constant specifying category (register D)
-                        String category = backtrackStringConstant(instructions, currentInstructionIndex - 1,
-                                invoke.getRegisterD());
-
-                        if (category != null) {
-                            intentFilter.addCategory(category);
-                        }
-                    }
+                    // the string constants specifying the category (register D)
+                    registration.categories.addAll(propagation.getValue(index, invoke.getRegisterD()).getStrings());
                     // check for possible data scheme specific part (ssp) + type (int)
-                } else if (invoke.getReference().equals("Landroid/content/IntentFilter;->addDataSchemeSpecificPart(Ljava/lang/String;I)V")) {
+                } else if (targetMethod.equals("Landroid/content/IntentFilter;->addDataSchemeSpecificPart(Ljava/lang/String;I)V")) {
 
                     /*
                      * A possible invocation looks as follows:
@@ -249,7 +745,7 @@ public final class DexScanner {
                      */
 
                     // check for possible data path
-                } else if (invoke.getReference().equals("Landroid/content/IntentFilter;->addDataPath(Ljava/lang/String;I)V")) {
+                } else if (targetMethod.equals("Landroid/content/IntentFilter;->addDataPath(Ljava/lang/String;I)V")) {
 
                     /*
                      * A possible invocation looks as follows:
@@ -261,7 +757,7 @@ public final class DexScanner {
                      */
 
                     // check for possible data type
-                } else if (invoke.getReference().equals("Landroid/content/IntentFilter;->addDataType(Ljava/lang/String;)V")) {
+                } else if (targetMethod.equals("Landroid/content/IntentFilter;->addDataType(Ljava/lang/String;)V")) {
 
                     /*
                      * A possible invocation looks as follows:
@@ -272,7 +768,7 @@ public final class DexScanner {
                      */
 
                     // check for possible data authority
-                } else if (invoke.getReference().equals("Landroid/content/IntentFilter;" +
+                } else if (targetMethod.equals("Landroid/content/IntentFilter;" +
                         "->addDataAuthority(Ljava/lang/String;Ljava/lang/String;)V")) {
 
                     /*
@@ -286,7 +782,7 @@ public final class DexScanner {
                      */
 
                     // check for possible data scheme
-                } else if (invoke.getReference().equals("Landroid/content/IntentFilter;->addDataScheme(Ljava/lang/String;)V")) {
+                } else if (targetMethod.equals("Landroid/content/IntentFilter;->addDataScheme(Ljava/lang/String;)V")) {
 
                     /*
                      * A possible invocation looks as follows:
@@ -313,402 +809,363 @@ public final class DexScanner {
                      *  v1 refers to the action string (register D)
                      */
 
-                    // check whether we inspect the intent filter object specified in the call registerReceiver()
-                    if (invoke.getRegisterC() == registerID) {
-
-                        // now backtrack again for string constant specifying action (register D)
-                        String action = backtrackStringConstant(instructions, currentInstructionIndex - 1,
-                                invoke.getRegisterD());
-
-                        if (action != null) {
-                            intentFilter.addAction(action);
-                        }
-                    }
+                    // the string constants specifying the action (register D)
+                    registration.actions.addAll(propagation.getValue(index, invoke.getRegisterD()).getStrings());
                 }
             }
-            currentInstructionIndex--;
-        }
-
-        /*
-        * Only add the intent filter if not empty, since we can only send an implicit intent to a dynamic receiver.
-        * Without any action, we likely not reach the dynamic receiver.
-         */
-        if (intentFilter.hasAction()) {
-            receiver.addIntentFilter(intentFilter);
         }
     }
 
     /**
-     * Checks for an string constant, e.g. an action, corresponding to the invocation of IntentFilter.addAction(),
-     * IntentFilter.addCategory(), etc.
+     * Resolves the broadcast receiver to the component that has been instantiated.
      *
-     * @param instructions The set of instructions for a given method.
-     * @param currentInstructionIndex The index where to start backtracking from.
-     * @param registerID The register ID which refers to the register holding the string constant.
-     * @return Returns the string constant or {@code null} if the constant couldn't be derived.
+     * @param components The list of components.
+     * @param receiverType The type descriptor of the broadcast receiver instance.
+     * @return Returns a {@link BroadcastReceiver} instance or {@code null} if the broadcast receiver couldn't be derived.
      */
-    private String backtrackStringConstant(List<Instruction> instructions, int currentInstructionIndex, int registerID) {
-
-        // unless we haven't reached the first instruction
-        while (currentInstructionIndex >= 0) {
+    private Component resolveReceiver(List<Component> components, String receiverType) {
 
-            Instruction instruction = instructions.get(currentInstructionIndex);
+        LOGGER.debug("Receiver: " + receiverType);
 
-            // actions are typically hold in string constants
-            if (instruction.getOpcode() == Opcode.CONST_STRING) {
+        String receiverName = ClassUtils.dottedClassName(receiverType);
 
-                Instruction21c constString = (Instruction21c) instruction;
+        // lookup receiver in the list of components and copy derived constants etc.
+        for (Component component : components) {
 
-                // check whether the const string refers to the right register
-                if (constString.getRegisterA() == registerID) {
-                    LOGGER.debug("Found String Constant: " + constString.getReference());
-                    return constString.getReference().toString();
-                }
+            if (component.getName().equals(receiverName)) {
+                LOGGER.debug("Found Receiver: " + component);
+                return component;
             }
-            currentInstructionIndex--;
         }
         return null;
     }
 
     /**
-     * Backtracks the broadcast receiver to its instance creation.
+     * Adds the collected method strings and the global strings of an activity or fragment to its static strings.
      *
-     * @param components The list of components.
-     * @param instructions The set of instructions of the given method.
-     * @param currentInstructionIndex The instruction index where to start backtracking from.
-     * @param registerID The register id that refers to the register holding the broadcast receiver instance.
-     * @return Returns a {@link BroadcastReceiver} instance or {@code null} if the broadcast receiver couldn't be derived.
+     * @param component The component whose static strings should be completed.
      */
-    private Component backtrackReceiver(List<Component> components, List<Instruction> instructions,
-                                        int currentInstructionIndex, int registerID) {
-
-        // unless we haven't reached the first instruction
-        while (currentInstructionIndex >= 0) {
-
-            Instruction instruction = instructions.get(currentInstructionIndex);
-
-            // TODO: there might be several ways to get a broadcast receiver instance
+    private void addStaticStrings(Component component) {
 
-            // check whether the corresponding broadcast receiver has been initialised by the current instruction
-            if (instruction.getOpcode() == Opcode.NEW_INSTANCE) {
-
-                Instruction21c newInstance = (Instruction21c) instruction;
-                LOGGER.debug("Register A: " + newInstance.getRegisterA());
-
-                // check whether the register id matches the broadcast receiver parameter register id
-                if (newInstance.getRegisterA() == registerID) {
-                    LOGGER.debug("Receiver: " + newInstance.getReference());
-
-                    String receiverName = ClassUtils.dottedClassName(newInstance.getReference().toString());
-
-                    // lookup receiver in the list of components and copy derived constants etc.
-                    for (Component component : components) {
-
-                        if (component.getName().equals(receiverName)) {
-                            LOGGER.debug("Found Receiver: " + component);
-                            return component;
-                        }
-                    }
-                }
-            }
-            currentInstructionIndex--;
+        if (component instanceof Activity) {
+            component.addStaticStrings(((Activity) component).getMethodStrings());
+            component.addStaticStrings(component.getGlobalStrings());
+        } else if (component instanceof Fragment) {
+            component.addStaticStrings(((Fragment) component).getMethodStrings());
+            component.addStaticStrings(component.getGlobalStrings());
         }
-        return null;
     }
 
     /**
-     * Extracts the relevant data for the ExecuteMATERandomExplorationIntent strategy. This includes the extraction of
-     * string constants per component and the discovery of dynamic broadcast receivers.
+     * Parses the constructor(s) and static initializers among the given methods for class variable assignments.
      *
-     * @param components The list of components.
+     * @param methods The methods of a class.
+     * @param methodInstructions The already materialized instructions of each method.
+     * @return Returns a mapping from class variables to their initially assigned value.
      */
-    public void extractIntentInfo(List<Component> components) {
-
-        // parse string constants from the components except fragments
-        for (Component component : components) {
-
-            if (component instanceof Fragment) {
-                // we are not interested in fragments
-                continue;
-            }
-
-            ClassDef classDef = component.getClazz();
+    private Map<String, String> parseConstructors(List<Method> methods, List<List<Instruction>> methodInstructions) {
 
-            // parse the constructor and static initializers for class variable assignments
-            Map<String, String> classVariables = parseConstructors(classDef);
-            variables.put(classDef, classVariables);
-
-            // lookup the classes' fields for string constants
-            lookupStringConstants(component, classDef);
+        Map<String, String> classVariables = new HashMap<>();
 
-            // scan each method
-            for (Method method : classDef.getMethods()) {
-                scanMethodForIntentData(component, method, classVariables);
+        // look up the constructor(s) and static initializers for variable assignments
+        for (int i = 0; i < methods.size(); i++) {
+            Method method = methods.get(i);
+            if (method.getName().equals("<init>") || method.getName().equals("<clinit>")) {
+                classVariables.putAll(lookupConstructor(methodInstructions.get(i)));
             }
         }
 
-        // look up for dynamically registered broadcast receivers
-        lookUpDynamicBroadcastReceivers(components);
+        return classVariables;
     }
 
     /**
-     * Extract static string constants in activity or fragment classes. This information is used by MATE to fill
-     * input fields accordingly.
+     * Checks whether the given method is an entry point of a component that receives an intent. The intent data of
+     * an entry point is attached to the component by {@link #addIntentData(Component, String, Collection, Collection)}.
      *
-     * @param components All existing components.
+     * @param componentType The type of the component.
+     * @param methodName The name of the method.
+     * @return Returns {@code true} if the method receives an intent, otherwise {@code false} is returned.
      */
-    public void extractStringConstants(List<Component> components) {
-
-        for (Component component : components) {
-
-            if (component instanceof Service || component instanceof BroadcastReceiver) {
-                // we only want to have string constants from activities and fragments
-                continue;
-            }
-
-            ClassDef classDef = component.getClazz();
-
-            // parse the constructor and static initializers for class variable assignments
-            Map<String, String> classVariables = parseConstructors(classDef);
-            variables.put(classDef, classVariables);
-
-            // lookup the classes' fields for string constants
-            lookupStringConstants(component, classDef);
-
-            for (Method method : classDef.getMethods()) {
+    private static boolean isIntentEntryPoint(ComponentType componentType, String methodName) {
+
+        switch (componentType) {
+            case ACTIVITY:
+                return methodName.equals("onCreate") || methodName.equals("onNewIntent");
+            case SERVICE:
+                return methodName.equals("onStartCommand") || methodName.equals("onHandleIntent");
+            case BROADCAST_RECEIVER:
+                return methodName.equals("onReceive");
+            default:
+                // we are not interested in the intent data of fragments
+                return false;
+        }
+    }
 
-                if (component instanceof Activity) {
-                    scanMethodForStaticStrings(method, ((Activity) component).getMethodStrings());
-                    component.addStaticStrings(((Activity) component).getMethodStrings());
-                    component.addStaticStrings(component.getGlobalStrings());
+    /**
+     * Attaches the intent data of an entry point method to the component depending on the component's type.
+     *
+     * @param component The given component.
+     * @param methodName The name of the entry point method.
+     * @param strings The strings collected from the entry point method.
+     * @param extras The extras collected from the entry point method.
+     */
+    private void addIntentData(Component component, String methodName, Collection<String> strings,
+                               Collection<Extra> extras) {
 
-                } else if (component instanceof Fragment) {
-                    scanMethodForStaticStrings(method, ((Fragment) component).getMethodStrings());
-                    component.addStaticStrings(((Fragment) component).getMethodStrings());
-                    component.addStaticStrings(component.getGlobalStrings());
-                }
-            }
+        if (component instanceof Activity) {
+            addActivityIntentData((Activity) component, methodName, strings, extras);
+        } else if (component instanceof Service) {
+            addServiceIntentData((Service) component, methodName, strings, extras);
+        } else if (component instanceof BroadcastReceiver) {
+            addReceiverIntentData((BroadcastReceiver) component, methodName, strings, extras);
         }
     }
 
     /**
-     * Parses the constructor(s) and static initializers of the given class for class variable assignments.
+     * Looks up each constructor in a given class for variable assignments. Returns a map containing for each variable
+     * its initial value.
      *
-     * @param classDef The given class.
-     * @return Returns a mapping from class variables to their initially assigned value.
+     * @param classDef The class to be inspected.
+     * @return Returns the map of variables and its values.
      */
-    private Map<String, String> parseConstructors(ClassDef classDef) {
+    private Map<String, String> lookupConstructorsForVariables(ClassDef classDef) {
 
         Map<String, String> classVariables = new HashMap<>();
 
-        // look up the constructor(s) and static initializers for variable assignments
+        // look up the constructor(s) for variable assignments
         for (Method method : classDef.getMethods()) {
             if (method.getName().equals("<init>") || method.getName().equals("<clinit>")) {
-                classVariables.putAll(lookupConstructor(method));
+                classVariables.putAll(lookupConstructor(getInstructions(method)));
             }
         }
-
         return classVariables;
     }
 
     /**
-     * Extracts the components, i.e. activities, services, fragments and broadcast receivers.
+     * Scans a component's interesting methods, e.g. the onCreate method of an activity, for strings and extras.
      *
-     * @return Returns the list of retrieved components.
+     * @param method The method to be inspected.
+     * @param instructions The instructions of the method to be inspected.
+     * @param classVariables The variable assignments of the entire class.
+     * @return Returns the summary of the method.
      */
-    public List<Component> lookUpComponents() {
-
-        Pattern exclusionPattern = Utility.readExcludePatterns();
-
-        List<Component> components = new ArrayList<>();
-
-        for (DexFile dexFile : dexFiles) {
-
-            List<ClassDef> classes = Lists.newArrayList(dexFile.getClasses());
+    private MethodSummary scanMethodForIntentData(Method method, List<Instruction> instructions,
+                                                  Map<String, String> classVariables) {
 
-            for (ClassDef classDef : classes) {
+        ScanEvents.IntentScan event = new ScanEvents.IntentScan();
+        event.begin();
 
-                String className = ClassUtils.dottedClassName(classDef.toString());
+        CallContext context = new CallContext();
+        context.callStack.add(method);
 
-                // skip certain classes, e.g. ART classes
-                if ((exclusionPattern != null && exclusionPattern.matcher(className).matches())
-                        || (!resolveAllClasses && !className.startsWith(packageName))) {
-                    LOGGER.debug("Skip class: " + className);
-                    continue;
-                }
+        MethodSummary summary = summarizeMethod(method, instructions, classVariables, 0, context);
+        event.end();
 
-                Component component = findComponent(classes, classDef);
-
-                if (component != null) {
-                    components.add(component);
-                }
-            }
+        if (event.shouldCommit()) {
+            event.method = MethodUtils.deriveMethodSignature(method);
+            event.instructionCount = instructions.size();
+            event.stringCount = summary.strings.size();
+            event.extraCount = summary.extras.size();
+            event.commit();
         }
-        return components;
+        return summary;
     }
 
     /**
-     * Invokes the correct scan method depending on the component's type.
+     * Adds the strings and extras of an entry point method to the given collections of a component.
      *
-     * @param component The given component.
-     * @param method The current method to be inspected.
-     * @param variables The variable assignments of the component/class.
+     * @param strings The strings collected from the entry point method.
+     * @param extras The extras collected from the entry point method.
+     * @param methodStrings The strings of the component's entry point.
+     * @param methodExtras The extras of the component's entry point.
      */
-    private void scanMethodForIntentData(Component component, Method method, Map<String, String> variables) {
+    private void addIntentData(Collection<String> strings, Collection<Extra> extras,
+                               Set<String> methodStrings, Extras methodExtras) {
 
-        if (component instanceof Activity) {
-            scanActivityForIntentData((Activity) component, method, variables);
-        } else if (component instanceof Service) {
-            scanServiceForIntentData((Service) component, method, variables);
-        } else if (component instanceof BroadcastReceiver) {
-            scanReceiverForIntentData((BroadcastReceiver) component, method, variables);
+        for (String string : strings) {
+            methodStrings.add(stringPool.canonicalize(string));
         }
+
+        // the extras are immutable, thus they can be shared between the components, duplicate keys are merged
+        methodExtras.addAll(extras);
     }
 
     /**
-     * Looks up each constructor in a given class for variable assignments. Returns a map containing for each variable
-     * its initial value.
+     * Looks up the summary of a method that is invoked with an intent. A summary is cached once it covers all
+     * methods reachable from the given method, i.e. when neither a recursive invocation nor the maximal call depth
+     * cut off the scan. Otherwise, the summary is only reused within the current call context.
      *
-     * @param classDef The class to be inspected.
-     * @return Returns the map of variables and its values.
+     * @param method The invoked method.
+     * @param classDef The class defining the invoked method.
+     * @param depth The number of nested invocations leading to the invoked method.
+     * @param context The call context of the scanned component method.
+     * @return Returns the summary of the invoked method.
      */
-    private Map<String, String> lookupConstructorsForVariables(ClassDef classDef) {
+    private MethodSummary getMethodSummary(Method method, ClassDef classDef, int depth, CallContext context) {
 
-        Map<String, String> classVariables = new HashMap<>();
+        MethodSummary summary = summaries.get(method);
 
-        // look up the constructor(s) for variable assignments
-        for (Method method : classDef.getMethods()) {
-            if (method.getName().equals("<init>") || method.getName().equals("<clinit>")) {
-                classVariables.putAll(lookupConstructor(method));
-            }
+        if (summary != null && depth + summary.height <= maxCallDepth) {
+            return summary;
         }
-        return classVariables;
+
+        // recursive invocations contribute nothing new, the method is already being scanned further up
+        if (depth > maxCallDepth || context.callStack.contains(method)) {
+            return MethodSummary.TRUNCATED;
+        }
+
+        ContextSummary contextSummary = context.summaries.get(method);
+
+        if (contextSummary != null && contextSummary.depth <= depth) {
+            return contextSummary.summary;
+        }
+
+        // check whether the target class has been inspected already for variable assignments
+        Map<String, String> classVariables = variables.computeIfAbsent(classDef.getType(),
+                type -> lookupConstructorsForVariables(classDef));
+
+        ScanEvents.MethodSummary event = new ScanEvents.MethodSummary();
+        event.begin();
+
+        List<Instruction> instructions = getInstructions(method);
+        context.callStack.add(method);
+        summary = summarizeMethod(method, instructions, classVariables, depth, context);
+        context.callStack.remove(method);
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.method = MethodUtils.deriveMethodSignature(method);
+            event.depth = depth;
+            event.instructionCount = instructions.size();
+            event.complete = summary.complete;
+            event.commit();
+        }
+
+        if (summary.complete) {
+            summaries.putIfAbsent(method, summary);
+        } else {
+            context.summaries.put(method, new ContextSummary(depth, summary));
+        }
+        return summary;
     }
 
     /**
-     * Scans a component's interesting methods, e.g. the onCreate method of an activity, for strings and extras.
+     * Collects the strings and extras of the given method including the ones of the methods invoked with an intent.
      *
      * @param method The method to be inspected.
+     * @param instructions The instructions of the method to be inspected.
      * @param classVariables The variable assignments of the entire class.
-     * @param methodStrings The method strings that are getting collected during scanning.
-     * @param extras The extras that are getting collected during scanning.
+     * @param depth The number of nested invocations leading to the given method.
+     * @param context The call context of the scanned component method.
+     * @return Returns the summary of the given method.
      */
-    private void scanMethodForIntentData(Method method, Map<String, String> classVariables, Set<String> methodStrings,
-                                         List<Extra> extras) {
+    private MethodSummary summarizeMethod(Method method, List<Instruction> instructions,
+                                          Map<String, String> classVariables, int depth, CallContext context) {
 
-        MethodImplementation implementation = method.getImplementation();
+        MethodSummary summary = new MethodSummary();
+        // the register values are only computed if the method actually accesses some extra
+        ConstantPropagation propagation
+                = new ConstantPropagation(method.getImplementation(), instructions, propagationSteps);
 
-        if (implementation != null) {
+        for (int i = 0; i < instructions.size(); i++) {
 
-            List<Instruction> instructions = Lists.newArrayList(implementation.getInstructions());
+            Instruction instruction = instructions.get(i);
+
+            // check for invoke instruction
+            if (instruction instanceof Instruction35c && instruction.getOpcode() != Opcode.FILLED_NEW_ARRAY
+                    && instruction.getOpcode() != Opcode.FILLED_NEW_ARRAY_RANGE) {
 
-            for (int i = 0; i < instructions.size(); i++) {
+                Instruction35c invoke = (Instruction35c) instruction;
+                MethodReference methodReference = (MethodReference) invoke.getReference();
 
-                Instruction instruction = instructions.get(i);
+                // check whether a method is called that expects as parameter an Intent
+                if (methodReference.getParameterTypes().contains("Landroid/content/Intent;")) {
 
-                // check for invoke instruction
-                if (instruction instanceof Instruction35c && instruction.getOpcode() != Opcode.FILLED_NEW_ARRAY
-                        && instruction.getOpcode() != Opcode.FILLED_NEW_ARRAY_RANGE) {
+                    // the resolved target method depends on the referenced class and its super classes
+                    summary.dependencies.add(methodReference.getDefiningClass());
 
-                    Instruction35c invoke = (Instruction35c) instruction;
-                    MethodReference methodReference = (MethodReference) invoke.getReference();
+                    Optional<Method> targetMethod = MethodUtils.searchForTargetMethod(methodIndex, methodReference);
 
-                    // check whether a method is called that expects as parameter an Intent
-                    if (methodReference.getParameterTypes().contains("Landroid/content/Intent;")) {
+                    // the target method might be declared in a super class of the referenced class
+                    Optional<ClassDef> targetClass = targetMethod.flatMap(target ->
+                            ClassUtils.searchForTargetClass(classIndex, target.getDefiningClass()));
 
-                        String methodSignature = invoke.getReference().toString();
-                        String className = methodSignature.split("->")[0];
-                        Optional<Method> targetMethod = MethodUtils.searchForTargetMethod(dexFiles, methodSignature);
-                        Optional<ClassDef> targetClass = ClassUtils.searchForTargetClass(dexFiles, className);
+                    if (targetMethod.isPresent() && targetClass.isPresent()) {
 
-                        if (targetMethod.isPresent() && targetClass.isPresent()) {
+                        // inspect target method
+                        summary.add(getMethodSummary(targetMethod.get(), targetClass.get(), depth + 1, context));
+                    }
+                }
 
-                            ClassDef targetClassDef = targetClass.get();
+                // look if the target method is some Intent class method
+                if (methodReference.getDefiningClass().equals("Landroid/content/Intent;")
+                        // we are only interested in the methods get$TYPE$
+                        && ((methodReference.getName().contains("get")
+                        && ((methodReference.getName().contains("Extra")))
+                        && !(methodReference).getName().contains("getExtras"))
+                        || (methodReference).getName().contains("hasExtra"))) {
 
-                            // check whether the target class has been inspected already for variable assignments
-                            if (!variables.containsKey(targetClassDef)) {
-                                variables.put(targetClassDef, lookupConstructorsForVariables(targetClassDef));
-                            }
+                    // get the type of extra, e.g. getStringExtra -> String, see the class Intent for its getter methods
+                    String extraType = methodReference.getName().substring(3, methodReference.getName().length() - 5);
 
-                            // inspect target method
-                            scanMethodForIntentData(targetMethod.get(), variables.get(targetClassDef), methodStrings, extras);
-                        }
+                    // get the candidate keys of the extra
+                    for (String extraKey : getExtraKeys(propagation, i, invoke.getRegisterD(), classVariables)) {
+                        summary.addExtra(extraKey, convertExtraType(extraType));
                     }
 
-                    // look if the target method is some Intent class method
-                    if (methodReference.getDefiningClass().equals("Landroid/content/Intent;")
-                            // we are only interested in the methods get$TYPE$
-                            && ((methodReference.getName().contains("get")
-                            && ((methodReference.getName().contains("Extra")))
-                            && !(methodReference).getName().contains("getExtras"))
-                            || (methodReference).getName().contains("hasExtra"))) {
-
-                        // get the type of extra, e.g. getStringExtra -> String, see the class Intent for its getter methods
-                        String extraType = methodReference.getName().substring(3, methodReference.getName().length() - 5);
-
-                        // get the key of the extra
-                        String extraKey = getExtraKey(instructions, i, invoke.getRegisterD(), classVariables);
-                        if (extraKey != null)
-                            extras.add(new Extra(extraKey, convertExtraType(extraType)));
-
-                        // look if the target method is some Bundle class method
-                    } else if (methodReference.getDefiningClass().equals("Landroid/os/Bundle;")
-                            && (methodReference.getName().contains("get")
-                            // can only derive the key from it, and only if the key is present -> may remove
-                            || methodReference.getName().contains("containsKey"))
-                            && isIntentBundle(instructions, i, invoke.getRegisterC())) {
-
-                        // get the type of extra, e.g. getString -> String, see the class Bundle for its getter methods
-                        String extraType = methodReference.getName().substring(3);
-
-                        // only tells us the name of the key if the key is present in the bundle, nothing about its value type
-                        if (methodReference.getName().contains("containsKey"))
-                            extraType = "";
-
-                        // get the key of the extra
-                        String extraKey = getExtraKey(instructions, i, invoke.getRegisterD(), classVariables);
-                        if (extraKey != null)
-                            extras.add(new Extra(extraKey, convertExtraType(extraType)));
+                    // look if the target method is some Bundle class method
+                } else if (methodReference.getDefiningClass().equals("Landroid/os/Bundle;")
+                        && (methodReference.getName().contains("get")
+                        // can only derive the key from it, and only if the key is present -> may remove
+                        || methodReference.getName().contains("containsKey"))
+                        && isIntentBundle(propagation, i, invoke.getRegisterC())) {
+
+                    // get the type of extra, e.g. getString -> String, see the class Bundle for its getter methods
+                    String extraType = methodReference.getName().substring(3);
+
+                    // only tells us the name of the key if the key is present in the bundle, nothing about its value type
+                    if (methodReference.getName().contains("containsKey"))
+                        extraType = "";
+
+                    // get the candidate keys of the extra
+                    for (String extraKey : getExtraKeys(propagation, i, invoke.getRegisterD(), classVariables)) {
+                        summary.addExtra(extraKey, convertExtraType(extraType));
                     }
-                } else if (instruction.getOpcode() == Opcode.CONST_STRING
-                        || instruction.getOpcode() == Opcode.CONST_STRING_JUMBO) {
+                }
+            } else if (instruction.getOpcode() == Opcode.CONST_STRING
+                    || instruction.getOpcode() == Opcode.CONST_STRING_JUMBO) {
 
-                    ReferenceInstruction referenceInstruction = (ReferenceInstruction) instruction;
+                ReferenceInstruction referenceInstruction = (ReferenceInstruction) instruction;
 
-                    if (!referenceInstruction.getReference().toString().isEmpty()) {
+                if (!referenceInstruction.getReference().toString().isEmpty()) {
 
-                        String methodString = ((StringReference) (referenceInstruction).getReference()).getString();
-                        if (!stringUsedForOwnIntents(instructions, i, ((OneRegisterInstruction) instruction).getRegisterA())) {
-                            methodStrings.add(methodString);
-                        }
+                    String methodString = ((StringReference) (referenceInstruction).getReference()).getString();
+                    if (!stringUsedForOwnIntents(instructions, i, ((OneRegisterInstruction) instruction).getRegisterA())) {
+                        summary.strings.add(methodString);
                     }
                 }
             }
         }
+        return summary;
     }
 
     /**
      * Extracts the string constants of the given method.
      *
-     * @param method The method to be inspected.
+     * @param instructions The instructions of the method to be inspected.
      * @param methodStrings The method strings collected so far.
      */
-    private void scanMethodForStaticStrings(Method method, Set<String> methodStrings) {
-
-        MethodImplementation implementation = method.getImplementation();
-
-        if (implementation != null) {
-            implementation.getInstructions().forEach(instruction -> {
-                Opcode instructionOpcode = instruction.getOpcode();
-                if (instructionOpcode == Opcode.CONST_STRING || instructionOpcode == Opcode.CONST_STRING_JUMBO) {
-                    ReferenceInstruction referenceInstruction = (ReferenceInstruction) instruction;
-                    if (!referenceInstruction.getReference().toString().isEmpty()) {
-                        String methodString = ((StringReference) (referenceInstruction).getReference()).getString();
-                        methodStrings.add(methodString);
-                    }
+    private void scanMethodForStaticStrings(List<Instruction> instructions, Set<String> methodStrings) {
+        instructions.forEach(instruction -> {
+            Opcode instructionOpcode = instruction.getOpcode();
+            if (instructionOpcode == Opcode.CONST_STRING || instructionOpcode == Opcode.CONST_STRING_JUMBO) {
+                ReferenceInstruction referenceInstruction = (ReferenceInstruction) instruction;
+                if (!referenceInstruction.getReference().toString().isEmpty()) {
+                    String methodString = ((StringReference) (referenceInstruction).getReference()).getString();
+                    methodStrings.add(methodString);
                 }
-            });
-        }
+            }
+        });
     }
 
     /**
@@ -732,45 +1189,51 @@ public final class DexScanner {
     }
 
     /**
-     * Scans an activity's onCreate and onNewIntent method.
+     * Attaches the intent data of an activity's onCreate and onNewIntent method.
      *
      * @param activity The activity component.
-     * @param method The current method.
-     * @param classVariables The variable assignments of the entire class.
+     * @param methodName The name of the entry point method.
+     * @param strings The strings collected from the entry point method.
+     * @param extras The extras collected from the entry point method.
      */
-    private void scanActivityForIntentData(Activity activity, Method method, Map<String, String> classVariables) {
-        if (method.getName().equals("onCreate")) {
-            scanMethodForIntentData(method, classVariables, activity.getOnCreateStrings(), activity.getOnCreateExtras());
-        } else if (method.getName().equals("onNewIntent")) {
-            scanMethodForIntentData(method, classVariables, activity.getOnNewIntentStrings(), activity.getOnNewIntentExtras());
+    private void addActivityIntentData(Activity activity, String methodName, Collection<String> strings,
+                                       Collection<Extra> extras) {
+        if (methodName.equals("onCreate")) {
+            addIntentData(strings, extras, activity.getOnCreateStrings(), activity.getOnCreateExtras());
+        } else if (methodName.equals("onNewIntent")) {
+            addIntentData(strings, extras, activity.getOnNewIntentStrings(), activity.getOnNewIntentExtras());
         }
     }
 
     /**
-     * Scans a service's onStartCommand and onHandleIntent method.
+     * Attaches the intent data of a service's onStartCommand and onHandleIntent method.
      *
      * @param service The service component.
-     * @param method The current method.
-     * @param classVariables The variable assignments of the entire class.
+     * @param methodName The name of the entry point method.
+     * @param strings The strings collected from the entry point method.
+     * @param extras The extras collected from the entry point method.
      */
-    private void scanServiceForIntentData(Service service, Method method, Map<String, String> classVariables) {
-        if (method.getName().equals("onStartCommand")) {
-            scanMethodForIntentData(method, classVariables, service.getOnStartCommandStrings(), service.getOnStartCommandExtras());
-        } else if (method.getName().equals("onHandleIntent")) {
-            scanMethodForIntentData(method, classVariables, service.getOnHandleIntentStrings(), service.getOnHandleIntentExtras());
+    private void addServiceIntentData(Service service, String methodName, Collection<String> strings,
+                                      Collection<Extra> extras) {
+        if (methodName.equals("onStartCommand")) {
+            addIntentData(strings, extras, service.getOnStartCommandStrings(), service.getOnStartCommandExtras());
+        } else if (methodName.equals("onHandleIntent")) {
+            addIntentData(strings, extras, service.getOnHandleIntentStrings(), service.getOnHandleIntentExtras());
         }
     }
 
     /**
-     * Scans a receiver's onReceive method.
+     * Attaches the intent data of a receiver's onReceive method.
      *
      * @param receiver The broadcast receiver component.
-     * @param method The current method.
-     * @param classVariables The variable assignments of the entire class.
+     * @param methodName The name of the entry point method.
+     * @param strings The strings collected from the entry point method.
+     * @param extras The extras collected from the entry point method.
      */
-    private void scanReceiverForIntentData(BroadcastReceiver receiver, Method method, Map<String, String> classVariables) {
-        if (method.getName().equals("onReceive")) {
-            scanMethodForIntentData(method, classVariables, receiver.getOnReceiveStrings(), receiver.getOnReceiveExtras());
+    private void addReceiverIntentData(BroadcastReceiver receiver, String methodName, Collection<String> strings,
+                                       Collection<Extra> extras) {
+        if (methodName.equals("onReceive")) {
+            addIntentData(strings, extras, receiver.getOnReceiveStrings(), receiver.getOnReceiveExtras());
         }
     }
 
@@ -830,103 +1293,43 @@ public final class DexScanner {
     /**
      * Checks whether the given register referring to a bundle is used within an intent.
      *
-     * @param instructions The list of instructions.
+     * @param propagation The register values of the current method.
      * @param currentIndex The instruction index of the current instruction.
      * @param register The register id referring to the bundle.
      * @return Returns {@code true} if the bundle described by the register is used within an intent, otherwise
      *         {@code false} is returned.
      */
-    private boolean isIntentBundle(List<Instruction> instructions, int currentIndex, int register) {
-
-        EnumSet<Opcode> moveOpcodes = EnumSet.of(Opcode.MOVE_OBJECT, Opcode.MOVE_OBJECT_FROM16, Opcode.MOVE_OBJECT_16);
+    private boolean isIntentBundle(ConstantPropagation propagation, int currentIndex, int register) {
 
-        for (int i = currentIndex - 1; i >= 0; i--) {
-
-            Instruction instruction = instructions.get(i);
-
-            if (moveOpcodes.contains(instruction.getOpcode())) {
-
-                // all of these move instructions share the TwoRegisterInstruction interface
-                TwoRegisterInstruction twoRegisterInstruction = (TwoRegisterInstruction) instruction;
-
-                // track register flow
-                if (twoRegisterInstruction.getRegisterA() == register) {
-                    register = twoRegisterInstruction.getRegisterB();
-                }
-            } else if (instruction.getOpcode() == Opcode.MOVE_RESULT_OBJECT) {
-                // we need a special treatment for this kind of move instruction
+        // the bundle needs to be the result of Intent.getExtras(), possibly moved between registers in the meantime
+        MethodReference producer = propagation.getValue(currentIndex, register).getResultOf();
 
-                OneRegisterInstruction oneRegisterInstruction = (OneRegisterInstruction) instruction;
-
-                if (oneRegisterInstruction.getRegisterA() == register) {
-
-                    // inspect the predecessor
-                    if ((i - 1 >= 0) && instructions.get(i - 1).getOpcode() == Opcode.INVOKE_VIRTUAL) {
-
-                        Instruction35c invoke = (Instruction35c) instructions.get(i - 1);
-                        MethodReference methodReference = (MethodReference) invoke.getReference();
-
-                        if (methodReference.getDefiningClass().equals("Landroid/content/Intent;")
-                                && methodReference.getName().equals("getExtras")) {
-                            return true;
-                        }
-                    } else {
-                        return false;
-                    }
-                }
-            }
-        }
-        return false;
+        return producer != null
+                && producer.getDefiningClass().equals("Landroid/content/Intent;")
+                && producer.getName().equals("getExtras");
     }
 
     /**
-     * Searches through the predecessing instructions of the instruction located at index {@param currentIndex} for
-     * assignments of the extra value hold in {@param register}. Returns the corresponding key, that is either
-     * a local or global variable name or {@code null} if the key couldn't be found.
+     * Derives the keys of the extra hold in {@param register} at the instruction located at index
+     * {@param currentIndex}. A key is either a string constant or the value of a global variable. There are several
+     * candidate keys if the branches leading to the instruction assign different string constants.
      *
-     * @param instructions The set of instructions.
+     * @param propagation The register values of the current method.
      * @param currentIndex The instruction index.
      * @param register The register ID that contains the extra value.
      * @param globalStrings The set of strings for the a given class.
-     * @return Returns the extra's key or {@code null} if the key couldn't be found.
+     * @return Returns the candidate keys of the extra, which is empty if the key couldn't be found.
      */
-    private String getExtraKey(List<Instruction> instructions, int currentIndex, int register,
-                               Map<String, String> globalStrings) {
+    private List<String> getExtraKeys(ConstantPropagation propagation, int currentIndex, int register,
+                                      Map<String, String> globalStrings) {
 
-        EnumSet<Opcode> moveOpcodes = EnumSet.of(Opcode.MOVE_OBJECT, Opcode.MOVE_OBJECT_FROM16,
-                Opcode.MOVE_OBJECT_16);
-
-        for (int i = currentIndex - 1; i >= 0; i--) {
-
-            Instruction instruction = instructions.get(i);
+        ConstantPropagation.Value key = propagation.getValue(currentIndex, register);
 
-            if (instruction.getOpcode() == Opcode.CONST_STRING
-                    || instruction.getOpcode() == Opcode.CONST_STRING_JUMBO) {
-
-                OneRegisterInstruction oneRegisterInstruction = (OneRegisterInstruction) instruction;
-
-                if (oneRegisterInstruction.getRegisterA() == register) {
-                    return ((StringReference) ((ReferenceInstruction) instruction).getReference()).getString();
-                }
-            } else if (instruction.getOpcode() == Opcode.SGET_OBJECT
-                    || instruction.getOpcode() == Opcode.IGET_OBJECT) {
-
-                OneRegisterInstruction oneRegisterInstruction = (OneRegisterInstruction) instruction;
-
-                if (oneRegisterInstruction.getRegisterA() == register) {
-                    return globalStrings.get(((FieldReference) ((ReferenceInstruction) instruction).getReference()).getName());
-                }
-            } else if (moveOpcodes.contains(instruction.getOpcode())) {
-
-                // all of these move instructions share the TwoRegisterInstruction interface
-                TwoRegisterInstruction twoRegisterInstruction = (TwoRegisterInstruction) instruction;
-
-                if (twoRegisterInstruction.getRegisterA() == register) {
-                    register = twoRegisterInstruction.getRegisterB();
-                }
-            }
+        if (key.getKind() == ConstantPropagation.Kind.FIELD) {
+            String value = globalStrings.get(key.getField().getName());
+            return value != null ? List.of(value) : Collections.emptyList();
         }
-        return null;
+        return key.getStrings();
     }
 
     /**
@@ -951,34 +1354,27 @@ public final class DexScanner {
     /**
      * Looks up the constructor of relevant components for global variable assignments.
      *
-     * @param method The method representing the constructor.
+     * @param instructions The instructions of the method representing the constructor.
      * @return Returns a mapping for variables and their values.
      */
-    private Map<String, String> lookupConstructor(Method method) {
+    private Map<String, String> lookupConstructor(List<Instruction> instructions) {
 
         Map<String, String> variables = new HashMap<>();
 
-        MethodImplementation methodImplementation = method.getImplementation();
+        for (int i = 0; i < instructions.size(); i++) {
 
-        if (methodImplementation != null) {
-
-            List<Instruction> instructions = Lists.newArrayList(methodImplementation.getInstructions());
-
-            for (int i = 0; i < instructions.size(); i++) {
-
-                Instruction instruction = instructions.get(i);
+            Instruction instruction = instructions.get(i);
 
-                EnumSet<Opcode> opcodes = EnumSet.of(Opcode.CONST_STRING, Opcode.CONST_STRING_JUMBO);
+            EnumSet<Opcode> opcodes = EnumSet.of(Opcode.CONST_STRING, Opcode.CONST_STRING_JUMBO);
 
-                if (opcodes.contains(instruction.getOpcode())) {
-                    String value = ((ReferenceInstruction) instruction).getReference().toString();
-                    if (!value.isEmpty()) {
-                        // check which variable holds the given value -> should be the successor instruction
-                        Instruction successor = instructions.get(i + 1);
-                        String varName = lookupVariableName(successor);
-                        if (varName != null) {
-                            variables.put(varName, value);
-                        }
+            if (opcodes.contains(instruction.getOpcode())) {
+                String value = ((ReferenceInstruction) instruction).getReference().toString();
+                // check which variable holds the given value -> should be the successor instruction
+                if (!value.isEmpty() && i + 1 < instructions.size()) {
+                    Instruction successor = instructions.get(i + 1);
+                    String varName = lookupVariableName(successor);
+                    if (varName != null) {
+                        variables.put(varName, value);
                     }
                 }
             }
@@ -987,12 +1383,14 @@ public final class DexScanner {
     }
 
     /**
-     * Looks up all fields in a given class for string constants.
+     * Collects the string constants assigned to the fields of the given class.
      *
-     * @param component The component representing the class.
      * @param classDef The class file.
+     * @return Returns the non-empty string constants in field order.
      */
-    private void lookupStringConstants(Component component, ClassDef classDef) {
+    private List<String> collectStringConstants(ClassDef classDef) {
+
+        List<String> constants = new ArrayList<>();
 
         // search through all instance and static fields
         for (Field field : classDef.getFields()) {
@@ -1004,33 +1402,45 @@ public final class DexScanner {
                 String value = ((StringEncodedValue) encodedValue).getValue();
 
                 if (!value.isEmpty()) {
-                    component.addStringConstant(value);
-                    strings.add(value);
+                    constants.add(value);
                 }
             }
         }
+        return constants;
     }
 
     /**
-     * Checks whether the given class represents an activity, a service, a broadcast receiver or a fragment.
+     * Adds the given string constants to the component.
      *
-     * @param classes The set of classes.
-     * @param currentClass The current class.
-     * @return Returns the corresponding {@link Component} or {@code null} if the current class doesn't represent
-     *         an activity, a service or a broadcast receiver.
+     * @param component The component.
+     * @param constants The string constants of the component's fields.
      */
-    private Component findComponent(List<ClassDef> classes, ClassDef currentClass) {
-
-        if (ComponentUtils.isActivity(classes, currentClass)) {
-            return new Activity(currentClass);
-        } else if (ComponentUtils.isService(classes, currentClass)) {
-            return new Service(currentClass);
-        } else if (ComponentUtils.isBroadcastReceiver(classes, currentClass)) {
-            return new BroadcastReceiver(currentClass);
-        } else if (ComponentUtils.isFragment(classes, currentClass)) {
-            return new Fragment(currentClass);
-        } else {
-            return null;
+    private void addStringConstants(Component component, List<String> constants) {
+        for (String constant : constants) {
+            component.addStringConstant(stringPool.canonicalize(constant));
+        }
+    }
+
+    /**
+     * Creates the component of the given type.
+     *
+     * @param componentType The component type of the class.
+     * @param currentClass The class representing the component.
+     * @return Returns the corresponding {@link Component} or {@code null} if the class doesn't represent a component.
+     */
+    private Component createComponent(ComponentType componentType, ClassDef currentClass) {
+
+        switch (componentType) {
+            case ACTIVITY:
+                return new Activity(currentClass, stringPool);
+            case SERVICE:
+                return new Service(currentClass, stringPool);
+            case BROADCAST_RECEIVER:
+                return new BroadcastReceiver(currentClass, stringPool);
+            case FRAGMENT:
+                return new Fragment(currentClass, stringPool);
+            default:
+                return null;
         }
     }
 
@@ -0,0 +1,126 @@
+package de.uni_passau.fim.auermich.android_analysis.scanner;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The Java Flight Recorder events emitted by the {@link DexScanner}. The events are disabled by default, even when a
+ * recording is running, and need to be enabled explicitly, see {@link #enable(Recording)}. While disabled, an event
+ * is neither timed nor are its fields computed.
+ *
+ * The events of a class scan enclose the events of its entry point methods, which in turn enclose the events of the
+ * methods invoked with an intent and of the constant propagations, thus the latter are attributed to a method by
+ * their nesting on the same thread.
+ */
+public final class ScanEvents {
+
+    private static final String PREFIX = "dexanalyzer.";
+
+    private static final List<String> EVENT_NAMES = List.of(PREFIX + "ClassScan", PREFIX + "IntentScan",
+            PREFIX + "MethodSummary", PREFIX + "ConstantPropagation");
+
+    private ScanEvents() {
+        throw new UnsupportedOperationException("Utility class can't be instantiated!");
+    }
+
+    /**
+     * Enables all scanner events in the given recording regardless of their duration.
+     *
+     * @param recording The recording.
+     */
+    public static void enable(final Recording recording) {
+        for (String eventName : EVENT_NAMES) {
+            recording.enable(eventName).withThreshold(Duration.ZERO);
+        }
+    }
+
+    @Name(PREFIX + "ClassScan")
+    @Label("Class Scan")
+    @Description("The classification and the scan of a single class.")
+    @Category({"DexAnalyzer", "Scan"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ClassScan extends Event {
+
+        @Label("Class")
+        String className;
+
+        @Label("Component Type")
+        String componentType;
+
+        @Label("Methods")
+        int methodCount;
+
+        @Label("Instructions")
+        long instructionCount;
+    }
+
+    @Name(PREFIX + "IntentScan")
+    @Label("Intent Scan")
+    @Description("The scan of a component's entry point method for intent data including the invoked methods.")
+    @Category({"DexAnalyzer", "Scan"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class IntentScan extends Event {
+
+        @Label("Method")
+        String method;
+
+        @Label("Instructions")
+        int instructionCount;
+
+        @Label("Strings")
+        int stringCount;
+
+        @Label("Extras")
+        int extraCount;
+    }
+
+    @Name(PREFIX + "MethodSummary")
+    @Label("Method Summary")
+    @Description("The summary of a method invoked with an intent, i.e. a single step of the interprocedural scan.")
+    @Category({"DexAnalyzer", "Scan"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class MethodSummary extends Event {
+
+        @Label("Method")
+        String method;
+
+        @Label("Call Depth")
+        int depth;
+
+        @Label("Instructions")
+        int instructionCount;
+
+        @Label("Complete")
+        boolean complete;
+    }
+
+    @Name(PREFIX + "ConstantPropagation")
+    @Label("Constant Propagation")
+    @Description("The data flow analysis resolving the register values of a method.")
+    @Category({"DexAnalyzer", "Scan"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ConstantPropagation extends Event {
+
+        @Label("Instructions")
+        int instructionCount;
+
+        @Label("Basic Blocks")
+        int blockCount;
+
+        @Label("Processed Blocks")
+        int steps;
+    }
+}
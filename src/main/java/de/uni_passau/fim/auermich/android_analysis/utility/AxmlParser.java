@@ -0,0 +1,338 @@
+package de.uni_passau.fim.auermich.android_analysis.utility;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes Android's binary XML format (AXML), e.g. the compiled AndroidManifest.xml inside an APK, into a DOM
+ * document. Attributes are named like in the decoded textual manifest, i.e. attributes of the android namespace
+ * carry the 'android:' prefix. Resource references are not resolved, which is sufficient for the manifest
+ * attributes we are interested in, e.g. the component names.
+ */
+public final class AxmlParser {
+
+    private static final Logger LOGGER = LogManager.getLogger(AxmlParser.class);
+
+    // the chunk types, see ResourceTypes.h of the Android framework
+    private static final int RES_STRING_POOL_TYPE = 0x0001;
+    private static final int RES_XML_TYPE = 0x0003;
+    private static final int RES_XML_START_NAMESPACE_TYPE = 0x0100;
+    private static final int RES_XML_END_NAMESPACE_TYPE = 0x0101;
+    private static final int RES_XML_START_ELEMENT_TYPE = 0x0102;
+    private static final int RES_XML_END_ELEMENT_TYPE = 0x0103;
+    private static final int RES_XML_RESOURCE_MAP_TYPE = 0x0180;
+
+    // the string pool flag indicating UTF-8 encoded strings
+    private static final int UTF8_FLAG = 1 << 8;
+
+    // the types of typed attribute values
+    private static final int TYPE_REFERENCE = 0x01;
+    private static final int TYPE_ATTRIBUTE = 0x02;
+    private static final int TYPE_STRING = 0x03;
+    private static final int TYPE_FLOAT = 0x04;
+    private static final int TYPE_INT_DEC = 0x10;
+    private static final int TYPE_INT_HEX = 0x11;
+    private static final int TYPE_INT_BOOLEAN = 0x12;
+
+    private static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+
+    /**
+     * The names of the framework attributes relevant for the manifest analysis keyed by their resource id. Shrunk
+     * APKs may strip the attribute names from the string pool, such that only the resource id remains.
+     */
+    private static final Map<Integer, String> ANDROID_ATTRIBUTES = new HashMap<>() {{
+        put(0x01010003, "name");
+        put(0x0101000e, "enabled");
+        put(0x01010010, "exported");
+        put(0x01010202, "targetActivity");
+    }};
+
+    private AxmlParser() {
+        throw new UnsupportedOperationException("Utility class can't be instantiated!");
+    }
+
+    /**
+     * Decodes the given binary XML file into a DOM document. Plain textual XML files are parsed as is, but must not
+     * declare a document type.
+     *
+     * @param content The content of the XML file.
+     * @return Returns the corresponding DOM document.
+     * @throws IllegalArgumentException If the content is no valid binary XML file.
+     */
+    public static Document parse(final byte[] content) {
+
+        try {
+            if (content.length > 0 && content[0] == '<') {
+                // not compiled at all, e.g. the manifest of a hand-crafted APK
+                return newDocumentBuilder().parse(new ByteArrayInputStream(content));
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.remaining() < 8 || buffer.getShort(0) != RES_XML_TYPE) {
+                throw new IllegalArgumentException("Not a binary XML file!");
+            }
+
+            return new Decoder(buffer).decode();
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new IllegalArgumentException("Couldn't parse XML file!", e);
+        }
+    }
+
+    /**
+     * Creates a document builder for XML files of untrusted APKs, i.e. document type declarations are rejected, such
+     * that neither external entities nor entity expansion can be used to read local files or to fetch URLs.
+     *
+     * @return Returns the document builder.
+     * @throws ParserConfigurationException If the XML parser doesn't support the required features.
+     */
+    private static DocumentBuilder newDocumentBuilder() throws ParserConfigurationException {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+        factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        factory.setXIncludeAware(false);
+        factory.setExpandEntityReferences(false);
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        // the errors are reported by the thrown exception rather than printed to the console
+        builder.setErrorHandler(new DefaultHandler());
+        return builder;
+    }
+
+    /**
+     * Walks over the chunks of a binary XML file and builds up the DOM document.
+     */
+    private static final class Decoder {
+
+        private final ByteBuffer buffer;
+        private final Document document;
+
+        // the current parent node
+        private Node current;
+
+        // the string pool
+        private String[] strings = new String[0];
+
+        // the resource ids of the attribute names, indexed like the string pool
+        private int[] resourceIds = new int[0];
+
+        // the prefixes of the declared namespaces keyed by the namespace uri
+        private final Map<String, String> prefixes = new HashMap<>();
+
+        private Decoder(final ByteBuffer buffer) throws ParserConfigurationException {
+            this.buffer = buffer;
+            this.document = newDocumentBuilder().newDocument();
+            this.current = document;
+        }
+
+        private Document decode() {
+
+            int headerSize = buffer.getShort(2) & 0xFFFF;
+            int end = Math.min(buffer.getInt(4), buffer.limit());
+            int offset = headerSize;
+
+            while (offset + 8 <= end) {
+
+                int type = buffer.getShort(offset) & 0xFFFF;
+                int chunkHeaderSize = buffer.getShort(offset + 2) & 0xFFFF;
+                int chunkSize = buffer.getInt(offset + 4);
+
+                if (chunkSize < 8 || offset + chunkSize > end) {
+                    LOGGER.warn("Malformed chunk at offset " + offset + ", stopping!");
+                    break;
+                }
+
+                switch (type) {
+                    case RES_STRING_POOL_TYPE:
+                        readStringPool(offset);
+                        break;
+                    case RES_XML_RESOURCE_MAP_TYPE:
+                        readResourceMap(offset, chunkHeaderSize, chunkSize);
+                        break;
+                    case RES_XML_START_NAMESPACE_TYPE:
+                        prefixes.put(getString(buffer.getInt(offset + chunkHeaderSize + 4)),
+                                getString(buffer.getInt(offset + chunkHeaderSize)));
+                        break;
+                    case RES_XML_START_ELEMENT_TYPE:
+                        readStartElement(offset + chunkHeaderSize);
+                        break;
+                    case RES_XML_END_ELEMENT_TYPE:
+                        if (current.getParentNode() != null) {
+                            current = current.getParentNode();
+                        }
+                        break;
+                    case RES_XML_END_NAMESPACE_TYPE:
+                    default:
+                        // namespace ends, CDATA and unknown chunks are irrelevant for us
+                        break;
+                }
+                offset += chunkSize;
+            }
+            return document;
+        }
+
+        private void readStringPool(final int offset) {
+
+            int stringCount = buffer.getInt(offset + 8);
+            int flags = buffer.getInt(offset + 16);
+            int stringsStart = offset + buffer.getInt(offset + 20);
+            int offsetsStart = offset + (buffer.getShort(offset + 2) & 0xFFFF);
+            boolean utf8 = (flags & UTF8_FLAG) != 0;
+
+            strings = new String[stringCount];
+
+            for (int i = 0; i < stringCount; i++) {
+                int position = stringsStart + buffer.getInt(offsetsStart + i * 4);
+                strings[i] = utf8 ? readUtf8String(position) : readUtf16String(position);
+            }
+        }
+
+        private String readUtf8String(int position) {
+
+            // the length in UTF-16 code units, which we don't need
+            if ((buffer.get(position) & 0x80) != 0) {
+                position += 2;
+            } else {
+                position += 1;
+            }
+
+            int length = buffer.get(position) & 0xFF;
+            if ((length & 0x80) != 0) {
+                length = ((length & 0x7F) << 8) | (buffer.get(position + 1) & 0xFF);
+                position += 2;
+            } else {
+                position += 1;
+            }
+
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(position + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private String readUtf16String(int position) {
+
+            int length = buffer.getShort(position) & 0xFFFF;
+            if ((length & 0x8000) != 0) {
+                length = ((length & 0x7FFF) << 16) | (buffer.getShort(position + 2) & 0xFFFF);
+                position += 4;
+            } else {
+                position += 2;
+            }
+
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = buffer.getChar(position + i * 2);
+            }
+            return new String(chars);
+        }
+
+        private void readResourceMap(final int offset, final int headerSize, final int size) {
+            resourceIds = new int[(size - headerSize) / 4];
+            for (int i = 0; i < resourceIds.length; i++) {
+                resourceIds[i] = buffer.getInt(offset + headerSize + i * 4);
+            }
+        }
+
+        private void readStartElement(final int offset) {
+
+            String name = getString(buffer.getInt(offset + 4));
+
+            if (name == null) {
+                throw new IllegalArgumentException("Element without a name at offset " + offset + "!");
+            }
+
+            int attributeStart = buffer.getShort(offset + 8) & 0xFFFF;
+            int attributeSize = buffer.getShort(offset + 10) & 0xFFFF;
+            int attributeCount = buffer.getShort(offset + 12) & 0xFFFF;
+
+            Element element = document.createElement(name);
+
+            for (int i = 0; i < attributeCount; i++) {
+
+                int attribute = offset + attributeStart + i * attributeSize;
+                int namespaceIndex = buffer.getInt(attribute);
+                int nameIndex = buffer.getInt(attribute + 4);
+                int rawValueIndex = buffer.getInt(attribute + 8);
+                int dataType = buffer.get(attribute + 15) & 0xFF;
+                int data = buffer.getInt(attribute + 16);
+
+                String attributeName = getAttributeName(nameIndex);
+
+                if (attributeName.isEmpty()) {
+                    continue;
+                }
+
+                String namespace = getString(namespaceIndex);
+
+                if (namespace != null) {
+                    String prefix = prefixes.getOrDefault(namespace,
+                            ANDROID_NAMESPACE.equals(namespace) ? "android" : null);
+                    if (prefix != null) {
+                        attributeName = prefix + ":" + attributeName;
+                    }
+                }
+
+                String value = rawValueIndex != -1 ? getString(rawValueIndex) : formatValue(dataType, data);
+                element.setAttribute(attributeName, value != null ? value : "");
+            }
+
+            current.appendChild(element);
+            current = element;
+        }
+
+        private String getAttributeName(final int index) {
+
+            String name = getString(index);
+
+            if ((name == null || name.isEmpty()) && index >= 0 && index < resourceIds.length) {
+                name = ANDROID_ATTRIBUTES.get(resourceIds[index]);
+            }
+            return name != null ? name : "";
+        }
+
+        private String formatValue(final int dataType, final int data) {
+            switch (dataType) {
+                case TYPE_STRING:
+                    return getString(data);
+                case TYPE_INT_BOOLEAN:
+                    return data != 0 ? "true" : "false";
+                case TYPE_INT_DEC:
+                    return String.valueOf(data);
+                case TYPE_INT_HEX:
+                    return String.format("0x%08x", data);
+                case TYPE_FLOAT:
+                    return String.valueOf(Float.intBitsToFloat(data));
+                case TYPE_REFERENCE:
+                    return String.format("@0x%08x", data);
+                case TYPE_ATTRIBUTE:
+                    return String.format("?0x%08x", data);
+                default:
+                    return String.valueOf(data);
+            }
+        }
+
+        private String getString(final int index) {
+            return index >= 0 && index < strings.length ? strings[index] : null;
+        }
+    }
+}
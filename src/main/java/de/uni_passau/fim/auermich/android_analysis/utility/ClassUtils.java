@@ -1,13 +1,11 @@
 package de.uni_passau.fim.auermich.android_analysis.utility;
 
+import de.uni_passau.fim.auermich.android_analysis.index.ClassIndex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import com.android.tools.smali.dexlib2.iface.ClassDef;
-import com.android.tools.smali.dexlib2.iface.DexFile;
 
-import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 /**
  * Provides utility functions for class name related transformations.
@@ -54,25 +52,13 @@ public final class ClassUtils {
     }
 
     /**
-     * Searches for a target class in the given {@code dexFiles}.
+     * Searches for a target class in the given {@code classIndex}.
      *
-     * @param dexFiles  The dexFiles to search in.
-     * @param className The name of the target class.
+     * @param classIndex The index over the classes of the dex files.
+     * @param className  The name of the target class.
      * @return Returns an optional containing either the target class or not.
      */
-    public static Optional<ClassDef> searchForTargetClass(List<DexFile> dexFiles, String className) {
-
-        for (DexFile dexFile : dexFiles) {
-
-            Set<? extends ClassDef> classes = dexFile.getClasses();
-
-            // search for target method
-            for (ClassDef classDef : classes) {
-                if (classDef.toString().equals(className)) {
-                    return Optional.of(classDef);
-                }
-            }
-        }
-        return Optional.empty();
+    public static Optional<ClassDef> searchForTargetClass(ClassIndex classIndex, String className) {
+        return classIndex.find(className);
     }
 }
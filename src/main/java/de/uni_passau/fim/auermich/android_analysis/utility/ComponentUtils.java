@@ -1,5 +1,7 @@
 package de.uni_passau.fim.auermich.android_analysis.utility;
 
+import de.uni_passau.fim.auermich.android_analysis.component.ComponentType;
+import de.uni_passau.fim.auermich.android_analysis.index.ClassHierarchy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import com.android.tools.smali.dexlib2.AccessFlags;
@@ -7,7 +9,6 @@ import com.android.tools.smali.dexlib2.iface.ClassDef;
 
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -74,140 +75,73 @@ public final class ComponentUtils {
         throw new UnsupportedOperationException("Utility class can't be instantiated!");
     }
 
+    /**
+     * Looks up whether the given type is one of the recognized framework component classes.
+     *
+     * @param type The type descriptor of the class.
+     * @return Returns the component type of the framework class or {@code null} if the type is not recognized.
+     */
+    public static ComponentType getFrameworkComponentType(final String type) {
+
+        if (ACTIVITY_CLASSES.contains(type)) {
+            return ComponentType.ACTIVITY;
+        } else if (SERVICE_CLASSES.contains(type)) {
+            return ComponentType.SERVICE;
+        } else if (BROADCAST_RECEIVER_CLASSES.contains(type)) {
+            return ComponentType.BROADCAST_RECEIVER;
+        } else if (FRAGMENT_CLASSES.contains(type)) {
+            return ComponentType.FRAGMENT;
+        } else {
+            return null;
+        }
+    }
+
     /**
      * Checks whether the given class represents an activity by checking against the super class.
      *
-     * @param classes      The set of classes.
-     * @param currentClass The class to be inspected.
+     * @param classHierarchy The class hierarchy.
+     * @param currentClass   The class to be inspected.
      * @return Returns {@code true} if the current class is an activity,
      * otherwise {@code false}.
      */
-    public static boolean isActivity(final List<ClassDef> classes, final ClassDef currentClass) {
-
-        // TODO: this approach might be quite time-consuming, may find a better solution
-
-        String superClass = currentClass.getSuperclass();
-        boolean abort = false;
-
-        while (!abort && superClass != null && !superClass.equals("Ljava/lang/Object;")) {
-
-            abort = true;
-
-            if (ACTIVITY_CLASSES.contains(superClass)) {
-                return true;
-            } else {
-                // step up in the class hierarchy
-                for (ClassDef classDef : classes) {
-                    if (classDef.toString().equals(superClass)) {
-                        superClass = classDef.getSuperclass();
-                        abort = false;
-                    }
-                }
-            }
-        }
-        return false;
+    public static boolean isActivity(final ClassHierarchy classHierarchy, final ClassDef currentClass) {
+        return classHierarchy.getComponentType(currentClass) == ComponentType.ACTIVITY;
     }
 
     /**
      * Checks whether the given class represents a fragment by checking against the super class.
      *
-     * @param classes      The set of classes.
-     * @param currentClass The class to be inspected.
+     * @param classHierarchy The class hierarchy.
+     * @param currentClass   The class to be inspected.
      * @return Returns {@code true} if the current class is a fragment,
      * otherwise {@code false}.
      */
-    public static boolean isFragment(final List<ClassDef> classes, final ClassDef currentClass) {
-
-        // TODO: this approach might be quite time-consuming, may find a better solution
-
-        String superClass = currentClass.getSuperclass();
-        boolean abort = false;
-
-        while (!abort && superClass != null && !superClass.equals("Ljava/lang/Object;")) {
-
-            abort = true;
-
-            if (FRAGMENT_CLASSES.contains(superClass)) {
-                return true;
-            } else {
-                // step up in the class hierarchy
-                for (ClassDef classDef : classes) {
-                    if (classDef.toString().equals(superClass)) {
-                        superClass = classDef.getSuperclass();
-                        abort = false;
-                    }
-                }
-            }
-        }
-        return false;
+    public static boolean isFragment(final ClassHierarchy classHierarchy, final ClassDef currentClass) {
+        return classHierarchy.getComponentType(currentClass) == ComponentType.FRAGMENT;
     }
 
     /**
      * Checks whether the given class represents a service by checking against the super class.
      *
-     * @param classes      The set of classes.
-     * @param currentClass The class to be inspected.
+     * @param classHierarchy The class hierarchy.
+     * @param currentClass   The class to be inspected.
      * @return Returns {@code true} if the current class is a service,
-     * otherwise {@code false} is returned.
+     * otherwise {@code false}.
      */
-    public static boolean isService(final List<ClassDef> classes, final ClassDef currentClass) {
-
-        // TODO: this approach might be quite time-consuming, may find a better solution
-
-        String superClass = currentClass.getSuperclass();
-        boolean abort = false;
-
-        while (!abort && superClass != null && !superClass.equals("Ljava/lang/Object;")) {
-
-            abort = true;
-
-            if (SERVICE_CLASSES.contains(superClass)) {
-                return true;
-            } else {
-                // step up in the class hierarchy
-                for (ClassDef classDef : classes) {
-                    if (classDef.toString().equals(superClass)) {
-                        superClass = classDef.getSuperclass();
-                        abort = false;
-                    }
-                }
-            }
-        }
-        return false;
+    public static boolean isService(final ClassHierarchy classHierarchy, final ClassDef currentClass) {
+        return classHierarchy.getComponentType(currentClass) == ComponentType.SERVICE;
     }
 
     /**
      * Checks whether the given class represents a broadcast receiver by checking against the super class.
      *
-     * @param classes      The set of classes.
-     * @param currentClass The class to be inspected.
+     * @param classHierarchy The class hierarchy.
+     * @param currentClass   The class to be inspected.
      * @return Returns {@code true} if the current class is a broadcast receiver,
      * otherwise {@code false}.
      */
-    public static boolean isBroadcastReceiver(List<ClassDef> classes, ClassDef currentClass) {
-
-        // TODO: this approach might be quite time-consuming, may find a better solution
-
-        String superClass = currentClass.getSuperclass();
-        boolean abort = false;
-
-        while (!abort && superClass != null && !superClass.equals("Ljava/lang/Object;")) {
-
-            abort = true;
-
-            if (BROADCAST_RECEIVER_CLASSES.contains(superClass)) {
-                return true;
-            } else {
-                // step up in the class hierarchy
-                for (ClassDef classDef : classes) {
-                    if (classDef.toString().equals(superClass)) {
-                        superClass = classDef.getSuperclass();
-                        abort = false;
-                    }
-                }
-            }
-        }
-        return false;
+    public static boolean isBroadcastReceiver(final ClassHierarchy classHierarchy, final ClassDef currentClass) {
+        return classHierarchy.getComponentType(currentClass) == ComponentType.BROADCAST_RECEIVER;
     }
 
     /**
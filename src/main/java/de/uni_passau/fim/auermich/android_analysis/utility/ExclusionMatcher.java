@@ -0,0 +1,260 @@
+package de.uni_passau.fim.auermich.android_analysis.utility;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which classes are excluded from the analysis, e.g. classes of common libraries. Each pattern is a regular
+ * expression matching the entire dotted class name, e.g. 'com.google.ads.*'.
+ *
+ * Patterns solely consisting of name characters and dots, optionally followed by '.*', are compiled into a trie,
+ * which matches the raw type descriptor of a class, e.g. 'Lcom/google/ads/AdView;', without allocating its dotted
+ * name. A dot matches any character just like in the regular expression, while an escaped dot only matches a package
+ * separator. Any other pattern, e.g. a pattern containing a wildcard in between, is matched as regular expression
+ * against the dotted class name.
+ */
+public final class ExclusionMatcher {
+
+    private static final Logger LOGGER = LogManager.getLogger(ExclusionMatcher.class);
+
+    // the suffix of patterns matching all classes starting with a given prefix
+    private static final String WILDCARD_SUFFIX = ".*";
+
+    /**
+     * A matcher excluding no class at all.
+     */
+    public static final ExclusionMatcher NONE = compile(Collections.emptyList());
+
+    private final List<String> patterns;
+
+    private final Node root = new Node();
+
+    // the alternation of the patterns that can't be matched by the trie or null if there are none
+    private final Pattern fallback;
+
+    private ExclusionMatcher(final List<String> patterns) {
+
+        this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+        List<String> fallbackPatterns = new ArrayList<>();
+
+        for (String pattern : patterns) {
+            if (!insert(pattern)) {
+                fallbackPatterns.add(pattern);
+            }
+        }
+
+        if (!fallbackPatterns.isEmpty()) {
+            LOGGER.debug("Matching " + fallbackPatterns.size() + " exclusion patterns as regular expressions.");
+            fallback = Pattern.compile(String.join("|", fallbackPatterns));
+        } else {
+            fallback = null;
+        }
+    }
+
+    /**
+     * Compiles the given exclusion patterns.
+     *
+     * @param patterns The exclusion patterns, where blank patterns are ignored.
+     * @return Returns the matcher.
+     */
+    public static ExclusionMatcher compile(final Collection<String> patterns) {
+
+        List<String> nonBlankPatterns = new ArrayList<>();
+
+        for (String pattern : patterns) {
+            if (!pattern.isBlank()) {
+                nonBlankPatterns.add(pattern.strip());
+            }
+        }
+        return new ExclusionMatcher(nonBlankPatterns);
+    }
+
+    /**
+     * Returns the matcher for the bundled exclusion patterns. The patterns are read and compiled only once.
+     *
+     * @return Returns the matcher for the bundled exclusion patterns.
+     */
+    public static ExclusionMatcher defaults() {
+        return Defaults.INSTANCE;
+    }
+
+    /**
+     * Lazily loads the bundled exclusion patterns.
+     */
+    private static final class Defaults {
+
+        private static final ExclusionMatcher INSTANCE = load();
+
+        private static ExclusionMatcher load() {
+            try {
+                return Utility.readExcludePatterns(Collections.emptyList());
+            } catch (IOException e) {
+                LOGGER.warn("Couldn't read from exclusion file!");
+                LOGGER.warn(e.getMessage());
+                return NONE;
+            }
+        }
+    }
+
+    /**
+     * Returns the exclusion patterns in the order they have been given.
+     *
+     * @return Returns the exclusion patterns.
+     */
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * Checks whether the class with the given type descriptor, e.g. 'Lcom/example/MainActivity;', is excluded.
+     *
+     * @param type The type descriptor of the class.
+     * @return Returns {@code true} if the class is excluded, otherwise {@code false}.
+     */
+    public boolean matchesType(final String type) {
+
+        if (!type.startsWith("L") || !type.endsWith(";")) {
+            // not a class type, e.g. an array type
+            return matches(ClassUtils.dottedClassName(type));
+        }
+
+        return matches(root, type, 1, type.length() - 1)
+                || (fallback != null && fallback.matcher(ClassUtils.dottedClassName(type)).matches());
+    }
+
+    /**
+     * Checks whether the class with the given dotted name, e.g. 'com.example.MainActivity', is excluded.
+     *
+     * @param className The dotted name of the class.
+     * @return Returns {@code true} if the class is excluded, otherwise {@code false}.
+     */
+    public boolean matches(final String className) {
+        return matches(root, className, 0, className.length())
+                || (fallback != null && fallback.matcher(className).matches());
+    }
+
+    /**
+     * Matches the characters of a class name from the given position onwards against the given trie node, where a
+     * slash is treated like a dot.
+     *
+     * @param node The trie node.
+     * @param name The class name or type descriptor.
+     * @param position The position of the next character.
+     * @param end The end of the class name.
+     * @return Returns {@code true} if a pattern matches the remaining characters, otherwise {@code false}.
+     */
+    private static boolean matches(final Node node, final String name, final int position, final int end) {
+
+        if (node.prefix) {
+            return true;
+        }
+
+        if (position == end) {
+            return node.exact;
+        }
+
+        char character = name.charAt(position);
+        Node child = node.getChild(character == '/' ? '.' : character);
+
+        return (child != null && matches(child, name, position + 1, end))
+                || (node.wildcard != null && matches(node.wildcard, name, position + 1, end));
+    }
+
+    /**
+     * Inserts the given pattern into the trie if it can be matched by the trie.
+     *
+     * @param pattern The pattern.
+     * @return Returns {@code true} if the pattern has been inserted, otherwise {@code false}.
+     */
+    private boolean insert(final String pattern) {
+
+        boolean prefix = pattern.endsWith(WILDCARD_SUFFIX);
+        String literal = prefix ? pattern.substring(0, pattern.length() - WILDCARD_SUFFIX.length()) : pattern;
+
+        // check upfront such that the trie isn't modified for patterns matched as regular expression
+        for (int i = 0; i < literal.length(); i++) {
+            char character = literal.charAt(i);
+            if (character == '\\') {
+                if (i + 1 == literal.length() || literal.charAt(++i) != '.') {
+                    return false;
+                }
+            } else if (character != '.' && !Character.isLetterOrDigit(character) && character != '_') {
+                return false;
+            }
+        }
+
+        Node node = root;
+
+        for (int i = 0; i < literal.length(); i++) {
+            char character = literal.charAt(i);
+            if (character == '\\') {
+                // an escaped dot matches a package separator only
+                node = node.addChild(literal.charAt(++i));
+            } else if (character == '.') {
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+            } else {
+                node = node.addChild(character);
+            }
+        }
+
+        if (prefix) {
+            node.prefix = true;
+        } else {
+            node.exact = true;
+        }
+        return true;
+    }
+
+    /**
+     * A node of the trie. The children are kept in plain arrays since the trie is small and immutable once built.
+     */
+    private static final class Node {
+
+        private char[] characters = new char[0];
+
+        private Node[] children = new Node[0];
+
+        // the child matching any character
+        private Node wildcard;
+
+        // whether a pattern matches all class names continuing from this node
+        private boolean prefix;
+
+        // whether a pattern matches the class names ending at this node
+        private boolean exact;
+
+        private Node getChild(final char character) {
+            for (int i = 0; i < characters.length; i++) {
+                if (characters[i] == character) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node addChild(final char character) {
+
+            Node child = getChild(character);
+
+            if (child == null) {
+                int size = characters.length;
+                characters = Arrays.copyOf(characters, size + 1);
+                children = Arrays.copyOf(children, size + 1);
+                characters[size] = character;
+                children[size] = child = new Node();
+            }
+            return child;
+        }
+    }
+}
@@ -12,18 +12,27 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 public class ManifestParser {
 
     private static final Logger LOGGER = LogManager.getLogger(ManifestParser.class);
 
-    private final String MANIFEST;
+    /**
+     * The name of the manifest entry within an APK.
+     */
+    private static final String MANIFEST_ENTRY = "AndroidManifest.xml";
+
+    // the parsed AndroidManifest.xml
+    private final Document manifest;
 
     private String packageName;
     private String mainActivity;
@@ -31,8 +40,34 @@ public class ManifestParser {
     // the components declared in the manifest
     private static final String[] COMPONENTS = new String[]{"activity", "activity-alias", "service", "receiver"};
 
-    public ManifestParser(String manifest) {
-        MANIFEST = manifest;
+    public ManifestParser(Document manifest) {
+        this.manifest = manifest;
+    }
+
+    /**
+     * Reads the binary AndroidManifest.xml directly from the given APK. The manifest entry is decoded in memory,
+     * thus neither apktool nor any temporary directory is involved.
+     *
+     * @param apkPath The path to the APK file.
+     * @return Returns a parser for the manifest of the APK.
+     * @throws IOException If the APK can't be read or doesn't contain a valid manifest.
+     */
+    public static ManifestParser fromAPK(File apkPath) throws IOException {
+
+        try (ZipFile apk = new ZipFile(apkPath)) {
+
+            ZipEntry entry = apk.getEntry(MANIFEST_ENTRY);
+
+            if (entry == null) {
+                throw new FileNotFoundException("APK " + apkPath + " doesn't contain an " + MANIFEST_ENTRY + "!");
+            }
+
+            try (InputStream inputStream = apk.getInputStream(entry)) {
+                return new ManifestParser(AxmlParser.parse(inputStream.readAllBytes()));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Couldn't decode " + MANIFEST_ENTRY + "!", e);
+            }
+        }
     }
 
     public String getPackageName() {
@@ -50,10 +85,7 @@ public class ManifestParser {
         List<Component> components = new ArrayList<>();
 
         try {
-            File xmlFile = new File(MANIFEST);
-            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-            Document doc = dBuilder.parse(xmlFile);
+            Document doc = manifest;
 
             for (String componentType : COMPONENTS) {
 
@@ -146,10 +178,7 @@ public class ManifestParser {
         LOGGER.info("Parsing AndroidManifest for MainActivity and PackageName!");
 
         try {
-            File xmlFile = new File(MANIFEST);
-            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-            Document doc = dBuilder.parse(xmlFile);
+            Document doc = manifest;
 
             NodeList nodeList = doc.getElementsByTagName("manifest");
             // there should be only a single manifest tag
@@ -1,14 +1,12 @@
 package de.uni_passau.fim.auermich.android_analysis.utility;
 
+import de.uni_passau.fim.auermich.android_analysis.index.MethodIndex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import com.android.tools.smali.dexlib2.iface.ClassDef;
-import com.android.tools.smali.dexlib2.iface.DexFile;
 import com.android.tools.smali.dexlib2.iface.Method;
+import com.android.tools.smali.dexlib2.iface.reference.MethodReference;
 
-import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 public final class MethodUtils {
 
@@ -29,32 +27,14 @@ public final class MethodUtils {
     }
 
     /**
-     * Searches for a target method in the given {@code dexFile}.
+     * Searches for the target method of the given method reference in the given {@code methodIndex}. If the
+     * referenced class doesn't declare the method itself, the super classes are searched.
      *
-     * @param dexFiles        The dexFiles to search in.
-     * @param methodSignature The signature of the target method.
+     * @param methodIndex     The index over the methods of the dex files.
+     * @param methodReference The reference of the target method, e.g. the reference of an invoke instruction.
      * @return Returns an optional containing either the target method or not.
      */
-    public static Optional<Method> searchForTargetMethod(List<DexFile> dexFiles, String methodSignature) {
-
-        // TODO: search for target method based on className + method signature
-        String className = methodSignature.split("->")[0];
-
-        for (DexFile dexFile : dexFiles) {
-
-            Set<? extends ClassDef> classes = dexFile.getClasses();
-
-            // search for target method
-            for (ClassDef classDef : classes) {
-                if (classDef.toString().equals(className)) {
-                    for (Method method : classDef.getMethods()) {
-                        if (deriveMethodSignature(method).equals(methodSignature)) {
-                            return Optional.of(method);
-                        }
-                    }
-                }
-            }
-        }
-        return Optional.empty();
+    public static Optional<Method> searchForTargetMethod(MethodIndex methodIndex, MethodReference methodReference) {
+        return methodIndex.resolveInHierarchy(methodReference);
     }
 }
@@ -0,0 +1,328 @@
+package de.uni_passau.fim.auermich.android_analysis.utility;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the stages of an analysis, which may run concurrently. Each stage is recorded with its start and end
+ * relative to the creation of the timer as well as the thread it ran on, such that the summary shows how the stages
+ * overlap. Moreover, the CPU time and the allocated bytes of the thread running a stage are recorded, where work a
+ * stage hands off to other threads can be added explicitly, see {@link Span#addWork(long, long)}. Along with the
+ * stages, named counters can be recorded, e.g. the number of visited instructions.
+ */
+public final class StageTimer {
+
+    private static final Logger LOGGER = LogManager.getLogger(StageTimer.class);
+
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    // the allocated bytes per thread are only provided by the HotSpot extension of the thread bean
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN
+            = THREAD_BEAN instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) THREAD_BEAN).isThreadAllocatedMemorySupported()
+            ? (com.sun.management.ThreadMXBean) THREAD_BEAN : null;
+
+    /**
+     * The value recorded for a resource that can't be measured on this JVM.
+     */
+    public static final long UNSUPPORTED = -1;
+
+    /**
+     * A stage producing a result.
+     *
+     * @param <T> The type of the result.
+     */
+    @FunctionalInterface
+    public interface Stage<T> {
+
+        T call() throws IOException;
+    }
+
+    /**
+     * A stage without a result.
+     */
+    @FunctionalInterface
+    public interface Step {
+
+        void run() throws IOException;
+    }
+
+    /**
+     * A finished stage.
+     */
+    private static final class Record {
+
+        private final String name;
+        private final String thread;
+        private final long startNanos;
+        private final long endNanos;
+        private final long cpuNanos;
+        private final long allocatedBytes;
+
+        private Record(String name, String thread, long startNanos, long endNanos, long cpuNanos,
+                       long allocatedBytes) {
+            this.name = name;
+            this.thread = thread;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    /**
+     * A running stage, which is recorded once it is closed. A span must be closed by the thread that started it.
+     * Spans started while another span of the same thread is running are nested into the running span.
+     */
+    public final class Span implements AutoCloseable {
+
+        private final String name;
+        private final Span parent = currentSpan.get();
+        private final long startNanos = System.nanoTime();
+        private final long startCpuNanos = currentThreadCpuNanos();
+        private final long startAllocatedBytes = currentThreadAllocatedBytes();
+
+        // the work done on behalf of the stage by other threads
+        private long otherCpuNanos;
+        private long otherAllocatedBytes;
+
+        private Span(String name) {
+            this.name = name;
+            currentSpan.set(this);
+        }
+
+        /**
+         * Adds the work done on behalf of the stage by other threads, e.g. by the threads of a fork join pool. The
+         * work is added to the enclosing stages as well.
+         *
+         * @param cpuNanos The CPU time spent by the other threads.
+         * @param allocatedBytes The bytes allocated by the other threads.
+         */
+        public void addWork(final long cpuNanos, final long allocatedBytes) {
+            for (Span span = this; span != null; span = span.parent) {
+                span.otherCpuNanos += cpuNanos;
+                span.otherAllocatedBytes += allocatedBytes;
+            }
+        }
+
+        @Override
+        public void close() {
+            currentSpan.set(parent);
+            long cpuNanos = currentThreadCpuNanos();
+            long allocatedBytes = currentThreadAllocatedBytes();
+            records.add(new Record(name, Thread.currentThread().getName(), startNanos - originNanos,
+                    System.nanoTime() - originNanos,
+                    cpuNanos == UNSUPPORTED ? UNSUPPORTED : cpuNanos - startCpuNanos + otherCpuNanos,
+                    allocatedBytes == UNSUPPORTED ? UNSUPPORTED
+                            : allocatedBytes - startAllocatedBytes + otherAllocatedBytes));
+        }
+    }
+
+    private final long originNanos = System.nanoTime();
+
+    private final List<Record> records = Collections.synchronizedList(new ArrayList<>());
+
+    // the innermost running span of each thread
+    private final ThreadLocal<Span> currentSpan = new ThreadLocal<>();
+
+    private final Map<String, Long> counters = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * Starts a stage, which is recorded when the returned span is closed.
+     *
+     * @param name The name of the stage.
+     * @return Returns the span of the stage.
+     */
+    public Span start(final String name) {
+        return new Span(name);
+    }
+
+    /**
+     * Runs and measures a stage producing a result. A failing stage is recorded as well.
+     *
+     * @param name The name of the stage.
+     * @param stage The stage.
+     * @param <T> The type of the result.
+     * @return Returns the result of the stage.
+     * @throws IOException If the stage fails.
+     */
+    public <T> T time(final String name, final Stage<T> stage) throws IOException {
+        try (Span ignored = start(name)) {
+            return stage.call();
+        }
+    }
+
+    /**
+     * Runs and measures a stage without a result.
+     *
+     * @param name The name of the stage.
+     * @param step The stage.
+     * @throws IOException If the stage fails.
+     */
+    public void run(final String name, final Step step) throws IOException {
+        time(name, () -> {
+            step.run();
+            return null;
+        });
+    }
+
+    /**
+     * Adds the given amount to a counter, which starts at zero.
+     *
+     * @param name The name of the counter.
+     * @param amount The amount to be added.
+     */
+    public void count(final String name, final long amount) {
+        counters.merge(name, amount, Long::sum);
+    }
+
+    /**
+     * Returns the current value of a counter.
+     *
+     * @param name The name of the counter.
+     * @return Returns the value of the counter, which is zero if nothing has been counted yet.
+     */
+    public long getCounter(final String name) {
+        return counters.getOrDefault(name, 0L);
+    }
+
+    /**
+     * Returns the CPU time of the current thread.
+     *
+     * @return Returns the CPU time in nanoseconds or {@link #UNSUPPORTED} if it can't be measured.
+     */
+    public static long currentThreadCpuNanos() {
+        return THREAD_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_BEAN.getCurrentThreadCpuTime() : UNSUPPORTED;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread so far.
+     *
+     * @return Returns the allocated bytes or {@link #UNSUPPORTED} if they can't be measured.
+     */
+    public static long currentThreadAllocatedBytes() {
+        return ALLOCATION_BEAN != null
+                ? ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : UNSUPPORTED;
+    }
+
+    private List<Record> getSortedRecords() {
+
+        List<Record> sorted;
+
+        synchronized (records) {
+            sorted = new ArrayList<>(records);
+        }
+
+        sorted.sort(Comparator.comparingLong(record -> record.startNanos));
+        return sorted;
+    }
+
+    /**
+     * Logs the recorded stages ordered by their start.
+     *
+     * @param title The title of the summary, e.g. the analysed APK.
+     */
+    public void logSummary(final String title) {
+
+        StringBuilder summary = new StringBuilder("Stage timings of ").append(title)
+                .append(" (relative to the start of the analysis):");
+
+        for (Record record : getSortedRecords()) {
+            summary.append(System.lineSeparator())
+                    .append(String.format("%-28s %7d ms -> %7d ms  %7d ms  [%s]", record.name,
+                            toMillis(record.startNanos), toMillis(record.endNanos),
+                            toMillis(record.endNanos - record.startNanos), record.thread));
+        }
+
+        summary.append(System.lineSeparator())
+                .append("Total: ").append(toMillis(System.nanoTime() - originNanos)).append(" ms");
+
+        LOGGER.info(summary);
+    }
+
+    /**
+     * Writes the recorded stages ordered by their start and the counters as JSON object to the given file. All
+     * durations are given in nanoseconds, where {@link #UNSUPPORTED} denotes a resource that couldn't be measured.
+     *
+     * @param file The output file, e.g. 'metrics.json'.
+     * @param title The title of the metrics, e.g. the analysed APK.
+     * @throws IOException If the file can't be written.
+     */
+    public void writeMetrics(final File file, final String title) throws IOException {
+
+        Map<String, Long> counterSnapshot;
+
+        synchronized (counters) {
+            counterSnapshot = new LinkedHashMap<>(counters);
+        }
+
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+
+            writer.write("{\n");
+            writer.write("  \"name\": " + quote(title) + ",\n");
+            writer.write("  \"wallNanos\": " + (System.nanoTime() - originNanos) + ",\n");
+            writer.write("  \"stages\": [");
+
+            String separator = "\n";
+
+            for (Record record : getSortedRecords()) {
+                writer.write(separator);
+                writer.write("    {\"name\": " + quote(record.name)
+                        + ", \"thread\": " + quote(record.thread)
+                        + ", \"startNanos\": " + record.startNanos
+                        + ", \"wallNanos\": " + (record.endNanos - record.startNanos)
+                        + ", \"cpuNanos\": " + record.cpuNanos
+                        + ", \"allocatedBytes\": " + record.allocatedBytes + "}");
+                separator = ",\n";
+            }
+
+            writer.write("\n  ],\n");
+            writer.write("  \"counters\": {");
+            separator = "\n";
+
+            for (Map.Entry<String, Long> counter : counterSnapshot.entrySet()) {
+                writer.write(separator);
+                writer.write("    " + quote(counter.getKey()) + ": " + counter.getValue());
+                separator = ",\n";
+            }
+
+            writer.write("\n  }\n");
+            writer.write("}\n");
+        }
+    }
+
+    private static String quote(final String value) {
+
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+            if (character == '"' || character == '\\') {
+                builder.append('\\').append(character);
+            } else if (character < 0x20) {
+                builder.append(String.format("\\u%04x", (int) character));
+            } else {
+                builder.append(character);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1_000_000;
+    }
+}
@@ -1,16 +1,11 @@
 package de.uni_passau.fim.auermich.android_analysis.utility;
 
-import brut.androlib.ApkDecoder;
-import brut.androlib.Config;
-import brut.androlib.exceptions.AndrolibException;
-import brut.directory.DirectoryException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.*;
-import java.util.logging.Handler;
-import java.util.logging.Level;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class Utility {
 
@@ -26,88 +21,44 @@ public final class Utility {
     }
 
     /**
-     * Decodes a given APK using apktool.
+     * Reads the patterns of classes which should be excluded from the analysis, i.e. the bundled patterns followed
+     * by the patterns of the given files. Each line of an exclusion file denotes a single pattern, where blank lines
+     * and lines starting with '#' are ignored.
      *
-     * @return Returns the path of the decoded APK.
+     * @param excludeFiles Additional exclusion files, e.g. specified on the command line.
+     * @return Returns the compiled exclusion patterns.
+     * @throws IOException If an exclusion file can't be read.
      */
-    public static File decodeAPK(final File apkPath) {
+    public static ExclusionMatcher readExcludePatterns(final List<File> excludeFiles) throws IOException {
 
-        // set 3rd party library (apktool) logging to 'SEVERE'
-        java.util.logging.Logger rootLogger = java.util.logging.Logger.getLogger("");
-        rootLogger.setLevel(Level.SEVERE);
-        for (Handler h : rootLogger.getHandlers()) {
-            h.setLevel(Level.SEVERE);
-        }
-
-        final Config config = Config.getDefaultConfig();
-        config.forceDelete = true; // overwrites existing dir: -f
-
-        try {
-            // do not decode dex classes to smali: -s
-            config.setDecodeSources(Config.DECODE_SOURCES_NONE);
-
-            /*
-             * TODO: Right now we need to decode the resources completely although we only need to alter the manifest.
-             *  While decoding only the manifest works and even re-packaging succeeds, the APK cannot be properly signed
-             *  anymore: https://github.com/iBotPeaches/Apktool/issues/3389
-             */
-
-            // do not decode resources: -r
-            // config.setDecodeResources(Config.DECODE_RESOURCES_NONE);
+        List<String> patterns = new ArrayList<>();
+        InputStream inputStream = ClassLoader.getSystemClassLoader().getResourceAsStream(EXCLUSION_PATTERN_FILE);
 
-            // decode the manifest: --force-manifest
-            // config.setForceDecodeManifest(Config.FORCE_DECODE_MANIFEST_FULL);
-
-            // path where we want to decode the APK (the same directory as the APK)
-            File parentDir = apkPath.getParentFile();
-            File outputDir = new File(parentDir, "decodedAPK");
-
-            LOGGER.debug("Decoding Output Dir: " + outputDir);
+        if (inputStream == null) {
+            LOGGER.warn("Couldn't find exclusion pattern file!");
+        } else {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
+                readExcludePatterns(reader, patterns);
+            }
+        }
 
-            final ApkDecoder decoder = new ApkDecoder(config, apkPath);
-            decoder.decode(outputDir);
-            return outputDir;
-        } catch (AndrolibException | IOException | DirectoryException e) {
-            LOGGER.warn("Failed to decode APK file!");
-            LOGGER.warn(e.getMessage());
-            throw new IllegalStateException(e);
+        for (File excludeFile : excludeFiles) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(excludeFile))) {
+                readExcludePatterns(reader, patterns);
+            }
         }
+        return ExclusionMatcher.compile(patterns);
     }
 
-    /**
-     * Generates patterns of classes which should be excluded from the instrumentation.
-     *
-     * @return The pattern representing classes that should not be instrumented.
-     */
-    public static Pattern readExcludePatterns() {
-
-        ClassLoader classLoader = ClassLoader.getSystemClassLoader();
-        InputStream inputStream = classLoader.getResourceAsStream(EXCLUSION_PATTERN_FILE);
-
-        if (inputStream == null) {
-            LOGGER.warn("Couldn't find exclusion pattern file!");
-            return null;
-        }
+    private static void readExcludePatterns(final BufferedReader reader, final List<String> patterns)
+            throws IOException {
 
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
         String line;
-        StringBuilder builder = new StringBuilder();
 
-        try {
-            boolean first = true;
-            while ((line = reader.readLine()) != null) {
-                if (first)
-                    first = false;
-                else
-                    builder.append("|");
-                builder.append(line);
+        while ((line = reader.readLine()) != null) {
+            if (!line.startsWith("#")) {
+                patterns.add(line);
             }
-            reader.close();
-        } catch (IOException e) {
-            LOGGER.warn("Couldn't read from exclusion file!");
-            e.printStackTrace();
-            return null;
         }
-        return Pattern.compile(builder.toString());
     }
 }
@@ -0,0 +1,143 @@
+package de.uni_passau.fim.auermich.android_analysis.utility;
+
+import java.io.*;
+import java.nio.charset.Charset;
+
+/**
+ * A buffered writer for the XML output files. Markup is written as is, while text and attribute values are escaped
+ * on the fly in a single pass, i.e. no escaped copy of a string is ever built. The output is encoded with the
+ * platform's default charset, just like a {@link PrintStream} writing to a file would do.
+ */
+public final class XmlWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer writer;
+
+    /**
+     * Creates a new XML writer on top of the given writer.
+     *
+     * @param writer The underlying writer.
+     */
+    public XmlWriter(final Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Opens a buffered XML writer for the given file.
+     *
+     * @param file The output file, which is overwritten if present.
+     * @return Returns the XML writer.
+     * @throws FileNotFoundException If the file can't be opened for writing.
+     */
+    public static XmlWriter open(final File file) throws FileNotFoundException {
+        return new XmlWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+                Charset.defaultCharset()), BUFFER_SIZE));
+    }
+
+    /**
+     * Writes the given markup without escaping.
+     *
+     * @param markup The markup.
+     * @return Returns this writer.
+     * @throws IOException If writing fails.
+     */
+    public XmlWriter write(final String markup) throws IOException {
+        writer.write(markup);
+        return this;
+    }
+
+    /**
+     * Writes the given text or attribute value, where the characters '&', '"', ''', '>' and '<' are replaced by
+     * their predefined entities.
+     *
+     * @param text The text to be escaped.
+     * @return Returns this writer.
+     * @throws IOException If writing fails.
+     */
+    public XmlWriter writeEscaped(final String text) throws IOException {
+
+        int start = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+
+            String entity = entityOf(text.charAt(i));
+
+            if (entity != null) {
+                writer.write(text, start, i - start);
+                writer.write(entity);
+                start = i + 1;
+            }
+        }
+
+        writer.write(text, start, text.length() - start);
+        return this;
+    }
+
+    /**
+     * Writes the platform's line separator.
+     *
+     * @return Returns this writer.
+     * @throws IOException If writing fails.
+     */
+    public XmlWriter newLine() throws IOException {
+        writer.write(System.lineSeparator());
+        return this;
+    }
+
+    /**
+     * Escapes the given text the same way {@link #writeEscaped(String)} does.
+     *
+     * @param text The text to be escaped.
+     * @return Returns the escaped text.
+     */
+    public static String escape(final String text) {
+
+        int i = 0;
+        while (i < text.length() && entityOf(text.charAt(i)) == null) {
+            i++;
+        }
+
+        // most strings don't need to be escaped at all
+        if (i == text.length()) {
+            return text;
+        }
+
+        StringWriter output = new StringWriter(text.length() + 16);
+
+        try {
+            new XmlWriter(output).writeEscaped(text);
+        } catch (IOException e) {
+            // a string writer never fails
+            throw new UncheckedIOException(e);
+        }
+        return output.toString();
+    }
+
+    private static String entityOf(final char character) {
+        switch (character) {
+            case '&':
+                return "&amp;";
+            case '"':
+                return "&quot;";
+            case '\'':
+                return "&apos;";
+            case '>':
+                return "&gt;";
+            case '<':
+                return "&lt;";
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,192 @@
+package de.uni_passau.fim.auermich.android_analysis;
+
+import de.uni_passau.fim.auermich.android_analysis.binary.StaticDataConverter;
+import de.uni_passau.fim.auermich.android_analysis.synthetic.SyntheticApp;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts a daemon on an ephemeral localhost port and sends it requests for a small synthetic app, see
+ * {@link SyntheticApp}, both via the {@link DaemonClient} and as raw protocol lines.
+ */
+class AnalysisDaemonTest {
+
+    private static final String PACKAGE_NAME = "com.example.synthetic";
+
+    // the maximal number of threads a request may scan its APK with
+    private static final int MAX_PARALLELISM = 2;
+
+    @TempDir
+    static Path directory;
+
+    private static File apkFile;
+
+    private static AnalysisDaemon daemon;
+
+    private static Thread daemonThread;
+
+    @BeforeAll
+    static void startDaemon() throws IOException, InterruptedException {
+
+        apkFile = directory.resolve(PACKAGE_NAME + ".apk").toFile();
+        new SyntheticApp(PACKAGE_NAME)
+                .activities(2)
+                .services(1)
+                .receivers(1)
+                .fragments(1)
+                .plainClasses(2)
+                .writeApk(apkFile);
+
+        daemon = new AnalysisDaemon(0, 2, 4, MAX_PARALLELISM, AnalysisOptions.DEFAULTS.withParallelism(1), null);
+        daemonThread = new Thread(() -> {
+            try {
+                daemon.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        daemonThread.start();
+
+        for (int i = 0; i < 500 && daemon.getLocalPort() == -1; i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(daemon.getLocalPort() > 0, "The daemon didn't start!");
+    }
+
+    @AfterAll
+    static void stopDaemon() throws IOException, InterruptedException {
+
+        try (DaemonClient client = new DaemonClient(daemon.getLocalPort())) {
+            assertEquals(List.of(AnalysisDaemon.OK), client.shutdown());
+        }
+
+        daemonThread.join(10000);
+        assertEquals(-1, daemon.getLocalPort());
+    }
+
+    @Test
+    void answersRequestsOverSingleConnection() throws IOException {
+
+        File staticDataDir = directory.resolve(PACKAGE_NAME).resolve("static_data").toFile();
+
+        try (DaemonClient client = new DaemonClient(daemon.getLocalPort())) {
+
+            assertEquals(List.of(AnalysisDaemon.OK), client.ping());
+
+            List<String> first = client.analyze(apkFile);
+            List<String> second = client.analyze(apkFile, "--rac", "--binary");
+
+            assertEquals(AnalysisDaemon.OK, first.get(0), String.join(" ", first));
+            assertEquals(staticDataDir.getAbsolutePath(), first.get(2));
+            assertEquals(List.of(StaticDataConverter.COMPONENT_INFO_FILE, StaticDataConverter.STATIC_STRINGS_FILE,
+                    StaticDataConverter.INTENT_INFO_FILE, Main.METRICS_FILE), first.subList(3, first.size()));
+
+            assertEquals(AnalysisDaemon.OK, second.get(0), String.join(" ", second));
+            assertEquals(staticDataDir.getAbsolutePath(), second.get(2));
+            assertTrue(second.contains(StaticDataConverter.BINARY_FILE));
+        }
+
+        assertEquals(0, daemon.getLockedApks());
+    }
+
+    @Test
+    void rejectsMalformedRequests() throws IOException {
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getLocalPort());
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+
+            String apk = apkFile.getAbsolutePath();
+
+            assertEquals("ERROR\tUnknown request: ", send(writer, reader, ""));
+            assertEquals("ERROR\tUnknown request: analyze", send(writer, reader, "analyze\t" + apk));
+            assertEquals("ERROR\tMissing APK!", send(writer, reader, "ANALYZE"));
+            assertEquals("ERROR\tMissing APK!", send(writer, reader, "ANALYZE\t"));
+            assertTrue(send(writer, reader, "ANALYZE\t" + apk + "\t--threads\t0")
+                    .startsWith("ERROR\tInvalid options: "));
+            assertTrue(send(writer, reader, "ANALYZE\t" + apk + "\t--call-depth\tdeep")
+                    .startsWith("ERROR\tInvalid options: "));
+            assertEquals("ERROR\tUnsupported options: --workers 2",
+                    send(writer, reader, "ANALYZE\t" + apk + "\t--workers\t2"));
+            assertTrue(send(writer, reader, "ANALYZE\t" + directory.resolve("missing.apk"))
+                    .startsWith("ERROR\t"));
+
+            // the connection survives the malformed requests
+            assertEquals("OK", send(writer, reader, "PING"));
+        }
+
+        assertEquals(0, daemon.getLockedApks());
+    }
+
+    @Test
+    void limitsThreadsOfRequests() throws IOException {
+
+        AnalysisOptions requested = AnalysisOptions.DEFAULTS.withParallelism(MAX_PARALLELISM * 8);
+        AnalysisOptions allowed = AnalysisOptions.DEFAULTS.withParallelism(MAX_PARALLELISM);
+
+        assertEquals(MAX_PARALLELISM, daemon.limitParallelism(requested).getParallelism());
+        assertSame(allowed, daemon.limitParallelism(allowed));
+
+        try (DaemonClient client = new DaemonClient(daemon.getLocalPort())) {
+            List<String> response = client.analyze(apkFile, "--threads", String.valueOf(MAX_PARALLELISM * 8));
+            assertEquals(AnalysisDaemon.OK, response.get(0), String.join(" ", response));
+        }
+    }
+
+    @Test
+    void releasesLocksOfIdleApks() throws Exception {
+
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Callable<List<String>>> requests = new ArrayList<>();
+
+            for (int i = 0; i < 4; i++) {
+                requests.add(() -> {
+                    try (DaemonClient client = new DaemonClient(daemon.getLocalPort())) {
+                        return client.analyze(apkFile);
+                    }
+                });
+            }
+
+            for (Future<List<String>> response : clients.invokeAll(requests)) {
+                assertEquals(AnalysisDaemon.OK, response.get().get(0), String.join(" ", response.get()));
+            }
+        } finally {
+            clients.shutdown();
+        }
+
+        assertEquals(0, daemon.getLockedApks());
+    }
+
+    private static String send(Writer writer, BufferedReader reader, String request) throws IOException {
+        writer.write(request + "\n");
+        writer.flush();
+        return reader.readLine();
+    }
+}
@@ -0,0 +1,104 @@
+package de.uni_passau.fim.auermich.android_analysis;
+
+import de.uni_passau.fim.auermich.android_analysis.binary.StaticDataConverter;
+import de.uni_passau.fim.auermich.android_analysis.synthetic.SyntheticApp;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Analyses a batch of two synthetic apps, see {@link SyntheticApp}, next to a corrupt APK, which must not affect the
+ * remaining APKs of the batch.
+ */
+class BatchAnalyzerTest {
+
+    private static final String FIRST = "com.example.first";
+    private static final String BROKEN = "com.example.broken";
+    private static final String SECOND = "com.example.second";
+
+    @TempDir
+    static Path directory;
+
+    @BeforeAll
+    static void writeApks() throws IOException {
+        for (String packageName : List.of(FIRST, SECOND)) {
+            new SyntheticApp(packageName)
+                    .activities(2)
+                    .services(1)
+                    .receivers(1)
+                    .fragments(1)
+                    .plainClasses(2)
+                    .writeApk(directory.resolve(packageName + ".apk").toFile());
+        }
+        Files.write(directory.resolve(BROKEN + ".apk"), "no zip file".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void continuesAfterFailingApk() throws IOException {
+
+        List<File> apkFiles = BatchAnalyzer.collectAPKs(directory.toFile());
+        List<BatchAnalyzer.Result> results = new BatchAnalyzer(2).run(apkFiles,
+                apkFile -> Main.analyzeAPK(apkFile, AnalysisOptions.DEFAULTS.withParallelism(1), null));
+
+        assertEquals(List.of(BROKEN + ".apk", FIRST + ".apk", SECOND + ".apk"), results.stream()
+                .map(result -> result.getApkFile().getName()).collect(Collectors.toList()));
+
+        assertFalse(results.get(0).isSuccess());
+        assertNotNull(results.get(0).getFailure());
+
+        for (BatchAnalyzer.Result result : results.subList(1, 3)) {
+            assertTrue(result.isSuccess(), String.valueOf(result.getFailure()));
+        }
+
+        for (String packageName : List.of(FIRST, SECOND)) {
+            assertTrue(Files.isRegularFile(directory.resolve(packageName).resolve("static_data")
+                    .resolve(StaticDataConverter.COMPONENT_INFO_FILE)), packageName);
+        }
+    }
+
+    @Test
+    void recordsFailuresOtherThanExceptions() {
+
+        List<BatchAnalyzer.Result> results = new BatchAnalyzer(1).run(
+                List.of(new File(FIRST + ".apk"), new File(SECOND + ".apk")), apkFile -> {
+                    if (apkFile.getName().startsWith(FIRST)) {
+                        throw new StackOverflowError();
+                    }
+                });
+
+        assertTrue(results.get(0).getFailure() instanceof StackOverflowError);
+        assertTrue(results.get(1).isSuccess());
+    }
+
+    @Test
+    void collectsApksOfListFile() throws IOException {
+
+        Path listFile = directory.resolve("batch.txt");
+        Files.write(listFile, List.of("# the apps", FIRST + ".apk", "", "  /apps/" + SECOND + ".apk  "),
+                StandardCharsets.UTF_8);
+
+        assertEquals(List.of(directory.resolve(FIRST + ".apk").toFile(), new File("/apps/" + SECOND + ".apk")),
+                BatchAnalyzer.collectAPKs(listFile.toFile()));
+        assertThrows(IOException.class, () -> BatchAnalyzer.collectAPKs(directory.resolve("missing.txt").toFile()));
+    }
+
+    @Test
+    void rejectsInvalidNumberOfWorkers() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchAnalyzer(0));
+        assertThrows(IllegalArgumentException.class, () -> new BatchAnalyzer(-1));
+    }
+}
@@ -0,0 +1,267 @@
+package de.uni_passau.fim.auermich.android_analysis;
+
+import de.uni_passau.fim.auermich.android_analysis.binary.StaticDataConverter;
+import de.uni_passau.fim.auermich.android_analysis.binary.StaticDataReader;
+import de.uni_passau.fim.auermich.android_analysis.component.bundle.Extra;
+import de.uni_passau.fim.auermich.android_analysis.result.AnalysisResult;
+import de.uni_passau.fim.auermich.android_analysis.result.ComponentResult;
+import de.uni_passau.fim.auermich.android_analysis.synthetic.SyntheticApp;
+import de.uni_passau.fim.auermich.android_analysis.utility.ExclusionMatcher;
+import de.uni_passau.fim.auermich.android_analysis.utility.StageTimer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Analyses a small synthetic app, see {@link SyntheticApp}, and checks the extracted static data as well as the
+ * written files. The app consists of three activities, two services, two broadcast receivers and a fragment, where
+ * the first activity registers the first receiver dynamically and each entry point reads two extras plus the extra of
+ * a single helper.
+ */
+class DexAnalyzerTest {
+
+    private static final String PACKAGE_NAME = "com.example.synthetic";
+
+    private static final String[] XML_FILES = {StaticDataConverter.COMPONENT_INFO_FILE,
+            StaticDataConverter.STATIC_STRINGS_FILE, StaticDataConverter.INTENT_INFO_FILE};
+
+    @TempDir
+    static Path directory;
+
+    private static File apkFile;
+
+    @BeforeAll
+    static void writeApk() throws IOException {
+        apkFile = directory.resolve(PACKAGE_NAME + ".apk").toFile();
+        new SyntheticApp(PACKAGE_NAME)
+                .activities(3)
+                .services(2)
+                .receivers(2)
+                .fragments(1)
+                .plainClasses(2)
+                .extrasPerEntryPoint(2)
+                .callDepth(1)
+                .registerReceiverCalls(1)
+                .writeApk(apkFile);
+    }
+
+    @Test
+    void findsComponentsOfManifestAndCode() throws IOException {
+
+        AnalysisResult result = DexAnalyzer.analyze(apkFile.toPath(), AnalysisOptions.DEFAULTS);
+
+        assertEquals(PACKAGE_NAME, result.getPackageName());
+        assertEquals(Set.of(
+                "activity " + name("activity.Activity0"),
+                "activity " + name("activity.Activity1"),
+                "activity " + name("activity.Activity2"),
+                "service " + name("service.Service0"),
+                "service " + name("service.Service1"),
+                "receiver " + name("receiver.Receiver0"),
+                "receiver " + name("receiver.Receiver1")), describe(result.getComponents()));
+
+        // the scanned components additionally comprise the abstract base classes and the fragments
+        Set<String> scanned = describe(result.getScannedComponents());
+        assertTrue(scanned.containsAll(describe(result.getComponents())));
+        assertTrue(scanned.contains("activity " + name("baseactivity.BaseActivity0")));
+        assertTrue(scanned.contains("fragment " + name("fragment.Fragment0")));
+    }
+
+    @Test
+    void collectsExtrasOfEntryPointsAndHelpers() throws IOException {
+
+        AnalysisResult result = DexAnalyzer.analyze(apkFile.toPath(), AnalysisOptions.DEFAULTS);
+        ComponentResult activity = result.findComponent(name("activity.Activity0")).orElseThrow();
+
+        assertEquals(List.of("on_create", "on_new_intent"), activity.getEntryPoints().stream()
+                .map(ComponentResult.EntryPoint::getTag).collect(Collectors.toList()));
+        assertEquals(List.of(
+                name("activity.Activity0.KEY_0") + " String",
+                name("activity.Activity0.KEY_1") + " Int",
+                name("helper.Helper0.KEY") + " String"), describeExtras(activity.getEntryPoints().get(0).getExtras()));
+
+        // the keys of extras aren't reported as strings of the entry point
+        assertTrue(activity.getEntryPoints().get(0).getStrings().contains(name("activity.Activity0 entry")));
+        assertFalse(activity.getEntryPoints().get(0).getStrings().contains(name("activity.Activity0.KEY_0")));
+
+        ComponentResult service = result.findComponent(name("service.Service1")).orElseThrow();
+        assertEquals(List.of(
+                name("service.Service1.KEY_0") + " Int",
+                name("service.Service1.KEY_1") + " Boolean",
+                name("helper.Helper0.KEY") + " String"), describeExtras(service.getExtras()));
+    }
+
+    @Test
+    void resolvesIntentFiltersAndDynamicReceivers() throws IOException {
+
+        AnalysisResult result = DexAnalyzer.analyze(apkFile.toPath(), AnalysisOptions.DEFAULTS);
+
+        // the first receiver is solely registered dynamically, the second one is declared in the manifest
+        ComponentResult dynamicReceiver = result.findComponent(name("receiver.Receiver0")).orElseThrow();
+        ComponentResult staticReceiver = result.findComponent(name("receiver.Receiver1")).orElseThrow();
+
+        assertEquals(Boolean.TRUE, dynamicReceiver.getDynamic());
+        assertEquals(List.of(Set.of(PACKAGE_NAME + ".ACTION_0")), dynamicReceiver.getIntentFilters().stream()
+                .map(ComponentResult.IntentFilter::getActions).collect(Collectors.toList()));
+        assertEquals(List.of(Set.of(PACKAGE_NAME + ".CATEGORY_0")), dynamicReceiver.getIntentFilters().stream()
+                .map(ComponentResult.IntentFilter::getCategories).collect(Collectors.toList()));
+
+        assertEquals(Boolean.FALSE, staticReceiver.getDynamic());
+        assertTrue(staticReceiver.isExported());
+
+        ComponentResult mainActivity = result.findComponent(name("activity.Activity0")).orElseThrow();
+        assertTrue(mainActivity.isExported());
+        assertFalse(result.findComponent(name("activity.Activity1")).orElseThrow().isExported());
+    }
+
+    @Test
+    void writesStableXmlFiles() throws IOException {
+
+        File sequential = analyzeInto("sequential", AnalysisOptions.DEFAULTS.withParallelism(1));
+        File parallel = analyzeInto("parallel", AnalysisOptions.DEFAULTS.withParallelism(4));
+        File repeated = analyzeInto("repeated", AnalysisOptions.DEFAULTS.withParallelism(4));
+
+        for (String file : XML_FILES) {
+            byte[] expected = Files.readAllBytes(new File(sequential, file).toPath());
+            assertArrayEquals(expected, Files.readAllBytes(new File(parallel, file).toPath()), file);
+            assertArrayEquals(expected, Files.readAllBytes(new File(repeated, file).toPath()), file);
+        }
+    }
+
+    @Test
+    void convertsBinaryFileBackToXmlFiles() throws IOException {
+
+        File staticData = analyzeInto("binary", AnalysisOptions.DEFAULTS.withWriteBinary(true));
+        File binaryFile = new File(staticData, StaticDataConverter.BINARY_FILE);
+        File converted = directory.resolve("converted").toFile();
+
+        StaticDataConverter.toXml(binaryFile, converted);
+
+        for (String file : XML_FILES) {
+            assertArrayEquals(Files.readAllBytes(new File(staticData, file).toPath()),
+                    Files.readAllBytes(new File(converted, file).toPath()), file);
+        }
+
+        StaticDataReader reader = StaticDataReader.open(binaryFile);
+        int receiver = reader.findComponent(name("receiver.Receiver0"));
+
+        assertTrue(receiver >= 0);
+        assertEquals("receiver", reader.getType(receiver));
+        assertEquals(Boolean.TRUE, reader.getDynamic(receiver));
+        assertEquals(-1, reader.findComponent(name("activity.Activity3")));
+    }
+
+    @Test
+    void skipsExcludedClasses() throws IOException {
+
+        // a prefix of the fragment package and the qualified name of the base activity with escaped dots
+        ExclusionMatcher excludeFragments = ExclusionMatcher.compile(List.of(PACKAGE_NAME + ".fragment.*",
+                "com\\.example\\.synthetic\\.baseactivity\\.BaseActivity0"));
+        AnalysisResult result = DexAnalyzer.analyze(apkFile.toPath(),
+                AnalysisOptions.DEFAULTS.withExclusionMatcher(excludeFragments));
+
+        Set<String> scanned = describe(result.getScannedComponents());
+
+        assertFalse(scanned.contains("fragment " + name("fragment.Fragment0")));
+        assertFalse(scanned.contains("activity " + name("baseactivity.BaseActivity0")));
+        assertTrue(scanned.contains("activity " + name("activity.Activity0")));
+    }
+
+    @Test
+    void writesMetricsOfStagesAndCounters() throws IOException {
+
+        File staticDataDir = Main.analyzeAPK(apkFile, AnalysisOptions.DEFAULTS.withParallelism(1), null);
+        List<String> lines = Files.readAllLines(new File(staticDataDir, Main.METRICS_FILE).toPath());
+
+        assertEquals("{", lines.get(0));
+        assertEquals("  \"name\": \"" + PACKAGE_NAME + "\",", lines.get(1));
+        assertTrue(lines.get(2).matches(" {2}\"wallNanos\": \\d+,"), lines.get(2));
+        assertEquals("  \"stages\": [", lines.get(3));
+
+        int countersStart = lines.indexOf("  \"counters\": {");
+        assertEquals("  ],", lines.get(countersStart - 1));
+        assertEquals(List.of("  }", "}"), lines.subList(lines.size() - 2, lines.size()));
+
+        Pattern stagePattern = Pattern.compile(" {4}\\{\"name\": \"([^\"]+)\", \"thread\": \"[^\"]+\", "
+                + "\"startNanos\": (\\d+), \"wallNanos\": \\d+, \"cpuNanos\": -?\\d+, \"allocatedBytes\": -?\\d+},?");
+        List<String> stages = new ArrayList<>();
+        long previousStart = 0;
+
+        for (String line : lines.subList(4, countersStart - 1)) {
+            Matcher stage = stagePattern.matcher(line);
+            assertTrue(stage.matches(), line);
+            stages.add(stage.group(1));
+            // the stages are ordered by their start
+            assertTrue(Long.parseLong(stage.group(2)) >= previousStart, line);
+            previousStart = Long.parseLong(stage.group(2));
+        }
+
+        assertEquals(Set.of("read dex files", "decode manifest", "scan dex files", "select classes", "scan classes",
+                "create components", "register dynamic receivers", "merge components",
+                "write " + StaticDataConverter.COMPONENT_INFO_FILE, "write " + StaticDataConverter.STATIC_STRINGS_FILE,
+                "write " + StaticDataConverter.INTENT_INFO_FILE), Set.copyOf(stages));
+        assertEquals(stages.size(), Set.copyOf(stages).size());
+
+        Pattern counterPattern = Pattern.compile(" {4}\"([^\"]+)\": (\\d+),?");
+        Map<String, Long> counters = new LinkedHashMap<>();
+
+        for (String line : lines.subList(countersStart + 1, lines.size() - 2)) {
+            Matcher counter = counterPattern.matcher(line);
+            assertTrue(counter.matches(), line);
+            counters.put(counter.group(1), Long.parseLong(counter.group(2)));
+        }
+
+        assertEquals(List.of("dexFiles", "indexedClasses", "scannedClasses", "reusedClasses", "visitedMethods",
+                "visitedInstructions", "classInstructions", "propagationSteps", "components"),
+                List.copyOf(counters.keySet()));
+        assertEquals(1, counters.get("dexFiles"));
+        // all classes reside in the app package
+        assertEquals(counters.get("indexedClasses"), counters.get("scannedClasses"));
+        assertTrue(counters.get("scannedClasses") > 0);
+        assertEquals(0, counters.get("reusedClasses"));
+        assertTrue(counters.get("visitedInstructions") >= counters.get("classInstructions"));
+        assertTrue(counters.get("visitedMethods") > 0);
+    }
+
+    private static File analyzeInto(String name, AnalysisOptions options) throws IOException {
+        File staticDataDir = directory.resolve(name).toFile();
+        staticDataDir.mkdirs();
+        AnalysisResult result = DexAnalyzer.analyze(apkFile.toPath(), options);
+        StaticDataFiles.write(result, staticDataDir, options.isWriteBinary(), new StageTimer());
+        return staticDataDir;
+    }
+
+    private static String name(String relativeName) {
+        return PACKAGE_NAME + "." + relativeName;
+    }
+
+    private static Set<String> describe(List<ComponentResult> components) {
+        return components.stream()
+                .map(component -> component.getType() + " " + component.getName())
+                .collect(Collectors.toSet());
+    }
+
+    private static List<String> describeExtras(List<Extra> extras) {
+        return extras.stream()
+                .map(extra -> extra.getKey() + " " + extra.getValueType())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,69 @@
+package de.uni_passau.fim.auermich.android_analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parses the command line options of a single APK, in particular the numeric ones.
+ */
+class MainTest {
+
+    @Test
+    void parsesNumbersWithinRange() {
+        assertEquals(42, Main.parseNumber("--threads", "42", 1, Integer.MAX_VALUE));
+        assertEquals(0, Main.parseNumber("--cache-size", "0", 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    void rejectsNumbersOutOfRange() {
+
+        IllegalArgumentException negative = assertThrows(IllegalArgumentException.class,
+                () -> Main.parseNumber("--threads", "-1", 1, Integer.MAX_VALUE));
+        assertTrue(negative.getMessage().contains("--threads"), negative.getMessage());
+
+        assertThrows(IllegalArgumentException.class, () -> Main.parseNumber("--threads", "0", 1, Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> Main.parseNumber("--daemon", "65536", 0, 0xFFFF));
+    }
+
+    @Test
+    void rejectsNonNumericValues() {
+
+        for (String value : List.of("", "abc", "1.5", "10MB", "9223372036854775808")) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> Main.parseNumber("--cache-size", value, 0, Long.MAX_VALUE), value);
+            assertTrue(e.getMessage().contains("--cache-size"), e.getMessage());
+        }
+    }
+
+    @Test
+    void rejectsInvalidNumericOptions() {
+
+        for (List<String> arguments : List.of(List.of("--threads", "0"), List.of("--threads", "-4"),
+                List.of("--t", "many"), List.of("--call-depth", "-1"))) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> Main.parseOptions(arguments, AnalysisOptions.DEFAULTS, new ArrayList<>()),
+                    String.join(" ", arguments));
+        }
+    }
+
+    @Test
+    void collectsRemainingArguments() throws IOException {
+
+        List<String> remaining = new ArrayList<>();
+        AnalysisOptions options = Main.parseOptions(List.of("--threads", "3", "--cache-size", "abc", "--rac",
+                "--call-depth", "2"), AnalysisOptions.DEFAULTS, remaining);
+
+        assertEquals(3, options.getParallelism());
+        assertEquals(2, options.getMaxCallDepth());
+        assertTrue(options.isResolveAllClasses());
+        // the options of batch and daemon mode are validated by the caller
+        assertEquals(List.of("--cache-size", "abc"), remaining);
+    }
+}
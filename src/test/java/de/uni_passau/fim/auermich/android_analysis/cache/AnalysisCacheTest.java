@@ -0,0 +1,185 @@
+package de.uni_passau.fim.auermich.android_analysis.cache;
+
+import de.uni_passau.fim.auermich.android_analysis.AnalysisOptions;
+import de.uni_passau.fim.auermich.android_analysis.DexAnalyzer;
+import de.uni_passau.fim.auermich.android_analysis.StaticDataFiles;
+import de.uni_passau.fim.auermich.android_analysis.binary.StaticDataConverter;
+import de.uni_passau.fim.auermich.android_analysis.synthetic.SyntheticApp;
+import de.uni_passau.fim.auermich.android_analysis.utility.StageTimer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stores and restores the static data of a small synthetic app, see {@link SyntheticApp}, and checks the keys, the
+ * eviction and the handling of damaged entries.
+ */
+class AnalysisCacheTest {
+
+    private static final String PACKAGE_NAME = "com.example.synthetic";
+
+    private static final List<String> FILES = List.of(StaticDataConverter.COMPONENT_INFO_FILE,
+            StaticDataConverter.STATIC_STRINGS_FILE, StaticDataConverter.INTENT_INFO_FILE);
+
+    @TempDir
+    static Path directory;
+
+    private static File apkFile;
+
+    private static File staticDataDir;
+
+    @BeforeAll
+    static void analyzeApk() throws IOException {
+        apkFile = directory.resolve(PACKAGE_NAME + ".apk").toFile();
+        app().writeApk(apkFile);
+        staticDataDir = directory.resolve("static_data").toFile();
+        staticDataDir.mkdirs();
+        StaticDataFiles.write(DexAnalyzer.analyze(apkFile.toPath(), AnalysisOptions.DEFAULTS), staticDataDir,
+                false, new StageTimer());
+    }
+
+    @Test
+    void changesKeyWithOptionsAndDexFiles() throws IOException {
+
+        String key = AnalysisCache.computeKey(apkFile, AnalysisOptions.DEFAULTS.describeOutputOptions());
+
+        assertEquals(key, AnalysisCache.computeKey(apkFile,
+                AnalysisOptions.DEFAULTS.withParallelism(1).describeOutputOptions()));
+        assertNotEquals(key, AnalysisCache.computeKey(apkFile,
+                AnalysisOptions.DEFAULTS.withMaxCallDepth(3).describeOutputOptions()));
+        assertNotEquals(key, AnalysisCache.computeKey(apkFile,
+                AnalysisOptions.DEFAULTS.withResolveAllClasses(true).describeOutputOptions()));
+        assertNotEquals(key, AnalysisCache.computeKey(apkFile,
+                AnalysisOptions.DEFAULTS.withWriteBinary(true).describeOutputOptions()));
+
+        File changedApk = directory.resolve("changed").resolve(PACKAGE_NAME + ".apk").toFile();
+        changedApk.getParentFile().mkdirs();
+        app().plainClasses(3).writeApk(changedApk);
+
+        assertNotEquals(key, AnalysisCache.computeKey(changedApk, AnalysisOptions.DEFAULTS.describeOutputOptions()));
+    }
+
+    @Test
+    void restoresIdenticalFiles() throws IOException {
+
+        AnalysisCache cache = new AnalysisCache(directory.resolve("hit").toFile(), Long.MAX_VALUE);
+        String key = AnalysisCache.computeKey(apkFile, AnalysisOptions.DEFAULTS.describeOutputOptions());
+        File restoredDir = directory.resolve("restored").toFile();
+
+        assertFalse(cache.restore(key, restoredDir, FILES));
+
+        cache.store(key, staticDataDir, FILES);
+
+        assertTrue(cache.restore(key, restoredDir, FILES));
+        for (String file : FILES) {
+            assertArrayEquals(Files.readAllBytes(staticDataDir.toPath().resolve(file)),
+                    Files.readAllBytes(restoredDir.toPath().resolve(file)), file);
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() throws IOException {
+
+        Path cacheDir = directory.resolve("eviction");
+        AnalysisCache unbounded = new AnalysisCache(cacheDir.toFile(), Long.MAX_VALUE);
+        unbounded.store("first", staticDataDir, FILES);
+        long entrySize = sizeOf(cacheDir.resolve("first"));
+
+        // room for two entries only
+        AnalysisCache cache = new AnalysisCache(cacheDir.toFile(), 2 * entrySize);
+        cache.store("second", staticDataDir, FILES);
+
+        long now = System.currentTimeMillis();
+        Files.setLastModifiedTime(cacheDir.resolve("first"), FileTime.fromMillis(now - 20000));
+        Files.setLastModifiedTime(cacheDir.resolve("second"), FileTime.fromMillis(now - 10000));
+
+        // the restore marks the first entry as used
+        assertTrue(cache.restore("first", directory.resolve("used").toFile(), FILES));
+
+        cache.store("third", staticDataDir, FILES);
+
+        assertEquals(Set.of("first", "third"), entries(cacheDir));
+        assertTrue(sizeOf(cacheDir) <= 2 * entrySize + Files.size(cacheDir.resolve(".lock")));
+    }
+
+    @Test
+    void discardsTruncatedAndCorruptEntries() throws IOException {
+
+        Path cacheDir = directory.resolve("damaged");
+        AnalysisCache cache = new AnalysisCache(cacheDir.toFile(), Long.MAX_VALUE);
+        File restoredDir = directory.resolve("damaged-restored").toFile();
+
+        // a truncated file
+        cache.store("truncated", staticDataDir, FILES);
+        Path components = cacheDir.resolve("truncated").resolve(StaticDataConverter.COMPONENT_INFO_FILE);
+        byte[] content = Files.readAllBytes(components);
+        Files.write(components, Arrays.copyOf(content, content.length / 2));
+
+        // a modified file of the same size
+        cache.store("corrupt", staticDataDir, FILES);
+        Path strings = cacheDir.resolve("corrupt").resolve(StaticDataConverter.STATIC_STRINGS_FILE);
+        content = Files.readAllBytes(strings);
+        content[content.length / 2] ^= 1;
+        Files.write(strings, content);
+
+        // a missing file
+        cache.store("incomplete", staticDataDir, FILES);
+        Files.delete(cacheDir.resolve("incomplete").resolve(StaticDataConverter.INTENT_INFO_FILE));
+
+        for (String key : List.of("truncated", "corrupt", "incomplete")) {
+
+            assertFalse(cache.restore(key, restoredDir, FILES), key);
+            assertFalse(Files.exists(cacheDir.resolve(key)), key);
+
+            // the next analysis stores the entry again
+            cache.store(key, staticDataDir, FILES);
+            assertTrue(cache.restore(key, restoredDir, FILES), key);
+            assertArrayEquals(Files.readAllBytes(staticDataDir.toPath().resolve(FILES.get(0))),
+                    Files.readAllBytes(restoredDir.toPath().resolve(FILES.get(0))), key);
+        }
+
+        assertEquals(Set.of("truncated", "corrupt", "incomplete"), entries(cacheDir));
+    }
+
+    private static SyntheticApp app() {
+        return new SyntheticApp(PACKAGE_NAME)
+                .activities(2)
+                .services(1)
+                .receivers(1)
+                .fragments(1)
+                .plainClasses(2)
+                .extrasPerEntryPoint(2)
+                .callDepth(1);
+    }
+
+    private static Set<String> entries(Path cacheDir) throws IOException {
+        try (Stream<Path> paths = Files.list(cacheDir)) {
+            return paths.filter(Files::isDirectory)
+                    .map(path -> path.getFileName().toString())
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    private static long sizeOf(Path path) throws IOException {
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package de.uni_passau.fim.auermich.android_analysis.scanner;
+
+import de.uni_passau.fim.auermich.android_analysis.AnalysisOptions;
+import de.uni_passau.fim.auermich.android_analysis.DexAnalyzer;
+import de.uni_passau.fim.auermich.android_analysis.StaticDataFiles;
+import de.uni_passau.fim.auermich.android_analysis.binary.StaticDataConverter;
+import de.uni_passau.fim.auermich.android_analysis.synthetic.SyntheticApp;
+import de.uni_passau.fim.auermich.android_analysis.utility.StageTimer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Analyses two versions of a small synthetic app, see {@link SyntheticApp}, with a class record store. The second
+ * version registers another broadcast receiver, which changes a single activity.
+ */
+class ClassRecordStoreTest {
+
+    private static final String PACKAGE_NAME = "com.example.synthetic";
+
+    private static final String[] XML_FILES = {StaticDataConverter.COMPONENT_INFO_FILE,
+            StaticDataConverter.STATIC_STRINGS_FILE, StaticDataConverter.INTENT_INFO_FILE};
+
+    @TempDir
+    static Path directory;
+
+    private static File firstVersion;
+
+    private static File secondVersion;
+
+    @BeforeAll
+    static void writeApks() throws IOException {
+        firstVersion = writeApk("first", 1);
+        secondVersion = writeApk("second", 2);
+    }
+
+    @Test
+    void reusesRecordsOfUnchangedClasses() throws IOException {
+
+        AnalysisOptions options = AnalysisOptions.DEFAULTS.withClassStoreDir(directory.resolve("reuse").toFile());
+
+        StageTimer initial = analyze(firstVersion, options, "reuse-initial");
+        long classes = initial.getCounter("scannedClasses");
+
+        assertTrue(classes > 0);
+        assertEquals(0, initial.getCounter("reusedClasses"));
+
+        StageTimer unchanged = analyze(firstVersion, options, "reuse-unchanged");
+
+        assertEquals(classes, unchanged.getCounter("reusedClasses"));
+        assertEquals(0, unchanged.getCounter("visitedInstructions"));
+        assertSameFiles("reuse-initial", "reuse-unchanged");
+    }
+
+    @Test
+    void rescansChangedClasses() throws IOException {
+
+        AnalysisOptions options = AnalysisOptions.DEFAULTS.withClassStoreDir(directory.resolve("rescan").toFile());
+
+        analyze(firstVersion, options, "rescan-first");
+        StageTimer changed = analyze(secondVersion, options, "rescan-second");
+
+        // only the activity registering the additional receiver is scanned again
+        assertEquals(changed.getCounter("scannedClasses") - 1, changed.getCounter("reusedClasses"));
+
+        analyze(secondVersion, AnalysisOptions.DEFAULTS, "rescan-without-store");
+        assertSameFiles("rescan-without-store", "rescan-second");
+    }
+
+    @Test
+    void ignoresRecordsOfDifferentCallDepth() throws IOException {
+
+        AnalysisOptions options = AnalysisOptions.DEFAULTS.withClassStoreDir(directory.resolve("depth").toFile());
+
+        analyze(firstVersion, options, "depth-default");
+        StageTimer deeper = analyze(firstVersion, options.withMaxCallDepth(DexScanner.DEFAULT_CALL_DEPTH + 1),
+                "depth-deeper");
+
+        assertEquals(0, deeper.getCounter("reusedClasses"));
+        assertTrue(deeper.getCounter("visitedInstructions") > 0);
+
+        // the store now holds the records of the deeper scan
+        StageTimer again = analyze(firstVersion, options.withMaxCallDepth(DexScanner.DEFAULT_CALL_DEPTH + 1),
+                "depth-again");
+
+        assertEquals(again.getCounter("scannedClasses"), again.getCounter("reusedClasses"));
+    }
+
+    private static File writeApk(String version, int registerReceiverCalls) throws IOException {
+        File apkFile = directory.resolve(version).resolve(PACKAGE_NAME + ".apk").toFile();
+        apkFile.getParentFile().mkdirs();
+        new SyntheticApp(PACKAGE_NAME)
+                .activities(3)
+                .services(2)
+                .receivers(2)
+                .fragments(1)
+                .plainClasses(2)
+                .extrasPerEntryPoint(2)
+                .callDepth(1)
+                .registerReceiverCalls(registerReceiverCalls)
+                .writeApk(apkFile);
+        return apkFile;
+    }
+
+    private static StageTimer analyze(File apkFile, AnalysisOptions options, String outputDir) throws IOException {
+        StageTimer timer = new StageTimer();
+        File staticDataDir = directory.resolve(outputDir).toFile();
+        staticDataDir.mkdirs();
+        StaticDataFiles.write(DexAnalyzer.analyze(apkFile.toPath(), options.withParallelism(1), timer),
+                staticDataDir, false, timer);
+        return timer;
+    }
+
+    private static void assertSameFiles(String expectedDir, String actualDir) throws IOException {
+        for (String file : XML_FILES) {
+            assertArrayEquals(Files.readAllBytes(directory.resolve(expectedDir).resolve(file)),
+                    Files.readAllBytes(directory.resolve(actualDir).resolve(file)), file);
+        }
+    }
+}
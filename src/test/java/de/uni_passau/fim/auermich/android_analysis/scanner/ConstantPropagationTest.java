@@ -0,0 +1,146 @@
+package de.uni_passau.fim.auermich.android_analysis.scanner;
+
+import com.android.tools.smali.dexlib2.Opcode;
+import com.android.tools.smali.dexlib2.builder.MethodImplementationBuilder;
+import com.android.tools.smali.dexlib2.builder.instruction.BuilderInstruction10t;
+import com.android.tools.smali.dexlib2.builder.instruction.BuilderInstruction10x;
+import com.android.tools.smali.dexlib2.builder.instruction.BuilderInstruction11x;
+import com.android.tools.smali.dexlib2.builder.instruction.BuilderInstruction21c;
+import com.android.tools.smali.dexlib2.builder.instruction.BuilderInstruction21t;
+import com.android.tools.smali.dexlib2.builder.instruction.BuilderInstruction35c;
+import com.android.tools.smali.dexlib2.iface.MethodImplementation;
+import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
+import com.android.tools.smali.dexlib2.immutable.reference.ImmutableMethodReference;
+import com.android.tools.smali.dexlib2.immutable.reference.ImmutableStringReference;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the register values the {@link ConstantPropagation} derives for the key register of an
+ * {@code Intent.getStringExtra()} invocation, where the key register is v1 and the intent is held in v0.
+ */
+class ConstantPropagationTest {
+
+    private static final ImmutableMethodReference GET_STRING_EXTRA = new ImmutableMethodReference(
+            "Landroid/content/Intent;", "getStringExtra", List.of("Ljava/lang/String;"), "Ljava/lang/String;");
+
+    private static final ImmutableMethodReference LOG = new ImmutableMethodReference(
+            "Lcom/example/Log;", "log", List.of(), "V");
+
+    @Test
+    void keepsValuesOfTryBlockInHandlerFallingThrough() {
+
+        MethodImplementationBuilder builder = new MethodImplementationBuilder(4);
+        builder.addInstruction(constString(1, "key"));
+        builder.addLabel("tryStart");
+        builder.addInstruction(new BuilderInstruction35c(Opcode.INVOKE_STATIC, 0, 0, 0, 0, 0, 0, LOG));
+        builder.addLabel("tryEnd");
+        builder.addInstruction(new BuilderInstruction10t(Opcode.GOTO, builder.getLabel("join")));
+        builder.addLabel("handler");
+        builder.addInstruction(new BuilderInstruction11x(Opcode.MOVE_EXCEPTION, 2));
+        builder.addLabel("join");
+        builder.addInstruction(getStringExtra());
+        builder.addInstruction(new BuilderInstruction10x(Opcode.RETURN_VOID));
+        builder.addCatch(builder.getLabel("tryStart"), builder.getLabel("tryEnd"), builder.getLabel("handler"));
+
+        ConstantPropagation.Value key = getKey(builder.getMethodImplementation(), 4);
+
+        assertEquals(ConstantPropagation.Kind.STRING, key.getKind());
+        assertEquals(List.of("key"), key.getStrings());
+    }
+
+    @Test
+    void keepsValuesOverwrittenInTryBlockAsCandidates() {
+
+        MethodImplementationBuilder builder = new MethodImplementationBuilder(4);
+        builder.addInstruction(constString(1, "first"));
+        builder.addLabel("tryStart");
+        builder.addInstruction(new BuilderInstruction35c(Opcode.INVOKE_STATIC, 0, 0, 0, 0, 0, 0, LOG));
+        builder.addInstruction(constString(1, "second"));
+        builder.addInstruction(new BuilderInstruction35c(Opcode.INVOKE_STATIC, 0, 0, 0, 0, 0, 0, LOG));
+        builder.addLabel("tryEnd");
+        builder.addInstruction(new BuilderInstruction10x(Opcode.RETURN_VOID));
+        builder.addLabel("handler");
+        builder.addInstruction(new BuilderInstruction11x(Opcode.MOVE_EXCEPTION, 2));
+        builder.addInstruction(getStringExtra());
+        builder.addInstruction(new BuilderInstruction10x(Opcode.RETURN_VOID));
+        builder.addCatch(builder.getLabel("tryStart"), builder.getLabel("tryEnd"), builder.getLabel("handler"));
+
+        // either invocation may throw, thus the handler may see both keys
+        assertEquals(List.of("first", "second"), getKey(builder.getMethodImplementation(), 6).getStrings());
+    }
+
+    @Test
+    void keepsConstantsOfBranchesAsCandidates() {
+
+        MethodImplementation implementation = branches(2);
+        ConstantPropagation.Value key = getKey(implementation, 4);
+
+        assertEquals(ConstantPropagation.Kind.STRING, key.getKind());
+        assertEquals(List.of("key0", "key1"), key.getStrings());
+    }
+
+    @Test
+    void dropsConstantsOfTooManyBranches() {
+
+        MethodImplementation bounded = branches(ConstantPropagation.MAX_CANDIDATES);
+        MethodImplementation unbounded = branches(ConstantPropagation.MAX_CANDIDATES + 1);
+
+        assertEquals(ConstantPropagation.MAX_CANDIDATES,
+                getKey(bounded, 3 * ConstantPropagation.MAX_CANDIDATES - 2).getStrings().size());
+        assertEquals(ConstantPropagation.Kind.UNKNOWN,
+                getKey(unbounded, 3 * ConstantPropagation.MAX_CANDIDATES + 1).getKind());
+    }
+
+    /**
+     * Builds a method that assigns one of the given number of keys depending on the parameter p0, i.e. v3, before
+     * passing the key to {@code Intent.getStringExtra()}. Each branch but the last one consists of three
+     * instructions, the last one merely assigns its key.
+     */
+    private static MethodImplementation branches(int count) {
+
+        MethodImplementationBuilder builder = new MethodImplementationBuilder(4);
+
+        for (int i = 0; i < count - 1; i++) {
+            builder.addInstruction(new BuilderInstruction21t(Opcode.IF_NEZ, 3, builder.getLabel("branch" + (i + 1))));
+            builder.addInstruction(constString(1, "key" + i));
+            builder.addInstruction(new BuilderInstruction10t(Opcode.GOTO, builder.getLabel("join")));
+            builder.addLabel("branch" + (i + 1));
+        }
+
+        builder.addInstruction(constString(1, "key" + (count - 1)));
+        builder.addLabel("join");
+        builder.addInstruction(getStringExtra());
+        builder.addInstruction(new BuilderInstruction10x(Opcode.RETURN_VOID));
+        return builder.getMethodImplementation();
+    }
+
+    private static ConstantPropagation.Value getKey(MethodImplementation implementation, int invocation) {
+
+        List<Instruction> instructions = Lists.newArrayList(implementation.getInstructions());
+
+        assertEquals(Opcode.INVOKE_VIRTUAL, instructions.get(invocation).getOpcode(), describe(instructions));
+        return new ConstantPropagation(implementation, instructions, new LongAdder()).getValue(invocation, 1);
+    }
+
+    private static String describe(List<Instruction> instructions) {
+        return IntStream.range(0, instructions.size())
+                .mapToObj(i -> i + ": " + instructions.get(i).getOpcode())
+                .collect(Collectors.joining(", "));
+    }
+
+    private static BuilderInstruction21c constString(int register, String string) {
+        return new BuilderInstruction21c(Opcode.CONST_STRING, register, new ImmutableStringReference(string));
+    }
+
+    private static BuilderInstruction35c getStringExtra() {
+        return new BuilderInstruction35c(Opcode.INVOKE_VIRTUAL, 2, 0, 1, 0, 0, 0, GET_STRING_EXTRA);
+    }
+}
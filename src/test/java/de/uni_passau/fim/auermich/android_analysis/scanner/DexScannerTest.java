@@ -0,0 +1,148 @@
+package de.uni_passau.fim.auermich.android_analysis.scanner;
+
+import com.android.tools.smali.dexlib2.AccessFlags;
+import com.android.tools.smali.dexlib2.Opcode;
+import com.android.tools.smali.dexlib2.Opcodes;
+import com.android.tools.smali.dexlib2.builder.MethodImplementationBuilder;
+import com.android.tools.smali.dexlib2.builder.instruction.BuilderInstruction10t;
+import com.android.tools.smali.dexlib2.builder.instruction.BuilderInstruction10x;
+import com.android.tools.smali.dexlib2.builder.instruction.BuilderInstruction11x;
+import com.android.tools.smali.dexlib2.builder.instruction.BuilderInstruction21c;
+import com.android.tools.smali.dexlib2.builder.instruction.BuilderInstruction21t;
+import com.android.tools.smali.dexlib2.builder.instruction.BuilderInstruction35c;
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.immutable.ImmutableClassDef;
+import com.android.tools.smali.dexlib2.immutable.ImmutableDexFile;
+import com.android.tools.smali.dexlib2.immutable.ImmutableMethod;
+import com.android.tools.smali.dexlib2.immutable.ImmutableMethodParameter;
+import com.android.tools.smali.dexlib2.immutable.reference.ImmutableFieldReference;
+import com.android.tools.smali.dexlib2.immutable.reference.ImmutableMethodReference;
+import com.android.tools.smali.dexlib2.immutable.reference.ImmutableStringReference;
+import com.android.tools.smali.dexlib2.immutable.reference.ImmutableTypeReference;
+import de.uni_passau.fim.auermich.android_analysis.AnalysisOptions;
+import de.uni_passau.fim.auermich.android_analysis.component.Component;
+import de.uni_passau.fim.auermich.android_analysis.component.bundle.Extra;
+import de.uni_passau.fim.auermich.android_analysis.result.ComponentResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Scans hand-written classes, which cover the register values and instruction sequences the synthetic apps don't
+ * exhibit.
+ */
+class DexScannerTest {
+
+    private static final String ACTIVITY = "Lcom/example/MainActivity;";
+    private static final String RECEIVER = "Lcom/example/Receiver;";
+
+    private static final String INTENT = "Landroid/content/Intent;";
+    private static final String INTENT_FILTER = "Landroid/content/IntentFilter;";
+    private static final String STRING = "Ljava/lang/String;";
+
+    private static final int PUBLIC = AccessFlags.PUBLIC.getValue();
+
+    @Test
+    void collectsCandidateActionsAndCategoriesOfDynamicReceivers() {
+
+        // locals v0 to v3, this in v4 and the bundle in v5
+        MethodImplementationBuilder builder = new MethodImplementationBuilder(6);
+        builder.addInstruction(new BuilderInstruction21c(Opcode.NEW_INSTANCE, 1, new ImmutableTypeReference(RECEIVER)));
+        builder.addInstruction(invoke(Opcode.INVOKE_DIRECT, method(RECEIVER, "<init>", "V"), 1));
+        builder.addInstruction(new BuilderInstruction21c(Opcode.NEW_INSTANCE, 2,
+                new ImmutableTypeReference(INTENT_FILTER)));
+        builder.addInstruction(invoke(Opcode.INVOKE_DIRECT, method(INTENT_FILTER, "<init>", "V"), 2));
+        builder.addInstruction(new BuilderInstruction21t(Opcode.IF_NEZ, 5, builder.getLabel("restored")));
+        builder.addInstruction(constString(3, "com.example.ACTION_START"));
+        builder.addInstruction(new BuilderInstruction10t(Opcode.GOTO, builder.getLabel("join")));
+        builder.addLabel("restored");
+        builder.addInstruction(constString(3, "com.example.ACTION_RESTORE"));
+        builder.addLabel("join");
+        builder.addInstruction(invoke(Opcode.INVOKE_VIRTUAL, method(INTENT_FILTER, "addAction", "V", STRING), 2, 3));
+        builder.addInstruction(constString(3, "com.example.CATEGORY"));
+        builder.addInstruction(invoke(Opcode.INVOKE_VIRTUAL, method(INTENT_FILTER, "addCategory", "V", STRING), 2, 3));
+        builder.addInstruction(invoke(Opcode.INVOKE_VIRTUAL, method("Landroid/content/Context;", "registerReceiver",
+                INTENT, "Landroid/content/BroadcastReceiver;", INTENT_FILTER), 4, 1, 2));
+        builder.addInstruction(new BuilderInstruction10x(Opcode.RETURN_VOID));
+
+        Map<String, ComponentResult> components = scan(
+                activity(new ImmutableMethod(ACTIVITY, "onCreate",
+                        List.of(new ImmutableMethodParameter("Landroid/os/Bundle;", null, null)), "V", PUBLIC,
+                        null, null, builder.getMethodImplementation())),
+                new ImmutableClassDef(RECEIVER, PUBLIC, "Landroid/content/BroadcastReceiver;",
+                        null, null, null, null, null));
+
+        ComponentResult receiver = components.get("com.example.Receiver");
+
+        assertEquals(Boolean.TRUE, receiver.getDynamic());
+        assertEquals(1, receiver.getIntentFilters().size());
+        assertEquals(Set.of("com.example.ACTION_START", "com.example.ACTION_RESTORE"),
+                receiver.getIntentFilters().get(0).getActions());
+        assertEquals(Set.of("com.example.CATEGORY"), receiver.getIntentFilters().get(0).getCategories());
+    }
+
+    @Test
+    void resolvesClassVariablesOfConstructorEndingWithStringConstant() {
+
+        ImmutableFieldReference key = new ImmutableFieldReference(ACTIVITY, "KEY", STRING);
+
+        // the last instruction of the static initializer has no successor assigning the constant to a field
+        MethodImplementationBuilder initializer = new MethodImplementationBuilder(1);
+        initializer.addInstruction(constString(0, "com.example.KEY"));
+        initializer.addInstruction(new BuilderInstruction21c(Opcode.SPUT_OBJECT, 0, key));
+        initializer.addInstruction(constString(0, "unassigned"));
+
+        // locals v0 and v1, this in v2 and the bundle in v3
+        MethodImplementationBuilder onCreate = new MethodImplementationBuilder(4);
+        onCreate.addInstruction(invoke(Opcode.INVOKE_VIRTUAL, method(ACTIVITY, "getIntent", INTENT), 2));
+        onCreate.addInstruction(new BuilderInstruction11x(Opcode.MOVE_RESULT_OBJECT, 0));
+        onCreate.addInstruction(new BuilderInstruction21c(Opcode.SGET_OBJECT, 1, key));
+        onCreate.addInstruction(invoke(Opcode.INVOKE_VIRTUAL, method(INTENT, "getStringExtra", STRING, STRING), 0, 1));
+        onCreate.addInstruction(new BuilderInstruction10x(Opcode.RETURN_VOID));
+
+        Map<String, ComponentResult> components = scan(activity(
+                new ImmutableMethod(ACTIVITY, "<clinit>", null, "V",
+                        AccessFlags.STATIC.getValue() | AccessFlags.CONSTRUCTOR.getValue(), null, null,
+                        initializer.getMethodImplementation()),
+                new ImmutableMethod(ACTIVITY, "onCreate",
+                        List.of(new ImmutableMethodParameter("Landroid/os/Bundle;", null, null)), "V", PUBLIC,
+                        null, null, onCreate.getMethodImplementation())));
+
+        assertEquals(List.of("com.example.KEY"), components.get("com.example.MainActivity").getExtras().stream()
+                .map(Extra::getKey).collect(Collectors.toList()));
+    }
+
+    private static Map<String, ComponentResult> scan(ClassDef... classes) {
+
+        DexScanner scanner = new DexScanner(List.of(new ImmutableDexFile(Opcodes.getDefault(), List.of(classes))),
+                "com.example", AnalysisOptions.DEFAULTS.withParallelism(1), null);
+
+        return scanner.scan().stream()
+                .collect(Collectors.toMap(Component::getName, ComponentResult::of));
+    }
+
+    private static ClassDef activity(ImmutableMethod... methods) {
+        return new ImmutableClassDef(ACTIVITY, PUBLIC, "Landroid/app/Activity;", null, null, null, null,
+                List.of(methods));
+    }
+
+    private static ImmutableMethodReference method(String definingClass, String name, String returnType,
+                                                   String... parameterTypes) {
+        return new ImmutableMethodReference(definingClass, name, List.of(parameterTypes), returnType);
+    }
+
+    private static BuilderInstruction35c invoke(Opcode opcode, ImmutableMethodReference method, int... registers) {
+        int[] r = Arrays.copyOf(registers, 5);
+        return new BuilderInstruction35c(opcode, registers.length, r[0], r[1], r[2], r[3], r[4], method);
+    }
+
+    private static BuilderInstruction21c constString(int register, String string) {
+        return new BuilderInstruction21c(Opcode.CONST_STRING, register, new ImmutableStringReference(string));
+    }
+}
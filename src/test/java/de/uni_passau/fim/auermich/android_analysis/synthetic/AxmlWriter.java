@@ -0,0 +1,275 @@
+package de.uni_passau.fim.auermich.android_analysis.synthetic;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a textual XML file into Android's binary XML format (AXML) like aapt does, i.e. a UTF-16 string pool,
+ * whose first strings are the names of the framework attributes listed in the resource map, followed by the chunks
+ * of the namespaces and elements. Attribute values are typed, where 'true' and 'false' become booleans and any other
+ * value a string. Text nodes and comments are dropped, since the manifest doesn't need them.
+ */
+final class AxmlWriter {
+
+    // the chunk types, see ResourceTypes.h of the Android framework
+    private static final int RES_STRING_POOL_TYPE = 0x0001;
+    private static final int RES_XML_TYPE = 0x0003;
+    private static final int RES_XML_START_NAMESPACE_TYPE = 0x0100;
+    private static final int RES_XML_END_NAMESPACE_TYPE = 0x0101;
+    private static final int RES_XML_START_ELEMENT_TYPE = 0x0102;
+    private static final int RES_XML_END_ELEMENT_TYPE = 0x0103;
+    private static final int RES_XML_RESOURCE_MAP_TYPE = 0x0180;
+
+    // the types of typed attribute values
+    private static final int TYPE_STRING = 0x03;
+    private static final int TYPE_INT_BOOLEAN = 0x12;
+
+    // the header sizes of the chunks and the size of a single attribute
+    private static final int XML_HEADER_SIZE = 8;
+    private static final int STRING_POOL_HEADER_SIZE = 28;
+    private static final int RESOURCE_MAP_HEADER_SIZE = 8;
+    private static final int NODE_HEADER_SIZE = 16;
+    private static final int ATTRIBUTE_SIZE = 20;
+
+    private static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+
+    /**
+     * The resource ids of the framework attributes used by the synthetic manifests.
+     */
+    private static final Map<String, Integer> ANDROID_ATTRIBUTES = Map.of(
+            "name", 0x01010003,
+            "enabled", 0x0101000e,
+            "exported", 0x01010010);
+
+    // the string pool, where the index of a string is its insertion order
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+    private final ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+
+    private AxmlWriter() {
+    }
+
+    /**
+     * Compiles the given textual XML file.
+     *
+     * @param xml The textual XML file, which must not declare a document type.
+     * @return Returns the binary XML file.
+     */
+    static byte[] compile(final String xml) {
+
+        Document document;
+
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setNamespaceAware(true);
+            document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new IllegalArgumentException("Couldn't parse XML file!", e);
+        }
+
+        AxmlWriter writer = new AxmlWriter();
+        writer.collectAttributeNames(document.getDocumentElement());
+        writer.writeDocument(document.getDocumentElement());
+        return writer.toByteArray();
+    }
+
+    /**
+     * Adds the names of the framework attributes to the string pool first, such that their indices match the
+     * resource map.
+     */
+    private void collectAttributeNames(final Element element) {
+
+        NamedNodeMap attributes = element.getAttributes();
+
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr) attributes.item(i);
+            if (ANDROID_NAMESPACE.equals(attribute.getNamespaceURI())
+                    && ANDROID_ATTRIBUTES.containsKey(attribute.getLocalName())) {
+                getString(attribute.getLocalName());
+            }
+        }
+
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                collectAttributeNames((Element) child);
+            }
+        }
+    }
+
+    private void writeDocument(final Element root) {
+
+        List<String[]> namespaces = new ArrayList<>();
+        NamedNodeMap attributes = root.getAttributes();
+
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr) attributes.item(i);
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+                namespaces.add(new String[]{attribute.getLocalName(), attribute.getValue()});
+            }
+        }
+
+        for (String[] namespace : namespaces) {
+            writeNamespace(RES_XML_START_NAMESPACE_TYPE, namespace);
+        }
+
+        writeElement(root);
+
+        for (int i = namespaces.size() - 1; i >= 0; i--) {
+            writeNamespace(RES_XML_END_NAMESPACE_TYPE, namespaces.get(i));
+        }
+    }
+
+    private void writeNamespace(final int type, final String[] namespace) {
+        ByteBuffer chunk = startChunk(type, NODE_HEADER_SIZE, NODE_HEADER_SIZE + 8);
+        chunk.putInt(getString(namespace[0])).putInt(getString(namespace[1]));
+        chunks.writeBytes(chunk.array());
+    }
+
+    private void writeElement(final Element element) {
+
+        List<Attr> attributes = new ArrayList<>();
+        NamedNodeMap nodes = element.getAttributes();
+
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Attr attribute = (Attr) nodes.item(i);
+            if (!XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+                attributes.add(attribute);
+            }
+        }
+
+        ByteBuffer chunk = startChunk(RES_XML_START_ELEMENT_TYPE, NODE_HEADER_SIZE,
+                NODE_HEADER_SIZE + 20 + attributes.size() * ATTRIBUTE_SIZE);
+
+        // the namespace and name of the element, the layout of the attributes and the indices of the id, class and
+        // style attributes, which the manifest doesn't have
+        chunk.putInt(getNamespace(element)).putInt(getString(element.getLocalName()))
+                .putShort((short) 20).putShort((short) ATTRIBUTE_SIZE).putShort((short) attributes.size())
+                .putShort((short) 0).putShort((short) 0).putShort((short) 0);
+
+        for (Attr attribute : attributes) {
+
+            String value = attribute.getValue();
+            chunk.putInt(getNamespace(attribute)).putInt(getString(attribute.getLocalName()));
+
+            if (value.equals("true") || value.equals("false")) {
+                chunk.putInt(-1).putShort((short) 8).put((byte) 0).put((byte) TYPE_INT_BOOLEAN)
+                        .putInt(value.equals("true") ? -1 : 0);
+            } else {
+                int index = getString(value);
+                chunk.putInt(index).putShort((short) 8).put((byte) 0).put((byte) TYPE_STRING).putInt(index);
+            }
+        }
+
+        chunks.writeBytes(chunk.array());
+
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                writeElement((Element) child);
+            }
+        }
+
+        ByteBuffer end = startChunk(RES_XML_END_ELEMENT_TYPE, NODE_HEADER_SIZE, NODE_HEADER_SIZE + 8);
+        end.putInt(getNamespace(element)).putInt(getString(element.getLocalName()));
+        chunks.writeBytes(end.array());
+    }
+
+    /**
+     * Allocates a node chunk and writes its header, i.e. the type, the sizes, the line number and the comment.
+     */
+    private static ByteBuffer startChunk(final int type, final int headerSize, final int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN)
+                .putShort((short) type).putShort((short) headerSize).putInt(size)
+                .putInt(1).putInt(-1);
+    }
+
+    private int getNamespace(final Node node) {
+        return node.getNamespaceURI() != null ? getString(node.getNamespaceURI()) : -1;
+    }
+
+    private int getString(final String string) {
+        return strings.computeIfAbsent(string, key -> strings.size());
+    }
+
+    private byte[] toByteArray() {
+
+        byte[] stringPool = buildStringPool();
+
+        int resourceMapSize = RESOURCE_MAP_HEADER_SIZE;
+        List<Integer> resourceIds = new ArrayList<>();
+
+        for (String string : strings.keySet()) {
+            if (!ANDROID_ATTRIBUTES.containsKey(string)) {
+                break;
+            }
+            resourceIds.add(ANDROID_ATTRIBUTES.get(string));
+            resourceMapSize += 4;
+        }
+
+        ByteBuffer resourceMap = ByteBuffer.allocate(resourceMapSize).order(ByteOrder.LITTLE_ENDIAN)
+                .putShort((short) RES_XML_RESOURCE_MAP_TYPE).putShort((short) RESOURCE_MAP_HEADER_SIZE)
+                .putInt(resourceMapSize);
+        resourceIds.forEach(resourceMap::putInt);
+
+        int size = XML_HEADER_SIZE + stringPool.length + resourceMapSize + chunks.size();
+
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN)
+                .putShort((short) RES_XML_TYPE).putShort((short) XML_HEADER_SIZE).putInt(size)
+                .put(stringPool).put(resourceMap.array()).put(chunks.toByteArray())
+                .array();
+    }
+
+    /**
+     * Builds the UTF-16 string pool, where each string is prefixed by its length and terminated by a zero.
+     */
+    private byte[] buildStringPool() {
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ByteBuffer offsets = ByteBuffer.allocate(strings.size() * 4).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (String string : strings.keySet()) {
+
+            if (string.length() > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("String too long for the string pool: " + string);
+            }
+
+            offsets.putInt(data.size());
+            data.write(string.length() & 0xFF);
+            data.write(string.length() >> 8);
+            data.writeBytes(string.getBytes(StandardCharsets.UTF_16LE));
+            data.write(0);
+            data.write(0);
+        }
+
+        while (data.size() % 4 != 0) {
+            data.write(0);
+        }
+
+        int size = STRING_POOL_HEADER_SIZE + offsets.capacity() + data.size();
+
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN)
+                .putShort((short) RES_STRING_POOL_TYPE).putShort((short) STRING_POOL_HEADER_SIZE).putInt(size)
+                .putInt(strings.size()).putInt(0).putInt(0)
+                .putInt(STRING_POOL_HEADER_SIZE + offsets.capacity()).putInt(0)
+                .put(offsets.array()).put(data.toByteArray())
+                .array();
+    }
+}
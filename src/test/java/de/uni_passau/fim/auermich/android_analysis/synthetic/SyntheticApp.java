@@ -0,0 +1,700 @@
+package de.uni_passau.fim.auermich.android_analysis.synthetic;
+
+import com.android.tools.smali.dexlib2.AccessFlags;
+import com.android.tools.smali.dexlib2.Opcode;
+import com.android.tools.smali.dexlib2.Opcodes;
+import com.android.tools.smali.dexlib2.dexbacked.DexBackedDexFile;
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
+import com.android.tools.smali.dexlib2.immutable.ImmutableClassDef;
+import com.android.tools.smali.dexlib2.immutable.ImmutableMethod;
+import com.android.tools.smali.dexlib2.immutable.ImmutableMethodImplementation;
+import com.android.tools.smali.dexlib2.immutable.ImmutableMethodParameter;
+import com.android.tools.smali.dexlib2.immutable.instruction.ImmutableInstruction10x;
+import com.android.tools.smali.dexlib2.immutable.instruction.ImmutableInstruction11n;
+import com.android.tools.smali.dexlib2.immutable.instruction.ImmutableInstruction11x;
+import com.android.tools.smali.dexlib2.immutable.instruction.ImmutableInstruction12x;
+import com.android.tools.smali.dexlib2.immutable.instruction.ImmutableInstruction21c;
+import com.android.tools.smali.dexlib2.immutable.instruction.ImmutableInstruction35c;
+import com.android.tools.smali.dexlib2.immutable.reference.ImmutableMethodReference;
+import com.android.tools.smali.dexlib2.immutable.reference.ImmutableStringReference;
+import com.android.tools.smali.dexlib2.immutable.reference.ImmutableTypeReference;
+import com.android.tools.smali.dexlib2.writer.io.MemoryDataStore;
+import com.android.tools.smali.dexlib2.writer.pool.DexPool;
+import de.uni_passau.fim.auermich.android_analysis.utility.ClassUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates synthetic apps of configurable size and shape, e.g. for scale tests, since real APKs can't be shared.
+ * The classes are built with dexlib2's {@link ImmutableClassDef} and written with its {@link DexPool}, where the
+ * classes are split across as many dex files as necessary to stay below the dex limits.
+ *
+ * An app consists of the following classes, all residing in the package of the app:
+ * <ul>
+ *     <li>For each component type, a chain of base classes of the configured hierarchy depth. The components of
+ *     that type extend the last base class, such that their type is only known after walking up the hierarchy.</li>
+ *     <li>The activities, services, broadcast receivers and fragments. The entry point method of each component
+ *     reads the configured number of extras from its intent and passes the intent on to a chain of helpers. An
+ *     activity may register a broadcast receiver dynamically with an intent filter holding an action and a
+ *     category.</li>
+ *     <li>The helpers, which form chains of the configured call depth. Each helper reads another extra.</li>
+ *     <li>Plain classes, which are no components at all.</li>
+ * </ul>
+ * Every class has the configured number of additional methods with the configured number of instructions each.
+ * The APK contains the dex files and a binary AndroidManifest.xml declaring all components except the dynamically
+ * registered broadcast receivers, where the first activity is the main activity.
+ */
+public final class SyntheticApp {
+
+    private static final Logger LOGGER = LogManager.getLogger(SyntheticApp.class);
+
+    private static final String ACTIVITY = "Landroid/app/Activity;";
+    private static final String SERVICE = "Landroid/app/Service;";
+    private static final String BROADCAST_RECEIVER = "Landroid/content/BroadcastReceiver;";
+    private static final String FRAGMENT = "Landroidx/fragment/app/Fragment;";
+    private static final String OBJECT = "Ljava/lang/Object;";
+    private static final String CONTEXT = "Landroid/content/Context;";
+    private static final String INTENT = "Landroid/content/Intent;";
+    private static final String INTENT_FILTER = "Landroid/content/IntentFilter;";
+    private static final String BUNDLE = "Landroid/os/Bundle;";
+    private static final String STRING = "Ljava/lang/String;";
+
+    private static final int PUBLIC = AccessFlags.PUBLIC.getValue();
+    private static final int PUBLIC_ABSTRACT = AccessFlags.PUBLIC.getValue() | AccessFlags.ABSTRACT.getValue();
+    private static final int PUBLIC_STATIC = AccessFlags.PUBLIC.getValue() | AccessFlags.STATIC.getValue();
+    private static final int CONSTRUCTOR = AccessFlags.PUBLIC.getValue() | AccessFlags.CONSTRUCTOR.getValue();
+
+    /**
+     * The getters of intent extras used in turn, each given by its name, its return type and the type of the default
+     * value parameter, if any.
+     */
+    private static final String[][] EXTRA_GETTERS = {
+            {"getStringExtra", STRING, null},
+            {"getIntExtra", "I", "I"},
+            {"getBooleanExtra", "Z", "Z"},
+            {"getFloatExtra", "F", "F"},
+            {"getCharSequenceExtra", "Ljava/lang/CharSequence;", null},
+            {"getStringArrayListExtra", "Ljava/util/ArrayList;", null}
+    };
+
+    // the local registers of the entry point methods, the parameters follow
+    private static final int ENTRY_POINT_LOCALS = 8;
+
+    // the number of distinct strings used by the additional methods, which keeps the string pool small
+    private static final int FILLER_STRINGS = 64;
+
+    // the maximal number of method and string references per dex file
+    private static final int DEX_REFERENCE_LIMIT = 60000;
+
+    private final String packageName;
+    private final String packagePath;
+
+    private int activities = 10;
+    private int services = 5;
+    private int receivers = 5;
+    private int fragments = 5;
+    private int plainClasses = 100;
+    private int hierarchyDepth = 1;
+    private int methodsPerClass = 3;
+    private int instructionsPerMethod = 8;
+    private int extrasPerEntryPoint = 4;
+    private int callDepth = 2;
+    private int registerReceiverCalls = 2;
+
+    /**
+     * The kinds of the generated classes in the order they are generated.
+     */
+    private enum Kind {
+        BASE_ACTIVITY, BASE_SERVICE, BASE_RECEIVER, BASE_FRAGMENT, ACTIVITY, SERVICE, RECEIVER, FRAGMENT, HELPER, PLAIN
+    }
+
+    /**
+     * Creates a generator for an app with the given package name and the default shape, i.e. 10 activities, 5
+     * services, 5 broadcast receivers, 5 fragments and 100 plain classes.
+     *
+     * @param packageName The package name of the app, e.g. 'com.example.synthetic'.
+     */
+    public SyntheticApp(final String packageName) {
+
+        if (packageName.isEmpty() || packageName.startsWith(".") || packageName.endsWith(".")) {
+            throw new IllegalArgumentException("Invalid package name: " + packageName);
+        }
+
+        this.packageName = packageName;
+        this.packagePath = "L" + packageName.replace('.', '/') + "/";
+    }
+
+    private static int requireNonNegative(final String name, final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("The " + name + " must not be negative, but was " + value);
+        }
+        return value;
+    }
+
+    public SyntheticApp activities(final int activities) {
+        this.activities = requireNonNegative("number of activities", activities);
+        return this;
+    }
+
+    public SyntheticApp services(final int services) {
+        this.services = requireNonNegative("number of services", services);
+        return this;
+    }
+
+    public SyntheticApp receivers(final int receivers) {
+        this.receivers = requireNonNegative("number of broadcast receivers", receivers);
+        return this;
+    }
+
+    public SyntheticApp fragments(final int fragments) {
+        this.fragments = requireNonNegative("number of fragments", fragments);
+        return this;
+    }
+
+    public SyntheticApp plainClasses(final int plainClasses) {
+        this.plainClasses = requireNonNegative("number of plain classes", plainClasses);
+        return this;
+    }
+
+    /**
+     * Sets the number of base classes between a component and its framework class.
+     *
+     * @param hierarchyDepth The number of base classes per component type.
+     * @return Returns this generator.
+     */
+    public SyntheticApp hierarchyDepth(final int hierarchyDepth) {
+        this.hierarchyDepth = requireNonNegative("hierarchy depth", hierarchyDepth);
+        return this;
+    }
+
+    /**
+     * Sets the number of methods each class has besides its constructor and its entry point method, if any.
+     *
+     * @param methodsPerClass The number of additional methods per class.
+     * @return Returns this generator.
+     */
+    public SyntheticApp methodsPerClass(final int methodsPerClass) {
+        this.methodsPerClass = requireNonNegative("number of methods per class", methodsPerClass);
+        return this;
+    }
+
+    /**
+     * Sets the number of instructions of each additional method.
+     *
+     * @param instructionsPerMethod The number of instructions, which includes the return instruction.
+     * @return Returns this generator.
+     */
+    public SyntheticApp instructionsPerMethod(final int instructionsPerMethod) {
+        if (instructionsPerMethod < 1) {
+            throw new IllegalArgumentException("A method needs at least one instruction, but was "
+                    + instructionsPerMethod);
+        }
+        this.instructionsPerMethod = instructionsPerMethod;
+        return this;
+    }
+
+    /**
+     * Sets the number of extras each entry point method reads from its intent.
+     *
+     * @param extrasPerEntryPoint The number of extras per entry point method.
+     * @return Returns this generator.
+     */
+    public SyntheticApp extrasPerEntryPoint(final int extrasPerEntryPoint) {
+        this.extrasPerEntryPoint = requireNonNegative("number of extras per entry point", extrasPerEntryPoint);
+        return this;
+    }
+
+    /**
+     * Sets the length of the helper chains the entry point methods pass their intent to.
+     *
+     * @param callDepth The number of nested helper invocations, zero if the intent isn't passed on at all.
+     * @return Returns this generator.
+     */
+    public SyntheticApp callDepth(final int callDepth) {
+        this.callDepth = requireNonNegative("call depth", callDepth);
+        return this;
+    }
+
+    /**
+     * Sets the number of activities registering a broadcast receiver dynamically. The registered receivers aren't
+     * declared in the manifest.
+     *
+     * @param registerReceiverCalls The number of registerReceiver calls, at most one per activity.
+     * @return Returns this generator.
+     */
+    public SyntheticApp registerReceiverCalls(final int registerReceiverCalls) {
+        this.registerReceiverCalls = requireNonNegative("number of registerReceiver calls", registerReceiverCalls);
+        return this;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    private int getBaseClasses(int components) {
+        return components > 0 ? hierarchyDepth : 0;
+    }
+
+    // the number of helper chains, roughly one per eight components
+    private int getHelperChains() {
+        int entryPoints = activities + services + receivers;
+        return callDepth > 0 && entryPoints > 0 ? (entryPoints + 7) / 8 : 0;
+    }
+
+    private int getCount(Kind kind) {
+        switch (kind) {
+            case BASE_ACTIVITY:
+                return getBaseClasses(activities);
+            case BASE_SERVICE:
+                return getBaseClasses(services);
+            case BASE_RECEIVER:
+                return getBaseClasses(receivers);
+            case BASE_FRAGMENT:
+                return getBaseClasses(fragments);
+            case ACTIVITY:
+                return activities;
+            case SERVICE:
+                return services;
+            case RECEIVER:
+                return receivers;
+            case FRAGMENT:
+                return fragments;
+            case HELPER:
+                return getHelperChains() * callDepth;
+            default:
+                return plainClasses;
+        }
+    }
+
+    /**
+     * Returns the total number of generated classes.
+     *
+     * @return Returns the number of classes.
+     */
+    public int getClassCount() {
+        int classCount = 0;
+        for (Kind kind : Kind.values()) {
+            classCount += getCount(kind);
+        }
+        return classCount;
+    }
+
+    /**
+     * Returns the number of classes per dex file, such that neither the method nor the string references of a dex
+     * file exceed their limit.
+     *
+     * @return Returns the number of classes per dex file.
+     */
+    private int getClassesPerDex() {
+        int methodReferences = methodsPerClass + 4;
+        int stringReferences = extrasPerEntryPoint + 8;
+        return Math.max(1, DEX_REFERENCE_LIMIT / Math.max(methodReferences, stringReferences));
+    }
+
+    /**
+     * Builds the dex files of the app and reads them back, such that they are backed by their raw representation
+     * like the dex files of an actual APK.
+     *
+     * @return Returns the dex files.
+     */
+    public List<DexFile> buildDexFiles() {
+
+        List<DexFile> dexFiles = new ArrayList<>();
+
+        for (byte[] dexFile : buildRawDexFiles()) {
+            dexFiles.add(new DexBackedDexFile(Opcodes.getDefault(), dexFile));
+        }
+        return dexFiles;
+    }
+
+    private List<byte[]> buildRawDexFiles() {
+
+        List<byte[]> dexFiles = new ArrayList<>();
+        int classCount = getClassCount();
+        int classesPerDex = getClassesPerDex();
+
+        for (int from = 0; from < classCount; from += classesPerDex) {
+
+            DexPool pool = new DexPool(Opcodes.getDefault());
+
+            for (int index = from; index < Math.min(from + classesPerDex, classCount); index++) {
+                pool.internClass(buildClass(index));
+            }
+
+            MemoryDataStore dataStore = new MemoryDataStore();
+
+            try {
+                pool.writeTo(dataStore);
+            } catch (IOException e) {
+                // the data store resides in memory
+                throw new IllegalStateException("Couldn't write dex file!", e);
+            }
+            dexFiles.add(dataStore.getData());
+        }
+        return dexFiles;
+    }
+
+    /**
+     * Writes the APK of the app, i.e. the manifest and the dex files.
+     *
+     * @param apkFile The APK file, which should be named after the package name for the analysis.
+     * @throws IOException If the APK can't be written.
+     */
+    public void writeApk(final File apkFile) throws IOException {
+
+        try (ZipOutputStream apk = new ZipOutputStream(new FileOutputStream(apkFile))) {
+
+            apk.putNextEntry(new ZipEntry("AndroidManifest.xml"));
+            apk.write(buildManifest());
+            apk.closeEntry();
+
+            List<byte[]> dexFiles = buildRawDexFiles();
+
+            for (int i = 0; i < dexFiles.size(); i++) {
+                apk.putNextEntry(new ZipEntry(i == 0 ? "classes.dex" : "classes" + (i + 1) + ".dex"));
+                apk.write(dexFiles.get(i));
+                apk.closeEntry();
+            }
+        }
+
+        LOGGER.info("Wrote " + apkFile + " with " + getClassCount() + " classes.");
+    }
+
+    /**
+     * Builds the AndroidManifest.xml of the app compiled into the binary XML format, as found in real APKs.
+     *
+     * @return Returns the binary manifest.
+     */
+    public byte[] buildManifest() {
+
+        StringBuilder manifest = new StringBuilder()
+                .append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n")
+                .append("<manifest xmlns:android=\"http://schemas.android.com/apk/res/android\" package=\"")
+                .append(packageName).append("\">\n")
+                .append("    <application>\n");
+
+        for (int i = 0; i < activities; i++) {
+            manifest.append("        <activity android:name=\"").append(getClassName(Kind.ACTIVITY, i)).append("\"");
+            if (i == 0) {
+                manifest.append(">\n")
+                        .append("            <intent-filter>\n")
+                        .append("                <action android:name=\"android.intent.action.MAIN\"/>\n")
+                        .append("                <category android:name=\"android.intent.category.LAUNCHER\"/>\n")
+                        .append("            </intent-filter>\n")
+                        .append("        </activity>\n");
+            } else {
+                manifest.append("/>\n");
+            }
+        }
+
+        for (int i = 0; i < services; i++) {
+            manifest.append("        <service android:name=\"").append(getClassName(Kind.SERVICE, i)).append("\"/>\n");
+        }
+
+        for (int i = 0; i < receivers; i++) {
+            if (!isDynamicReceiver(i)) {
+                manifest.append("        <receiver android:name=\"").append(getClassName(Kind.RECEIVER, i))
+                        .append("\">\n")
+                        .append("            <intent-filter>\n")
+                        .append("                <action android:name=\"").append(getAction(i)).append("\"/>\n")
+                        .append("            </intent-filter>\n")
+                        .append("        </receiver>\n");
+            }
+        }
+
+        return AxmlWriter.compile(manifest.append("    </application>\n")
+                .append("</manifest>\n")
+                .toString());
+    }
+
+    private boolean isDynamicReceiver(int receiver) {
+        return receiver < Math.min(registerReceiverCalls, activities);
+    }
+
+    private String getAction(int receiver) {
+        return packageName + ".ACTION_" + receiver;
+    }
+
+    private String getCategory(int receiver) {
+        return packageName + ".CATEGORY_" + receiver;
+    }
+
+    private Kind getKind(int index) {
+        for (Kind kind : Kind.values()) {
+            int count = getCount(kind);
+            if (index < count) {
+                return kind;
+            }
+            index -= count;
+        }
+        throw new IllegalArgumentException("No class with index " + index);
+    }
+
+    private int getOffset(Kind kind) {
+        int offset = 0;
+        for (Kind other : Kind.values()) {
+            if (other == kind) {
+                return offset;
+            }
+            offset += getCount(other);
+        }
+        return offset;
+    }
+
+    private String getClassName(Kind kind, int number) {
+        StringBuilder simpleName = new StringBuilder();
+        for (String word : kind.name().split("_")) {
+            simpleName.append(word.charAt(0)).append(word.substring(1).toLowerCase());
+        }
+        return packageName + "." + kind.name().toLowerCase().replace("_", "") + "." + simpleName + number;
+    }
+
+    private String getType(Kind kind, int number) {
+        return "L" + getClassName(kind, number).replace('.', '/') + ";";
+    }
+
+    private String getSuperClass(Kind kind, int number) {
+
+        Kind baseKind;
+        String frameworkClass;
+
+        switch (kind) {
+            case BASE_ACTIVITY:
+            case ACTIVITY:
+                baseKind = Kind.BASE_ACTIVITY;
+                frameworkClass = ACTIVITY;
+                break;
+            case BASE_SERVICE:
+            case SERVICE:
+                baseKind = Kind.BASE_SERVICE;
+                frameworkClass = SERVICE;
+                break;
+            case BASE_RECEIVER:
+            case RECEIVER:
+                baseKind = Kind.BASE_RECEIVER;
+                frameworkClass = BROADCAST_RECEIVER;
+                break;
+            case BASE_FRAGMENT:
+            case FRAGMENT:
+                baseKind = Kind.BASE_FRAGMENT;
+                frameworkClass = FRAGMENT;
+                break;
+            default:
+                return OBJECT;
+        }
+
+        // the base classes form a chain, the components extend the last one
+        int level = kind == baseKind ? number : hierarchyDepth;
+        return level == 0 ? frameworkClass : getType(baseKind, level - 1);
+    }
+
+    private ClassDef buildClass(int index) {
+
+        Kind kind = getKind(index);
+        int number = index - getOffset(kind);
+        String type = getType(kind, number);
+        String superClass = getSuperClass(kind, number);
+
+        List<ImmutableMethod> methods = new ArrayList<>();
+        methods.add(new ImmutableMethod(type, "<init>", Collections.emptyList(), "V", CONSTRUCTOR, null, null,
+                implementation(1,
+                        invoke(Opcode.INVOKE_DIRECT, method(superClass, "<init>", "V"), 0),
+                        new ImmutableInstruction10x(Opcode.RETURN_VOID))));
+
+        switch (kind) {
+            case ACTIVITY:
+                methods.add(buildEntryPoint(type, "onCreate", List.of(BUNDLE), number));
+                break;
+            case SERVICE:
+                methods.add(buildEntryPoint(type, "onStartCommand", List.of(INTENT, "I", "I"), number));
+                break;
+            case RECEIVER:
+                methods.add(buildEntryPoint(type, "onReceive", List.of(CONTEXT, INTENT), number));
+                break;
+            case HELPER:
+                methods.add(buildHelper(type, number));
+                break;
+            default:
+                break;
+        }
+
+        for (int i = 0; i < methodsPerClass; i++) {
+            methods.add(buildFillerMethod(type, i));
+        }
+
+        boolean base = kind.name().startsWith("BASE_");
+        return new ImmutableClassDef(type, base ? PUBLIC_ABSTRACT : PUBLIC, superClass, null, null, null, null, methods);
+    }
+
+    /**
+     * Builds the entry point method of a component, which reads extras from its intent, passes the intent to a
+     * helper chain and, for activities, may register a broadcast receiver.
+     */
+    private ImmutableMethod buildEntryPoint(String type, String name, List<String> parameters, int number) {
+
+        int thisRegister = ENTRY_POINT_LOCALS;
+        List<Instruction> instructions = new ArrayList<>();
+
+        if (parameters.contains(INTENT)) {
+            int intentRegister = thisRegister + 1 + parameters.indexOf(INTENT);
+            instructions.add(new ImmutableInstruction12x(Opcode.MOVE_OBJECT, 0, intentRegister));
+        } else {
+            instructions.add(invoke(Opcode.INVOKE_VIRTUAL, method(type, "getIntent", INTENT), thisRegister));
+            instructions.add(new ImmutableInstruction11x(Opcode.MOVE_RESULT_OBJECT, 0));
+        }
+
+        instructions.add(constString(3, ClassUtils.dottedClassName(type) + " entry"));
+
+        for (int extra = 0; extra < extrasPerEntryPoint; extra++) {
+            instructions.addAll(readExtra(0, 1, 2, ClassUtils.dottedClassName(type) + ".KEY_" + extra,
+                    number + extra));
+        }
+
+        int helperChains = getHelperChains();
+
+        if (helperChains > 0) {
+            int chain = (getOffset(getKindOf(type)) + number) % helperChains;
+            instructions.add(invoke(Opcode.INVOKE_STATIC,
+                    method(getType(Kind.HELPER, chain * callDepth), "read", "V", INTENT), 0));
+        }
+
+        if (type.equals(getType(Kind.ACTIVITY, number)) && number < registerReceiverCalls && receivers > 0) {
+            String receiver = getType(Kind.RECEIVER, number % receivers);
+            instructions.add(new ImmutableInstruction21c(Opcode.NEW_INSTANCE, 4, new ImmutableTypeReference(receiver)));
+            instructions.add(invoke(Opcode.INVOKE_DIRECT, method(receiver, "<init>", "V"), 4));
+            instructions.add(new ImmutableInstruction21c(Opcode.NEW_INSTANCE, 5,
+                    new ImmutableTypeReference(INTENT_FILTER)));
+            instructions.add(constString(6, getAction(number % receivers)));
+            instructions.add(invoke(Opcode.INVOKE_DIRECT, method(INTENT_FILTER, "<init>", "V", STRING), 5, 6));
+            instructions.add(constString(6, getCategory(number % receivers)));
+            instructions.add(invoke(Opcode.INVOKE_VIRTUAL, method(INTENT_FILTER, "addCategory", "V", STRING), 5, 6));
+            instructions.add(invoke(Opcode.INVOKE_VIRTUAL, method(CONTEXT, "registerReceiver",
+                    INTENT, BROADCAST_RECEIVER, INTENT_FILTER), thisRegister, 4, 5));
+        }
+
+        instructions.add(new ImmutableInstruction10x(Opcode.RETURN_VOID));
+
+        return new ImmutableMethod(type, name, parameters(parameters), "V", PUBLIC, null, null,
+                implementation(ENTRY_POINT_LOCALS + 1 + parameters.size(), instructions));
+    }
+
+    private Kind getKindOf(String type) {
+        for (Kind kind : List.of(Kind.ACTIVITY, Kind.SERVICE, Kind.RECEIVER)) {
+            if (type.startsWith(packagePath + kind.name().toLowerCase() + "/")) {
+                return kind;
+            }
+        }
+        throw new IllegalArgumentException("Not an entry point component: " + type);
+    }
+
+    /**
+     * Builds the static method of a helper, which reads an extra and passes the intent on to the next helper of its
+     * chain, if any.
+     */
+    private ImmutableMethod buildHelper(String type, int number) {
+
+        // the intent parameter follows the three local registers
+        List<Instruction> instructions = new ArrayList<>(readExtra(3, 0, 1,
+                ClassUtils.dottedClassName(type) + ".KEY", number));
+
+        if ((number + 1) % callDepth != 0) {
+            instructions.add(invoke(Opcode.INVOKE_STATIC,
+                    method(getType(Kind.HELPER, number + 1), "read", "V", INTENT), 3));
+        }
+
+        instructions.add(new ImmutableInstruction10x(Opcode.RETURN_VOID));
+
+        return new ImmutableMethod(type, "read", parameters(List.of(INTENT)), "V", PUBLIC_STATIC, null, null,
+                implementation(4, instructions));
+    }
+
+    /**
+     * Builds the instructions reading a single extra from an intent.
+     *
+     * @param intentRegister The register holding the intent.
+     * @param keyRegister The register for the key.
+     * @param defaultRegister The register for the default value, if the getter requires one.
+     * @param key The key of the extra.
+     * @param getter Selects the getter of the extra.
+     * @return Returns the instructions.
+     */
+    private static List<Instruction> readExtra(int intentRegister, int keyRegister, int defaultRegister, String key,
+                                               int getter) {
+
+        String[] extraGetter = EXTRA_GETTERS[getter % EXTRA_GETTERS.length];
+        List<Instruction> instructions = new ArrayList<>();
+        instructions.add(constString(keyRegister, key));
+
+        if (extraGetter[2] != null) {
+            instructions.add(new ImmutableInstruction11n(Opcode.CONST_4, defaultRegister, 0));
+            instructions.add(invoke(Opcode.INVOKE_VIRTUAL, method(INTENT, extraGetter[0], extraGetter[1], STRING,
+                    extraGetter[2]), intentRegister, keyRegister, defaultRegister));
+        } else {
+            instructions.add(invoke(Opcode.INVOKE_VIRTUAL, method(INTENT, extraGetter[0], extraGetter[1], STRING),
+                    intentRegister, keyRegister));
+        }
+        return instructions;
+    }
+
+    private ImmutableMethod buildFillerMethod(String type, int number) {
+
+        List<Instruction> instructions = new ArrayList<>(instructionsPerMethod);
+
+        for (int i = 0; i < instructionsPerMethod - 1; i++) {
+            if (i % 2 == 0) {
+                instructions.add(constString(0, "value " + (number + i) % FILLER_STRINGS));
+            } else {
+                instructions.add(invoke(Opcode.INVOKE_VIRTUAL, method(STRING, "length", "I"), 0));
+            }
+        }
+
+        instructions.add(new ImmutableInstruction10x(Opcode.RETURN_VOID));
+
+        return new ImmutableMethod(type, "method" + number, Collections.emptyList(), "V", PUBLIC, null, null,
+                implementation(1, instructions));
+    }
+
+    private static ImmutableMethodImplementation implementation(int registerCount, Instruction... instructions) {
+        return implementation(registerCount, Arrays.asList(instructions));
+    }
+
+    private static ImmutableMethodImplementation implementation(int registerCount, List<Instruction> instructions) {
+        return new ImmutableMethodImplementation(registerCount, instructions, null, null);
+    }
+
+    private static List<ImmutableMethodParameter> parameters(List<String> types) {
+        List<ImmutableMethodParameter> parameters = new ArrayList<>();
+        for (String type : types) {
+            parameters.add(new ImmutableMethodParameter(type, null, null));
+        }
+        return parameters;
+    }
+
+    private static ImmutableMethodReference method(String definingClass, String name, String returnType,
+                                                   String... parameterTypes) {
+        return new ImmutableMethodReference(definingClass, name, Arrays.asList(parameterTypes), returnType);
+    }
+
+    private static Instruction constString(int register, String string) {
+        return new ImmutableInstruction21c(Opcode.CONST_STRING, register, new ImmutableStringReference(string));
+    }
+
+    private static Instruction invoke(Opcode opcode, ImmutableMethodReference method, int... registers) {
+        int[] allRegisters = Arrays.copyOf(registers, 5);
+        return new ImmutableInstruction35c(opcode, registers.length, allRegisters[0], allRegisters[1],
+                allRegisters[2], allRegisters[3], allRegisters[4], method);
+    }
+}
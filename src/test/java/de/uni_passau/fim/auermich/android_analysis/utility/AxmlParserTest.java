@@ -0,0 +1,285 @@
+package de.uni_passau.fim.auermich.android_analysis.utility;
+
+import de.uni_passau.fim.auermich.android_analysis.component.Component;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Decodes binary XML files compiled by aapt, see the README of the fixtures, and compares the outcome of the
+ * {@link ManifestParser} with the one for the textual manifest as decoded by apktool. The variants with a UTF-8
+ * string pool, stripped attribute names or relative component names are derived from the compiled manifest by
+ * re-encoding its string pool.
+ */
+class AxmlParserTest {
+
+    private static final String PACKAGE_NAME = "io.selendroid.androiddriver";
+    private static final String ACTIVITY = PACKAGE_NAME + ".WebViewActivity";
+
+    @Test
+    void decodesManifestOfApkLikeApktool() throws IOException {
+
+        ManifestParser binary = ManifestParser.fromAPK(resourceFile(PACKAGE_NAME + ".apk"));
+        ManifestParser textual = new ManifestParser(AxmlParser.parse(resource(PACKAGE_NAME + "-AndroidManifest.xml")));
+
+        assertSameManifest(textual, binary);
+        assertEquals(PACKAGE_NAME, binary.getPackageName());
+        assertEquals(ACTIVITY, binary.getMainActivity());
+        assertEquals(List.of("activity " + ACTIVITY + " enabled exported"), describe(binary.extractComponents()));
+    }
+
+    @Test
+    void decodesTypedAttributeValues() throws IOException {
+
+        Document manifest = AxmlParser.parse(compiledManifest());
+        Element application = (Element) manifest.getElementsByTagName("application").item(0);
+        Element activity = (Element) manifest.getElementsByTagName("activity").item(0);
+        Element usesSdk = (Element) manifest.getElementsByTagName("uses-sdk").item(0);
+
+        assertEquals("true", application.getAttribute("android:debuggable"));
+        assertEquals("false", application.getAttribute("android:allowBackup"));
+        assertEquals("@0x7f020000", application.getAttribute("android:icon"));
+        assertEquals("10", usesSdk.getAttribute("android:minSdkVersion"));
+        assertEquals("0x000004a0", activity.getAttribute("android:configChanges"));
+        assertEquals("0.17.0", manifest.getDocumentElement().getAttribute("android:versionName"));
+    }
+
+    @Test
+    void decodesUtf8StringPool() {
+
+        Document layout = AxmlParser.parse(resource("list_content_simple.axml"));
+        Element root = layout.getDocumentElement();
+
+        assertEquals("ListView", root.getTagName());
+        assertEquals("false", root.getAttribute("android:drawSelectorOnTop"));
+        assertEquals("@0x0102000a", root.getAttribute("android:id"));
+        assertEquals("-1", root.getAttribute("android:layout_width"));
+    }
+
+    @Test
+    void decodesManifestReencodedWithUtf8StringPool() throws IOException {
+
+        ManifestParser utf16 = new ManifestParser(AxmlParser.parse(compiledManifest()));
+        ManifestParser utf8 = new ManifestParser(AxmlParser.parse(
+                rewriteStringPool(compiledManifest(), true, UnaryOperator.identity())));
+
+        assertSameManifest(utf16, utf8);
+    }
+
+    @Test
+    void resolvesStrippedAttributeNamesViaResourceMap() throws IOException {
+
+        byte[] compiled = compiledManifest();
+        int attributeNames = resourceMapSize(compiled);
+
+        byte[] stripped = rewriteStringPool(compiled, false, strings -> {
+            for (int i = 0; i < attributeNames; i++) {
+                strings.set(i, "");
+            }
+            return strings;
+        });
+
+        ManifestParser textual = new ManifestParser(AxmlParser.parse(resource(PACKAGE_NAME + "-AndroidManifest.xml")));
+        ManifestParser binary = new ManifestParser(AxmlParser.parse(stripped));
+
+        assertTrue(attributeNames > 0);
+        assertSameManifest(textual, binary);
+    }
+
+    @Test
+    void resolvesRelativeComponentNames() throws IOException {
+
+        for (String name : List.of(".WebViewActivity", "WebViewActivity")) {
+
+            byte[] compiled = rewriteStringPool(compiledManifest(), false, strings -> {
+                strings.replaceAll(string -> string.equals(ACTIVITY) ? name : string);
+                return strings;
+            });
+
+            String text = new String(resource(PACKAGE_NAME + "-AndroidManifest.xml"), StandardCharsets.UTF_8)
+                    .replace("android:name=\"" + ACTIVITY + "\"", "android:name=\"" + name + "\"");
+
+            ManifestParser textual = new ManifestParser(AxmlParser.parse(text.getBytes(StandardCharsets.UTF_8)));
+            ManifestParser binary = new ManifestParser(AxmlParser.parse(compiled));
+
+            assertSameManifest(textual, binary);
+            assertEquals(List.of("activity " + ACTIVITY + " enabled exported"), describe(binary.extractComponents()));
+        }
+    }
+
+    @Test
+    void decodesComponentsOfFrameworkManifest() {
+
+        ManifestParser parser = new ManifestParser(AxmlParser.parse(resource("framework-AndroidManifest.axml")));
+
+        // the framework declares no launcher activity
+        assertFalse(parser.extractMainActivityAndPackageName());
+        assertEquals("android", parser.getPackageName());
+
+        List<String> components = describe(parser.extractComponents());
+
+        assertEquals(14, components.size());
+        assertTrue(components.contains("activity com.android.internal.app.ChooserActivity enabled exported"));
+        assertTrue(components.contains("activity android.accounts.ChooseAccountActivity enabled"));
+        assertTrue(components.contains("service com.android.internal.os.storage.ExternalStorageFormatter enabled"));
+        assertTrue(components.contains("receiver com.android.server.BootReceiver enabled exported"));
+    }
+
+    @Test
+    void rejectsDocumentTypeDeclarations() {
+
+        byte[] manifest = ("<?xml version=\"1.0\"?><!DOCTYPE manifest [<!ENTITY file SYSTEM \"file:///etc/passwd\">]>"
+                + "<manifest package=\"&file;\"/>").getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IllegalArgumentException.class, () -> AxmlParser.parse(manifest));
+    }
+
+    @Test
+    void rejectsInvalidBinaryXml() {
+        assertThrows(IllegalArgumentException.class, () -> AxmlParser.parse(new byte[]{0x01, 0x00, 0x08, 0x00}));
+    }
+
+    private static void assertSameManifest(ManifestParser expected, ManifestParser actual) {
+        assertEquals(expected.extractMainActivityAndPackageName(), actual.extractMainActivityAndPackageName());
+        assertEquals(expected.getPackageName(), actual.getPackageName());
+        assertEquals(expected.getMainActivity(), actual.getMainActivity());
+        assertEquals(describe(expected.extractComponents()), describe(actual.extractComponents()));
+    }
+
+    private static List<String> describe(List<Component> components) {
+        return components.stream()
+                .map(component -> component.getType() + " " + component.getName()
+                        + (component.isEnabled() ? " enabled" : "") + (component.isExported() ? " exported" : ""))
+                .collect(Collectors.toList());
+    }
+
+    private static byte[] compiledManifest() throws IOException {
+        try (ZipFile apk = new ZipFile(resourceFile(PACKAGE_NAME + ".apk"));
+             InputStream manifest = apk.getInputStream(apk.getEntry("AndroidManifest.xml"))) {
+            return manifest.readAllBytes();
+        }
+    }
+
+    private static byte[] resource(String name) {
+        try (InputStream input = AxmlParserTest.class.getResourceAsStream("/axml/" + name)) {
+            return input.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static File resourceFile(String name) {
+        try {
+            return new File(AxmlParserTest.class.getResource("/axml/" + name).toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the number of entries of the resource map, i.e. the number of attribute names with a resource id,
+     * which are the first strings of the string pool.
+     */
+    private static int resourceMapSize(byte[] axml) {
+
+        ByteBuffer buffer = ByteBuffer.wrap(axml).order(ByteOrder.LITTLE_ENDIAN);
+        int offset = buffer.getShort(2);
+
+        while (offset < axml.length) {
+            if (buffer.getShort(offset) == 0x0180) {
+                return (buffer.getInt(offset + 4) - buffer.getShort(offset + 2)) / 4;
+            }
+            offset += buffer.getInt(offset + 4);
+        }
+        return 0;
+    }
+
+    /**
+     * Replaces the string pool, which directly follows the header of the binary XML file, by a pool holding the
+     * transformed strings in the given encoding. The remaining chunks refer to the strings by their index only.
+     */
+    private static byte[] rewriteStringPool(byte[] axml, boolean utf8, UnaryOperator<List<String>> transformation) {
+
+        ByteBuffer buffer = ByteBuffer.wrap(axml).order(ByteOrder.LITTLE_ENDIAN);
+        int poolOffset = buffer.getShort(2);
+        int poolSize = buffer.getInt(poolOffset + 4);
+        int stringCount = buffer.getInt(poolOffset + 8);
+        boolean poolUtf8 = (buffer.getInt(poolOffset + 16) & (1 << 8)) != 0;
+        int stringsStart = poolOffset + buffer.getInt(poolOffset + 20);
+
+        assertEquals(0, buffer.getInt(poolOffset + 12), "string pools with styles aren't supported");
+        assertTrue(!poolUtf8, "only UTF-16 string pools are re-encoded");
+
+        List<String> strings = new ArrayList<>();
+
+        for (int i = 0; i < stringCount; i++) {
+            int position = stringsStart + buffer.getInt(poolOffset + 28 + i * 4);
+            char[] chars = new char[buffer.getShort(position)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = buffer.getChar(position + 2 + j * 2);
+            }
+            strings.add(new String(chars));
+        }
+
+        strings = transformation.apply(strings);
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ByteBuffer offsets = ByteBuffer.allocate(strings.size() * 4).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (String string : strings) {
+            offsets.putInt(data.size());
+            if (utf8) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                data.write(string.length());
+                data.write(bytes.length);
+                data.writeBytes(bytes);
+                data.write(0);
+            } else {
+                data.write(string.length());
+                data.write(0);
+                data.writeBytes(string.getBytes(StandardCharsets.UTF_16LE));
+                data.write(0);
+                data.write(0);
+            }
+        }
+
+        while (data.size() % 4 != 0) {
+            data.write(0);
+        }
+
+        int headerSize = 28;
+        int newPoolSize = headerSize + offsets.capacity() + data.size();
+
+        ByteBuffer pool = ByteBuffer.allocate(newPoolSize).order(ByteOrder.LITTLE_ENDIAN);
+        pool.putShort((short) 0x0001).putShort((short) headerSize).putInt(newPoolSize)
+                .putInt(strings.size()).putInt(0).putInt(utf8 ? 1 << 8 : 0)
+                .putInt(headerSize + offsets.capacity()).putInt(0)
+                .put(offsets.array()).put(data.toByteArray());
+
+        int remainder = axml.length - poolOffset - poolSize;
+        ByteBuffer result = ByteBuffer.allocate(poolOffset + newPoolSize + remainder).order(ByteOrder.LITTLE_ENDIAN);
+        result.put(axml, 0, poolOffset).put(pool.array()).put(axml, poolOffset + poolSize, remainder);
+        result.putInt(4, result.capacity());
+        return result.array();
+    }
+}
@@ -0,0 +1,106 @@
+package de.uni_passau.fim.auermich.android_analysis.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the {@link ExclusionMatcher} matches the type descriptors and the dotted names of classes exactly like
+ * the exclusion patterns interpreted as regular expressions, regardless of whether a pattern is compiled into the
+ * trie or not.
+ */
+class ExclusionMatcherTest {
+
+    private static final List<String> CLASS_NAMES = List.of(
+            "java.lang.String",
+            "javax.inject.Inject",
+            "com.google.ads.AdView",
+            "com.google.adsense.Banner",
+            "com.googleXads.Fake",
+            "com.facebook.Session",
+            "com.facebookads.Banner",
+            "com.example.MainActivity",
+            "com.example.MainActivity$1",
+            "com.example.ui.MainActivity",
+            "com.example.BuildConfig",
+            "org.example.BuildConfig",
+            "android.support.v4.app.Fragment",
+            "Foo");
+
+    @Test
+    void matchesLikeRegularExpressions() {
+
+        assertMatchesLikeRegularExpressions(ExclusionMatcher.defaults().getPatterns());
+        assertMatchesLikeRegularExpressions(List.of("com.google.ads.*", "com.facebook.*"));
+        assertMatchesLikeRegularExpressions(List.of("com\\.google\\.ads\\..*", "com\\.example\\.MainActivity"));
+        assertMatchesLikeRegularExpressions(List.of("com.example.MainActivity", "Foo"));
+        assertMatchesLikeRegularExpressions(List.of(".*\\.BuildConfig", "com\\.example\\..*Activity.*"));
+        assertMatchesLikeRegularExpressions(List.of("android\\.support\\.v[0-9]+\\..*"));
+    }
+
+    @Test
+    void matchesPrefixPatternsViaTrie() {
+
+        ExclusionMatcher matcher = ExclusionMatcher.compile(List.of("com.google.ads.*"));
+
+        assertTrue(matcher.matchesType("Lcom/google/ads/AdView;"));
+        assertTrue(matcher.matchesType("Lcom/google/ads/internal/Util;"));
+        // the prefix isn't bound to a package separator, just like the regular expression
+        assertTrue(matcher.matchesType("Lcom/google/adsense/Banner;"));
+        assertFalse(matcher.matchesType("Lcom/google/ad/AdView;"));
+        assertFalse(matcher.matchesType("Lorg/com/google/ads/AdView;"));
+    }
+
+    @Test
+    void distinguishesEscapedFromUnescapedDots() {
+
+        ExclusionMatcher unescaped = ExclusionMatcher.compile(List.of("com.google.ads.*"));
+        ExclusionMatcher escaped = ExclusionMatcher.compile(List.of("com\\.google\\.ads\\..*"));
+
+        // an unescaped dot matches any character, an escaped dot solely a package separator
+        assertTrue(unescaped.matches("com.googleXads.Fake"));
+        assertTrue(unescaped.matchesType("Lcom/googleXads/Fake;"));
+        assertFalse(escaped.matches("com.googleXads.Fake"));
+        assertFalse(escaped.matchesType("Lcom/googleXads/Fake;"));
+        assertFalse(escaped.matches("com.google.adsense.Banner"));
+        assertTrue(escaped.matches("com.google.ads.AdView"));
+    }
+
+    @Test
+    void matchesRemainingPatternsAsRegularExpressions() {
+
+        ExclusionMatcher matcher = ExclusionMatcher.compile(List.of(".*\\.BuildConfig"));
+
+        assertTrue(matcher.matches("com.example.BuildConfig"));
+        assertTrue(matcher.matchesType("Lcom/example/BuildConfig;"));
+        assertFalse(matcher.matchesType("Lcom/example/BuildConfigs;"));
+    }
+
+    @Test
+    void ignoresBlankPatterns() {
+
+        ExclusionMatcher matcher = ExclusionMatcher.compile(Arrays.asList("", "  ", "com.facebook.*"));
+
+        assertEquals(List.of("com.facebook.*"), matcher.getPatterns());
+        assertFalse(matcher.matches("com.example.MainActivity"));
+        assertFalse(ExclusionMatcher.NONE.matchesType("Ljava/lang/String;"));
+    }
+
+    private static void assertMatchesLikeRegularExpressions(List<String> patterns) {
+
+        ExclusionMatcher matcher = ExclusionMatcher.compile(patterns);
+
+        for (String className : CLASS_NAMES) {
+            boolean expected = patterns.stream().anyMatch(pattern -> Pattern.matches(pattern, className));
+            String type = "L" + className.replace('.', '/') + ";";
+            assertEquals(expected, matcher.matches(className), className + " " + patterns);
+            assertEquals(expected, matcher.matchesType(type), type + " " + patterns);
+        }
+    }
+}